@@ -0,0 +1,48 @@
+package tetris.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tetris.model.Board;
+import tetris.model.Model;
+
+import java.util.SplittableRandom;
+
+/**
+* Test wydajności sprawdzania kolizji klocka z planszą (Board.fits, wywoływane przez checkMove).
+*/
+@State(Scope.Thread)
+public class CollisionBenchmark extends BaseBenchmark
+{
+    private static final int PROBES = 1024;
+
+    private Board board;
+    private final Model[] pieces = new Model[PROBES];
+    private final int[] rotations = new int[PROBES];
+    private final int[] xs = new int[PROBES];
+    private final int[] ys = new int[PROBES];
+    private int next;
+
+    @Setup
+    public void setUp()
+    {
+        board = Stacks.randomStack(10, 42L);
+        SplittableRandom random = new SplittableRandom(7L);
+        Model.TetrisShape[] shapes = Model.TetrisShape.values();
+        for (int i = 0; i < PROBES; i++)
+        {
+            pieces[i] = Stacks.piece(shapes[1 + random.nextInt(7)]);
+            rotations[i] = random.nextInt(Model.ROTATIONS);
+            xs[i] = random.nextInt(Stacks.WIDTH);
+            ys[i] = random.nextInt(Stacks.HEIGHT);
+        }
+    }
+
+    @Benchmark
+    public boolean fits()
+    {
+        int i = next++ & (PROBES - 1);
+        return board.fits(pieces[i], rotations[i], xs[i], ys[i]);
+    }
+}
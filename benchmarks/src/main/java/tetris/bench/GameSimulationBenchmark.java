@@ -0,0 +1,66 @@
+package tetris.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tetris.engine.GameEngine;
+import tetris.model.BagPieceGenerator;
+import tetris.simulation.Player;
+import tetris.simulation.RandomPlayer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+* Test przepustowości symulacji całych gier: jedna operacja to jedna gra gracza losowego,
+* a licznik pieces podaje liczbę klocków na sekundę.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GameSimulationBenchmark extends BaseBenchmark
+{
+    private static final long MAX_PIECES = 10000;
+
+    private GameEngine engine;
+    private Player player;
+    private long seed;
+
+    /**
+    * Liczniki pomocnicze publikowane razem z wynikami testu.
+    */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters
+    {
+        public long pieces;
+
+        @Setup(Level.Iteration)
+        public void clean()
+        {
+            pieces = 0;
+        }
+    }
+
+    @Setup
+    public void setUp()
+    {
+        engine = new GameEngine(Stacks.WIDTH, Stacks.HEIGHT, new BagPieceGenerator(0L));
+        player = new RandomPlayer(5L);
+    }
+
+    @Benchmark
+    public int fullGame(Counters counters)
+    {
+        engine.reset(++seed);
+        while (engine.isGameOver() == false && engine.getPiecesSpawned() <= MAX_PIECES)
+            engine.step(player.nextAction(engine));
+        counters.pieces += engine.getPiecesSpawned();
+        return engine.getPoints();
+    }
+}
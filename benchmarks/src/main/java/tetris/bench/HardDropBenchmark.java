@@ -0,0 +1,57 @@
+package tetris.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tetris.engine.GameEngine;
+import tetris.model.BagPieceGenerator;
+
+import java.util.SplittableRandom;
+
+/**
+* Test wydajności zrzucania klocka na sam dół (goDown) na zmieniających się stosach.
+* Każdy klocek jest przesuwany o losową liczbę kolumn i zrzucany, a po końcu gry
+* zaczynana jest kolejna - dzięki temu stosy mają różne wysokości i kształty.
+* Na bardzo wysokiej planszy klocek spada przez tysiące wierszy - odległość zrzutu wynika
+* z wysokości kolumn, więc koszt nie powinien zależeć od wysokości planszy.
+*/
+@State(Scope.Thread)
+public class HardDropBenchmark extends BaseBenchmark
+{
+    private static final int SHIFTS = 1024;
+
+    @Param({"22", "4000"})
+    public int height;
+
+    private GameEngine engine;
+    private final int[] shifts = new int[SHIFTS];
+    private int next;
+    private long seed;
+
+    @Setup
+    public void setUp()
+    {
+        engine = new GameEngine(Stacks.WIDTH, height, new BagPieceGenerator(0L));
+        engine.reset(seed);
+        SplittableRandom random = new SplittableRandom(11L);
+        for (int i = 0; i < SHIFTS; i++)
+            shifts[i] = random.nextInt(Stacks.WIDTH) - Stacks.WIDTH / 2;
+    }
+
+    @Benchmark
+    public int hardDrop()
+    {
+        if (engine.isGameOver())
+            engine.reset(++seed);
+        if (engine.pieceBlank())
+            engine.step(GameEngine.Action.TICK);
+        int shift = shifts[next++ & (SHIFTS - 1)];
+        GameEngine.Action move = shift < 0 ? GameEngine.Action.LEFT : GameEngine.Action.RIGHT;
+        for (int i = Math.abs(shift); i > 0; i--)
+            engine.step(move);
+        engine.step(GameEngine.Action.HARD_DROP);
+        return engine.getPoints();
+    }
+}
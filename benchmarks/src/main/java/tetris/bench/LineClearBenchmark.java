@@ -0,0 +1,48 @@
+package tetris.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tetris.model.Board;
+
+/**
+* Test wydajności usuwania pełnych linii (removeFullLines) dla 0-4 pełnych linii,
+* na zwykłej planszy i na bardzo wysokiej planszy "maratonowej".
+* Przed każdym usunięciem plansza jest odtwarzana z wzorca - koszt samego kopiowania
+* mierzy osobno metoda restoreOnly.
+*/
+@State(Scope.Thread)
+public class LineClearBenchmark extends BaseBenchmark
+{
+    @Param({"0", "1", "2", "3", "4"})
+    public int lines;
+
+    @Param({"22", "4000"})
+    public int height;
+
+    private Board template;
+    private Board board;
+
+    @Setup
+    public void setUp()
+    {
+        template = Stacks.withFullLines(lines, height, 42L);
+        board = new Board(Stacks.WIDTH, height);
+    }
+
+    @Benchmark
+    public int removeFullLines()
+    {
+        board.copyFrom(template);
+        return board.removeFullLines();
+    }
+
+    @Benchmark
+    public Board restoreOnly()
+    {
+        board.copyFrom(template);
+        return board;
+    }
+}
@@ -0,0 +1,71 @@
+package tetris.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tetris.ai.Heuristic;
+import tetris.ai.Move;
+import tetris.ai.PlacementSearch;
+import tetris.model.Board;
+import tetris.model.Model;
+
+/**
+* Test wydajności przeszukiwania położeń klocka przez bota.
+* Licznik placements podaje liczbę ocenionych położeń na sekundę.
+*/
+@State(Scope.Thread)
+public class PlacementSearchBenchmark extends BaseBenchmark
+{
+    private static final int BOARDS = 16;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private PlacementSearch search;
+    private final Board[] boards = new Board[BOARDS];
+    private final Model[] pieces = new Model[BOARDS];
+    private final Move move = new Move();
+    private int next;
+
+    /**
+    * Liczniki pomocnicze publikowane razem z wynikami testu.
+    */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters
+    {
+        public long placements;
+
+        @Setup(Level.Iteration)
+        public void clean()
+        {
+            placements = 0;
+        }
+    }
+
+    @Setup
+    public void setUp()
+    {
+        search = new PlacementSearch(Stacks.WIDTH, Stacks.HEIGHT, Heuristic.DEFAULT, parallelism);
+        Model.TetrisShape[] shapes = Model.TetrisShape.values();
+        for (int i = 0; i < BOARDS; i++)
+        {
+            boards[i] = Stacks.randomStack(2 + i % 8, 100L + i);
+            pieces[i] = Stacks.piece(shapes[1 + i % 7]);
+        }
+    }
+
+    @Benchmark
+    public double search(Counters counters)
+    {
+        int i = next++ & (BOARDS - 1);
+        long before = search.getPlacementsEvaluated();
+        search.search(boards[i], pieces[i], Stacks.WIDTH / 2 + 1, Stacks.HEIGHT - 1 + pieces[i].minimumY(), move);
+        counters.placements += search.getPlacementsEvaluated() - before;
+        return move.getScore();
+    }
+}
@@ -0,0 +1,75 @@
+package tetris.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import tetris.engine.GameEngine;
+import tetris.model.BagPieceGenerator;
+import tetris.view.BoardFrame;
+import tetris.view.BoardRenderer;
+import tetris.view.TetrisBoard;
+import tetris.view.Viewport;
+
+import javax.swing.JLabel;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+* Test wydajności rysowania planszy poza ekranem (do obrazu BufferedImage):
+* wszystkich widocznych pól migawki stanu (BoardRenderer, bez obszaru odmalowywania) oraz całego przebiegu paint,
+* dla planszy o zadanym rozmiarze - na bardzo wysokiej planszy rysowane są tylko wiersze okna widoku (Viewport).
+*/
+@State(Scope.Thread)
+public class RenderBenchmark extends BaseBenchmark
+{
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 660;
+
+    /*rozmiar planszy: szerokość x wysokość*/
+    @Param({"10x22", "64x4000"})
+    public String size;
+
+    private TetrisBoard tetrisBoard;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private final BoardRenderer renderer = new BoardRenderer();
+    private BoardFrame frame;
+
+    @Setup
+    public void setUp()
+    {
+        String[] dimensions = size.split("x");
+        int boardWidth = Integer.parseInt(dimensions[0]);
+        int boardHeight = Integer.parseInt(dimensions[1]);
+        tetrisBoard = new TetrisBoard(new JLabel(), boardWidth, boardHeight);
+        tetrisBoard.setSize(WIDTH, HEIGHT);
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+        /*każde pole, także puste, jest rysowane jako kwadracik, więc koszt nie zależy od zawartości planszy*/
+        frame = new BoardFrame(boardWidth, boardHeight, Viewport.DEFAULT_ROWS);
+        frame.copyFrom(new GameEngine(boardWidth, boardHeight, new BagPieceGenerator(0L)));
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage drawFullBoard()
+    {
+        renderer.render(graphics, frame, WIDTH, HEIGHT, null);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage paint()
+    {
+        tetrisBoard.paint(graphics);
+        return image;
+    }
+}
@@ -0,0 +1,43 @@
+package tetris.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tetris.engine.GameEngine;
+import tetris.model.Model;
+import tetris.model.UniformPieceGenerator;
+
+/**
+* Test wydajności obracania klocka: samego modelu (Model.rotate)
+* oraz obrotu w silniku gry razem ze sprawdzeniem kolizji.
+*/
+@State(Scope.Thread)
+public class RotationBenchmark extends BaseBenchmark
+{
+    private Model piece;
+    private GameEngine engine;
+
+    @Setup
+    public void setUp()
+    {
+        piece = Stacks.piece(Model.TetrisShape.TElement);
+        engine = new GameEngine(Stacks.WIDTH, Stacks.HEIGHT, new UniformPieceGenerator(0L));
+        engine.reset(3L);
+        /*klocek zostaje przesunięty niżej, aby obroty nie wychodziły poza planszę*/
+        for (int i = 0; i < Stacks.HEIGHT / 2; i++)
+            engine.step(GameEngine.Action.SOFT_DROP);
+    }
+
+    @Benchmark
+    public int modelRotate()
+    {
+        return piece.rotate().checkX(0);
+    }
+
+    @Benchmark
+    public boolean engineRotate()
+    {
+        return engine.step(GameEngine.Action.ROTATE);
+    }
+}
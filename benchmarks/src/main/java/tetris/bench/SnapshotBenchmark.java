@@ -0,0 +1,60 @@
+package tetris.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tetris.ai.Heuristic;
+import tetris.ai.SearchPlayer;
+import tetris.engine.GameEngine;
+import tetris.engine.GameSnapshot;
+import tetris.model.BagPieceGenerator;
+
+/**
+* Test wydajności zapisu i przywracania pełnego stanu gry (GameSnapshot)
+* oraz rozgałęzienia stanu widokiem kopiowanym przy zapisie (fork).
+* Stan jest zapisywany w połowie gry bota, więc plansza ma typowy stos klocków.
+*/
+@State(Scope.Thread)
+public class SnapshotBenchmark extends BaseBenchmark
+{
+    private GameEngine engine;
+    private GameSnapshot snapshot;
+    private GameSnapshot root;
+
+    @Setup
+    public void setUp()
+    {
+        engine = new GameEngine(Stacks.WIDTH, Stacks.HEIGHT, new BagPieceGenerator(0L));
+        engine.reset(5L);
+        SearchPlayer player = new SearchPlayer(Stacks.WIDTH, Stacks.HEIGHT, Heuristic.DEFAULT);
+        while (engine.getPiecesSpawned() < 40)
+            engine.step(player.nextAction(engine));
+        snapshot = engine.newSnapshot();
+        root = engine.newSnapshot();
+        engine.saveState(root);
+    }
+
+    @Benchmark
+    public GameSnapshot save()
+    {
+        engine.saveState(snapshot);
+        return snapshot;
+    }
+
+    @Benchmark
+    public int saveAndRestore()
+    {
+        engine.saveState(snapshot);
+        engine.restoreState(snapshot);
+        return engine.getPoints();
+    }
+
+    @Benchmark
+    public GameSnapshot forkAndSave()
+    {
+        GameSnapshot child = root.fork();
+        engine.saveState(child);
+        return child;
+    }
+}
@@ -0,0 +1,88 @@
+package tetris.bench;
+
+import tetris.model.Board;
+import tetris.model.Model;
+
+import java.util.SplittableRandom;
+
+/**
+* Klasa pomocnicza budująca plansze z powtarzalnymi (zależnymi od ziarna) stosami klocków.
+*/
+final class Stacks
+{
+    static final int WIDTH = 10;
+    static final int HEIGHT = 22;
+
+    private static final Model.TetrisShape[] SHAPES = Model.TetrisShape.values();
+
+    private Stacks()
+    {
+    }
+
+    /**
+    * Metoda tworząca planszę z nierównym stosem o zadanej wysokości, z dziurami,
+    * ale bez pełnych linii.
+    * @param height wysokość stosu
+    * @param seed ziarno
+    * @return plansza ze stosem
+    */
+    static Board randomStack(int height, long seed)
+    {
+        return randomStack(height, HEIGHT, seed);
+    }
+
+    /**
+    * Metoda tworząca planszę o zadanej wysokości z nierównym stosem, z dziurami,
+    * ale bez pełnych linii.
+    * @param height wysokość stosu
+    * @param boardHeight wysokość planszy
+    * @param seed ziarno
+    * @return plansza ze stosem
+    */
+    static Board randomStack(int height, int boardHeight, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        Board board = new Board(WIDTH, boardHeight);
+        for (int y = 0; y < height; y++)
+        {
+            int hole = random.nextInt(WIDTH);
+            for (int x = 0; x < WIDTH; x++)
+            {
+                if (x != hole && random.nextInt(4) != 0)
+                    board.setShapeAt(x, y, SHAPES[1 + random.nextInt(7)]);
+            }
+        }
+        return board;
+    }
+
+    /**
+    * Metoda tworząca planszę, na której dokładnie zadana liczba linii jest pełna.
+    * Stos zajmuje połowę wysokości planszy.
+    * @param fullLines liczba pełnych linii (od 0 do 4)
+    * @param boardHeight wysokość planszy
+    * @param seed ziarno
+    * @return plansza z pełnymi liniami przeplatanymi niepełnymi
+    */
+    static Board withFullLines(int fullLines, int boardHeight, long seed)
+    {
+        Board board = randomStack(boardHeight / 2, boardHeight, seed);
+        for (int i = 0; i < fullLines; i++)
+        {
+            int y = 2 * i;
+            for (int x = 0; x < WIDTH; x++)
+                board.setShapeAt(x, y, Model.TetrisShape.IElement);
+        }
+        return board;
+    }
+
+    /**
+    * @param shape kształt
+    * @return nowy klocek o zadanym kształcie
+    */
+    static Model piece(Model.TetrisShape shape)
+    {
+        Model piece = new Model();
+        piece.setOneShape(shape);
+        return piece;
+    }
+}
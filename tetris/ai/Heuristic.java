@@ -0,0 +1,132 @@
+/**
+* Pakiet implementujący bota grającego w tetrisa: przeszukiwanie położeń klocka i ich ocenę.
+*/
+package tetris.ai;
+
+import tetris.model.Board;
+
+/**
+* Klasa oceniająca planszę po położeniu klocka - suma ważona cech planszy:
+* łącznej wysokości kolumn, liczby dziur, nierówności (różnic wysokości sąsiednich kolumn),
+* głębokości studni (kolumn niższych od obu sąsiadów) i liczby usuniętych linii.
+* Im wyższa ocena, tym lepsze położenie. Wagi można dobierać automatycznie (HeuristicTuner).
+*/
+public class Heuristic
+{
+    /*wagi dobrane ręcznie - dobry punkt wyjścia dla gry na planszy 10 kolumn*/
+    public static final Heuristic DEFAULT = new Heuristic(-0.510066, -0.35663, -0.184483, 0.760666);
+
+    /*liczba cech planszy (długość wektora wag, zob. weights)*/
+    public static final int FEATURES = 5;
+
+    private final double aggregateHeight;
+    private final double holes;
+    private final double bumpiness;
+    private final double wells;
+    private final double lines;
+
+    /**
+    * Konstruktor heurystyki.
+    * @param aggregateHeight waga łącznej wysokości kolumn
+    * @param holes waga liczby dziur (pustych pól pod zajętymi)
+    * @param bumpiness waga nierówności powierzchni stosu
+    * @param lines waga liczby usuniętych linii
+    */
+    public Heuristic(double aggregateHeight, double holes, double bumpiness, double lines)
+    {
+        this(aggregateHeight, holes, bumpiness, 0.0, lines);
+    }
+
+    /**
+    * Konstruktor heurystyki z wagą studni.
+    * @param aggregateHeight waga łącznej wysokości kolumn
+    * @param holes waga liczby dziur (pustych pól pod zajętymi)
+    * @param bumpiness waga nierówności powierzchni stosu
+    * @param wells waga łącznej głębokości studni
+    * @param lines waga liczby usuniętych linii
+    */
+    public Heuristic(double aggregateHeight, double holes, double bumpiness, double wells, double lines)
+    {
+        this.aggregateHeight = aggregateHeight;
+        this.holes = holes;
+        this.bumpiness = bumpiness;
+        this.wells = wells;
+        this.lines = lines;
+    }
+
+    /**
+    * Metoda tworząca heurystykę z wektora wag w kolejności zwracanej przez weights.
+    * @param weights wagi cech (FEATURES liczb)
+    * @return heurystyka
+    */
+    public static Heuristic fromWeights(double[] weights)
+    {
+        if (weights.length != FEATURES)
+            throw new IllegalArgumentException("Heurystyka ma " + FEATURES + " wag, a nie " + weights.length);
+        return new Heuristic(weights[0], weights[1], weights[2], weights[3], weights[4]);
+    }
+
+    /**
+    * @return wektor wag: wysokość, dziury, nierówność, studnie, linie
+    */
+    public double[] weights()
+    {
+        return new double[] { aggregateHeight, holes, bumpiness, wells, lines };
+    }
+
+    /**
+    * Metoda oceniająca planszę.
+    * Przeglądane są tylko wiersze stosu (Board.getStackHeight), więc koszt nie zależy od wysokości planszy.
+    * @param board plansza po położeniu klocka i usunięciu pełnych linii
+    * @param linesCleared liczba usuniętych linii
+    * @param heights tablica pomocnicza na wysokości kolumn (co najmniej szerokość planszy)
+    * @return ocena planszy
+    */
+    public double evaluate(Board board, int linesCleared, int[] heights)
+    {
+        int width = board.getWidth();
+        long full = width == Board.MAX_WIDTH ? -1L : (1L << width) - 1;
+        long seen = 0;
+        int holeCount = 0;
+        for (int x = 0; x < width; x++)
+            heights[x] = 0;
+        for (int y = board.getStackHeight() - 1; y >= 0; y--)
+        {
+            long row = board.row(y);
+            /*puste pola pod zajętymi polami wyższych wierszy*/
+            holeCount += Long.bitCount(seen & ~row & full);
+            /*kolumny, w których to najwyższe zajęte pole*/
+            long tops = row & ~seen;
+            while (tops != 0)
+            {
+                heights[Long.numberOfTrailingZeros(tops)] = y + 1;
+                tops &= tops - 1;
+            }
+            seen |= row;
+        }
+        int heightSum = 0;
+        int bumps = 0;
+        int wellDepth = 0;
+        for (int x = 0; x < width; x++)
+        {
+            heightSum += heights[x];
+            if (x > 0)
+                bumps += Math.abs(heights[x] - heights[x - 1]);
+            /*ściany planszy są traktowane jak dowolnie wysokie kolumny*/
+            int left = x > 0 ? heights[x - 1] : Integer.MAX_VALUE;
+            int right = x < width - 1 ? heights[x + 1] : Integer.MAX_VALUE;
+            int side = Math.min(left, right);
+            if (side != Integer.MAX_VALUE && side > heights[x])
+                wellDepth += side - heights[x];
+        }
+        return aggregateHeight * heightSum + holes * holeCount + bumpiness * bumps + wells * wellDepth
+                + lines * linesCleared;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("wysokość %.4f, dziury %.4f, nierówność %.4f, studnie %.4f, linie %.4f",
+                aggregateHeight, holes, bumpiness, wells, lines);
+    }
+}
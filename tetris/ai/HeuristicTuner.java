@@ -0,0 +1,439 @@
+package tetris.ai;
+
+import tetris.model.BagPieceGenerator;
+import tetris.simulation.BatchSimulator;
+import tetris.simulation.SimulationResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+* Klasa dobierająca wagi heurystyki bota algorytmem genetycznym.
+* Każde pokolenie to populacja wektorów wag (o długości 1 - ocena położeń nie zależy od skali wag).
+* Przystosowanie kandydata to średnia liczba punktów w serii gier bota (BatchSimulator) z limitem klocków;
+* wszyscy kandydaci pokolenia grają te same gry, a gry wszystkich kandydatów są rozgrywane naraz we wspólnej
+* puli wątków na wszystkich rdzeniach. Następne pokolenie tworzą najlepsi kandydaci (elita) i potomkowie
+* par wybranych turniejowo: średnia wag rodziców ważona ich przystosowaniem, czasem z mutacją jednej wagi.
+* Ziarna gier i generator liczb losowych każdego pokolenia są wyliczane z ziarna strojenia i numeru pokolenia,
+* więc wynik zależy tylko od parametrów - nie od liczby wątków ani od wznawiania strojenia.
+* Po każdym pokoleniu populacja jest zapisywana do pliku punktu kontrolnego, z którego strojenie można wznowić.
+*/
+public class HeuristicTuner
+{
+    /*nagłówek pliku punktu kontrolnego: "TTUN" i numer wersji*/
+    private static final int MAGIC = 0x5454554E;
+    private static final byte VERSION = 1;
+    /*sól ziarna generatora liczb losowych (odróżnia go od ziaren gier)*/
+    private static final long RANDOM_SALT = 0x5EED5EEDL;
+    /*prawdopodobieństwo i siła mutacji jednej wagi potomka*/
+    private static final double MUTATION_RATE = 0.1;
+    private static final double MUTATION_STEP = 0.2;
+
+    private final int boardWidth;
+    private final int boardHeight;
+    private final int populationSize;
+    private final int games;
+    private final long maxPieces;
+    private final long seed;
+    private final Path checkpoint;
+
+    private int generation;
+    private double[][] population;
+    private double[] bestWeights;
+    private double bestFitness = Double.NEGATIVE_INFINITY;
+
+    /**
+    * Konstruktor strojenia - wznawia je z pliku punktu kontrolnego, jeśli ten istnieje,
+    * a w przeciwnym razie zaczyna od losowej populacji z wagami Heuristic.DEFAULT.
+    * @param boardWidth szerokość planszy
+    * @param boardHeight wysokość planszy
+    * @param populationSize liczba kandydatów w pokoleniu
+    * @param games liczba gier każdego kandydata w pokoleniu
+    * @param maxPieces maksymalna liczba klocków w jednej grze
+    * @param seed ziarno strojenia
+    * @param checkpoint plik punktu kontrolnego albo null
+    * @throws IOException gdy plik punktu kontrolnego jest uszkodzony lub zapisany z innymi parametrami
+    */
+    public HeuristicTuner(int boardWidth, int boardHeight, int populationSize, int games, long maxPieces,
+                          long seed, Path checkpoint) throws IOException
+    {
+        if (populationSize < 2)
+            throw new IllegalArgumentException("Populacja musi mieć co najmniej 2 kandydatów");
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.populationSize = populationSize;
+        this.games = games;
+        this.maxPieces = maxPieces;
+        this.seed = seed;
+        this.checkpoint = checkpoint;
+        if (checkpoint != null && Files.exists(checkpoint))
+            load();
+        else
+            initialize();
+    }
+
+    /**
+    * Metoda tworząca pierwsze pokolenie: wagi Heuristic.DEFAULT i losowe wektory wag.
+    */
+    private void initialize()
+    {
+        Random random = new Random(BatchSimulator.gameSeed(seed ^ RANDOM_SALT, -1));
+        population = new double[populationSize][];
+        population[0] = normalize(Heuristic.DEFAULT.weights());
+        for (int i = 1; i < populationSize; i++)
+        {
+            double[] weights = new double[Heuristic.FEATURES];
+            for (int k = 0; k < weights.length; k++)
+                weights[k] = random.nextDouble() * 2 - 1;
+            population[i] = normalize(weights);
+        }
+        generation = 0;
+    }
+
+    /**
+    * Metoda oceniająca bieżące pokolenie i tworząca następne (po nim zapisuje punkt kontrolny).
+    * @param pool pula wątków, w której rozgrywane są gry
+    * @return wyniki ocenionego pokolenia
+    * @throws IOException gdy zapis punktu kontrolnego się nie powiedzie
+    */
+    public Generation step(ForkJoinPool pool) throws IOException
+    {
+        long gamesSeed = BatchSimulator.gameSeed(seed, generation);
+        double[] fitness = new double[populationSize];
+        long[] pieces = new long[populationSize];
+        long begin = System.nanoTime();
+        pool.invoke(new RecursiveAction()
+        {
+            @Override
+            protected void compute()
+            {
+                RecursiveAction[] candidates = new RecursiveAction[populationSize];
+                for (int i = 0; i < populationSize; i++)
+                {
+                    int candidate = i;
+                    candidates[i] = new RecursiveAction()
+                    {
+                        @Override
+                        protected void compute()
+                        {
+                            Heuristic heuristic = Heuristic.fromWeights(population[candidate]);
+                            BatchSimulator simulator = new BatchSimulator(boardWidth, boardHeight, maxPieces,
+                                    playerSeed -> new SearchPlayer(boardWidth, boardHeight, heuristic),
+                                    () -> new BagPieceGenerator(0L));
+                            SimulationResult result = simulator.run(games, gamesSeed, pool);
+                            fitness[candidate] = result.meanPoints();
+                            pieces[candidate] = result.totalPieces();
+                        }
+                    };
+                }
+                ForkJoinTask.invokeAll(candidates);
+            }
+        });
+        long nanos = System.nanoTime() - begin;
+
+        /*kandydaci od najlepszego; przy równym przystosowaniu wcześniejszy kandydat*/
+        Integer[] order = new Integer[populationSize];
+        for (int i = 0; i < populationSize; i++)
+            order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> -fitness[i]).thenComparingInt(i -> i));
+        double sum = 0;
+        long totalPieces = 0;
+        for (int i = 0; i < populationSize; i++)
+        {
+            sum += fitness[i];
+            totalPieces += pieces[i];
+        }
+        double[] generationBest = population[order[0]];
+        if (fitness[order[0]] > bestFitness)
+        {
+            bestFitness = fitness[order[0]];
+            bestWeights = generationBest.clone();
+        }
+        Generation result = new Generation(generation, fitness[order[0]], sum / populationSize,
+                Heuristic.fromWeights(generationBest), (long) games * populationSize, totalPieces, nanos);
+
+        population = breed(fitness, order, new Random(BatchSimulator.gameSeed(seed ^ RANDOM_SALT, generation)));
+        generation++;
+        if (checkpoint != null)
+            save();
+        return result;
+    }
+
+    /**
+    * Metoda tworząca następne pokolenie z ocenionego.
+    * @param fitness przystosowanie kandydatów
+    * @param order numery kandydatów od najlepszego
+    * @param random generator liczb losowych pokolenia
+    * @return nowa populacja
+    */
+    private double[][] breed(double[] fitness, Integer[] order, Random random)
+    {
+        double[][] next = new double[populationSize][];
+        int elite = Math.max(1, populationSize / 10);
+        for (int i = 0; i < elite; i++)
+            next[i] = population[order[i]];
+        for (int i = elite; i < populationSize; i++)
+        {
+            int a = tournament(fitness, random);
+            int b = tournament(fitness, random);
+            /*średnia rodziców ważona przystosowaniem (+1, żeby rodzice bez punktów też coś wnosili)*/
+            double fa = Math.max(0, fitness[a]) + 1;
+            double fb = Math.max(0, fitness[b]) + 1;
+            double[] child = new double[Heuristic.FEATURES];
+            for (int k = 0; k < child.length; k++)
+                child[k] = fa * population[a][k] + fb * population[b][k];
+            if (random.nextDouble() < MUTATION_RATE)
+            {
+                normalize(child);
+                child[random.nextInt(child.length)] += random.nextGaussian() * MUTATION_STEP;
+            }
+            next[i] = normalize(child);
+        }
+        return next;
+    }
+
+    /**
+    * Metoda wybierająca rodzica turniejem: najlepszy z losowo wybranych 10% populacji (co najmniej 2 kandydatów).
+    */
+    private int tournament(double[] fitness, Random random)
+    {
+        int best = random.nextInt(populationSize);
+        int size = Math.max(2, populationSize / 10);
+        for (int i = 1; i < size; i++)
+        {
+            int candidate = random.nextInt(populationSize);
+            if (fitness[candidate] > fitness[best] || (fitness[candidate] == fitness[best] && candidate < best))
+                best = candidate;
+        }
+        return best;
+    }
+
+    /**
+    * Metoda skalująca wektor wag do długości 1 (w miejscu).
+    * @param weights wektor wag
+    * @return ten sam wektor
+    */
+    private static double[] normalize(double[] weights)
+    {
+        double length = 0;
+        for (double w : weights)
+            length += w * w;
+        length = Math.sqrt(length);
+        if (length > 0)
+        {
+            for (int k = 0; k < weights.length; k++)
+                weights[k] /= length;
+        }
+        return weights;
+    }
+
+    /**
+    * Metoda zapisująca punkt kontrolny: najpierw do pliku tymczasowego, który potem zastępuje poprzedni,
+    * więc przerwanie strojenia w trakcie zapisu nie psuje punktu kontrolnego.
+    * @throws IOException gdy zapis się nie powiedzie
+    */
+    private void save() throws IOException
+    {
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary))))
+        {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(boardWidth);
+            out.writeInt(boardHeight);
+            out.writeInt(populationSize);
+            out.writeInt(games);
+            out.writeLong(maxPieces);
+            out.writeLong(seed);
+            out.writeInt(generation);
+            out.writeDouble(bestFitness);
+            out.writeBoolean(bestWeights != null);
+            if (bestWeights != null)
+                writeWeights(out, bestWeights);
+            for (double[] weights : population)
+                writeWeights(out, weights);
+        }
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+    * Metoda wczytująca punkt kontrolny zapisany z tymi samymi parametrami strojenia.
+    * @throws IOException gdy plik jest uszkodzony lub zapisany z innymi parametrami
+    */
+    private void load() throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpoint))))
+        {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION)
+                throw new IOException("Plik " + checkpoint + " nie jest punktem kontrolnym strojenia");
+            if (in.readInt() != boardWidth || in.readInt() != boardHeight || in.readInt() != populationSize
+                || in.readInt() != games || in.readLong() != maxPieces || in.readLong() != seed)
+                throw new IOException("Punkt kontrolny " + checkpoint + " zapisano z innymi parametrami strojenia");
+            generation = in.readInt();
+            bestFitness = in.readDouble();
+            if (in.readBoolean())
+                bestWeights = readWeights(in);
+            population = new double[populationSize][];
+            for (int i = 0; i < populationSize; i++)
+                population[i] = readWeights(in);
+        }
+    }
+
+    private static void writeWeights(DataOutputStream out, double[] weights) throws IOException
+    {
+        for (double w : weights)
+            out.writeDouble(w);
+    }
+
+    private static double[] readWeights(DataInputStream in) throws IOException
+    {
+        double[] weights = new double[Heuristic.FEATURES];
+        for (int k = 0; k < weights.length; k++)
+            weights[k] = in.readDouble();
+        return weights;
+    }
+
+    /**
+    * @return numer następnego pokolenia do oceny
+    */
+    public int getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+    * @return najlepsza dotąd heurystyka albo null, gdy nie oceniono jeszcze żadnego pokolenia
+    */
+    public Heuristic getBest()
+    {
+        return bestWeights == null ? null : Heuristic.fromWeights(bestWeights);
+    }
+
+    /**
+    * @return przystosowanie najlepszej dotąd heurystyki
+    */
+    public double getBestFitness()
+    {
+        return bestFitness;
+    }
+
+    /**
+    * Klasa przechowująca wyniki ocenionego pokolenia.
+    */
+    public static final class Generation
+    {
+        private final int number;
+        private final double bestFitness;
+        private final double meanFitness;
+        private final Heuristic best;
+        private final long games;
+        private final long pieces;
+        private final long nanos;
+
+        Generation(int number, double bestFitness, double meanFitness, Heuristic best, long games, long pieces, long nanos)
+        {
+            this.number = number;
+            this.bestFitness = bestFitness;
+            this.meanFitness = meanFitness;
+            this.best = best;
+            this.games = games;
+            this.pieces = pieces;
+            this.nanos = nanos;
+        }
+
+        /**
+        * @return numer pokolenia
+        */
+        public int number()
+        {
+            return number;
+        }
+
+        /**
+        * @return przystosowanie najlepszego kandydata pokolenia
+        */
+        public double bestFitness()
+        {
+            return bestFitness;
+        }
+
+        /**
+        * @return średnie przystosowanie pokolenia
+        */
+        public double meanFitness()
+        {
+            return meanFitness;
+        }
+
+        /**
+        * @return heurystyka najlepszego kandydata pokolenia
+        */
+        public Heuristic best()
+        {
+            return best;
+        }
+
+        /**
+        * @return liczba gier rozegranych na sekundę
+        */
+        public double gamesPerSecond()
+        {
+            return games * 1e9 / Math.max(1, nanos);
+        }
+
+        /**
+        * @return raport z wynikami pokolenia w postaci tekstu
+        */
+        @Override
+        public String toString()
+        {
+            return String.format("Pokolenie %d: najlepszy %.2f, średnio %.2f, gry/s %.1f, klocki/s %.0f, czas %.1f s%n  %s",
+                    number, bestFitness, meanFitness, gamesPerSecond(), pieces * 1e9 / Math.max(1, nanos), nanos / 1e9, best);
+        }
+    }
+
+    /**
+    * Uruchomienie strojenia z linii poleceń:
+    * java tetris.ai.HeuristicTuner [punkt kontrolny] [pokolenia] [populacja] [gry] [maks. klocków] [ziarno] [wątki]
+    * Strojenie przerwane w dowolnej chwili wznawia się, uruchamiając je ponownie z tym samym plikiem i parametrami.
+    * @param args parametry strojenia
+    * @throws IOException gdy odczyt lub zapis punktu kontrolnego się nie powiedzie
+    */
+    public static void main(String[] args) throws IOException
+    {
+        Path checkpoint = Paths.get(args.length > 0 ? args[0] : "tuner.ckpt");
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int populationSize = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+        long maxPieces = args.length > 4 ? Long.parseLong(args[4]) : 1000L;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 1L;
+        int threads = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+        HeuristicTuner tuner = new HeuristicTuner(10, 22, populationSize, games, maxPieces, seed, checkpoint);
+        if (tuner.getGeneration() > 0)
+            System.out.println("Wznowienie od pokolenia " + tuner.getGeneration());
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try
+        {
+            while (tuner.getGeneration() < generations)
+                System.out.println(tuner.step(pool));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        System.out.printf("Najlepsza heurystyka (%.2f pkt): %s%n", tuner.getBestFitness(), tuner.getBest());
+    }
+}
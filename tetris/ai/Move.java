@@ -0,0 +1,104 @@
+package tetris.ai;
+
+import tetris.engine.GameEngine;
+
+/**
+* Klasa przechowująca wynik przeszukiwania: położenie końcowe klocka, jego ocenę
+* i ciąg akcji, który do niego prowadzi (zakończony zrzuceniem klocka).
+* Obiekt może być używany wielokrotnie - kolejne przeszukiwania nadpisują jego zawartość.
+*/
+public class Move
+{
+    private GameEngine.Action[] actions = new GameEngine.Action[16];
+    private int length;
+    private int x;
+    private int y;
+    private int rotation;
+    private double score;
+
+    void set(int x, int y, int rotation, double score)
+    {
+        this.x = x;
+        this.y = y;
+        this.rotation = rotation;
+        this.score = score;
+        length = 0;
+    }
+
+    void ensureCapacity(int capacity)
+    {
+        if (actions.length < capacity)
+            actions = new GameEngine.Action[Math.max(capacity, actions.length * 2)];
+    }
+
+    void setAction(int index, GameEngine.Action action)
+    {
+        actions[index] = action;
+    }
+
+    void setLength(int length)
+    {
+        this.length = length;
+    }
+
+    /**
+    * @return liczba akcji prowadzących do położenia końcowego
+    */
+    public int length()
+    {
+        return length;
+    }
+
+    /**
+    * @param i numer akcji
+    * @return akcja o danym numerze
+    */
+    public GameEngine.Action action(int i)
+    {
+        return actions[i];
+    }
+
+    /**
+    * @return współrzędna x położenia końcowego klocka
+    */
+    public int getX()
+    {
+        return x;
+    }
+
+    /**
+    * @return współrzędna y położenia końcowego klocka
+    */
+    public int getY()
+    {
+        return y;
+    }
+
+    /**
+    * @return orientacja klocka w położeniu końcowym
+    */
+    public int getRotation()
+    {
+        return rotation;
+    }
+
+    /**
+    * @return ocena położenia końcowego
+    */
+    public double getScore()
+    {
+        return score;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++)
+        {
+            if (i > 0) text.append(' ');
+            text.append(actions[i]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,329 @@
+package tetris.ai;
+
+import tetris.engine.GameEngine;
+import tetris.model.Board;
+import tetris.model.Model;
+import tetris.model.Zobrist;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+* Klasa wyszukująca wszystkie osiągalne położenia końcowe klocka i wybierająca najlepsze z nich.
+* Przeszukiwanie wszerz (BFS) odbywa się po stanach (x, y, obrót) według tych samych zasad co w silniku gry:
+* przesunięcie w lewo i w prawo, obrót i opadnięcie o linię są możliwe tylko wtedy, gdy klocek się mieści.
+* Każdy osiągnięty stan, z którego klocek nie może już opaść niżej, to kandydat na położenie końcowe,
+* oceniany przez heurystykę. Końcowe opadnięcia w ciągu akcji są zastępowane jednym zrzuceniem klocka.
+* Wszystkie tablice przeszukiwania są tworzone raz, więc kolejne przeszukiwania prawie nie alokują,
+* a ocenianie kandydatów może być rozdzielone na kilka wątków puli ForkJoinPool.
+* Z opcjonalną tablicą transpozycji (TranspositionTable) oceny położeń i najlepsze ruchy są zapamiętywane
+* pod haszem Zobrista planszy, więc powtarzające się układy nie są oceniane ponownie.
+* Obiekt nie jest bezpieczny dla wielu wątków - każdy wątek przeszukujący potrzebuje własnego.
+*/
+public class PlacementSearch
+{
+    private static final GameEngine.Action[] MOVES = {
+        GameEngine.Action.LEFT, GameEngine.Action.RIGHT, GameEngine.Action.ROTATE, GameEngine.Action.SOFT_DROP
+    };
+    /*poniżej tej liczby kandydatów ocenianie odbywa się w jednym wątku*/
+    private static final int MIN_PARALLEL_CANDIDATES = 16;
+
+    private final int width;
+    private final int height;
+    private final Heuristic heuristic;
+    private final int parallelism;
+
+    /*numer bieżącego przeszukiwania - stan jest odwiedzony, gdy jego znacznik jest równy temu numerowi*/
+    private int stamp = 0;
+    private final int[] visited;
+    private final int[] parent;
+    private final byte[] via;
+    private final int[] queue;
+    /*kandydaci - stany, w których klocek leży*/
+    private final int[] candidateStates;
+    private final double[] scores;
+    private int candidates;
+
+    private final Evaluator[] evaluators;
+    private final LongAdder placementsEvaluated = new LongAdder();
+    private TranspositionTable table;
+
+    /**
+    * Konstruktor przeszukiwania z jednym wątkiem oceniającym.
+    * @param width szerokość planszy
+    * @param height wysokość planszy
+    * @param heuristic heurystyka oceniająca położenia
+    */
+    public PlacementSearch(int width, int height, Heuristic heuristic)
+    {
+        this(width, height, heuristic, 1);
+    }
+
+    /**
+    * Konstruktor przeszukiwania.
+    * @param width szerokość planszy
+    * @param height wysokość planszy
+    * @param heuristic heurystyka oceniająca położenia
+    * @param parallelism liczba części, na które dzielone jest ocenianie kandydatów (1 - bez wątków)
+    */
+    public PlacementSearch(int width, int height, Heuristic heuristic, int parallelism)
+    {
+        this.width = width;
+        this.height = height;
+        this.heuristic = heuristic;
+        this.parallelism = Math.max(1, parallelism);
+        int states = Model.ROTATIONS * width * height;
+        visited = new int[states];
+        parent = new int[states];
+        via = new byte[states];
+        queue = new int[states];
+        candidateStates = new int[states];
+        scores = new double[states];
+        evaluators = new Evaluator[this.parallelism];
+        for (int i = 0; i < evaluators.length; i++)
+            evaluators[i] = new Evaluator(width, height);
+    }
+
+    /**
+    * Metoda ustawiająca tablicę transpozycji - może być wspólna dla wielu przeszukiwań (i wątków),
+    * o ile korzystają one z tej samej heurystyki.
+    * @param table tablica transpozycji albo null, aby wyłączyć zapamiętywanie
+    */
+    public void setTranspositionTable(TranspositionTable table)
+    {
+        this.table = table;
+    }
+
+    /**
+    * @return używana tablica transpozycji albo null
+    */
+    public TranspositionTable getTranspositionTable()
+    {
+        return table;
+    }
+
+    /**
+    * Metoda wyszukująca najlepsze położenie końcowe klocka.
+    * @param board plansza (nie jest zmieniana)
+    * @param piece klocek w orientacji początkowej przeszukiwania
+    * @param startX współrzędna x klocka
+    * @param startY współrzędna y klocka
+    * @param result obiekt, do którego zapisywany jest wynik
+    * @return true, jeśli znaleziono jakiekolwiek położenie końcowe
+    */
+    public boolean search(Board board, Model piece, int startX, int startY, Move result)
+    {
+        int startRotation = piece.getRotation();
+        if (piece.getOneShape() == Model.TetrisShape.Blank || board.fits(piece, startRotation, startX, startY) == false)
+            return false;
+        nextStamp();
+        candidates = 0;
+        int head = 0;
+        int tail = 0;
+        int start = index(startX, startY, startRotation);
+        visited[start] = stamp;
+        parent[start] = -1;
+        queue[tail++] = start;
+        while (head < tail)
+        {
+            int state = queue[head++];
+            int x = stateX(state);
+            int y = stateY(state);
+            int rotation = stateRotation(state);
+
+            /*klocek leży - to położenie końcowe*/
+            if (board.fits(piece, rotation, x, y - 1) == false)
+                candidateStates[candidates++] = state;
+
+            for (int m = 0; m < MOVES.length; m++)
+            {
+                int nx = x, ny = y, nr = rotation;
+                switch (MOVES[m])
+                {
+                    case LEFT: nx--; break;
+                    case RIGHT: nx++; break;
+                    case ROTATE: nr = (rotation + 1) % Model.ROTATIONS; break;
+                    default: ny--; break;
+                }
+                if (board.fits(piece, nr, nx, ny) == false) continue;
+                int next = index(nx, ny, nr);
+                if (visited[next] == stamp) continue;
+                visited[next] = stamp;
+                parent[next] = state;
+                via[next] = (byte) m;
+                queue[tail++] = next;
+            }
+        }
+
+        long key = 0L;
+        if (table != null)
+        {
+            /*ruch zapamiętany dla tego układu - wystarczy odtworzyć prowadzącą do niego ścieżkę*/
+            key = board.getHash() ^ Zobrist.piece(piece.getOneShape(), startRotation, startX, startY);
+            if (table.lookup(key, result))
+            {
+                int target = index(result.getX(), result.getY(), result.getRotation());
+                if (result.getX() < width && result.getY() < height && result.getRotation() < Model.ROTATIONS && visited[target] == stamp)
+                {
+                    writePath(target, result);
+                    return true;
+                }
+            }
+            table.nextGeneration();
+        }
+
+        evaluateCandidates(board, piece.getOneShape());
+
+        int best = 0;
+        for (int i = 1; i < candidates; i++)
+        {
+            if (scores[i] > scores[best]) best = i;
+        }
+        int landing = candidateStates[best];
+        result.set(stateX(landing), stateY(landing), stateRotation(landing), scores[best]);
+        writePath(landing, result);
+        if (table != null)
+            table.store(key, stateX(landing), stateY(landing), stateRotation(landing), scores[best]);
+        return true;
+    }
+
+    /**
+    * @return łączna liczba ocenionych położeń od utworzenia obiektu (bez ocen wziętych z tablicy transpozycji)
+    */
+    public long getPlacementsEvaluated()
+    {
+        return placementsEvaluated.sum();
+    }
+
+    private void evaluateCandidates(Board board, Model.TetrisShape shape)
+    {
+        int parts = candidates < MIN_PARALLEL_CANDIDATES ? 1 : parallelism;
+        if (parts == 1)
+        {
+            evaluators[0].evaluate(board, shape, 0, candidates);
+            return;
+        }
+        RecursiveAction[] tasks = new RecursiveAction[parts];
+        for (int i = 0; i < parts; i++)
+        {
+            Evaluator evaluator = evaluators[i];
+            int from = candidates * i / parts;
+            int to = candidates * (i + 1) / parts;
+            tasks[i] = new RecursiveAction()
+            {
+                @Override
+                protected void compute()
+                {
+                    evaluator.evaluate(board, shape, from, to);
+                }
+            };
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveAction()
+        {
+            @Override
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /*zapisanie ciągu akcji od stanu początkowego do danego stanu, zakończonego zrzuceniem klocka;
+    * końcowe opadnięcia o linię są pomijane - zrzucenie klocka z wyższego stanu kończy się w tym samym miejscu*/
+    private void writePath(int state, Move result)
+    {
+        while (parent[state] >= 0 && MOVES[via[state]] == GameEngine.Action.SOFT_DROP)
+            state = parent[state];
+        int length = 0;
+        for (int s = state; parent[s] >= 0; s = parent[s])
+            length++;
+        result.ensureCapacity(length + 1);
+        int i = length;
+        for (int s = state; parent[s] >= 0; s = parent[s])
+            result.setAction(--i, MOVES[via[s]]);
+        result.setAction(length, GameEngine.Action.HARD_DROP);
+        result.setLength(length + 1);
+    }
+
+    private void nextStamp()
+    {
+        if (++stamp == Integer.MAX_VALUE)
+        {
+            Arrays.fill(visited, 0);
+            stamp = 1;
+        }
+    }
+
+    private int index(int x, int y, int rotation)
+    {
+        return (rotation * height + y) * width + x;
+    }
+
+    private int stateX(int state)
+    {
+        return state % width;
+    }
+
+    private int stateY(int state)
+    {
+        return (state / width) % height;
+    }
+
+    private int stateRotation(int state)
+    {
+        return state / (width * height);
+    }
+
+    /**
+    * Klasa oceniająca część kandydatów na własnej kopii planszy.
+    */
+    private class Evaluator
+    {
+        private final Board scratch;
+        private final Model piece = new Model();
+        private final int[] heights;
+
+        Evaluator(int width, int height)
+        {
+            scratch = new Board(width, height);
+            heights = new int[width];
+        }
+
+        void evaluate(Board board, Model.TetrisShape shape, int from, int to)
+        {
+            TranspositionTable cache = table;
+            piece.setOneShape(shape);
+            int evaluated = 0;
+            for (int i = from; i < to; i++)
+            {
+                int landing = candidateStates[i];
+                int x = stateX(landing);
+                int y = stateY(landing);
+                int rotation = stateRotation(landing);
+                /*hasz planszy z położonym klockiem wyznacza też planszę po usunięciu linii*/
+                long key = 0L;
+                if (cache != null)
+                {
+                    key = board.getHash() ^ Zobrist.cells(piece, rotation, x, y);
+                    double cached = cache.lookupScore(key);
+                    if (Double.isNaN(cached) == false)
+                    {
+                        scores[i] = cached;
+                        continue;
+                    }
+                }
+                scratch.copyFrom(board);
+                piece.setRotation(rotation);
+                scratch.place(piece, x, y);
+                int lines = scratch.removeFullLines();
+                scores[i] = heuristic.evaluate(scratch, lines, heights);
+                evaluated++;
+                if (cache != null)
+                    cache.storeScore(key, scores[i]);
+            }
+            placementsEvaluated.add(evaluated);
+        }
+    }
+}
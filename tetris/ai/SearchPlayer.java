@@ -0,0 +1,72 @@
+package tetris.ai;
+
+import tetris.engine.GameEngine;
+import tetris.model.Board;
+import tetris.model.Model;
+import tetris.simulation.Player;
+
+/**
+* Gracz (bot) korzystający z przeszukiwania położeń: dla każdego nowego klocka
+* wyszukuje najlepsze położenie końcowe i wykonuje prowadzący do niego ciąg akcji.
+*/
+public class SearchPlayer implements Player
+{
+    private final PlacementSearch search;
+    private final Board board;
+    private final Model piece = new Model();
+    private final Move move = new Move();
+    private long pieceNumber = -1;
+    private int next;
+    private boolean found;
+
+    /**
+    * Konstruktor gracza.
+    * @param width szerokość planszy
+    * @param height wysokość planszy
+    * @param heuristic heurystyka oceniająca położenia
+    */
+    public SearchPlayer(int width, int height, Heuristic heuristic)
+    {
+        this(width, height, heuristic, null);
+    }
+
+    /**
+    * Konstruktor gracza korzystającego z tablicy transpozycji.
+    * @param width szerokość planszy
+    * @param height wysokość planszy
+    * @param heuristic heurystyka oceniająca położenia
+    * @param table tablica transpozycji (może być wspólna dla wielu graczy) albo null
+    */
+    public SearchPlayer(int width, int height, Heuristic heuristic, TranspositionTable table)
+    {
+        search = new PlacementSearch(width, height, heuristic);
+        search.setTranspositionTable(table);
+        board = new Board(width, height);
+    }
+
+    @Override
+    public GameEngine.Action nextAction(GameEngine engine)
+    {
+        if (engine.pieceBlank()) return GameEngine.Action.TICK;
+        if (engine.getPiecesSpawned() != pieceNumber)
+        {
+            pieceNumber = engine.getPiecesSpawned();
+            engine.copyBoardTo(board);
+            piece.setOneShape(engine.getPieceShape());
+            piece.setRotation(engine.getPieceRotation());
+            found = search.search(board, piece, engine.getPieceX(), engine.getPieceY(), move);
+            next = 0;
+        }
+        if (found && next < move.length())
+            return move.action(next++);
+        return GameEngine.Action.HARD_DROP;
+    }
+
+    /**
+    * @return łączna liczba położeń ocenionych przez tego gracza
+    */
+    public long getPlacementsEvaluated()
+    {
+        return search.getPlacementsEvaluated();
+    }
+}
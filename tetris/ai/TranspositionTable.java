@@ -0,0 +1,280 @@
+package tetris.ai;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+* Ograniczona tablica transpozycji zapamiętująca oceny położeń i najlepsze ruchy, indeksowana haszem Zobrista.
+* Tablica może być współdzielona przez wiele wątków przeszukujących bez blokad:
+* każdy wpis to trzy liczby long (klucz XOR dane, ocena, ruch), a odczyt sprawdza, czy klucz
+* odtworzony z zapisanych wartości zgadza się z szukanym - wpis przerwany równoległym zapisem
+* jest wtedy traktowany jak brak wpisu (zapis może zostać zgubiony, ale nigdy nie zostanie odczytany błędnie).
+* Wpisy są pogrupowane w kubełki po BUCKET_SIZE; gdy kubełek jest pełny, usuwany jest wpis z najstarszego pokolenia.
+* Liczniki trafień, chybień i usunięć pozwalają dobrać rozmiar tablicy do dostępnej pamięci.
+* Oceny w tablicy zależą od heurystyki - tablicę powinny współdzielić tylko przeszukiwania z tą samą heurystyką.
+*/
+public class TranspositionTable
+{
+    /*liczba wpisów w kubełku*/
+    public static final int BUCKET_SIZE = 4;
+    /*rozmiar jednego wpisu w bajtach*/
+    public static final int ENTRY_BYTES = 3 * Long.BYTES;
+
+    private static final long USED = 1L << 63;
+    private static final long HAS_MOVE = 1L << 62;
+    private static final int GENERATION_SHIFT = 40;
+    private static final long GENERATION_MASK = 0xFFFFL;
+
+    private final AtomicLongArray entries;
+    private final int bucketMask;
+    private volatile int generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+    * Konstruktor tablicy.
+    * @param capacity liczba wpisów (zaokrąglana w górę do potęgi dwójki, co najmniej BUCKET_SIZE)
+    */
+    public TranspositionTable(int capacity)
+    {
+        if (capacity <= 0 || capacity > (1 << 26))
+            throw new IllegalArgumentException("Niepoprawny rozmiar tablicy transpozycji: " + capacity);
+        int buckets = (capacity + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        if (Integer.bitCount(buckets) != 1)
+            buckets = Integer.highestOneBit(buckets) << 1;
+        entries = new AtomicLongArray(buckets * BUCKET_SIZE * 3);
+        bucketMask = buckets - 1;
+    }
+
+    /**
+    * Metoda tworząca największą tablicę mieszczącą się w podanej liczbie bajtów.
+    * @param bytes budżet pamięci w bajtach
+    * @return nowa tablica
+    */
+    public static TranspositionTable forMemory(long bytes)
+    {
+        long capacity = Math.max(BUCKET_SIZE, Math.min(1 << 26, bytes / ENTRY_BYTES));
+        return new TranspositionTable(Integer.highestOneBit((int) capacity));
+    }
+
+    /**
+    * Metoda zaczynająca nowe pokolenie wpisów - przy usuwaniu w pierwszej kolejności
+    * wybierane są wpisy zapisane w starszych pokoleniach.
+    */
+    public void nextGeneration()
+    {
+        generation = (generation + 1) & (int) GENERATION_MASK;
+    }
+
+    /**
+    * Metoda szukająca najlepszego ruchu zapisanego pod danym kluczem.
+    * @param key hasz planszy z klockiem w położeniu początkowym
+    * @param result obiekt, do którego zapisywane jest położenie końcowe i ocena (bez ciągu akcji)
+    * @return true, jeśli ruch był w tablicy
+    */
+    public boolean lookup(long key, Move result)
+    {
+        int entry = find(key);
+        if (entry < 0 || (entries.getOpaque(entry + 2) & HAS_MOVE) == 0)
+        {
+            misses.increment();
+            return false;
+        }
+        long score = entries.getOpaque(entry + 1);
+        long move = entries.getOpaque(entry + 2);
+        if ((entries.getOpaque(entry) ^ score ^ move) != key)
+        {
+            misses.increment();
+            return false;
+        }
+        hits.increment();
+        result.set((int) (move & 0xFF), (int) ((move >>> 8) & 0xFFFF), (int) ((move >>> 24) & 0xFF),
+                   Double.longBitsToDouble(score));
+        return true;
+    }
+
+    /**
+    * Metoda szukająca oceny zapisanej pod danym kluczem.
+    * @param key hasz planszy z położonym klockiem
+    * @return zapisana ocena albo NaN, jeśli nie ma jej w tablicy
+    */
+    public double lookupScore(long key)
+    {
+        int entry = find(key);
+        if (entry >= 0)
+        {
+            long score = entries.getOpaque(entry + 1);
+            long move = entries.getOpaque(entry + 2);
+            if ((entries.getOpaque(entry) ^ score ^ move) == key)
+            {
+                hits.increment();
+                return Double.longBitsToDouble(score);
+            }
+        }
+        misses.increment();
+        return Double.NaN;
+    }
+
+    /**
+    * Metoda zapisująca najlepszy ruch.
+    * @param key hasz planszy z klockiem w położeniu początkowym
+    * @param x współrzędna x położenia końcowego (0-255)
+    * @param y współrzędna y położenia końcowego (0-65535)
+    * @param rotation orientacja w położeniu końcowym
+    * @param score ocena położenia
+    */
+    public void store(long key, int x, int y, int rotation, double score)
+    {
+        put(key, Double.doubleToRawLongBits(score), HAS_MOVE | ((long) rotation << 24) | ((long) y << 8) | x);
+    }
+
+    /**
+    * Metoda zapisująca ocenę położenia.
+    * @param key hasz planszy z położonym klockiem
+    * @param score ocena położenia
+    */
+    public void storeScore(long key, double score)
+    {
+        put(key, Double.doubleToRawLongBits(score), 0L);
+    }
+
+    /**
+    * Metoda usuwająca wszystkie wpisy i zerująca liczniki.
+    */
+    public void clear()
+    {
+        for (int i = 0; i < entries.length(); i++)
+            entries.setOpaque(i, 0L);
+        hits.reset();
+        misses.reset();
+        stores.reset();
+        evictions.reset();
+    }
+
+    /**
+    * @return liczba wpisów tablicy
+    */
+    public int capacity()
+    {
+        return entries.length() / 3;
+    }
+
+    /**
+    * @return pamięć zajmowana przez wpisy tablicy w bajtach
+    */
+    public long getMemoryBytes()
+    {
+        return (long) capacity() * ENTRY_BYTES;
+    }
+
+    /**
+    * @return liczba odczytów, które znalazły wpis
+    */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /**
+    * @return liczba odczytów, które nie znalazły wpisu
+    */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+    * @return liczba zapisów
+    */
+    public long getStores()
+    {
+        return stores.sum();
+    }
+
+    /**
+    * @return liczba wpisów usuniętych, by zrobić miejsce na nowe
+    */
+    public long getEvictions()
+    {
+        return evictions.sum();
+    }
+
+    /**
+    * @return udział trafień wśród wszystkich odczytów
+    */
+    public double getHitRate()
+    {
+        long h = getHits();
+        long all = h + getMisses();
+        return all == 0 ? 0.0 : (double) h / all;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("tablica transpozycji: %d wpisów (%d KB), trafienia: %d, chybienia: %d (%.1f%% trafień), zapisy: %d, usunięcia: %d",
+                             capacity(), getMemoryBytes() / 1024, getHits(), getMisses(), 100.0 * getHitRate(),
+                             getStores(), getEvictions());
+    }
+
+    /*indeks wpisu, którego klucz zgadza się z szukanym, albo -1*/
+    private int find(long key)
+    {
+        int bucket = bucket(key);
+        for (int i = 0; i < BUCKET_SIZE; i++)
+        {
+            int entry = bucket + i * 3;
+            long move = entries.getOpaque(entry + 2);
+            if ((move & USED) != 0 && (entries.getOpaque(entry) ^ entries.getOpaque(entry + 1) ^ move) == key)
+                return entry;
+        }
+        return -1;
+    }
+
+    private void put(long key, long score, long move)
+    {
+        int current = generation;
+        move |= USED | ((long) current << GENERATION_SHIFT);
+        int bucket = bucket(key);
+        int victim = -1;
+        int victimAge = -1;
+        for (int i = 0; i < BUCKET_SIZE; i++)
+        {
+            int entry = bucket + i * 3;
+            long old = entries.getOpaque(entry + 2);
+            if ((old & USED) == 0)
+            {
+                victim = entry;
+                victimAge = Integer.MAX_VALUE;
+                break;
+            }
+            if ((entries.getOpaque(entry) ^ entries.getOpaque(entry + 1) ^ old) == key)
+            {
+                victim = entry;
+                victimAge = Integer.MAX_VALUE;
+                break;
+            }
+            int age = (int) ((current - (old >>> GENERATION_SHIFT)) & GENERATION_MASK);
+            if (age > victimAge)
+            {
+                victim = entry;
+                victimAge = age;
+            }
+        }
+        if (victimAge != Integer.MAX_VALUE)
+            evictions.increment();
+        stores.increment();
+        /*klucz jest zapisywany ostatni, a odczyt sprawdza XOR wszystkich trzech liczb*/
+        entries.setOpaque(victim + 1, score);
+        entries.setOpaque(victim + 2, move);
+        entries.setOpaque(victim, key ^ score ^ move);
+    }
+
+    private int bucket(long key)
+    {
+        return (int) ((key ^ (key >>> 32)) & bucketMask) * BUCKET_SIZE * 3;
+    }
+}
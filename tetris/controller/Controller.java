@@ -3,17 +3,44 @@
 */
 package tetris.controller;
 
-import tetris.model.Model;
+import tetris.engine.GameEngine;
+import tetris.engine.GameEvent;
+import tetris.engine.GameEventHandler;
+import tetris.engine.GameEventRing;
+import tetris.engine.GameLoop;
+import tetris.metrics.Metrics;
+import tetris.replay.ReplayFormat;
+import tetris.replay.ReplayReader;
+import tetris.replay.ReplayRecorder;
+import tetris.replay.ReplayWriter;
+import tetris.view.BoardFrame;
 import tetris.view.TetrisBoard;
+import tetris.view.Viewport;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
 * Klasa implementująca kontroler do obsługi programu według wzorca MVC.
 * Kontroler posiada wszelkie metody potrzebne do obsługi zdarzeń występujących w programie:
 * start programu, jego zakończenia, tworzenie i wyświetlanie spadających klocków tetrisa.
-* To także tutaj znajduje się zegar (timer) działania programu.
+* To także tutaj znajduje się pętla gry (GameLoop) działająca we własnym wątku.
+* Sama logika gry znajduje się w silniku GameEngine - kontroler przekazuje do niego akcje,
+* a silnik publikuje zdarzenia gry w strumieniu zdarzeń (GameEventRing). Kontroler odczytuje je
+* raz na klatkę w wątku zdarzeń Swing i dopiero wtedy odświeża planszę i pasek stanu,
+* więc wątek pętli gry nie składa napisów ani nie czeka na widok.
+* Na planszy wyższej niż okno widoku (Viewport) widoczne są tylko wiersze wokół spadającego klocka,
+* a kopiowanie stanu i rysowanie obejmuje tylko te wiersze.
+* Klawisze ruchu klocka są przekazywane do kolejki wejścia pętli gry (input); gdy zmienią stan gry,
+* klatka jest rysowana od razu, bez czekania na zegar klatek.
+* Gdy ustawiona jest właściwość systemowa tetris.replay, wszystkie gry są zapisywane do podanego pliku powtórek.
 */
 public class Controller
 {
@@ -22,22 +49,52 @@ public class Controller
     private int boardWidth;
     private int boardHeight;
     /*zmienne określające stan programu */
-    private boolean fallingEnd = false;
     private boolean started = false;
     private boolean paused = false;
     private boolean displayMenu = false;
     private boolean waitingForNewGame = false;
-    /*liczba punktów*/
-    private int points = 0;
-    /*współrzędne aktualnego elementu Tetris'a */
-    private int actualX = 0;
-    private int actualY = 0;
+    private volatile boolean replaying = false;
+
+    /*czas jednej klatki obrazu w milisekundach*/
+    private static final int FRAME_MILLIS = 16;
+    /*liczba zdarzeń gry w buforze strumienia zdarzeń*/
+    private static final int EVENT_CAPACITY = 4096;
 
-    private Timer timer;
-    /*aktualnie spadający element Tetrisa */
-    private Model actualPiece;
-    /*tablica zawiarająca wszystkie elementy tetrisa */
-    private Model.TetrisShape[] board;
+    /*pętla gry - grawitacja i blokada klocków, we własnym wątku*/
+    private GameLoop gameLoop;
+    /*zegar klatek - co najwyżej jedno odmalowanie planszy na klatkę*/
+    private Timer frameTimer;
+    /*pola planszy zmienione od ostatniej klatki*/
+    private final DirtyRegion dirtyRegion = new DirtyRegion();
+    private final Rectangle repaintArea = new Rectangle();
+    /*widoczne wiersze planszy i migawka ich stanu do rysowania (tylko w wątku zdarzeń)*/
+    private final Viewport viewport;
+    private final BoardFrame paintFrame;
+    /*prostokąt ducha klocka narysowanego w ostatniej klatce (tylko w wątku zdarzeń)*/
+    private boolean ghostShown;
+    private int ghostMinX, ghostMinY, ghostMaxX, ghostMaxY;
+    /*strumień zdarzeń silnika i jego odbiorca czytający zdarzenia w wątku zdarzeń Swing*/
+    private final GameEventRing events = new GameEventRing(EVENT_CAPACITY);
+    private final GameEventRing.Subscription frameEvents = events.subscribe();
+    private final GameEventHandler frameHandler = this::frameEvent;
+    private long lostEvents = 0;
+    /*liczba punktów do wyświetlenia w pasku stanu przy najbliższej klatce*/
+    private boolean scoreChanged = false;
+    private int points = 0;
+    /*klatka zamówiona przez wątek pętli gry po zmianie stanu przez wejście gracza*/
+    private final AtomicBoolean inputFrameRequested = new AtomicBoolean();
+    private final Runnable inputFrame = () -> {
+        inputFrameRequested.set(false);
+        frame();
+    };
+    /*czas pierwszej nienarysowanej jeszcze zmiany stanu przez wejście gracza (0 - brak)*/
+    private final AtomicLong inputStateNanos = new AtomicLong();
+    /*silnik gry - plansza, aktualnie spadający element Tetrisa i punkty */
+    private GameEngine engine;
+    /*zapis powtórki (null, gdy gry nie są zapisywane)*/
+    private ReplayRecorder recorder;
+    /*wątek zapisujący powtórkę przy zamknięciu programu (null, gdy nie jest zarejestrowany)*/
+    private Thread recordingHook;
 
     /**
     * Kostruktor kontrolera.
@@ -45,38 +102,35 @@ public class Controller
     * @param boardHeight wysokość planszy
     * @param tetrisBoard obiekt planszy gry
     * w konstruktorze zostają ustawione prywatne pola klasy Controller
-    * dotyczące planszy i jej wymiarów, zostaje utworzony obiekt aktualnego klocka tetrisa
-    * oraz zostaje uruchomiony zegar (timer).
+    * dotyczące planszy i jej wymiarów, zostaje utworzony silnik gry
+    * oraz zostaje uruchomiona pętla gry (na razie wstrzymana) i zegar klatek.
     */
     public Controller(int boardWidth, int boardHeight, TetrisBoard tetrisBoard)
     {
         this.boardWidth = boardWidth;
         this.boardHeight = boardHeight;
         this.tetrisBoard = tetrisBoard;
-        actualPiece = new Model();
-        timer = new Timer(400, tetrisBoard);
-        timer.start();
-        board = new Model.TetrisShape[boardWidth * boardHeight];
-        boardCleaner();
-    }
-
-    /**
-    * Metoda podstawowej akcji zdarzeń w Tetrisie.
-    * Uzależniona od wartości fallingEnd, która określa,
-    * czy zakończyło się już spadanie aktualnego klocka.
-    * Jeśli się nie zakończyło, to zostaje wywołana metoda do przesunięcia go o jedną linię w dół.
-    * Jeśli się zakończyło, to uruchamiana jest metoda do utworzenia nowego.
-    */
-    public void gameAction()
-    {
-        if (fallingEnd)
-        {
-            fallingEnd = false;
-            createNewPiece();
-        }
-        else
+        engine = new GameEngine(boardWidth, boardHeight);
+        engine.setEventRing(events);
+        viewport = new Viewport(boardHeight);
+        paintFrame = new BoardFrame(boardWidth, boardHeight, viewport.getRows());
+        gameLoop = new GameLoop(engine);
+        gameLoop.setInputListener(this::inputApplied);
+        gameLoop.start();
+        frameTimer = new Timer(FRAME_MILLIS, e -> frame());
+        frameTimer.start();
+        Metrics.registerMBeans();
+        String replayFile = System.getProperty("tetris.replay");
+        if (replayFile != null)
         {
-            stepDown();
+            try
+            {
+                startRecording(Paths.get(replayFile));
+            }
+            catch (IOException e)
+            {
+                System.err.println("Nie można zapisywać powtórek do pliku " + replayFile + ": " + e.getMessage());
+            }
         }
     }
 
@@ -112,39 +166,46 @@ public class Controller
 
     /**
     * Metoda do użytku dla klas zewnętrznych,
-    * aby poznać czy kształt tetrisa zapisany w prywatnym polu actualPiece jest kształtem pustym (Blank)
-    * @return wartość boolean, czy actualPiece przechowuje pusty klocek
+    * aby poznać czy aktualnie spadający klocek jest kształtem pustym (Blank)
+    * @return wartość boolean, czy aktualny klocek jest pusty
     */
     public boolean actualPieceBlank()
     {
-        return actualPiece.getOneShape() == Model.TetrisShape.Blank;
+        return engine.pieceBlank();
+    }
+
+    /**
+    * Metoda do użytku dla klas zewnętrznych,
+    * aby poznać czy na planszy jest właśnie odtwarzana powtórka
+    * @return wartość boolean, czy trwa odtwarzanie powtórki
+    */
+    public boolean replaying()
+    {
+        return replaying;
     }
 
     /**
     * Metoda sprawiająca wystartowanie działania programu.
     * Jeżeli program jest zapauzowany, to nic się nie dzieje.
-    * W przeciwnym przypadku inicjowane są pola: started, fallingEnd, points na wartości początkowe,
-    * plansza jest czyszczona ze znajdujących się na niej wcześniej klocków,
-    * tworzony jest nowy klocek Tetrisa oraz wystartowany zostaje timer.
+    * W przeciwnym przypadku w silniku gry rozpoczynana jest nowa gra
+    * (plansza jest czyszczona, punkty zerowane i tworzony jest nowy klocek Tetrisa)
+    * oraz wznowiona zostaje pętla gry.
     */
     public void start()
     {
         if (paused) return;
         started = true;
-        fallingEnd = false;
-        points = 0;
-        boardCleaner();
-        createNewPiece();
-        timer.start();
+        gameLoop.reset(System.nanoTime());
+        gameLoop.setPaused(false);
     }
 
     /**
     * Metoda obsługująca zdarzenie zapauzowania programu.
     * Jeżeli program jest nie wystartowany, to nic się nie dzieje.
     * W przypadku, gdy program już wcześniej był zapauzowany
-    * timer zostaje wystartowany, a wartość wyświetlanej informacji
+    * pętla gry zostaje wznowiona, a wartość wyświetlanej informacji
     * dla urzytkownika zostaje zmieniona na liczbę punktów i informację o menu.
-    * W przeciwnym przypadku timer zostaje zastopowany,
+    * W przeciwnym przypadku pętla gry zostaje wstrzymana,
     * a informacja dla urzytkownika zostaje zmieniona na taką informującą go o pauzie.
     * w każdym z tych przypadków na końcu wygląd planszy zostaje zaktualizowany (odmalowany - repaint).
     */
@@ -155,14 +216,14 @@ public class Controller
         if (paused==false)
         {
             paused=true;
-            timer.stop();
+            gameLoop.setPaused(true);
             tetrisBoard.setStatusBarText("Gra została wstrzymana. Wciśnij p.");
         }
         else
         {
             paused = false;
-            timer.start();
-            tetrisBoard.setStatusBarText("Punkty: " + String.valueOf(points)+"   Wciśnij m - menu.");
+            gameLoop.setPaused(false);
+            tetrisBoard.setStatusBarText("Punkty: " + String.valueOf(engine.getPoints())+"   Wciśnij m - menu.");
         }
         /*repaint, gdyż do paint nie można sie bezpośrednio odwołać */
         tetrisBoard.repaint();
@@ -172,10 +233,10 @@ public class Controller
     * Metoda obsługująca zdarzenie wyświetlania menu.
     * Jeżeli program jest nie wystartowany, to nic się nie dzieje.
     * W przypadku, gdy program jest zapauzowany
-    * timer zostaje wystartowany, a wartość wyświetlanej informacji
+    * pętla gry zostaje wznowiona, a wartość wyświetlanej informacji
     * dla urzytkownika zostaje zmieniona na liczbę punktów i informację o menu,
     * wartość zmiennej boolean o wyświetlaniu menu zostaje zmieniona na false.
-    * W przeciwnym przypadku timer zostaje zastopowany,
+    * W przeciwnym przypadku pętla gry zostaje wstrzymana,
     * a zmienna boolean o wyświetlaniu menu zostaje zmieniona na true.
     * W każdym z tych przypadków na końcu wygląd planszy zostaje zaktualizowany (odmalowany - repaint).
     */
@@ -186,15 +247,15 @@ public class Controller
       if (paused==false)
       {
           paused=true;
-          timer.stop();
+          gameLoop.setPaused(true);
           tetrisBoard.setStatusBarText("Nowa Gra!  Wciśnij m - menu.");
           displayMenu = true;
       }
       else
       {
           paused = false;
-          timer.start();
-          tetrisBoard.setStatusBarText("Punkty: " + String.valueOf(points)+"   Wciśnij m - menu.");
+          gameLoop.setPaused(false);
+          tetrisBoard.setStatusBarText("Punkty: " + String.valueOf(engine.getPoints())+"   Wciśnij m - menu.");
           displayMenu = false;
       }
       /*repaint, gdyż do paint nie można sie bezpośrednio odwołać*/
@@ -203,84 +264,212 @@ public class Controller
 
     /**
     * Metoda ustawiająca nową grę.
-    * Czyści plansze, ustawia pola klasy Controller na początkowe wartości,
-    * a następnie startuje program.
+    * Ustawia pola klasy Controller na początkowe wartości,
+    * a następnie startuje program (co czyści planszę w silniku gry).
     */
     public void newGame(){
-      boardCleaner();
       /*ustawienie pól tak jak na początku*/
-      fallingEnd = false;
       started = false;
       paused = false;
       displayMenu = false;
       waitingForNewGame = false;
-      points = 0;
       tetrisBoard.setStatusBarText("Nowa Gra!  Wciśnij m - menu.");
       start();
     }
 
     /*Metoda kończąca działanie programu.
-    * ustawia zmienną fallingEnd na true, oraz started na false,
-    * Zastopowuje działanie timera, oraz ustawia tekst do wyświetlania
+    * ustawia zmienną started na false,
+    * Wstrzymuje pętlę gry, oraz ustawia tekst do wyświetlania
     * dla urzytkownika jako ten o końcu gry.
     */
     public void end()
     {
-      fallingEnd = true;
       started=false;
-      points=1;
       paused = true;
       displayMenu = false;
       waitingForNewGame = false;
-      timer.stop();
+      gameLoop.setPaused(true);
       tetrisBoard.setStatusBarText("Program zakończony!");
+      /*wywoływane z wątku zdarzeń Swing - błąd zapisu powtórki jest tylko zgłaszany*/
+      try
+      {
+          stopRecording();
+      }
+      catch (UncheckedIOException e)
+      {
+          System.err.println("Nie można zapisać powtórki: " + e.getCause().getMessage());
+      }
     }
 
     /**
-    * Metoda uruchamiająca metodę zmieniająca pozycję aktualnego klocka na o jedną linie niższą
-    * pod warunkiem, że jest to możliwe.
+    * Metoda włączająca zapis gier do pliku powtórek (gry są dopisywane na końcu pliku).
+    * Numerami klatek akcji są numery kroków pętli gry, więc powtórkę można odtworzyć w tym samym tempie.
+    * @param path ścieżka pliku powtórek
+    * @throws IOException gdy pliku nie da się otworzyć albo nie da się zamknąć poprzedniego zapisu
     */
-    public void stepDown()
+    public void startRecording(Path path) throws IOException
     {
-        if (checkMove(actualPiece, actualX, actualY - 1)==false)
-            actualPieceDropped();
+        synchronized (engine)
+        {
+            /*poprzedni zapis musi trafić do pliku przed otwarciem go ponownie - nowy zapis sprawdza jego nagłówek*/
+            closeRecorder();
+            ReplayWriter writer = new ReplayWriter(path);
+            recorder = new ReplayRecorder(writer, gameLoop::getTicks, true);
+            engine.setActionRecorder(recorder);
+        }
+        /*zamknięcie okna kończy program - zapisane muszą zostać także akcje przerwanej gry*/
+        synchronized (this)
+        {
+            if (recordingHook == null)
+            {
+                recordingHook = new Thread(this::flushRecordingAtExit, "tetris-replay-flush");
+                Runtime.getRuntime().addShutdownHook(recordingHook);
+            }
+        }
     }
 
-    /** Metoda zapełniająca wszystkie elementy tablicy kształtów
-    * kształtem Blank - pustym kształtem
+    /**
+    * Metoda kończąca zapis gier do pliku powtórek - trwająca gra jest zapisywana z aktualnym wynikiem.
     */
-    private void boardCleaner()
+    public void stopRecording()
+    {
+        synchronized (this)
+        {
+            if (recordingHook != null)
+            {
+                try
+                {
+                    Runtime.getRuntime().removeShutdownHook(recordingHook);
+                }
+                catch (IllegalStateException e)
+                {
+                    /*program jest już zamykany - wątek zapisu działa albo zaraz zadziała*/
+                }
+                recordingHook = null;
+            }
+        }
+        try
+        {
+            closeRecorder();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*zapis przerwanej gry przy zamknięciu programu - wyjątek nie może przerwać zamykania*/
+    private void flushRecordingAtExit()
+    {
+        try
+        {
+            closeRecorder();
+        }
+        catch (IOException e)
+        {
+            System.err.println("Nie można zapisać powtórki przy zamykaniu programu: " + e.getMessage());
+        }
+    }
+
+    private void closeRecorder() throws IOException
     {
-        for (int i = 0; i < boardHeight * boardWidth; i++)
-            board[i] = Model.TetrisShape.Blank;
+        synchronized (engine)
+        {
+            if (recorder == null) return;
+            engine.setActionRecorder(null);
+            try
+            {
+                recorder.finish(engine);
+                recorder.getWriter().close();
+            }
+            finally
+            {
+                recorder = null;
+            }
+        }
     }
 
     /**
-    * Metoda uruchamiająca metodę zmieniająca pozycję aktualnego klocka na najniższą z możliwych
-    * na koniec uruchamia metodę dla sytuacji, gdy aktualny klocek spadł na sam dół.
+    * Metoda odtwarzająca na planszy bieżącą grę pliku powtórek (po wywołaniu reader.nextGame),
+    * w tempie, w jakim była rozgrywana. Pętla gry jest na ten czas wstrzymana,
+    * a akcje z powtórki są wykonywane przez osobny wątek; klawisze są ignorowane.
+    * @param reader plik powtórek (zamykany po zakończeniu odtwarzania)
     */
-    public void goDown()
+    public void playReplay(ReplayReader reader)
+    {
+        if (reader.getWidth() != boardWidth || reader.getHeight() != boardHeight
+            || reader.getGeneratorCode() != ReplayFormat.generatorCode(engine.getPieceGenerator()))
+            throw new IllegalArgumentException("Powtórka dotyczy innej planszy lub innego generatora klocków");
+        gameLoop.setPaused(true);
+        started = true;
+        paused = true;
+        displayMenu = false;
+        waitingForNewGame = false;
+        replaying = true;
+        Thread thread = new Thread(() -> replay(reader), "tetris-replay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void replay(ReplayReader reader)
     {
-        int newY = actualY;
-        while (newY > 0)
+        String status;
+        try (ReplayReader replay = reader)
+        {
+            synchronized (engine)
+            {
+                engine.reset(replay.getSeed());
+            }
+            long begin = System.nanoTime();
+            for (int code = replay.nextAction(); code >= 0; code = replay.nextAction())
+            {
+                long wait = begin + replay.getFrame() * GameLoop.TICK_NANOS - System.nanoTime();
+                if (wait > 0)
+                    LockSupport.parkNanos(wait);
+                act(ReplayReader.action(code));
+            }
+            status = "Koniec powtórki. Punkty: " + engine.getPoints() + "   Nowa gra: s";
+        }
+        catch (IOException e)
         {
-            if (checkMove(actualPiece, actualX, newY - 1)==false) break;
-            newY--;
+            status = "Błąd odczytu powtórki: " + e.getMessage();
         }
-        actualPieceDropped();
+        String text = status;
+        SwingUtilities.invokeLater(() -> {
+            /*zdarzenia ostatnich akcji powtórki (np. koniec gry) muszą zostać obsłużone przed pokazaniem wyniku*/
+            frameEvents.poll(frameHandler);
+            replaying = false;
+            started = false;
+            paused = false;
+            waitingForNewGame = true;
+            tetrisBoard.setStatusBarText(text);
+        });
     }
 
-    /** Metoda pomocnicza:
-     * zwraca jaki kształt jest zapisany pod danym polem w tablicy.
-     */
-    private Model.TetrisShape whichShapeOnBoard(int x, int y)
+    /**
+    * Metoda uruchamiająca metodę zmieniająca pozycję aktualnego klocka na o jedną linie niższą
+    * pod warunkiem, że jest to możliwe.
+    */
+    public void stepDown()
+    {
+        act(GameEngine.Action.SOFT_DROP);
+    }
+
+    /**
+    * Metoda uruchamiająca metodę zmieniająca pozycję aktualnego klocka na najniższą z możliwych
+    * na koniec uruchamia metodę dla sytuacji, gdy aktualny klocek spadł na sam dół.
+    */
+    public void goDown()
     {
-        return board[(y * boardWidth) + x];
+        act(GameEngine.Action.HARD_DROP);
     }
 
     /**
-     * Metoda służąca do wyrysowywania klocków tetrisa zapisanych w tablicy board
-     * (uruchomienia stosownej metody z klasy TetrisBoard)
+     * Metoda służąca do wyrysowywania klocków tetrisa zapisanych na planszy silnika gry
+     * (uruchomienia stosownej metody z klasy TetrisBoard).
+     * Pod blokadą silnika widoczne wiersze planszy są tylko kopiowane do migawki (BoardFrame),
+     * a rysowanie odbywa się już bez blokady - wątek pętli gry nie czeka na rysowanie.
+     * Rysowane są tylko te pola, które leżą w oknie widoku i w obszarze odmalowywania (clip).
      * jeśli zmienna displayMenu jest fals, to zostaje uruchomiona metoda
      * z klasy TetrisBoard służąca wyświetleniu Menu.
      * @param g potrzebny do metody ustawiającej komponenty graficzne
@@ -291,30 +480,11 @@ public class Controller
     {
       if(displayMenu == false)
       {
-        int elementWidth = (int) width / boardWidth;
-        int elementHeight = (int) height / boardHeight;
-        int boardTop = (int) height - boardHeight * elementHeight;
-        /*wyrysowanie tła*/
-        tetrisBoard.drawBackgroundForElements(g, (int)width, (int)height);
-
-        /* rysuje kwadraty tam, gdzie powinny być */
-        for (int i = 0; i < boardHeight; ++i)
+        synchronized (engine)
         {
-            for (int j = 0; j < boardWidth; ++j)
-            {
-                tetris.model.Model.TetrisShape shape = whichShapeOnBoard(j, boardHeight - i - 1);
-                tetrisBoard.drawElement(g, j * elementWidth, boardTop + i * elementHeight, shape);
-            }
+            paintFrame.copyFrom(engine, viewport.getBottom());
         }
-       if (actualPiece.getOneShape() != tetris.model.Model.TetrisShape.Blank)
-       {
-            for (int i = 0; i < 4; ++i)
-            {
-                int x = actualX + actualPiece.checkX(i);
-                int y = actualY - actualPiece.checkY(i);
-                tetrisBoard.drawElement(g, x * elementWidth, boardTop + (boardHeight - y - 1) * elementHeight, actualPiece.getOneShape());
-            }
-          }
+        tetrisBoard.drawBoard(g, paintFrame, (int) width, (int) height);
       }
       else
       {
@@ -323,101 +493,206 @@ public class Controller
     }
 
     /**
-    * Metoda prywatna do tworzenia nowego klocka tetrisa.
+    * Metoda wywoływana przez zegar klatek w wątku zdarzeń Swing: odczytuje zdarzenia gry opublikowane
+    * od poprzedniej klatki, uaktualnia pasek stanu, przewija okno widoku za klockiem i odmalowuje zmienione pola planszy
+    * (razem z poprzednim i nowym miejscem ducha klocka).
+    * Jeśli część zdarzeń przepadła (wątek zdarzeń nie nadążał), odmalowana zostaje cała plansza,
+    * a punkty i koniec gry są odczytywane bezpośrednio z silnika.
     */
-    private void createNewPiece()
+    private void frame()
     {
-        actualPiece.setRandomShape();
-        actualX = boardWidth / 2 + 1;
-        actualY = boardHeight - 1 + actualPiece.minimumY();
-
-        /*nie da się już dodać nowego elementu na planszę - gra zakończona*/
-        if (checkMove(actualPiece, actualX, actualY)==false)
+        frameEvents.poll(frameHandler);
+        long stateNanos = inputStateNanos.getAndSet(0L);
+        if (stateNanos != 0 && dirtyRegion.isDirty())
+            tetrisBoard.stateChanged(stateNanos);
+        if (frameEvents.getLost() != lostEvents)
         {
-            actualPiece.setOneShape(Model.TetrisShape.Blank);
-            paused();
-            started = false;
-            tetrisBoard.setStatusBarText("Gra zakończona! Nowa: s, end: e ");
-            waitingForNewGame = true;
+            lostEvents = frameEvents.getLost();
+            dirtyRegion.add(0, 0, boardWidth - 1, boardHeight - 1);
+            boolean over;
+            synchronized (engine)
+            {
+                points = engine.getPoints();
+                over = engine.isGameOver();
+            }
+            scoreChanged = true;
+            if (over && started && replaying == false)
+                gameEnded();
+        }
+        trackPiece();
+        if (scoreChanged)
+        {
+            scoreChanged = false;
+            tetrisBoard.setStatusBarText("Punkty: " + String.valueOf(points)+"   Wciśnij m - menu.");
         }
+        repaintDirtyRegion();
     }
 
     /**
-    * Metoda prywatna do sprawdzenia, czy aktualny klocek o danym kształcie
-    * może zostać położonym na planszy w danym miejscu, a także do przęłożenia go
-    * w podane miejsce, jeśli jest to możliwe
-    * Zwraca wartość boolean w zależności od tego, czy zmiana pozycji jest możaliwa.
+    * Metoda śledząca spadający klocek: przewija okno widoku tak, aby klocek był widoczny (po przewinięciu
+    * odmalowane zostają wszystkie widoczne wiersze), i odmalowuje poprzednie i nowe miejsce ducha klocka,
+    * gdy ten się przesunął. Położenie ducha wynika z wysokości kolumn planszy - koszt nie zależy od jej rozmiaru.
     */
-    private boolean checkMove(Model shape, int tryX, int tryY)
+    private void trackPiece()
     {
-        for (int i = 0; i < 4; i++)
+        int pieceLeft = Integer.MAX_VALUE;
+        int pieceRight = Integer.MIN_VALUE;
+        int pieceBottom = Integer.MAX_VALUE;
+        int pieceTop = Integer.MIN_VALUE;
+        int drop = 0;
+        boolean blank;
+        synchronized (engine)
+        {
+            blank = engine.pieceBlank();
+            if (blank == false)
+            {
+                for (int i = 0; i < 4; i++)
+                {
+                    pieceLeft = Math.min(pieceLeft, engine.pieceCellX(i));
+                    pieceRight = Math.max(pieceRight, engine.pieceCellX(i));
+                    pieceBottom = Math.min(pieceBottom, engine.pieceCellY(i));
+                    pieceTop = Math.max(pieceTop, engine.pieceCellY(i));
+                }
+                if (BoardFrame.GHOST)
+                    drop = engine.getDropDistance();
+            }
+        }
+        if (blank == false && viewport.getRows() != boardHeight && viewport.follow(pieceBottom, pieceTop))
+            dirtyRegion.add(0, viewport.getBottom(), boardWidth - 1, viewport.getTop());
+        boolean ghost = blank == false && drop > 0;
+        if (ghost == ghostShown && (ghost == false || (ghostMinX == pieceLeft && ghostMaxX == pieceRight
+                && ghostMinY == pieceBottom - drop && ghostMaxY == pieceTop - drop)))
+            return;
+        if (ghostShown)
+            dirtyRegion.add(ghostMinX, ghostMinY, ghostMaxX, ghostMaxY);
+        ghostShown = ghost;
+        if (ghost)
         {
-            int x = tryX + shape.checkX(i);
-            int y = tryY - shape.checkY(i);
-            /* sprawdzwnie, czy nie wychodzi poza planszę*/
-            if (x < 0 || x >= boardWidth || y < 0 || y >= boardHeight) return false;
-            /*sprawdzenie, czy nie jest już na tym miejscu inny element*/
-            if (whichShapeOnBoard(x, y) != Model.TetrisShape.Blank) return false;
+            ghostMinX = pieceLeft;
+            ghostMaxX = pieceRight;
+            ghostMinY = pieceBottom - drop;
+            ghostMaxY = pieceTop - drop;
+            dirtyRegion.add(ghostMinX, ghostMinY, ghostMaxX, ghostMaxY);
         }
+    }
 
-        /* uaktualniamy dane o aktualnym kształcie */
-        actualPiece = shape;
-        actualX = tryX;
-        actualY = tryY;
-        tetrisBoard.repaint();
-        return true;
+    /**
+    * @return liczba widocznych wierszy planszy
+    */
+    public int getViewRows()
+    {
+        return viewport.getRows();
     }
+
     /**
-    * Metoda prywatna zapisująca do tablicy board informację o aktualnym klocku,
-    * wywoływana gdy zakończy już on spadanie.
+    * Metoda wywoływana przez wątek pętli gry, gdy wejście gracza zmieniło stan gry:
+    * zamawia w wątku zdarzeń Swing klatkę poza zegarem klatek (najwyżej jedną naraz).
+    * @param nanos czas zmiany stanu gry (System.nanoTime)
     */
-    private void actualPieceDropped()
+    private void inputApplied(long nanos)
     {
-        for (int i = 0; i < 4; ++i)
+        inputStateNanos.compareAndSet(0L, nanos);
+        if (inputFrameRequested.compareAndSet(false, true))
+            SwingUtilities.invokeLater(inputFrame);
+    }
+
+    /**
+    * Metoda odbiorcy zdarzeń gry: zapamiętuje zmienione pola planszy i nową liczbę punktów,
+    * a po końcu gry zmienia stan programu.
+    * @param event zdarzenie gry
+    */
+    private void frameEvent(GameEvent event)
+    {
+        if (event.changesBoard())
+            dirtyRegion.add(event.getMinX(), event.getMinY(), event.getMaxX(), event.getMaxY());
+        switch (event.getType())
         {
-            int x = actualX + actualPiece.checkX(i);
-            int y = actualY - actualPiece.checkY(i);
-            board[(y * boardWidth) + x] = actualPiece.getOneShape();
+            case SCORE_CHANGED:
+                points = event.getPoints();
+                scoreChanged = true;
+                break;
+            case GAME_OVER:
+                scoreChanged = false;
+                gameEnded();
+                break;
+            default:
+                break;
         }
-        removeFullLines();
-        if (fallingEnd==false)
-            createNewPiece();
     }
 
     /**
-    * Metoda prywatna usuwająca pełne linie i doliczająca zdobyte przez urzytkownika punkty.
+    * Metoda wywoływana, gdy nie da się już dodać nowego elementu na planszę - gra zakończona.
     */
-    private void removeFullLines()
+    private void gameEnded()
     {
-        int numFullLines = 0;
-        for (int i = boardHeight - 1; i >= 0; --i)
-        {   //sprawdzanie, czy któraś z linia jest zapełniona
-            boolean lineIsFull = true;
-            for (int j = 0; j < boardWidth; ++j)
-            {
-                if (whichShapeOnBoard(j, i) == Model.TetrisShape.Blank)
-                {
-                    lineIsFull = false;
-                    break;
-                }
-            }
-            if (lineIsFull)
-            {   // jesłi zapełniona, to w tablicy board przepisywane są na tę linię kształty z jednej linii wyżej
-                numFullLines++;
-                for (int k = i; k < boardHeight - 1; ++k)
-                {
-                    for (int j = 0; j < boardWidth; ++j)
-                        board[(k * boardWidth) + j] = whichShapeOnBoard(j, k + 1);
-                }
-            }
-        }
-        if (numFullLines > 0)
-        {   //doliczenie punktów, zakończenie opadania klocka
-            points = points + numFullLines;
-            tetrisBoard.setStatusBarText("Punkty: " + String.valueOf(points)+"   Wciśnij m - menu.");
-            fallingEnd = true;
-            actualPiece.setOneShape(Model.TetrisShape.Blank);
-            tetrisBoard.repaint();
+        started = false;
+        tetrisBoard.setStatusBarText("Gra zakończona! Nowa: s, end: e ");
+        waitingForNewGame = true;
+    }
+
+    /**
+    * Metoda odmalowująca prostokąt obejmujący wszystkie widoczne pola planszy zmienione od ostatniej klatki
+    * (repaint(Rectangle)) - zmiany poza oknem widoku są pomijane.
+    */
+    private void repaintDirtyRegion()
+    {
+        if (dirtyRegion.isDirty() == false) return;
+        int minX = Math.max(0, dirtyRegion.minX());
+        int maxX = Math.min(boardWidth - 1, dirtyRegion.maxX());
+        int minY = Math.max(viewport.getBottom(), dirtyRegion.minY());
+        int maxY = Math.min(viewport.getTop(), dirtyRegion.maxY());
+        dirtyRegion.clear();
+        int rows = viewport.getRows();
+        int elementWidth = tetrisBoard.getWidth() / boardWidth;
+        int elementHeight = tetrisBoard.getHeight() / rows;
+        int boardTop = tetrisBoard.getHeight() - rows * elementHeight;
+        if (minX > maxX || minY > maxY) return;
+        repaintArea.setBounds(minX * elementWidth, boardTop + (viewport.getTop() - maxY) * elementHeight,
+                              (maxX - minX + 1) * elementWidth, (maxY - minY + 1) * elementHeight);
+        tetrisBoard.repaint(repaintArea);
+    }
+
+    /**
+    * Metoda tworząca nowego odbiorcę strumienia zdarzeń gry - np. dla zapisu na dysk albo statystyk.
+    * Odbiorca czyta zdarzenia we własnym wątku i we własnym tempie; gdy nie nadąża, pomija
+    * najstarsze zdarzenia zamiast spowalniać pętlę gry.
+    * @return odbiorca zdarzeń opublikowanych od tej chwili
+    */
+    public GameEventRing.Subscription subscribe()
+    {
+        return events.subscribe();
+    }
+
+    /**
+    * Metoda zwracająca pętlę gry - np. do odczytu pomiarów opóźnień kroków.
+    * @return pętla gry
+    */
+    public GameLoop getGameLoop()
+    {
+        return gameLoop;
+    }
+
+    /**
+    * Metoda przekazująca naciśnięcie albo puszczenie klawisza ruchu klocka do kolejki wejścia pętli gry,
+    * która sama powtarza przytrzymane klawisze (zob. AutoRepeat). Wywoływana tylko w wątku zdarzeń Swing.
+    * @param action akcja gracza przypisana do klawisza (LEFT, RIGHT, ROTATE, SOFT_DROP lub HARD_DROP)
+    * @param pressed true - naciśnięcie klawisza, false - puszczenie
+    * @param nanos czas odebrania zdarzenia klawiatury (System.nanoTime)
+    */
+    public void input(GameEngine.Action action, boolean pressed, long nanos)
+    {
+        gameLoop.input(action, pressed, nanos);
+    }
+
+    /**
+    * Metoda przekazująca akcję do silnika gry, pod blokadą silnika
+    * (silnik jest zmieniany także przez wątek pętli gry).
+    */
+    private void act(GameEngine.Action action)
+    {
+        synchronized (engine)
+        {
+            engine.step(action);
         }
     }
 
@@ -427,7 +702,7 @@ public class Controller
     */
     public void stepLeft()
     {
-        checkMove(actualPiece, actualX - 1, actualY);
+        act(GameEngine.Action.LEFT);
     }
     /**
     * Metoda uruchamiająca metodę zmieniająca pozycję aktualnego klocka na o jedną w prawo
@@ -435,7 +710,7 @@ public class Controller
     */
     public void stepRight()
     {
-        checkMove(actualPiece, actualX + 1, actualY);
+        act(GameEngine.Action.RIGHT);
     }
     /**
     * Metoda uruchamiająca metodę zmieniająca pozycję aktualnego klocka w rotacji
@@ -443,7 +718,7 @@ public class Controller
     */
     public void rotate()
     {
-        checkMove(actualPiece.rotate(), actualX, actualY);
+        act(GameEngine.Action.ROTATE);
     }
 
-}
+}
\ No newline at end of file
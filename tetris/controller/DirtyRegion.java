@@ -0,0 +1,75 @@
+package tetris.controller;
+
+/**
+* Klasa pomocnicza zbierająca prostokąt pól planszy, które zmieniły się od ostatniego odmalowania.
+* Kolejne zmiany są sumowane w jeden prostokąt, więc wiele zmian w ciągu jednej klatki
+* daje tylko jedno odmalowanie.
+*/
+class DirtyRegion
+{
+    private boolean dirty = false;
+    private int minX;
+    private int minY;
+    private int maxX;
+    private int maxY;
+
+    /**
+    * Metoda dołączająca prostokąt pól do obszaru do odmalowania.
+    * @param minX najmniejsza kolumna
+    * @param minY najniższy wiersz
+    * @param maxX największa kolumna
+    * @param maxY najwyższy wiersz
+    */
+    void add(int minX, int minY, int maxX, int maxY)
+    {
+        if (dirty == false)
+        {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            dirty = true;
+            return;
+        }
+        this.minX = Math.min(this.minX, minX);
+        this.minY = Math.min(this.minY, minY);
+        this.maxX = Math.max(this.maxX, maxX);
+        this.maxY = Math.max(this.maxY, maxY);
+    }
+
+    /**
+    * @return true, jeśli od ostatniego wyczyszczenia coś się zmieniło
+    */
+    boolean isDirty()
+    {
+        return dirty;
+    }
+
+    /**
+    * Metoda czyszcząca obszar do odmalowania.
+    */
+    void clear()
+    {
+        dirty = false;
+    }
+
+    int minX()
+    {
+        return minX;
+    }
+
+    int minY()
+    {
+        return minY;
+    }
+
+    int maxX()
+    {
+        return maxX;
+    }
+
+    int maxY()
+    {
+        return maxY;
+    }
+}
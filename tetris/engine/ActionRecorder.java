@@ -0,0 +1,23 @@
+package tetris.engine;
+
+/**
+* Interfejs obiektu zapisującego przebieg gry - ziarno każdej nowej gry i wszystkie wykonane akcje.
+* Silnik gry jest deterministyczny, więc ziarno i ciąg akcji wystarczają, by odtworzyć całą grę.
+*/
+public interface ActionRecorder
+{
+    /**
+    * Metoda wywoływana na początku nowej gry (w metodzie reset silnika).
+    * @param engine silnik gry
+    * @param seed ziarno generatora klocków
+    */
+    void gameStarted(GameEngine engine, long seed);
+
+    /**
+    * Metoda wywoływana po wykonaniu akcji przez silnik (także akcji, która nie zmieniła stanu gry).
+    * Akcje po zakończeniu gry nie są przekazywane.
+    * @param engine silnik gry
+    * @param action wykonana akcja
+    */
+    void actionApplied(GameEngine engine, GameEngine.Action action);
+}
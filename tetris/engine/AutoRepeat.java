@@ -0,0 +1,160 @@
+package tetris.engine;
+
+/**
+* Klasa implementująca powtarzanie przytrzymanych klawiszy przez samą grę - niezależnie od ustawień
+* powtarzania klawiatury w systemie operacyjnym, więc tempo ruchu klocka jest takie samo na każdym komputerze.
+* Naciśnięcie klawisza od razu wykonuje akcję. Przytrzymany klawisz w lewo lub w prawo po DAS krokach
+* (delayed auto shift) przesuwa klocek co ARR kroków (auto repeat rate; 0 - od razu do ściany),
+* a przytrzymany klawisz w dół opuszcza klocek co podaną liczbę kroków (0 - od razu na stos),
+* bez kończenia spadania leżącego klocka - o tym decyduje opóźnienie blokady pętli gry.
+* Obrót i zrzucenie na dół nie są powtarzane. Przy obu przytrzymanych kierunkach działa ostatnio naciśnięty.
+* Czasy są liczone w krokach pętli gry (GameLoop.TICKS_PER_SECOND na sekundę), a domyślne wartości
+* można zmienić właściwościami systemowymi tetris.das, tetris.arr i tetris.softDrop.
+* Metody zmieniające silnik gry muszą być wywoływane pod jego blokadą.
+*/
+public class AutoRepeat
+{
+    private volatile int delayTicks = Integer.getInteger("tetris.das", 10);
+    private volatile int repeatTicks = Integer.getInteger("tetris.arr", 2);
+    private volatile int softDropTicks = Integer.getInteger("tetris.softDrop", 2);
+
+    /*przytrzymane klawisze, według numerów akcji*/
+    private final boolean[] held = new boolean[GameEngine.Action.values().length];
+    /*kierunek przesuwania przytrzymanym klawiszem (null - brak)*/
+    private GameEngine.Action direction = null;
+    private int chargeTicks;
+    private int repeatCounter;
+    private int softDropCounter;
+
+    /**
+    * @param ticks liczba kroków od naciśnięcia klawisza w lewo lub w prawo do pierwszego powtórzenia (DAS)
+    */
+    public void setDelayTicks(int ticks)
+    {
+        delayTicks = Math.max(0, ticks);
+    }
+
+    /**
+    * @return liczba kroków od naciśnięcia klawisza w lewo lub w prawo do pierwszego powtórzenia (DAS)
+    */
+    public int getDelayTicks()
+    {
+        return delayTicks;
+    }
+
+    /**
+    * @param ticks liczba kroków między kolejnymi powtórzeniami w lewo lub w prawo (ARR, 0 - od razu do ściany)
+    */
+    public void setRepeatTicks(int ticks)
+    {
+        repeatTicks = Math.max(0, ticks);
+    }
+
+    /**
+    * @return liczba kroków między kolejnymi powtórzeniami w lewo lub w prawo (ARR)
+    */
+    public int getRepeatTicks()
+    {
+        return repeatTicks;
+    }
+
+    /**
+    * @param ticks liczba kroków między kolejnymi opuszczeniami klocka przytrzymanym klawiszem w dół (0 - od razu na stos)
+    */
+    public void setSoftDropTicks(int ticks)
+    {
+        softDropTicks = Math.max(0, ticks);
+    }
+
+    /**
+    * @return liczba kroków między kolejnymi opuszczeniami klocka przytrzymanym klawiszem w dół
+    */
+    public int getSoftDropTicks()
+    {
+        return softDropTicks;
+    }
+
+    /**
+    * Metoda obsługująca naciśnięcie albo puszczenie klawisza.
+    * Powtórne naciśnięcie przytrzymanego klawisza (powtarzanie klawiatury systemu) jest pomijane.
+    * @param engine silnik gry
+    * @param action akcja gracza przypisana do klawisza (LEFT, RIGHT, ROTATE, SOFT_DROP lub HARD_DROP)
+    * @param pressed true - naciśnięcie klawisza, false - puszczenie
+    * @return true, jeśli stan gry się zmienił
+    */
+    public boolean input(GameEngine engine, GameEngine.Action action, boolean pressed)
+    {
+        int key = action.ordinal();
+        if (pressed == false)
+        {
+            held[key] = false;
+            if (action == direction)
+            {
+                /*po puszczeniu jednego kierunku drugi, nadal przytrzymany, zaczyna odliczanie od nowa*/
+                GameEngine.Action other = action == GameEngine.Action.LEFT ? GameEngine.Action.RIGHT : GameEngine.Action.LEFT;
+                direction = held[other.ordinal()] ? other : null;
+                chargeTicks = 0;
+                repeatCounter = repeatTicks;
+            }
+            return false;
+        }
+        if (held[key]) return false;
+        held[key] = true;
+        switch (action)
+        {
+            case LEFT:
+            case RIGHT:
+                direction = action;
+                chargeTicks = 0;
+                repeatCounter = repeatTicks;
+                break;
+            case SOFT_DROP:
+                softDropCounter = 0;
+                break;
+            default:
+                break;
+        }
+        return engine.step(action);
+    }
+
+    /**
+    * Metoda wykonująca powtórzenia przytrzymanych klawiszy w jednym kroku pętli gry.
+    * Odliczanie DAS trwa także wtedy, gdy żaden klocek nie spada (np. w trakcie opóźnienia nowego klocka).
+    * @param engine silnik gry
+    * @return true, jeśli stan gry się zmienił
+    */
+    public boolean tick(GameEngine engine)
+    {
+        boolean changed = false;
+        if (direction != null && chargeTicks < delayTicks)
+            chargeTicks++;
+        if (engine.pieceBlank()) return false;
+        if (direction != null && chargeTicks >= delayTicks)
+        {
+            if (repeatTicks == 0)
+            {
+                while (engine.step(direction))
+                    changed = true;
+            }
+            else if (++repeatCounter >= repeatTicks)
+            {
+                repeatCounter = 0;
+                changed |= engine.step(direction);
+            }
+        }
+        if (held[GameEngine.Action.SOFT_DROP.ordinal()] && engine.pieceBlank() == false)
+        {
+            if (softDropTicks == 0)
+            {
+                while (engine.step(GameEngine.Action.GRAVITY))
+                    changed = true;
+            }
+            else if (++softDropCounter >= softDropTicks)
+            {
+                softDropCounter = 0;
+                changed |= engine.step(GameEngine.Action.GRAVITY);
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,685 @@
+/**
+* Pakiet implementujący silnik gry tetris niezależny od widoku (Swing/AWT).
+*/
+package tetris.engine;
+
+import tetris.jfr.GameOverEvent;
+import tetris.jfr.LineClearEvent;
+import tetris.jfr.PieceLockEvent;
+import tetris.jfr.PieceSpawnEvent;
+import tetris.metrics.Metrics;
+import tetris.model.Board;
+import tetris.model.Model;
+import tetris.model.PieceGenerator;
+import tetris.model.UniformPieceGenerator;
+import tetris.model.Zobrist;
+
+/**
+* Klasa implementująca silnik gry tetris - samą logikę gry, bez żadnej zależności od interfejsu graficznego.
+* Silnik przechowuje planszę, aktualnie spadający klocek i punkty,
+* a stan gry zmienia się wyłącznie przez metodę step.
+* Zmiany stanu są ogłaszane zarejestrowanym słuchaczom (GameListener) oraz publikowane jako zdarzenia
+* w strumieniu zdarzeń (GameEventRing), dlatego silnik może działać bez AWT, np. z -Djava.awt.headless=true.
+* W trybie pojedynku usunięte linie są przekazywane nadawcy śmieci (GarbageSender), a linie śmieci
+* od przeciwników są odbierane ze skrzynki (GarbageMailbox) i dodawane na dół planszy przy zapisie klocka.
+*/
+public class GameEngine
+{
+    /**
+    * Publiczny typ enum akcji, które można wykonać w grze.
+    */
+    public enum Action {
+        /*jeden krok zegara gry: opadnięcie klocka o linię lub utworzenie nowego klocka*/
+        TICK,
+        LEFT, RIGHT, ROTATE,
+        /*przesunięcie klocka o jedną linię w dół*/
+        SOFT_DROP,
+        /*zrzucenie klocka na sam dół*/
+        HARD_DROP,
+        /*opadnięcie klocka o linię pod wpływem grawitacji - bez kończenia spadania, gdy klocek leży*/
+        GRAVITY,
+        /*zakończenie spadania klocka (po upływie opóźnienia blokady)*/
+        LOCK
+    }
+
+    /*liczba usuniętych linii potrzebna do przejścia na kolejny poziom*/
+    public static final int LINES_PER_LEVEL = 10;
+
+    private static final GameListener[] NO_LISTENERS = new GameListener[0];
+    private static final Model.TetrisShape[] SHAPES = Model.TetrisShape.values();
+    /*kształt (kolor) pól linii śmieci w trybie pojedynku*/
+    private static final Model.TetrisShape GARBAGE_SHAPE = Model.TetrisShape.OElement;
+
+    private final int boardWidth;
+    private final int boardHeight;
+    private final Board board;
+    /*aktualnie spadający element Tetrisa */
+    private final Model actualPiece = new Model();
+    /*współrzędne aktualnego elementu Tetris'a */
+    private int actualX = 0;
+    private int actualY = 0;
+    /*liczba punktów*/
+    private int points = 0;
+    /*zmienne określające stan gry */
+    private boolean fallingEnd = false;
+    private boolean gameOver = false;
+    /*liczba klocków, które pojawiły się na planszy od początku gry*/
+    private long piecesSpawned = 0;
+    private GameListener[] listeners = NO_LISTENERS;
+    private ActionRecorder recorder;
+    private GameEventRing events;
+    /*tryb pojedynku: skrzynka linii śmieci od przeciwników i odbiorca usuniętych linii*/
+    private GarbageMailbox garbageIn;
+    private GarbageSender garbageOut;
+
+    /**
+    * Konstruktor silnika gry.
+    * @param boardWidth szerokość planszy
+    * @param boardHeight wysokość planszy
+    * w silniku używany jest generator klocków losujący każdy klocek niezależnie.
+    */
+    public GameEngine(int boardWidth, int boardHeight)
+    {
+        this(boardWidth, boardHeight, new UniformPieceGenerator(0L));
+    }
+
+    /**
+    * Konstruktor silnika gry z zadanym generatorem klocków.
+    * @param boardWidth szerokość planszy
+    * @param boardHeight wysokość planszy
+    * @param pieceGenerator generator klocków - ziarno jest ustawiane przy każdym wywołaniu reset
+    */
+    public GameEngine(int boardWidth, int boardHeight, PieceGenerator pieceGenerator)
+    {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        board = new Board(boardWidth, boardHeight);
+        actualPiece.setPieceGenerator(pieceGenerator);
+    }
+
+    /**
+    * Metoda dodająca słuchacza zdarzeń silnika.
+    * @param listener słuchacz
+    */
+    public void addListener(GameListener listener)
+    {
+        GameListener[] extended = new GameListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, extended, 0, listeners.length);
+        extended[listeners.length] = listener;
+        listeners = extended;
+    }
+
+    /**
+    * Metoda ustawiająca obiekt zapisujący przebieg gry (np. do powtórki).
+    * @param recorder obiekt zapisujący albo null, aby wyłączyć zapisywanie
+    */
+    public void setActionRecorder(ActionRecorder recorder)
+    {
+        this.recorder = recorder;
+    }
+
+    /**
+    * Metoda ustawiająca strumień, w którym silnik publikuje zdarzenia gry.
+    * Publikowanie nie alokuje pamięci i nigdy nie czeka na odbiorców zdarzeń.
+    * @param events strumień zdarzeń albo null, aby wyłączyć publikowanie
+    */
+    public void setEventRing(GameEventRing events)
+    {
+        this.events = events;
+    }
+
+    /**
+    * Metoda włączająca tryb pojedynku (null - wyłączenie).
+    * @param incoming skrzynka, z której przy zapisie klocka odbierane są linie śmieci od przeciwników
+    * @param outgoing odbiorca usuniętych linii, wysyłający śmieci przeciwnikom
+    */
+    public void setGarbage(GarbageMailbox incoming, GarbageSender outgoing)
+    {
+        garbageIn = incoming;
+        garbageOut = outgoing;
+    }
+
+    /**
+    * @return generator klocków silnika
+    */
+    public PieceGenerator getPieceGenerator()
+    {
+        return actualPiece.getPieceGenerator();
+    }
+
+    /**
+    * Metoda rozpoczynająca nową grę.
+    * Plansza jest czyszczona, punkty zerowane, a generator klocków ustawiany na zadane ziarno,
+    * więc dla tego samego ziarna i tych samych akcji gra przebiega identycznie.
+    * @param seed ziarno generatora klocków
+    */
+    public void reset(long seed)
+    {
+        if (recorder != null)
+            recorder.gameStarted(this, seed);
+        board.clear();
+        actualPiece.getPieceGenerator().setSeed(seed);
+        points = 0;
+        piecesSpawned = 0;
+        fallingEnd = false;
+        gameOver = false;
+        if (events != null)
+            publish(GameEvent.Type.GAME_STARTED, 0, 0, 0, boardWidth - 1, boardHeight - 1);
+        createNewPiece();
+        fireStateChanged(0, 0, boardWidth - 1, boardHeight - 1);
+    }
+
+    /**
+    * Metoda tworząca pusty stan gry o rozmiarach pasujących do tego silnika (do saveState i restoreState).
+    * @return nowy stan gry
+    */
+    public GameSnapshot newSnapshot()
+    {
+        return new GameSnapshot(boardWidth, boardHeight, board.rowWords(), actualPiece.getPieceGenerator().stateSize());
+    }
+
+    /**
+    * Metoda zapisująca pełny stan gry: planszę, klocek i jego położenie, punkty, znaczniki i stan generatora klocków.
+    * Do stanu, który nie jest współdzielony (GameSnapshot.fork), zapis odbywa się bez alokowania pamięci.
+    * @param snapshot stan, do którego zapisywana jest gra
+    */
+    public void saveState(GameSnapshot snapshot)
+    {
+        long[] header = snapshot.header;
+        header[GameSnapshot.SIZE] = GameSnapshot.size(boardWidth, boardHeight);
+        header[GameSnapshot.PIECE] = actualPiece.getOneShape().ordinal() | (actualPiece.getRotation() << 8)
+                | ((fallingEnd ? GameSnapshot.FALLING_END : 0) | (gameOver ? GameSnapshot.GAME_OVER : 0)) << 16;
+        header[GameSnapshot.POSITION] = (actualX & 0xFFFFFFFFL) | ((long) actualY << 32);
+        header[GameSnapshot.POINTS] = points;
+        header[GameSnapshot.PIECES_SPAWNED] = piecesSpawned;
+        actualPiece.getPieceGenerator().saveState(header, GameSnapshot.GENERATOR);
+        for (int y = 0; y < boardHeight; y++)
+        {
+            int page = y / GameSnapshot.PAGE_ROWS;
+            int offset = snapshot.rowOffset(y);
+            /*niezmieniony wiersz nie powoduje skopiowania współdzielonej strony*/
+            if (snapshot.ownsPage(page) == false && board.rowEquals(y, snapshot.page(y), offset))
+                continue;
+            board.copyRowTo(y, snapshot.writablePage(page), offset);
+        }
+    }
+
+    /**
+    * Metoda przywracająca stan gry zapisany przez saveState (bez alokowania pamięci).
+    * Przywrócenie stanu nie jest przekazywane do obiektu zapisującego przebieg gry (ActionRecorder).
+    * @param snapshot zapisany stan gry
+    */
+    public void restoreState(GameSnapshot snapshot)
+    {
+        long[] header = snapshot.header;
+        if (header[GameSnapshot.SIZE] != GameSnapshot.size(boardWidth, boardHeight)
+            || header.length != GameSnapshot.GENERATOR + actualPiece.getPieceGenerator().stateSize())
+            throw new IllegalArgumentException("Stan gry dotyczy planszy o innym rozmiarze lub innego generatora klocków");
+        for (int y = 0; y < boardHeight; y++)
+            board.setRowFrom(y, snapshot.page(y), snapshot.rowOffset(y));
+        long piece = header[GameSnapshot.PIECE];
+        actualPiece.setOneShape(SHAPES[(int) (piece & 0xFF)]);
+        actualPiece.setRotation((int) ((piece >>> 8) & 0xFF));
+        int flags = (int) (piece >>> 16);
+        fallingEnd = (flags & GameSnapshot.FALLING_END) != 0;
+        gameOver = (flags & GameSnapshot.GAME_OVER) != 0;
+        actualX = (int) header[GameSnapshot.POSITION];
+        actualY = (int) (header[GameSnapshot.POSITION] >>> 32);
+        points = (int) header[GameSnapshot.POINTS];
+        piecesSpawned = header[GameSnapshot.PIECES_SPAWNED];
+        actualPiece.getPieceGenerator().restoreState(header, GameSnapshot.GENERATOR);
+        if (events != null)
+            publish(GameEvent.Type.GAME_STARTED, 0, 0, 0, boardWidth - 1, boardHeight - 1);
+        fireStateChanged(0, 0, boardWidth - 1, boardHeight - 1);
+    }
+
+    /**
+    * Metoda wykonująca jedną akcję gry.
+    * Po zakończeniu gry akcje są ignorowane.
+    * @param action akcja do wykonania
+    * @return true, jeśli akcja zmieniła stan gry
+    */
+    public boolean step(Action action)
+    {
+        if (gameOver) return false;
+        boolean changed = apply(action);
+        if (recorder != null)
+            recorder.actionApplied(this, action);
+        return changed;
+    }
+
+    private boolean apply(Action action)
+    {
+        if (action == Action.TICK)
+        {
+            if (fallingEnd)
+            {
+                fallingEnd = false;
+                createNewPiece();
+                return true;
+            }
+            return stepDown();
+        }
+        if (pieceBlank()) return false;
+        switch (action)
+        {
+            case LEFT:
+                return checkMove(actualPiece.getRotation(), actualX - 1, actualY);
+            case RIGHT:
+                return checkMove(actualPiece.getRotation(), actualX + 1, actualY);
+            case ROTATE:
+                return checkMove(actualPiece.nextRotation(), actualX, actualY);
+            case SOFT_DROP:
+                return stepDown();
+            case HARD_DROP:
+                goDown();
+                return true;
+            case GRAVITY:
+                return checkMove(actualPiece.getRotation(), actualX, actualY - 1);
+            case LOCK:
+                actualPieceDropped();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+    * @return szerokość planszy
+    */
+    public int getBoardWidth()
+    {
+        return boardWidth;
+    }
+
+    /**
+    * @return wysokość planszy
+    */
+    public int getBoardHeight()
+    {
+        return boardHeight;
+    }
+
+    /**
+    * Metoda zwracająca jaki kształt jest zapisany pod danym polem planszy.
+    * @param x współrzędna x pola
+    * @param y współrzędna y pola (0 - najniższy wiersz)
+    * @return kształt zapisany na polu
+    */
+    public Model.TetrisShape shapeAt(int x, int y)
+    {
+        return board.shapeAt(x, y);
+    }
+
+    /**
+    * Metoda zwracająca maskę bitową zajętych pól danego wiersza planszy.
+    * @param y numer wiersza (0 - najniższy)
+    * @return maska bitowa wiersza
+    */
+    public long row(int y)
+    {
+        return board.row(y);
+    }
+
+    /**
+    * Metoda kopiująca zawartość planszy gry na inną planszę o tych samych wymiarach
+    * (np. do przeszukiwania ruchów bez zmieniania stanu gry).
+    * @param target plansza, na którą kopiowane są pola
+    */
+    public void copyBoardTo(Board target)
+    {
+        target.copyFrom(board);
+    }
+
+    /**
+    * @return kształt aktualnie spadającego klocka
+    */
+    public Model.TetrisShape getPieceShape()
+    {
+        return actualPiece.getOneShape();
+    }
+
+    /**
+    * @return orientacja aktualnie spadającego klocka
+    */
+    public int getPieceRotation()
+    {
+        return actualPiece.getRotation();
+    }
+
+    /**
+    * @return współrzędna x aktualnie spadającego klocka
+    */
+    public int getPieceX()
+    {
+        return actualX;
+    }
+
+    /**
+    * @return współrzędna y aktualnie spadającego klocka
+    */
+    public int getPieceY()
+    {
+        return actualY;
+    }
+
+    /**
+    * Metoda zwracająca współrzędną x na planszy jednego kwadracika aktualnego klocka.
+    * @param i numer kwadracika (od 0 do 3)
+    * @return współrzędna x kwadracika na planszy
+    */
+    public int pieceCellX(int i)
+    {
+        return actualX + actualPiece.checkX(i);
+    }
+
+    /**
+    * Metoda zwracająca współrzędną y na planszy jednego kwadracika aktualnego klocka.
+    * @param i numer kwadracika (od 0 do 3)
+    * @return współrzędna y kwadracika na planszy
+    */
+    public int pieceCellY(int i)
+    {
+        return actualY - actualPiece.checkY(i);
+    }
+
+    /**
+    * @return true, jeśli aktualny klocek jest kształtem pustym (Blank)
+    */
+    public boolean pieceBlank()
+    {
+        return actualPiece.getOneShape() == Model.TetrisShape.Blank;
+    }
+
+    /**
+    * @return liczba punktów
+    */
+    public int getPoints()
+    {
+        return points;
+    }
+
+    /**
+    * @return aktualny poziom gry - rośnie co LINES_PER_LEVEL usuniętych linii
+    */
+    public int getLevel()
+    {
+        return points / LINES_PER_LEVEL;
+    }
+
+    /**
+    * @return true, jeśli aktualny klocek leży (nie może już opaść niżej)
+    */
+    public boolean pieceGrounded()
+    {
+        return pieceBlank() == false && board.fits(actualPiece, actualPiece.getRotation(), actualX, actualY - 1) == false;
+    }
+
+    /**
+    * @return liczba wierszy, o którą aktualny klocek może opaść (położenie "ducha" klocka), 0 - brak klocka
+    */
+    public int getDropDistance()
+    {
+        if (pieceBlank()) return 0;
+        return board.dropDistance(actualPiece, actualPiece.getRotation(), actualX, actualY);
+    }
+
+    /**
+    * @return true, jeśli gra się zakończyła
+    */
+    public boolean isGameOver()
+    {
+        return gameOver;
+    }
+
+    /**
+    * @return liczba klocków, które pojawiły się na planszy od początku gry
+    */
+    public long getPiecesSpawned()
+    {
+        return piecesSpawned;
+    }
+
+    /**
+    * Metoda zwracająca hasz Zobrista stanu gry - planszy i spadającego klocka.
+    * Hasz planszy jest poprawiany przyrostowo przy każdym zapisaniu klocka i usunięciu linii,
+    * a klucz klocka jest wyznaczany z jego kształtu, orientacji i położenia.
+    * @return hasz stanu gry
+    */
+    public long getStateHash()
+    {
+        return board.getHash() ^ Zobrist.piece(actualPiece.getOneShape(), actualPiece.getRotation(), actualX, actualY);
+    }
+
+    /**
+    * Metoda zmieniająca pozycję aktualnego klocka na o jedną linie niższą,
+    * a jeśli nie jest to możliwe - kończąca jego spadanie.
+    */
+    private boolean stepDown()
+    {
+        if (pieceBlank()) return false;
+        if (checkMove(actualPiece.getRotation(), actualX, actualY - 1)==false)
+            actualPieceDropped();
+        return true;
+    }
+
+    /**
+    * Metoda zmieniająca pozycję aktualnego klocka na najniższą z możliwych,
+    * na koniec uruchamia metodę dla sytuacji, gdy aktualny klocek spadł na sam dół.
+    * Odległość zrzutu wynika z wysokości kolumn planszy, a klocek jest przesuwany jednym ruchem
+    * - z jednym zdarzeniem zmiany stanu, a nie po jednym na każdy wiersz.
+    */
+    private void goDown()
+    {
+        int distance = board.dropDistance(actualPiece, actualPiece.getRotation(), actualX, actualY);
+        if (distance > 0)
+            checkMove(actualPiece.getRotation(), actualX, actualY - distance);
+        actualPieceDropped();
+    }
+
+    /**
+    * Metoda prywatna do tworzenia nowego klocka tetrisa.
+    */
+    private void createNewPiece()
+    {
+        actualPiece.setRandomShape();
+        if (Metrics.ENABLED)
+            Metrics.PIECES_SPAWNED.increment();
+        actualX = boardWidth / 2 + 1;
+        actualY = boardHeight - 1 + actualPiece.minimumY();
+        piecesSpawned++;
+
+        /*nie da się już dodać nowego elementu na planszę - gra zakończona*/
+        boolean blocked = checkMove(actualPiece.getRotation(), actualX, actualY)==false;
+        PieceSpawnEvent spawnEvent = new PieceSpawnEvent();
+        if (spawnEvent.shouldCommit())
+        {
+            spawnEvent.shape = actualPiece.getOneShape().name();
+            spawnEvent.piece = piecesSpawned;
+            spawnEvent.blocked = blocked;
+            spawnEvent.commit();
+        }
+        if (blocked == false && events != null)
+            publishPiece(GameEvent.Type.PIECE_SPAWNED);
+        if (blocked)
+            endGame();
+    }
+
+    /**
+    * Metoda kończąca grę - nie da się już dodać nowego klocka albo linie śmieci wypchnęły stos ponad planszę.
+    */
+    private void endGame()
+    {
+        actualPiece.setOneShape(Model.TetrisShape.Blank);
+        gameOver = true;
+        if (events != null)
+            publish(GameEvent.Type.GAME_OVER, 0, 0, 0, -1, -1);
+        if (Metrics.ENABLED)
+            Metrics.GAMES_OVER.increment();
+        GameOverEvent gameOverEvent = new GameOverEvent();
+        if (gameOverEvent.shouldCommit())
+        {
+            gameOverEvent.points = points;
+            gameOverEvent.pieces = piecesSpawned;
+            gameOverEvent.commit();
+        }
+        for (GameListener listener : listeners)
+            listener.gameOver(this);
+    }
+
+    /**
+    * Metoda prywatna do sprawdzenia, czy aktualny klocek w danej orientacji
+    * może zostać położonym na planszy w danym miejscu, a także do przęłożenia go
+    * w podane miejsce, jeśli jest to możliwe
+    * Zwraca wartość boolean w zależności od tego, czy zmiana pozycji jest możaliwa.
+    */
+    private boolean checkMove(int rotation, int tryX, int tryY)
+    {
+        if (board.fits(actualPiece, rotation, tryX, tryY)==false) return false;
+
+        /* uaktualniamy dane o aktualnym kształcie */
+        int oldRotation = actualPiece.getRotation();
+        int oldX = actualX;
+        int oldY = actualY;
+        actualPiece.setRotation(rotation);
+        actualX = tryX;
+        actualY = tryY;
+        /*zmieniło się poprzednie i nowe położenie klocka*/
+        int minX = Math.min(oldX + actualPiece.minimumX(oldRotation), tryX + actualPiece.minimumX(rotation));
+        int minY = Math.min(oldY - actualPiece.maximumY(oldRotation), tryY - actualPiece.maximumY(rotation));
+        int maxX = Math.max(oldX + actualPiece.maximumX(oldRotation), tryX + actualPiece.maximumX(rotation));
+        int maxY = Math.max(oldY - actualPiece.minimumY(oldRotation), tryY - actualPiece.minimumY(rotation));
+        fireStateChanged(minX, minY, maxX, maxY);
+        /*sprawdzenie miejsca nowego klocka nie przesuwa go - zdarzeniem jest wtedy PIECE_SPAWNED*/
+        if (events != null && (rotation != oldRotation || tryX != oldX || tryY != oldY))
+            publish(rotation != oldRotation ? GameEvent.Type.ROTATED : GameEvent.Type.MOVED, 0, minX, minY, maxX, maxY);
+        return true;
+    }
+
+    /**
+    * Metoda prywatna zapisująca na planszy informację o aktualnym klocku,
+    * wywoływana gdy zakończy już on spadanie.
+    */
+    private void actualPieceDropped()
+    {
+        PieceLockEvent event = new PieceLockEvent();
+        event.begin();
+        if (event.isEnabled())
+        {
+            event.shape = actualPiece.getOneShape().name();
+            event.x = actualX;
+            event.y = actualY;
+            event.rotation = actualPiece.getRotation();
+        }
+        board.place(actualPiece, actualX, actualY);
+        if (events != null)
+            publishPiece(GameEvent.Type.LOCKED);
+        removeFullLines();
+        if (garbageIn != null)
+            receiveGarbage();
+        if (fallingEnd==false && gameOver == false)
+            createNewPiece();
+        event.commit();
+    }
+
+    /**
+    * Metoda prywatna usuwająca pełne linie i doliczająca zdobyte przez urzytkownika punkty.
+    */
+    private void removeFullLines()
+    {
+        LineClearEvent event = new LineClearEvent();
+        event.begin();
+        /*pełne linie mogą leżeć tylko w wierszach klocka - zmieniają się wszystkie wiersze od najniższej z nich
+        do szczytu stosu, a koszt sprawdzenia nie zależy od rozmiaru planszy*/
+        int lowestRow = actualY - actualPiece.maximumY(actualPiece.getRotation());
+        int highestRow = Math.min(boardHeight - 1, actualY - actualPiece.minimumY(actualPiece.getRotation()));
+        int clearedRows = 0;
+        for (int y = lowestRow; y <= highestRow; y++)
+            if (board.isRowFull(y))
+                clearedRows |= 1 << (y - lowestRow);
+        if (clearedRows == 0) return;
+        int stackTop = board.getStackHeight() - 1;
+        int numFullLines = board.removeFullLines(lowestRow, highestRow);
+        if (numFullLines > 0)
+        {   //doliczenie punktów, zakończenie opadania klocka
+            points = points + numFullLines;
+            if (Metrics.ENABLED)
+                Metrics.linesCleared(numFullLines);
+            if (event.shouldCommit())
+            {
+                event.lines = numFullLines;
+                event.points = points;
+                event.commit();
+            }
+            fallingEnd = true;
+            actualPiece.setOneShape(Model.TetrisShape.Blank);
+            for (GameListener listener : listeners)
+                listener.scoreChanged(this, points);
+            if (garbageOut != null)
+                garbageOut.linesCleared(this, numFullLines);
+            fireStateChanged(0, lowestRow, boardWidth - 1, stackTop);
+            if (events != null)
+            {
+                publish(GameEvent.Type.LINES_CLEARED, clearedRows, 0, lowestRow, boardWidth - 1, stackTop);
+                publish(GameEvent.Type.SCORE_CHANGED, 0, 0, 0, -1, -1);
+            }
+        }
+    }
+
+    /**
+    * Metoda prywatna dodająca na dół planszy wszystkie linie śmieci czekające w skrzynce
+    * (wywoływana przy zapisie klocka). Gdy stos zostanie wypchnięty ponad planszę, gra się kończy.
+    */
+    private void receiveGarbage()
+    {
+        int received = 0;
+        boolean fits = true;
+        for (int message = garbageIn.poll(); message >= 0; message = garbageIn.poll())
+        {
+            int lines = GarbageMailbox.lines(message);
+            fits &= board.addGarbage(lines, GarbageMailbox.hole(message), GARBAGE_SHAPE);
+            received += lines;
+        }
+        if (received == 0) return;
+        int stackTop = boardHeight - 1;
+        fireStateChanged(0, 0, boardWidth - 1, stackTop);
+        if (events != null)
+            publish(GameEvent.Type.GARBAGE_RECEIVED, 0, 0, 0, boardWidth - 1, stackTop);
+        if (fits == false)
+            endGame();
+    }
+
+    /*zdarzenie, którego prostokątem są pola aktualnego klocka*/
+    private void publishPiece(GameEvent.Type type)
+    {
+        int rotation = actualPiece.getRotation();
+        publish(type, 0, actualX + actualPiece.minimumX(rotation), actualY - actualPiece.maximumY(rotation),
+                actualX + actualPiece.maximumX(rotation), actualY - actualPiece.minimumY(rotation));
+    }
+
+    /*wypełnienie i opublikowanie zdarzenia - pusty prostokąt (minX > maxX) oznacza, że żadne pole się nie zmieniło,
+    * a bit i liczby clearedRows - że usunięty został wiersz minY + i*/
+    private void publish(GameEvent.Type type, int clearedRows, int minX, int minY, int maxX, int maxY)
+    {
+        GameEvent event = events.claim();
+        event.type = type;
+        event.shape = actualPiece.getOneShape();
+        event.x = actualX;
+        event.y = actualY;
+        event.rotation = actualPiece.getRotation();
+        event.clearedRows = clearedRows;
+        event.lines = Integer.bitCount(clearedRows);
+        event.points = points;
+        event.minX = minX;
+        event.minY = minY;
+        event.maxX = maxX;
+        event.maxY = maxY;
+        events.publish();
+    }
+
+    private void fireStateChanged(int minX, int minY, int maxX, int maxY)
+    {
+        for (GameListener listener : listeners)
+            listener.stateChanged(this, minX, minY, maxX, maxY);
+    }
+}
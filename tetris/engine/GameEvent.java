@@ -0,0 +1,186 @@
+package tetris.engine;
+
+import tetris.model.Model;
+
+/**
+* Klasa zdarzenia gry przekazywanego przez strumień zdarzeń (GameEventRing).
+* Obiekty zdarzeń są tworzone raz, razem z buforem, i używane wielokrotnie - silnik wypełnia kolejne
+* miejsca bufora, a każdy odbiorca dostaje własną kopię zdarzenia, ważną tylko do powrotu z metody onEvent.
+* Prostokąt minX, minY, maxX, maxY (we współrzędnych planszy, włącznie z brzegami, y = 0 to najniższy wiersz)
+* obejmuje pola, których wygląd mógł się zmienić - tak jak w GameListener.stateChanged.
+*/
+public final class GameEvent
+{
+    /**
+    * Publiczny typ enum rodzajów zdarzeń gry.
+    */
+    public enum Type {
+        /*nowa gra albo przywrócony stan - zmieniła się cała plansza*/
+        GAME_STARTED,
+        PIECE_SPAWNED,
+        /*przesunięcie klocka w lewo, w prawo lub w dół*/
+        MOVED,
+        ROTATED,
+        /*klocek zakończył spadanie i został zapisany na planszy*/
+        LOCKED,
+        LINES_CLEARED,
+        SCORE_CHANGED,
+        GAME_OVER,
+        /*linie śmieci od przeciwnika (tryb pojedynku) podniosły stos*/
+        GARBAGE_RECEIVED
+    }
+
+    long sequence;
+    Type type;
+    Model.TetrisShape shape;
+    int x;
+    int y;
+    int rotation;
+    int lines;
+    int clearedRows;
+    int points;
+    int minX;
+    int minY;
+    int maxX;
+    int maxY;
+
+    GameEvent()
+    {
+    }
+
+    void copyFrom(GameEvent other)
+    {
+        sequence = other.sequence;
+        type = other.type;
+        shape = other.shape;
+        x = other.x;
+        y = other.y;
+        rotation = other.rotation;
+        lines = other.lines;
+        clearedRows = other.clearedRows;
+        points = other.points;
+        minX = other.minX;
+        minY = other.minY;
+        maxX = other.maxX;
+        maxY = other.maxY;
+    }
+
+    /**
+    * @return numer zdarzenia w strumieniu (kolejne zdarzenia mają kolejne numery, od 0)
+    */
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    /**
+    * @return rodzaj zdarzenia
+    */
+    public Type getType()
+    {
+        return type;
+    }
+
+    /**
+    * @return kształt aktualnego klocka po zdarzeniu (Blank, gdy żaden klocek nie spada)
+    */
+    public Model.TetrisShape getShape()
+    {
+        return shape;
+    }
+
+    /**
+    * @return współrzędna x aktualnego klocka po zdarzeniu
+    */
+    public int getX()
+    {
+        return x;
+    }
+
+    /**
+    * @return współrzędna y aktualnego klocka po zdarzeniu
+    */
+    public int getY()
+    {
+        return y;
+    }
+
+    /**
+    * @return orientacja aktualnego klocka po zdarzeniu
+    */
+    public int getRotation()
+    {
+        return rotation;
+    }
+
+    /**
+    * @return liczba linii usuniętych naraz (tylko dla LINES_CLEARED, w pozostałych zdarzeniach 0)
+    */
+    public int getLines()
+    {
+        return lines;
+    }
+
+    /**
+    * @return usunięte wiersze (tylko dla LINES_CLEARED): bit i oznacza wiersz getMinY() + i,
+    * numerowany przed usunięciem linii
+    */
+    public int getClearedRows()
+    {
+        return clearedRows;
+    }
+
+    /**
+    * @return liczba punktów po zdarzeniu
+    */
+    public int getPoints()
+    {
+        return points;
+    }
+
+    /**
+    * @return najmniejsza zmieniona kolumna
+    */
+    public int getMinX()
+    {
+        return minX;
+    }
+
+    /**
+    * @return najniższy zmieniony wiersz
+    */
+    public int getMinY()
+    {
+        return minY;
+    }
+
+    /**
+    * @return największa zmieniona kolumna
+    */
+    public int getMaxX()
+    {
+        return maxX;
+    }
+
+    /**
+    * @return najwyższy zmieniony wiersz
+    */
+    public int getMaxY()
+    {
+        return maxY;
+    }
+
+    /**
+    * @return true, jeśli zdarzenie zmieniło wygląd jakichś pól planszy (prostokąt nie jest pusty)
+    */
+    public boolean changesBoard()
+    {
+        return minX <= maxX && minY <= maxY;
+    }
+
+    @Override
+    public String toString()
+    {
+        return sequence + " " + type + " " + shape + " (" + x + ", " + y + ", " + rotation + ") linie: " + lines + " punkty: " + points;
+    }
+}
@@ -0,0 +1,13 @@
+package tetris.engine;
+
+/**
+* Interfejs odbiorcy zdarzeń gry odczytywanych ze strumienia zdarzeń (GameEventRing.Subscription.poll).
+*/
+public interface GameEventHandler
+{
+    /**
+    * Metoda wywoływana dla kolejnego zdarzenia gry, w wątku odbiorcy.
+    * @param event zdarzenie - obiekt jest używany ponownie, więc nie wolno go przechowywać po powrocie z metody
+    */
+    void onEvent(GameEvent event);
+}
@@ -0,0 +1,174 @@
+package tetris.engine;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+* Klasa strumienia zdarzeń gry - bufor cykliczny z jednym nadawcą (silnikiem gry) i dowolną liczbą odbiorców.
+* Wszystkie zdarzenia są tworzone raz, w konstruktorze, więc publikowanie zdarzenia nie alokuje pamięci.
+* Nadawca nigdy nie czeka na odbiorców: gdy bufor się zapełni, najstarsze zdarzenia są nadpisywane.
+* Każdy odbiorca (Subscription) czyta zdarzenia we własnym tempie i we własnym wątku; odbiorca,
+* który nie nadąża (np. zapis na dysk albo zajęty wątek zdarzeń Swing), zamiast spowalniać grę
+* pomija nadpisane zdarzenia, a ich liczba jest dostępna w getLost.
+* Wywołania claim i publish nie mogą się przeplatać między wątkami - silnik gry wywołuje je pod własną blokadą.
+*/
+public class GameEventRing
+{
+    private final GameEvent[] slots;
+    private final int mask;
+    /*numer następnego zdarzenia nadawcy*/
+    private long next = 0;
+    /*numer ostatniego zdarzenia, którego miejsce nadawca zaczął zapisywać*/
+    private final AtomicLong claimed = new AtomicLong(-1L);
+    /*numer ostatniego opublikowanego zdarzenia*/
+    private final AtomicLong published = new AtomicLong(-1L);
+
+    /**
+    * Konstruktor strumienia zdarzeń.
+    * @param capacity liczba zdarzeń w buforze (potęga dwójki)
+    */
+    public GameEventRing(int capacity)
+    {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Rozmiar bufora zdarzeń musi być potęgą dwójki: " + capacity);
+        slots = new GameEvent[capacity];
+        for (int i = 0; i < capacity; i++)
+            slots[i] = new GameEvent();
+        mask = capacity - 1;
+    }
+
+    /**
+    * @return liczba zdarzeń w buforze
+    */
+    public int capacity()
+    {
+        return slots.length;
+    }
+
+    /**
+    * @return numer ostatniego opublikowanego zdarzenia (-1, gdy nie opublikowano jeszcze żadnego)
+    */
+    public long getPublished()
+    {
+        return published.get();
+    }
+
+    /**
+    * Metoda tworząca nowego odbiorcę, który odczyta zdarzenia opublikowane od tej chwili.
+    * @return odbiorca zdarzeń
+    */
+    public Subscription subscribe()
+    {
+        return new Subscription(published.get() + 1);
+    }
+
+    /**
+    * Metoda zwracająca miejsce bufora dla następnego zdarzenia - po wypełnieniu zdarzenie trzeba opublikować (publish).
+    * Miejsce jest od razu oznaczane jako zapisywane, więc odbiorca czytający stare zdarzenie z tego miejsca je pominie.
+    * @return zdarzenie do wypełnienia
+    */
+    GameEvent claim()
+    {
+        long sequence = next;
+        claimed.set(sequence);
+        /*zapis pól zdarzenia nie może wyprzedzić oznaczenia miejsca jako zapisywanego*/
+        VarHandle.storeStoreFence();
+        GameEvent event = slots[(int) sequence & mask];
+        event.sequence = sequence;
+        return event;
+    }
+
+    /**
+    * Metoda publikująca zdarzenie wypełnione po wywołaniu claim.
+    */
+    void publish()
+    {
+        published.setRelease(next);
+        next++;
+    }
+
+    /**
+    * Klasa odbiorcy zdarzeń - pamięta numer następnego zdarzenia do odczytania.
+    * Jednego odbiorcy może używać tylko jeden wątek naraz.
+    */
+    public final class Subscription
+    {
+        /*kopia odczytywanego zdarzenia przekazywana do odbiorcy*/
+        private final GameEvent event = new GameEvent();
+        private long nextSequence;
+        private long lost = 0;
+
+        private Subscription(long nextSequence)
+        {
+            this.nextSequence = nextSequence;
+        }
+
+        /**
+        * Metoda przekazująca odbiorcy zdarzenia opublikowane od poprzedniego odczytu, ale nie więcej niż
+        * rozmiar bufora (aby szybki nadawca nie zatrzymał odbiorcy w tej metodzie na zawsze).
+        * @param handler odbiorca zdarzeń
+        * @return liczba przekazanych zdarzeń
+        */
+        public int poll(GameEventHandler handler)
+        {
+            return poll(handler, slots.length);
+        }
+
+        /**
+        * Metoda przekazująca odbiorcy co najwyżej limit zdarzeń opublikowanych od poprzedniego odczytu.
+        * Zdarzenia nadpisane przed odczytem są pomijane i doliczane do getLost.
+        * @param handler odbiorca zdarzeń
+        * @param limit największa liczba zdarzeń do przekazania
+        * @return liczba przekazanych zdarzeń
+        */
+        public int poll(GameEventHandler handler, int limit)
+        {
+            int delivered = 0;
+            while (delivered < limit)
+            {
+                long available = published.getAcquire();
+                if (nextSequence > available) break;
+                if (available - nextSequence >= slots.length)
+                {
+                    skipTo(available - slots.length + 1);
+                    continue;
+                }
+                event.copyFrom(slots[(int) nextSequence & mask]);
+                /*jeśli nadawca zaczął w tym czasie nadpisywać to miejsce, kopia może być niespójna*/
+                VarHandle.loadLoadFence();
+                long overwriting = claimed.get();
+                if (overwriting - nextSequence >= slots.length)
+                {
+                    skipTo(overwriting - slots.length + 1);
+                    continue;
+                }
+                nextSequence++;
+                handler.onEvent(event);
+                delivered++;
+            }
+            return delivered;
+        }
+
+        private void skipTo(long sequence)
+        {
+            lost += sequence - nextSequence;
+            nextSequence = sequence;
+        }
+
+        /**
+        * @return liczba opublikowanych zdarzeń, których odbiorca jeszcze nie odczytał
+        */
+        public long getLag()
+        {
+            return Math.max(0L, published.get() + 1 - nextSequence);
+        }
+
+        /**
+        * @return liczba zdarzeń pominiętych, bo zostały nadpisane, zanim odbiorca je odczytał
+        */
+        public long getLost()
+        {
+            return lost;
+        }
+    }
+}
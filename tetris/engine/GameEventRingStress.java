@@ -0,0 +1,146 @@
+package tetris.engine;
+
+import tetris.model.Model;
+
+/**
+* Test obciążeniowy strumienia zdarzeń gry (GameEventRing) - w tym pakiecie, bo publikuje zdarzenia
+* bezpośrednio metodami claim i publish, tak jak silnik gry.
+*/
+public final class GameEventRingStress
+{
+    private GameEventRingStress()
+    {
+    }
+
+    /**
+    * Test obciążeniowy strumienia: wątek główny publikuje zdarzenia tak szybko, jak może, a dwaj odbiorcy
+    * w osobnych wątkach je czytają - szybki i wolny (który po każdym zdarzeniu czeka przez podaną liczbę
+    * obrotów pętli, więc część zdarzeń jest nadpisywana, zanim je odczyta). Wszystkie pola zdarzenia są
+    * wyliczane z jego numeru, więc odbiorca wykrywa kopię niespójną (rozdartą przez nadpisanie w trakcie odczytu)
+    * i zdarzenia nie po kolei. Na końcu dla każdego odbiorcy sprawdzany jest bilans:
+    * przekazane + pominięte = opublikowane.
+    * java tetris.engine.GameEventRingStress [zdarzenia] [rozmiar bufora] [przerwa wolnego odbiorcy]
+    * @param args parametry
+    * @throws InterruptedException gdy wątek główny zostanie przerwany
+    */
+    public static void main(String[] args) throws InterruptedException
+    {
+        long count = args.length > 0 ? Long.parseLong(args[0]) : 50_000_000L;
+        int capacity = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        int pause = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        GameEventRing ring = new GameEventRing(capacity);
+        StressReader[] readers = {new StressReader(ring, count, 0), new StressReader(ring, count, pause)};
+        Thread[] threads = new Thread[readers.length];
+        for (int i = 0; i < readers.length; i++)
+        {
+            threads[i] = new Thread(readers[i], "tetris-events-" + i);
+            threads[i].start();
+        }
+        long begin = System.nanoTime();
+        for (long sequence = 0; sequence < count; sequence++)
+        {
+            GameEvent event = ring.claim();
+            StressReader.fill(event, sequence);
+            ring.publish();
+        }
+        long nanos = System.nanoTime() - begin;
+        for (Thread thread : threads)
+            thread.join();
+
+        System.out.printf("Zdarzenia: %d, rozmiar bufora: %d, czas publikowania: %.3f s (%.1f ns na zdarzenie)%n",
+                          count, capacity, nanos / 1e9, (double) nanos / count);
+        for (int i = 0; i < readers.length; i++)
+        {
+            StressReader reader = readers[i];
+            System.out.printf("Odbiorca %d: przekazane: %d, pominięte: %d, bilans: %s, niespójne: %d, nie po kolei: %d%n",
+                              i, reader.delivered, reader.subscription.getLost(),
+                              reader.delivered + reader.subscription.getLost() == count ? "zgodny" : "NIEZGODNY",
+                              reader.torn, reader.unordered);
+        }
+    }
+
+    /**
+    * Odbiorca testu obciążeniowego - sprawdza każde przekazane zdarzenie.
+    */
+    private static final class StressReader implements Runnable, GameEventHandler
+    {
+        private static final GameEvent.Type[] TYPES = GameEvent.Type.values();
+        private static final Model.TetrisShape[] SHAPES = Model.TetrisShape.values();
+
+        private final GameEventRing ring;
+        private final GameEventRing.Subscription subscription;
+        private final long count;
+        private final int pause;
+        private long previous = -1L;
+        private long delivered = 0;
+        private long torn = 0;
+        private long unordered = 0;
+
+        StressReader(GameEventRing ring, long count, int pause)
+        {
+            this.ring = ring;
+            subscription = ring.subscribe();
+            this.count = count;
+            this.pause = pause;
+        }
+
+        /*pola zdarzenia o podanym numerze - każde pole inne, żeby kopia złożona z dwóch zdarzeń nie przeszła*/
+        static void fill(GameEvent event, long sequence)
+        {
+            event.type = TYPES[(int) (sequence % TYPES.length)];
+            event.shape = SHAPES[(int) (sequence % SHAPES.length)];
+            event.x = field(sequence, 0);
+            event.y = field(sequence, 1);
+            event.rotation = field(sequence, 2);
+            event.lines = field(sequence, 3);
+            event.clearedRows = field(sequence, 4);
+            event.points = field(sequence, 5);
+            event.minX = field(sequence, 6);
+            event.minY = field(sequence, 7);
+            event.maxX = field(sequence, 8);
+            event.maxY = field(sequence, 9);
+        }
+
+        private static int field(long sequence, int index)
+        {
+            return (int) (sequence * (2 * index + 1)) + index;
+        }
+
+        private static boolean matches(GameEvent event)
+        {
+            long sequence = event.sequence;
+            return event.type == TYPES[(int) (sequence % TYPES.length)]
+                && event.shape == SHAPES[(int) (sequence % SHAPES.length)]
+                && event.x == field(sequence, 0) && event.y == field(sequence, 1)
+                && event.rotation == field(sequence, 2) && event.lines == field(sequence, 3)
+                && event.clearedRows == field(sequence, 4) && event.points == field(sequence, 5)
+                && event.minX == field(sequence, 6) && event.minY == field(sequence, 7)
+                && event.maxX == field(sequence, 8) && event.maxY == field(sequence, 9);
+        }
+
+        @Override
+        public void run()
+        {
+            /*po opublikowaniu wszystkich zdarzeń odbiorca czyta do końca strumienia*/
+            while (ring.getPublished() < count - 1 || subscription.getLag() > 0)
+            {
+                if (subscription.poll(this) == 0)
+                    Thread.onSpinWait();
+            }
+        }
+
+        @Override
+        public void onEvent(GameEvent event)
+        {
+            if (matches(event) == false)
+                torn++;
+            if (event.sequence <= previous)
+                unordered++;
+            previous = event.sequence;
+            delivered++;
+            for (int spin = 0; spin < pause; spin++)
+                Thread.onSpinWait();
+        }
+    }
+}
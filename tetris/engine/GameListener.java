@@ -0,0 +1,35 @@
+package tetris.engine;
+
+/**
+* Interfejs słuchacza zdarzeń silnika gry.
+* Silnik nie zależy od żadnego widoku - widok (np. plansza Swing) jest jedynie
+* jednym z subskrybentów, który reaguje na zmiany stanu gry.
+*/
+public interface GameListener
+{
+    /**
+    * Metoda wywoływana, gdy zmienił się stan planszy lub aktualnego klocka.
+    * Podany prostokąt (we współrzędnych planszy, włącznie z brzegami, y = 0 to najniższy wiersz)
+    * obejmuje wszystkie pola, których wygląd mógł się zmienić:
+    * poprzednie i nowe położenie klocka albo wiersze przesunięte po usunięciu linii.
+    * @param engine silnik, którego stan się zmienił
+    * @param minX najmniejsza zmieniona kolumna
+    * @param minY najniższy zmieniony wiersz
+    * @param maxX największa zmieniona kolumna
+    * @param maxY najwyższy zmieniony wiersz
+    */
+    void stateChanged(GameEngine engine, int minX, int minY, int maxX, int maxY);
+
+    /**
+    * Metoda wywoływana, gdy zmieniła się liczba punktów.
+    * @param engine silnik, którego stan się zmienił
+    * @param points aktualna liczba punktów
+    */
+    void scoreChanged(GameEngine engine, int points);
+
+    /**
+    * Metoda wywoływana, gdy nie da się już dodać nowego klocka na planszę - gra zakończona.
+    * @param engine silnik, którego gra się zakończyła
+    */
+    void gameOver(GameEngine engine);
+}
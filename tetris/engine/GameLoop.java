@@ -0,0 +1,377 @@
+package tetris.engine;
+
+import tetris.jfr.TickEvent;
+import tetris.metrics.Metrics;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+/**
+* Klasa implementująca pętlę gry działającą we własnym wątku, ze stałym krokiem logicznym (60 Hz)
+* odmierzanym zegarem System.nanoTime - zamiast zegara Swing działającego w wątku zdarzeń.
+* W każdym kroku naliczana jest grawitacja zależna od poziomu (od ułamków pola do 20G)
+* oraz opóźnienie blokady klocka leżącego na stosie.
+* Pętla nie rysuje planszy - widok odmalowuje się osobno, w swoim tempie.
+* Mierzone są: opóźnienie rozpoczęcia kroków względem planu (jitter) i liczba pominiętych kroków.
+* Klawisze gracza trafiają do kolejki wejścia (InputQueue), którą odczytuje wątek pętli - od razu po dodaniu
+* wpisu, a nie dopiero w następnym kroku - a przytrzymane klawisze powtarza sama pętla (AutoRepeat).
+* Wszystkie zmiany silnika gry odbywają się pod blokadą (synchronized) na obiekcie silnika,
+* więc inne wątki też muszą go zmieniać pod tą blokadą.
+*/
+public class GameLoop implements Runnable
+{
+    /*liczba kroków logicznych na sekundę*/
+    public static final int TICKS_PER_SECOND = 60;
+    /*czas jednego kroku w nanosekundach*/
+    public static final long TICK_NANOS = 1_000_000_000L / TICKS_PER_SECOND;
+    /*liczba kroków, przez które leżący klocek może być jeszcze przesuwany przed blokadą*/
+    public static final int LOCK_DELAY_TICKS = 30;
+    /*ile razy ruch gracza może wyzerować opóźnienie blokady jednego klocka*/
+    public static final int MAX_LOCK_RESETS = 15;
+    /*liczba kroków od usunięcia linii do pojawienia się nowego klocka (dawniej jeden takt zegara 400 ms)*/
+    public static final int SPAWN_DELAY_TICKS = 24;
+    /*przy większym opóźnieniu zaległe kroki nie są nadrabiane, tylko liczone jako pominięte*/
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    /*liczba wpisów kolejki wejścia*/
+    private static final int INPUT_CAPACITY = 256;
+
+    private final GameEngine engine;
+    private volatile Thread thread;
+    private volatile boolean running = false;
+    private volatile boolean paused = true;
+
+    /*stan kroku logicznego (zmieniany tylko pod blokadą silnika)*/
+    private int gravityAccumulator;
+    private int lockTicks;
+    private int lockResets;
+    private int spawnTicks;
+    private long lastPiece = -1;
+    private int lastX;
+    private int lastRotation;
+
+    /*wejście gracza: kolejka zdarzeń klawiatury i powtarzanie przytrzymanych klawiszy*/
+    private final InputQueue input = new InputQueue(INPUT_CAPACITY);
+    private final AutoRepeat autoRepeat = new AutoRepeat();
+    private final InputQueue.Handler inputHandler = this::applyInput;
+    private volatile LongConsumer inputListener;
+    /*czas pierwszej zmiany stanu gry przez wejście gracza w bieżącym odczycie kolejki (0 - brak)*/
+    private long inputStateNanos;
+
+    /*pomiary (zapisywane tylko przez wątek pętli)*/
+    private volatile long ticks;
+    private volatile long missedTicks;
+    private volatile long maxJitterNanos;
+    private volatile long totalJitterNanos;
+
+    /**
+    * Konstruktor pętli gry.
+    * @param engine silnik gry sterowany przez pętlę
+    */
+    public GameLoop(GameEngine engine)
+    {
+        this.engine = engine;
+    }
+
+    /**
+    * Metoda uruchamiająca wątek pętli gry (wątek demon - nie blokuje zakończenia programu).
+    */
+    public synchronized void start()
+    {
+        if (running) return;
+        running = true;
+        thread = new Thread(this, "tetris-game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+    * Metoda zatrzymująca wątek pętli gry.
+    */
+    public synchronized void stop()
+    {
+        running = false;
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+    * Metoda wstrzymująca lub wznawiająca kroki gry (sam wątek działa dalej).
+    * @param paused true, aby wstrzymać grę
+    */
+    public void setPaused(boolean paused)
+    {
+        this.paused = paused;
+    }
+
+    /**
+    * @return true, jeśli kroki gry są wstrzymane
+    */
+    public boolean isPaused()
+    {
+        return paused;
+    }
+
+    /**
+    * Metoda przekazująca pętli naciśnięcie albo puszczenie klawisza - wywoływana tylko przez jeden wątek
+    * (wątek zdarzeń Swing). Wpis jest odczytywany przez wątek pętli od razu, bez czekania na następny krok.
+    * @param action akcja gracza przypisana do klawisza (LEFT, RIGHT, ROTATE, SOFT_DROP lub HARD_DROP)
+    * @param pressed true - naciśnięcie klawisza, false - puszczenie
+    * @param nanos czas odebrania zdarzenia klawiatury (System.nanoTime)
+    * @return false, jeśli kolejka wejścia była pełna i wpis został odrzucony
+    */
+    public boolean input(GameEngine.Action action, boolean pressed, long nanos)
+    {
+        if (input.offer(action, pressed, nanos) == false) return false;
+        Thread loop = thread;
+        if (loop != null)
+            LockSupport.unpark(loop);
+        return true;
+    }
+
+    /**
+    * Metoda ustawiająca słuchacza zmian stanu gry wywołanych przez wejście gracza (naciśnięcia i powtórzenia klawiszy).
+    * Słuchacz jest wywoływany w wątku pętli, poza blokadą silnika, z czasem zmiany (System.nanoTime) -
+    * np. aby widok odmalował planszę od razu, a nie przy najbliższej klatce.
+    * @param listener słuchacz (null - brak)
+    */
+    public void setInputListener(LongConsumer listener)
+    {
+        inputListener = listener;
+    }
+
+    /**
+    * @return ustawienia powtarzania przytrzymanych klawiszy
+    */
+    public AutoRepeat getAutoRepeat()
+    {
+        return autoRepeat;
+    }
+
+    /**
+    * @return liczba zdarzeń klawiatury odrzuconych, bo kolejka wejścia była pełna
+    */
+    public long getDroppedInputs()
+    {
+        return input.getDropped();
+    }
+
+    /**
+    * Metoda rozpoczynająca nową grę w silniku i zerująca stan grawitacji i blokady.
+    * @param seed ziarno generatora klocków
+    */
+    public void reset(long seed)
+    {
+        synchronized (engine)
+        {
+            engine.reset(seed);
+            resetPieceState();
+            spawnTicks = 0;
+            lastPiece = engine.getPiecesSpawned();
+            lastX = engine.getPieceX();
+            lastRotation = engine.getPieceRotation();
+        }
+    }
+
+    @Override
+    public void run()
+    {
+        long next = System.nanoTime();
+        while (running)
+        {
+            long wait = next - System.nanoTime();
+            if (wait > 0)
+            {
+                /*wątek jest budzony po każdym wpisie do kolejki wejścia*/
+                if (input.isEmpty())
+                    LockSupport.parkNanos(wait);
+                else
+                    readInput();
+                continue;
+            }
+            long late = -wait;
+            if (late > MAX_CATCH_UP_TICKS * TICK_NANOS)
+            {
+                long skipped = late / TICK_NANOS;
+                missedTicks += skipped;
+                next += skipped * TICK_NANOS;
+                late -= skipped * TICK_NANOS;
+            }
+            ticks++;
+            totalJitterNanos += late;
+            if (late > maxJitterNanos)
+                maxJitterNanos = late;
+            if (paused == false)
+                tick();
+            next += TICK_NANOS;
+        }
+    }
+
+    /**
+    * Metoda wykonująca jeden krok logiczny gry: wejście gracza z kolejki, powtórzenia przytrzymanych klawiszy,
+    * grawitację, opóźnienie blokady i pojawienie się nowego klocka po usunięciu linii.
+    * Może być wywoływana także bez wątku pętli - np. przy symulacjach i powtórkach.
+    * Przy włączonych pomiarach (Metrics) czas kroku trafia do histogramu Metrics.TICK,
+    * a w nagraniu JFR każdy krok jest zdarzeniem tetris.Tick.
+    */
+    public void tick()
+    {
+        TickEvent event = new TickEvent();
+        event.begin();
+        long start = Metrics.ENABLED ? System.nanoTime() : 0L;
+        inputStateNanos = 0;
+        advance();
+        if (Metrics.ENABLED)
+            Metrics.TICK.record(System.nanoTime() - start);
+        notifyInput();
+        if (event.shouldCommit())
+        {
+            event.tick = ticks;
+            event.level = engine.getLevel();
+            event.points = engine.getPoints();
+            event.grounded = engine.pieceGrounded();
+            event.commit();
+        }
+    }
+
+    /*odczyt kolejki wejścia poza krokiem gry*/
+    private void readInput()
+    {
+        inputStateNanos = 0;
+        synchronized (engine)
+        {
+            input.drain(inputHandler);
+        }
+        notifyInput();
+    }
+
+    /*obsługa jednego wpisu kolejki wejścia (pod blokadą silnika); w czasie pauzy liczą się tylko puszczenia klawiszy*/
+    private void applyInput(GameEngine.Action action, boolean pressed, long nanos)
+    {
+        if (pressed && paused) return;
+        if (autoRepeat.input(engine, action, pressed))
+        {
+            long now = System.nanoTime();
+            if (Metrics.ENABLED)
+                Metrics.INPUT_TO_STATE.record(now - nanos);
+            if (inputStateNanos == 0)
+                inputStateNanos = now;
+        }
+    }
+
+    private void notifyInput()
+    {
+        LongConsumer listener = inputListener;
+        if (inputStateNanos != 0 && listener != null)
+            listener.accept(inputStateNanos);
+    }
+
+    private void advance()
+    {
+        synchronized (engine)
+        {
+            input.drain(inputHandler);
+            if (autoRepeat.tick(engine) && inputStateNanos == 0)
+                inputStateNanos = System.nanoTime();
+            if (engine.isGameOver()) return;
+            /*po usunięciu linii nowy klocek pojawia się z opóźnieniem*/
+            if (engine.pieceBlank())
+            {
+                if (++spawnTicks >= SPAWN_DELAY_TICKS)
+                {
+                    spawnTicks = 0;
+                    engine.step(GameEngine.Action.TICK);
+                }
+                rememberPiece();
+                return;
+            }
+            if (engine.getPiecesSpawned() != lastPiece)
+            {
+                /*nowy klocek (np. po zrzuceniu poprzedniego przez gracza)*/
+                resetPieceState();
+            }
+            else if ((engine.getPieceX() != lastX || engine.getPieceRotation() != lastRotation)
+                     && lockTicks > 0 && lockResets < MAX_LOCK_RESETS)
+            {
+                /*ruch gracza leżącym klockiem odsuwa jego blokadę*/
+                lockTicks = 0;
+                lockResets++;
+            }
+
+            gravityAccumulator += Gravity.perTick(engine.getLevel());
+            while (gravityAccumulator >= Gravity.ONE_CELL)
+            {
+                gravityAccumulator -= Gravity.ONE_CELL;
+                if (engine.step(GameEngine.Action.GRAVITY) == false)
+                {
+                    gravityAccumulator = 0;
+                    break;
+                }
+                lockTicks = 0;
+            }
+
+            if (engine.pieceGrounded())
+            {
+                if (++lockTicks >= LOCK_DELAY_TICKS)
+                {
+                    lockTicks = 0;
+                    engine.step(GameEngine.Action.LOCK);
+                }
+            }
+            else
+            {
+                lockTicks = 0;
+            }
+            rememberPiece();
+        }
+    }
+
+    private void resetPieceState()
+    {
+        gravityAccumulator = 0;
+        lockTicks = 0;
+        lockResets = 0;
+    }
+
+    /*zapamiętanie położenia klocka - przy pojawieniu się nowego klocka stan grawitacji i blokady jest zerowany*/
+    private void rememberPiece()
+    {
+        if (engine.getPiecesSpawned() != lastPiece)
+            resetPieceState();
+        lastPiece = engine.getPiecesSpawned();
+        lastX = engine.getPieceX();
+        lastRotation = engine.getPieceRotation();
+    }
+
+    /**
+    * @return liczba kroków wykonanych przez wątek pętli (także w czasie pauzy)
+    */
+    public long getTicks()
+    {
+        return ticks;
+    }
+
+    /**
+    * @return liczba kroków pominiętych, bo wątek pętli spóźnił się o więcej niż kilka kroków
+    */
+    public long getMissedTicks()
+    {
+        return missedTicks;
+    }
+
+    /**
+    * @return największe opóźnienie rozpoczęcia kroku względem planu, w nanosekundach
+    */
+    public long getMaxJitterNanos()
+    {
+        return maxJitterNanos;
+    }
+
+    /**
+    * @return średnie opóźnienie rozpoczęcia kroku względem planu, w nanosekundach
+    */
+    public long getAverageJitterNanos()
+    {
+        long count = ticks;
+        return count == 0 ? 0 : totalJitterNanos / count;
+    }
+}
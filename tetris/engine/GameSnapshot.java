@@ -0,0 +1,244 @@
+package tetris.engine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+* Klasa przechowująca pełny stan gry w płaskich tablicach liczb long - do rozgałęziania przeszukiwań,
+* cofania ruchów i przekazywania gier między wątkami.
+* Stan to nagłówek (rozmiar planszy, klocek i jego położenie, punkty, znaczniki, stan generatora klocków)
+* oraz wiersze planszy pogrupowane w strony po PAGE_ROWS wierszy.
+* Zapis i odtworzenie stanu (GameEngine.saveState, GameEngine.restoreState) nie alokują pamięci,
+* gdy obiekt jest używany wielokrotnie.
+* Metoda fork tworzy widok kopiowany przy zapisie: nowy obiekt współdzieli strony z oryginałem,
+* a strona jest kopiowana dopiero wtedy, gdy zapis zmienia jej zawartość - w głębokim drzewie przeszukiwania
+* niezmienione dolne wiersze planszy są więc pamiętane tylko raz.
+*/
+public class GameSnapshot
+{
+    /*liczba wierszy planszy na jednej stronie*/
+    public static final int PAGE_ROWS = 8;
+
+    /*pola nagłówka*/
+    static final int SIZE = 0;
+    static final int PIECE = 1;
+    static final int POSITION = 2;
+    static final int POINTS = 3;
+    static final int PIECES_SPAWNED = 4;
+    static final int GENERATOR = 5;
+
+    static final int FALLING_END = 1;
+    static final int GAME_OVER = 2;
+
+    private final int width;
+    private final int height;
+    private final int rowWords;
+    final long[] header;
+    private final long[][] pages;
+    /*czy strona należy wyłącznie do tego obiektu - strony współdzielone są kopiowane przy zapisie*/
+    private final boolean[] owned;
+
+    /**
+    * Konstruktor pustego stanu dla silnika o podanych wymiarach.
+    * @param width szerokość planszy
+    * @param height wysokość planszy
+    * @param rowWords liczba liczb long na wiersz planszy (Board.rowWords)
+    * @param generatorWords liczba liczb long stanu generatora klocków (PieceGenerator.stateSize)
+    */
+    GameSnapshot(int width, int height, int rowWords, int generatorWords)
+    {
+        this.width = width;
+        this.height = height;
+        this.rowWords = rowWords;
+        header = new long[GENERATOR + generatorWords];
+        int pageCount = (height + PAGE_ROWS - 1) / PAGE_ROWS;
+        pages = new long[pageCount][];
+        owned = new boolean[pageCount];
+        for (int p = 0; p < pageCount; p++)
+        {
+            pages[p] = new long[PAGE_ROWS * rowWords];
+            owned[p] = true;
+        }
+    }
+
+    private GameSnapshot(GameSnapshot other)
+    {
+        width = other.width;
+        height = other.height;
+        rowWords = other.rowWords;
+        header = other.header.clone();
+        pages = other.pages.clone();
+        owned = new boolean[pages.length];
+    }
+
+    /**
+    * Metoda tworząca widok tego stanu kopiowany przy zapisie.
+    * Od tej chwili oba obiekty współdzielą wszystkie strony wierszy, a każdy z nich kopiuje stronę
+    * przy pierwszym zapisie, który ją zmienia. Sam nagłówek jest kopiowany od razu.
+    * @return nowy stan o tej samej zawartości
+    */
+    public GameSnapshot fork()
+    {
+        Arrays.fill(owned, false);
+        return new GameSnapshot(this);
+    }
+
+    /**
+    * @return szerokość planszy
+    */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+    * @return wysokość planszy
+    */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+    * @return liczba punktów zapisanej gry
+    */
+    public int getPoints()
+    {
+        return (int) header[POINTS];
+    }
+
+    /**
+    * @return liczba klocków zapisanej gry
+    */
+    public long getPiecesSpawned()
+    {
+        return header[PIECES_SPAWNED];
+    }
+
+    /**
+    * @return liczba stron współdzielonych z innymi stanami
+    */
+    public int sharedPages()
+    {
+        int shared = 0;
+        for (boolean own : owned)
+            if (own == false) shared++;
+        return shared;
+    }
+
+    /**
+    * @return rozmiar stanu w postaci płaskiej tablicy (writeTo, readFrom), w liczbach long
+    */
+    public int flatSize()
+    {
+        return header.length + height * rowWords;
+    }
+
+    /**
+    * Metoda zapisująca stan do płaskiej tablicy liczb long.
+    * @param target tablica docelowa (co najmniej flatSize() liczb od indeksu offset)
+    * @param offset indeks pierwszej zapisywanej liczby
+    */
+    public void writeTo(long[] target, int offset)
+    {
+        System.arraycopy(header, 0, target, offset, header.length);
+        offset += header.length;
+        for (int p = 0; p < pages.length; p++)
+        {
+            int words = Math.min(PAGE_ROWS, height - p * PAGE_ROWS) * rowWords;
+            System.arraycopy(pages[p], 0, target, offset, words);
+            offset += words;
+        }
+    }
+
+    /**
+    * Metoda wczytująca stan z płaskiej tablicy liczb long zapisanej przez writeTo.
+    * @param source tablica ze stanem
+    * @param offset indeks pierwszej liczby stanu
+    */
+    public void readFrom(long[] source, int offset)
+    {
+        checkSize(source[offset + SIZE]);
+        System.arraycopy(source, offset, header, 0, header.length);
+        offset += header.length;
+        for (int p = 0; p < pages.length; p++)
+        {
+            int words = Math.min(PAGE_ROWS, height - p * PAGE_ROWS) * rowWords;
+            System.arraycopy(source, offset, writablePage(p), 0, words);
+            offset += words;
+        }
+    }
+
+    /**
+    * Metoda zapisująca stan do bufora (flatSize() liczb long od bieżącej pozycji bufora).
+    * @param buffer bufor docelowy
+    */
+    public void writeTo(ByteBuffer buffer)
+    {
+        for (long word : header)
+            buffer.putLong(word);
+        for (int p = 0; p < pages.length; p++)
+        {
+            long[] page = pages[p];
+            int words = Math.min(PAGE_ROWS, height - p * PAGE_ROWS) * rowWords;
+            for (int i = 0; i < words; i++)
+                buffer.putLong(page[i]);
+        }
+    }
+
+    /**
+    * Metoda wczytująca stan z bufora zapisanego przez writeTo (od bieżącej pozycji bufora).
+    * @param buffer bufor ze stanem
+    */
+    public void readFrom(ByteBuffer buffer)
+    {
+        checkSize(buffer.getLong(buffer.position()));
+        for (int i = 0; i < header.length; i++)
+            header[i] = buffer.getLong();
+        for (int p = 0; p < pages.length; p++)
+        {
+            long[] page = writablePage(p);
+            int words = Math.min(PAGE_ROWS, height - p * PAGE_ROWS) * rowWords;
+            for (int i = 0; i < words; i++)
+                page[i] = buffer.getLong();
+        }
+    }
+
+    /*strona z wierszem y i indeks wiersza na stronie - do odczytu*/
+    long[] page(int y)
+    {
+        return pages[y / PAGE_ROWS];
+    }
+
+    int rowOffset(int y)
+    {
+        return (y % PAGE_ROWS) * rowWords;
+    }
+
+    /*strona z wierszem y do zapisu - strona współdzielona jest najpierw kopiowana*/
+    long[] writablePage(int page)
+    {
+        if (owned[page] == false)
+        {
+            pages[page] = pages[page].clone();
+            owned[page] = true;
+        }
+        return pages[page];
+    }
+
+    boolean ownsPage(int page)
+    {
+        return owned[page];
+    }
+
+    static long size(int width, int height)
+    {
+        return ((long) height << 32) | width;
+    }
+
+    private void checkSize(long size)
+    {
+        if (size != size(width, height))
+            throw new IllegalArgumentException("Stan gry dotyczy planszy o innym rozmiarze");
+    }
+}
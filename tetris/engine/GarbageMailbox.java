@@ -0,0 +1,177 @@
+package tetris.engine;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+* Klasa skrzynki linii śmieci gracza w trybie pojedynku - bufor cykliczny z wieloma nadawcami
+* (wątkami gier przeciwników) i jednym odbiorcą (wątkiem gry właściciela skrzynki), bez blokad.
+* Nadawca rezerwuje miejsce w buforze operacją compareAndSet na numerze następnego wpisu,
+* zapisuje wpis i publikuje go numerem sekwencji miejsca - odbiorca nie czeka na nadawcę,
+* a nadawca nigdy nie czeka na odbiorcę: gdy bufor jest pełny, linie trafiają do licznika nadmiaru
+* (z dziurą w kolumnie poprzedniego wpisu), więc żadne linie nie przepadają.
+* Każdy wpis to liczba linii i kolumna dziury w tych liniach. Skrzynka liczy wysłane wpisy,
+* nieudane próby rezerwacji miejsca (rywalizację nadawców) i wpisy, które trafiły do nadmiaru.
+*/
+public class GarbageMailbox
+{
+    /*przesunięcie kolumny dziury w kodzie wpisu, niższe bity to liczba linii*/
+    private static final int HOLE_SHIFT = 16;
+    private static final int LINES_MASK = (1 << HOLE_SHIFT) - 1;
+    /*największa kolumna dziury - kod wpisu musi być nieujemny*/
+    public static final int MAX_HOLE = (1 << (Integer.SIZE - 1 - HOLE_SHIFT)) - 1;
+
+    private final int[] messages;
+    /*numery sekwencji miejsc: numer wpisu + 1 - wpis gotowy do odczytu, numer wpisu - miejsce wolne*/
+    private final AtomicLongArray sequences;
+    private final int mask;
+    /*numer następnego wpisu do zapisu (rezerwowany przez nadawców)*/
+    private final AtomicLong tail = new AtomicLong();
+    /*numer następnego wpisu do odczytu (tylko odbiorca)*/
+    private long head = 0;
+    /*linie, które nie zmieściły się w buforze*/
+    private final AtomicInteger overflowLines = new AtomicInteger();
+    /*kolumna dziury ostatnio odczytanego wpisu (tylko odbiorca)*/
+    private int lastHole = 0;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+
+    /**
+    * Konstruktor skrzynki.
+    * @param capacity liczba wpisów w buforze (potęga dwójki)
+    */
+    public GarbageMailbox(int capacity)
+    {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Rozmiar skrzynki musi być potęgą dwójki: " + capacity);
+        messages = new int[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            sequences.set(i, i);
+        mask = capacity - 1;
+    }
+
+    /**
+    * Metoda wysyłająca linie śmieci do skrzynki - może być wywoływana przez wiele wątków naraz
+    * i nigdy nie blokuje nadawcy.
+    * @param lines liczba linii (dodatnia)
+    * @param hole kolumna dziury w liniach (od 0 do MAX_HOLE)
+    * @throws IllegalArgumentException gdy kolumny dziury nie da się zapisać we wpisie
+    */
+    public void send(int lines, int hole)
+    {
+        /*ujemny kod wpisu oznaczałby pustą skrzynkę*/
+        if (hole < 0 || hole > MAX_HOLE)
+            throw new IllegalArgumentException("Niepoprawna kolumna dziury: " + hole);
+        if (lines <= 0) return;
+        sent.increment();
+        long t = tail.get();
+        while (true)
+        {
+            int index = (int) t & mask;
+            long sequence = sequences.getAcquire(index);
+            if (sequence == t)
+            {
+                if (tail.compareAndSet(t, t + 1))
+                {
+                    messages[index] = Math.min(lines, LINES_MASK) | (hole << HOLE_SHIFT);
+                    sequences.setRelease(index, t + 1);
+                    return;
+                }
+                contended.increment();
+                t = tail.get();
+            }
+            else if (sequence < t)
+            {
+                /*bufor pełny - odbiorca nie odczytał jeszcze wpisu sprzed całego obiegu bufora*/
+                overflowed.increment();
+                overflowLines.addAndGet(lines);
+                return;
+            }
+            else
+            {
+                /*inny nadawca zajął już to miejsce*/
+                contended.increment();
+                t = tail.get();
+            }
+        }
+    }
+
+    /**
+    * Metoda odczytująca następny wpis - wywoływana tylko przez wątek odbiorcy.
+    * @return kod wpisu (zob. lines i hole) albo -1, gdy skrzynka jest pusta
+    */
+    public int poll()
+    {
+        int index = (int) head & mask;
+        if (sequences.getAcquire(index) == head + 1)
+        {
+            int message = messages[index];
+            sequences.setRelease(index, head + mask + 1);
+            head++;
+            lastHole = hole(message);
+            return message;
+        }
+        int lines = Math.min(overflowLines.get(), LINES_MASK);
+        if (lines == 0) return -1;
+        /*tylko odbiorca zmniejsza licznik nadmiaru, więc odjęcie odczytanej części niczego nie gubi*/
+        overflowLines.addAndGet(-lines);
+        return lines | (lastHole << HOLE_SHIFT);
+    }
+
+    /**
+    * Metoda odrzucająca wszystkie wpisy (np. przed nową grą) - wywoływana tylko przez wątek odbiorcy.
+    */
+    public void clear()
+    {
+        while (poll() >= 0)
+        {
+        }
+    }
+
+    /**
+    * @param message kod wpisu zwrócony przez poll
+    * @return liczba linii wpisu
+    */
+    public static int lines(int message)
+    {
+        return message & LINES_MASK;
+    }
+
+    /**
+    * @param message kod wpisu zwrócony przez poll
+    * @return kolumna dziury w liniach wpisu
+    */
+    public static int hole(int message)
+    {
+        return message >>> HOLE_SHIFT;
+    }
+
+    /**
+    * @return liczba wysłanych wpisów
+    */
+    public long getSent()
+    {
+        return sent.sum();
+    }
+
+    /**
+    * @return liczba nieudanych prób rezerwacji miejsca w buforze (rywalizacja nadawców)
+    */
+    public long getContended()
+    {
+        return contended.sum();
+    }
+
+    /**
+    * @return liczba wpisów, które nie zmieściły się w buforze i trafiły do licznika nadmiaru
+    */
+    public long getOverflowed()
+    {
+        return overflowed.sum();
+    }
+}
@@ -0,0 +1,17 @@
+package tetris.engine;
+
+/**
+* Interfejs odbiorcy usuniętych linii w trybie pojedynku - zamienia je na linie śmieci
+* wysyłane przeciwnikom (np. do ich skrzynek GarbageMailbox).
+* Metoda jest wywoływana przez wątek gry, która usunęła linie (pod blokadą jej silnika),
+* więc nie może czekać na inne gry ani brać ich blokad.
+*/
+public interface GarbageSender
+{
+    /**
+    * Metoda wywoływana po usunięciu linii.
+    * @param engine silnik gry, w której usunięto linie
+    * @param lines liczba linii usuniętych naraz
+    */
+    void linesCleared(GameEngine engine, int lines);
+}
@@ -0,0 +1,47 @@
+package tetris.engine;
+
+/**
+* Klasa opisująca grawitację na kolejnych poziomach gry.
+* Grawitacja jest wyrażona w ułamkach pola na jeden krok logiczny pętli gry:
+* ONE_CELL to jedno pole na krok (1G), a największa grawitacja (20G) to 20 pól na krok,
+* czyli natychmiastowe opadnięcie klocka na dół planszy.
+*/
+public final class Gravity
+{
+    /*jedno pole planszy na krok pętli gry (1G)*/
+    public static final int ONE_CELL = 1 << 16;
+
+    /*liczba kroków pętli gry (60 Hz) na opadnięcie o jedno pole na poziomach o grawitacji poniżej 1G;
+    * poziom 0 odpowiada dawnemu zegarowi 400 ms*/
+    private static final int[] TICKS_PER_CELL = {24, 21, 18, 15, 12, 10, 8, 6, 5, 4, 3, 2};
+    /*liczba pól na krok na najwyższych poziomach*/
+    private static final int[] CELLS_PER_TICK = {1, 2, 3, 5, 10, 20};
+
+    private static final int[] PER_TICK = new int[TICKS_PER_CELL.length + CELLS_PER_TICK.length];
+
+    static
+    {
+        /*zaokrąglenie w górę - klocek opada dokładnie po TICKS_PER_CELL krokach, także od wyzerowanego licznika*/
+        for (int i = 0; i < TICKS_PER_CELL.length; i++)
+            PER_TICK[i] = (ONE_CELL + TICKS_PER_CELL[i] - 1) / TICKS_PER_CELL[i];
+        for (int i = 0; i < CELLS_PER_TICK.length; i++)
+            PER_TICK[TICKS_PER_CELL.length + i] = CELLS_PER_TICK[i] * ONE_CELL;
+    }
+
+    /*najwyższy poziom o innej grawitacji - dalsze poziomy mają grawitację 20G*/
+    public static final int MAX_LEVEL = PER_TICK.length - 1;
+
+    private Gravity()
+    {
+    }
+
+    /**
+    * Metoda zwracająca grawitację na danym poziomie.
+    * @param level poziom gry
+    * @return grawitacja w ułamkach pola (ONE_CELL = jedno pole) na krok pętli gry
+    */
+    public static int perTick(int level)
+    {
+        return PER_TICK[Math.max(0, Math.min(MAX_LEVEL, level))];
+    }
+}
@@ -0,0 +1,118 @@
+package tetris.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+* Klasa kolejki wejścia gracza - bufor cykliczny z jednym nadawcą (wątkiem zdarzeń Swing)
+* i jednym odbiorcą (wątkiem pętli gry), bez blokad i bez alokacji pamięci.
+* Każdy wpis to naciśnięcie albo puszczenie klawisza odpowiadającego akcji gracza,
+* razem z czasem jego odebrania (System.nanoTime).
+* Gdy kolejka jest pełna, nowe wpisy są odrzucane (zob. getDropped).
+*/
+public class InputQueue
+{
+    /**
+    * Interfejs odbiorcy wpisów kolejki.
+    */
+    public interface Handler
+    {
+        /**
+        * @param action akcja gracza przypisana do klawisza
+        * @param pressed true - naciśnięcie klawisza, false - puszczenie
+        * @param nanos czas odebrania zdarzenia klawiatury (System.nanoTime)
+        */
+        void onInput(GameEngine.Action action, boolean pressed, long nanos);
+    }
+
+    private static final GameEngine.Action[] ACTIONS = GameEngine.Action.values();
+    /*bit naciśnięcia w kodzie wpisu, niższe bity to numer akcji*/
+    private static final int PRESSED = 0x80;
+
+    private final byte[] codes;
+    private final long[] times;
+    private final int mask;
+    /*numer następnego wpisu do odczytu (zapisywany tylko przez odbiorcę)*/
+    private final AtomicLong head = new AtomicLong();
+    /*numer następnego wpisu do zapisu (zapisywany tylko przez nadawcę)*/
+    private final AtomicLong tail = new AtomicLong();
+    /*ostatnio odczytana przez nadawcę wartość head - nadawca nie czyta jej przy każdym wpisie*/
+    private long headCache = 0;
+    private volatile long dropped = 0;
+
+    /**
+    * Konstruktor kolejki.
+    * @param capacity liczba wpisów w buforze (potęga dwójki)
+    */
+    public InputQueue(int capacity)
+    {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Rozmiar kolejki wejścia musi być potęgą dwójki: " + capacity);
+        codes = new byte[capacity];
+        times = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+    * Metoda dodająca wpis do kolejki - wywoływana tylko przez wątek nadawcy.
+    * @param action akcja gracza przypisana do klawisza
+    * @param pressed true - naciśnięcie klawisza, false - puszczenie
+    * @param nanos czas odebrania zdarzenia klawiatury (System.nanoTime)
+    * @return false, jeśli kolejka była pełna i wpis został odrzucony
+    */
+    public boolean offer(GameEngine.Action action, boolean pressed, long nanos)
+    {
+        long position = tail.get();
+        if (position - headCache > mask)
+        {
+            headCache = head.getAcquire();
+            if (position - headCache > mask)
+            {
+                dropped++;
+                return false;
+            }
+        }
+        int index = (int) position & mask;
+        codes[index] = (byte) (action.ordinal() | (pressed ? PRESSED : 0));
+        times[index] = nanos;
+        /*wpis staje się widoczny dla odbiorcy dopiero po zapisaniu jego pól*/
+        tail.setRelease(position + 1);
+        return true;
+    }
+
+    /**
+    * Metoda przekazująca odbiorcy wszystkie wpisy dodane do kolejki - wywoływana tylko przez wątek odbiorcy.
+    * @param handler odbiorca wpisów
+    * @return liczba odczytanych wpisów
+    */
+    public int drain(Handler handler)
+    {
+        long position = head.get();
+        long end = tail.getAcquire();
+        if (position == end) return 0;
+        for (long i = position; i < end; i++)
+        {
+            int index = (int) i & mask;
+            int code = codes[index];
+            handler.onInput(ACTIONS[code & (PRESSED - 1)], (code & PRESSED) != 0, times[index]);
+        }
+        /*miejsca wpisów można zapisać ponownie dopiero po ich odczytaniu*/
+        head.setRelease(end);
+        return (int) (end - position);
+    }
+
+    /**
+    * @return true, jeśli w kolejce nie ma wpisów do odczytu
+    */
+    public boolean isEmpty()
+    {
+        return head.get() == tail.getAcquire();
+    }
+
+    /**
+    * @return liczba wpisów odrzuconych, bo kolejka była pełna
+    */
+    public long getDropped()
+    {
+        return dropped;
+    }
+}
@@ -0,0 +1,51 @@
+package tetris.export;
+
+import tetris.engine.GameEngine;
+import tetris.simulation.Player;
+
+/**
+* Źródło klatek z gry bota: jedna klatka po każdym nowym klocku, do końca gry albo do limitu klocków.
+*/
+public class BotFrameSource implements FrameSource
+{
+    private final GameEngine engine;
+    private final Player player;
+    private final long maxPieces;
+    private boolean started = false;
+
+    /**
+    * Konstruktor źródła klatek.
+    * @param engine silnik gry (gra zaczyna się od reset z podanym ziarnem)
+    * @param player bot sterujący grą
+    * @param seed ziarno generatora klocków
+    * @param maxPieces limit klocków
+    */
+    public BotFrameSource(GameEngine engine, Player player, long seed, long maxPieces)
+    {
+        this.engine = engine;
+        this.player = player;
+        this.maxPieces = maxPieces;
+        engine.reset(seed);
+    }
+
+    @Override
+    public GameEngine engine()
+    {
+        return engine;
+    }
+
+    @Override
+    public boolean advance()
+    {
+        if (started == false)
+        {
+            started = true;
+            return true;
+        }
+        if (engine.isGameOver() || engine.getPiecesSpawned() > maxPieces) return false;
+        long pieces = engine.getPiecesSpawned();
+        while (engine.isGameOver() == false && engine.getPiecesSpawned() == pieces)
+            engine.step(player.nextAction(engine));
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+package tetris.export;
+
+/**
+* Klasa przechowująca wyniki eksportu klatek: liczbę klatek, czas, obciążenie każdego etapu potoku
+* i wykorzystanie puli klatek (ile obrazów utworzono, a ile razy użyto ponownie).
+*/
+public class ExportResult
+{
+    private final long frames;
+    private final long nanos;
+    private final long stepNanos;
+    private final long rasterNanos;
+    private final long encodeNanos;
+    private final int encoderThreads;
+    private final int imagesAllocated;
+    private final long bytes;
+
+    /**
+    * Konstruktor wyników eksportu.
+    * @param frames liczba wyeksportowanych klatek
+    * @param nanos czas trwania eksportu w nanosekundach
+    * @param stepNanos czas pracy etapu przesuwania gry
+    * @param rasterNanos czas pracy etapu rysowania
+    * @param encodeNanos czas pracy etapu kodowania i zapisu (suma wszystkich wątków kodujących)
+    * @param encoderThreads liczba wątków kodujących
+    * @param imagesAllocated liczba utworzonych obrazów (miejsc puli)
+    * @param bytes liczba zapisanych bajtów
+    */
+    public ExportResult(long frames, long nanos, long stepNanos, long rasterNanos, long encodeNanos,
+                        int encoderThreads, int imagesAllocated, long bytes)
+    {
+        this.frames = frames;
+        this.nanos = nanos;
+        this.stepNanos = stepNanos;
+        this.rasterNanos = rasterNanos;
+        this.encodeNanos = encodeNanos;
+        this.encoderThreads = encoderThreads;
+        this.imagesAllocated = imagesAllocated;
+        this.bytes = bytes;
+    }
+
+    /**
+    * @return liczba wyeksportowanych klatek
+    */
+    public long frames()
+    {
+        return frames;
+    }
+
+    /**
+    * @return liczba klatek na sekundę
+    */
+    public double framesPerSecond()
+    {
+        return frames * 1e9 / Math.max(1, nanos);
+    }
+
+    /**
+    * @return liczba utworzonych obrazów - pozostałe klatki używały obrazów z puli ponownie
+    */
+    public int imagesAllocated()
+    {
+        return imagesAllocated;
+    }
+
+    /**
+    * @return udział klatek narysowanych w obrazach użytych ponownie (od 0 do 1)
+    */
+    public double poolReuse()
+    {
+        return frames == 0 ? 0 : (double) (frames - Math.min(frames, imagesAllocated)) / frames;
+    }
+
+    /**
+    * @return liczba zapisanych bajtów
+    */
+    public long bytes()
+    {
+        return bytes;
+    }
+
+    /**
+    * @return raport z wynikami eksportu w postaci tekstu
+    */
+    @Override
+    public String toString()
+    {
+        double seconds = nanos / 1e9;
+        return String.format("Klatki: %d, czas: %.3f s, klatki/s: %.1f, zapisane bajty: %d%n"
+                + "obrazy w puli: %d, ponowne użycie: %.2f%%%n"
+                + "obciążenie etapów: gra %.1f%%, rysowanie %.1f%%, kodowanie %.1f%% (wątki: %d)",
+                frames, seconds, framesPerSecond(), bytes,
+                imagesAllocated, 100.0 * poolReuse(),
+                100.0 * stepNanos / Math.max(1, nanos), 100.0 * rasterNanos / Math.max(1, nanos),
+                100.0 * encodeNanos / Math.max(1, nanos * encoderThreads), encoderThreads);
+    }
+}
@@ -0,0 +1,439 @@
+/**
+* Pakiet implementujący eksport gier (powtórek i gier botów) do klatek obrazu - np. filmów i miniatur -
+* bez okna i bez ekranu.
+*/
+package tetris.export;
+
+import tetris.ai.Heuristic;
+import tetris.ai.SearchPlayer;
+import tetris.engine.GameEngine;
+import tetris.engine.GameLoop;
+import tetris.model.BagPieceGenerator;
+import tetris.replay.ReplayReader;
+import tetris.view.BoardFrame;
+import tetris.view.BoardRenderer;
+import tetris.view.Viewport;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+* Klasa eksportująca grę do klatek obrazu poza ekranem, w potoku trzech wątków połączonych
+* ograniczonymi kolejkami: przesuwanie gry i kopiowanie jej stanu do migawki (wątek wywołujący),
+* rysowanie migawki do obrazu (BoardRenderer - ten sam kod co plansza w oknie, więc klatki wyglądają
+* dokładnie tak jak na ekranie) oraz kodowanie i zapis obrazu. Kodowanie PNG jest najwolniejszym etapem,
+* więc może działać w kilku wątkach (każda klatka to osobny plik); zapis RAW zachowuje kolejność klatek w jednym wątku.
+* Klatki krążą w puli o stałej liczbie miejsc (migawka razem z obrazem BufferedImage), więc po wypełnieniu
+* puli eksport nie tworzy nowych obrazów, a najwolniejszy etap wstrzymuje pozostałe zamiast zajmować pamięć.
+* Formaty: PNG - osobny plik na klatkę (frame_000000.png, ...) w katalogu wyjściowym,
+* RAW - wszystkie klatki w jednym pliku jako piksele RGB po 3 bajty, wiersz po wierszu
+* (np. dla ffmpeg -f rawvideo -pix_fmt rgb24).
+*/
+public class FrameExporter
+{
+    /**
+    * Publiczny typ enum formatów zapisu klatek.
+    */
+    public enum Format { PNG, RAW }
+
+    /**
+    * Miejsce puli: migawka stanu gry i obraz, do którego jest rysowana.
+    */
+    private static final class Slot
+    {
+        final BoardFrame frame;
+        BufferedImage image;
+        Graphics2D graphics;
+
+        Slot(BoardFrame frame)
+        {
+            this.frame = frame;
+        }
+    }
+
+    /*znacznik końca klatek w kolejkach potoku*/
+    private static final Slot END = new Slot(null);
+
+    private final int width;
+    private final int height;
+    private final Format format;
+    private final int poolSize;
+    private final int encoderThreads;
+
+    /*stan jednego eksportu*/
+    private BlockingQueue<Slot> free;
+    private BlockingQueue<Slot> toRaster;
+    private BlockingQueue<Slot> toEncode;
+    private volatile Throwable failure;
+    private Thread[] threads;
+    private volatile long rasterNanos;
+    private final AtomicLong encodeNanos = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    /**
+    * Konstruktor eksportera.
+    * @param width szerokość klatki w pikselach
+    * @param height wysokość klatki w pikselach
+    * @param format format zapisu klatek
+    * @param poolSize liczba miejsc puli klatek (co najmniej 2)
+    * @param encoderThreads liczba wątków kodujących PNG (dla RAW zawsze 1)
+    */
+    public FrameExporter(int width, int height, Format format, int poolSize, int encoderThreads)
+    {
+        if (width <= 0 || height <= 0 || poolSize < 2 || encoderThreads < 1)
+            throw new IllegalArgumentException("Niepoprawny rozmiar klatki, puli lub liczba wątków");
+        this.width = width;
+        this.height = height;
+        this.format = format;
+        this.poolSize = poolSize;
+        this.encoderThreads = format == Format.RAW ? 1 : encoderThreads;
+    }
+
+    /**
+    * Metoda przewijająca okno widoku za spadającym klockiem.
+    */
+    private static void followPiece(Viewport viewport, GameEngine engine)
+    {
+        int pieceBottom = Integer.MAX_VALUE;
+        int pieceTop = Integer.MIN_VALUE;
+        for (int i = 0; i < 4; i++)
+        {
+            pieceBottom = Math.min(pieceBottom, engine.pieceCellY(i));
+            pieceTop = Math.max(pieceTop, engine.pieceCellY(i));
+        }
+        viewport.follow(pieceBottom, pieceTop);
+    }
+
+    /**
+    * Metoda eksportująca wszystkie klatki źródła.
+    * @param source źródło klatek
+    * @param output katalog (PNG) albo plik (RAW) wyjściowy
+    * @return wyniki eksportu
+    * @throws IOException gdy zapis lub odczyt źródła się nie powiedzie
+    */
+    public ExportResult export(FrameSource source, Path output) throws IOException
+    {
+        GameEngine engine = source.engine();
+        free = new ArrayBlockingQueue<>(poolSize);
+        toRaster = new ArrayBlockingQueue<>(poolSize);
+        toEncode = new ArrayBlockingQueue<>(poolSize);
+        failure = null;
+        rasterNanos = 0;
+        encodeNanos.set(0);
+        bytes.set(0);
+        threads = new Thread[2 + encoderThreads];
+        threads[0] = Thread.currentThread();
+        threads[1] = new Thread(this::rasterLoop, "tetris-export-raster");
+        for (int i = 0; i < encoderThreads; i++)
+            threads[2 + i] = new Thread(() -> encodeLoop(output), "tetris-export-encode-" + i);
+        for (int i = 1; i < threads.length; i++)
+            threads[i].start();
+
+        /*na planszy wyższej niż okno widoku klatki pokazują wiersze wokół spadającego klocka*/
+        Viewport viewport = new Viewport(engine.getBoardHeight());
+        long begin = System.nanoTime();
+        long stepNanos = 0;
+        long frames = 0;
+        int allocated = 0;
+        try
+        {
+            while (failure == null)
+            {
+                long start = System.nanoTime();
+                if (source.advance() == false) break;
+                Slot slot = free.poll();
+                if (slot == null && allocated < poolSize)
+                {
+                    slot = new Slot(new BoardFrame(engine.getBoardWidth(), engine.getBoardHeight(), viewport.getRows()));
+                    allocated++;
+                }
+                stepNanos += System.nanoTime() - start;
+                if (slot == null)
+                    slot = free.take();
+                start = System.nanoTime();
+                if (engine.pieceBlank() == false)
+                    followPiece(viewport, engine);
+                slot.frame.copyFrom(engine, viewport.getBottom());
+                slot.frame.setIndex(frames++);
+                stepNanos += System.nanoTime() - start;
+                toRaster.put(slot);
+            }
+            toRaster.put(END);
+            for (int i = 1; i < threads.length; i++)
+                threads[i].join();
+        }
+        catch (InterruptedException e)
+        {
+            /*przerwanie przez wątek, który zawiódł - przyczyna jest w failure*/
+            if (failure == null)
+                failure = e;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            fail(e);
+        }
+        finally
+        {
+            if (failure != null)
+            {
+                for (int i = 1; i < threads.length; i++)
+                    threads[i].interrupt();
+            }
+            /*flaga przerwania ustawiona przez inny wątek nie może zostać w wątku wywołującym*/
+            Thread.interrupted();
+        }
+        if (failure instanceof IOException)
+            throw (IOException) failure;
+        if (failure instanceof InterruptedException)
+            throw new InterruptedIOException("Eksport klatek został przerwany");
+        if (failure != null)
+            throw new IllegalStateException("Eksport klatek się nie powiódł", failure);
+        return new ExportResult(frames, System.nanoTime() - begin, stepNanos, rasterNanos, encodeNanos.get(),
+                                encoderThreads, allocated, bytes.get());
+    }
+
+    /*zapamiętanie pierwszego błędu i przerwanie pozostałych wątków potoku*/
+    private void fail(Throwable e)
+    {
+        synchronized (this)
+        {
+            if (failure != null) return;
+            failure = e;
+        }
+        for (Thread thread : threads)
+            if (thread != Thread.currentThread())
+                thread.interrupt();
+    }
+
+    private void rasterLoop()
+    {
+        BoardRenderer renderer = new BoardRenderer();
+        try
+        {
+            for (Slot slot = toRaster.take(); slot != END; slot = toRaster.take())
+            {
+                long start = System.nanoTime();
+                if (slot.image == null)
+                {
+                    slot.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                    slot.graphics = slot.image.createGraphics();
+                }
+                renderer.render(slot.graphics, slot.frame, width, height, null);
+                rasterNanos += System.nanoTime() - start;
+                toEncode.put(slot);
+            }
+            /*każdy wątek kodujący kończy się po odczytaniu jednego znacznika końca*/
+            for (int i = 0; i < encoderThreads; i++)
+                toEncode.put(END);
+        }
+        catch (InterruptedException e)
+        {
+            /*koniec potoku po błędzie innego wątku*/
+        }
+        catch (RuntimeException e)
+        {
+            fail(e);
+        }
+    }
+
+    private void encodeLoop(Path output)
+    {
+        try
+        {
+            Encoder encoder = format == Format.PNG ? new PngEncoder(output) : new RawEncoder(output, width, height);
+            try
+            {
+                for (Slot slot = toEncode.take(); slot != END; slot = toEncode.take())
+                {
+                    long start = System.nanoTime();
+                    bytes.addAndGet(encoder.write(slot.image, slot.frame.getIndex()));
+                    encodeNanos.addAndGet(System.nanoTime() - start);
+                    free.put(slot);
+                }
+            }
+            finally
+            {
+                encoder.close();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            /*koniec potoku po błędzie innego wątku*/
+        }
+        catch (IOException | RuntimeException e)
+        {
+            fail(e);
+        }
+    }
+
+    /**
+    * Interfejs zapisu klatek w jednym z formatów.
+    */
+    private interface Encoder
+    {
+        long write(BufferedImage image, long index) throws IOException;
+
+        void close() throws IOException;
+    }
+
+    /**
+    * Zapis każdej klatki do osobnego pliku PNG - koder obrazów ImageIO jest tworzony raz.
+    */
+    private static final class PngEncoder implements Encoder
+    {
+        private final Path directory;
+        private final ImageWriter writer;
+
+        PngEncoder(Path directory) throws IOException
+        {
+            this.directory = directory;
+            Files.createDirectories(directory);
+            /*strumienie ImageIO bez pliku pośredniego na dysku*/
+            ImageIO.setUseCache(false);
+            writer = ImageIO.getImageWritersByFormatName("png").next();
+        }
+
+        @Override
+        public long write(BufferedImage image, long index) throws IOException
+        {
+            Path file = directory.resolve(String.format("frame_%06d.png", index));
+            /*zamknięcie strumienia ImageIO nie zamyka strumienia pliku*/
+            try (OutputStream stream = Files.newOutputStream(file);
+                 ImageOutputStream out = ImageIO.createImageOutputStream(stream))
+            {
+                writer.setOutput(out);
+                writer.write(image);
+                return out.getStreamPosition();
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            writer.dispose();
+        }
+    }
+
+    /**
+    * Zapis klatek do jednego pliku jako piksele RGB po 3 bajty, przez jeden bufor używany wielokrotnie.
+    */
+    private static final class RawEncoder implements Encoder
+    {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        RawEncoder(Path file, int width, int height) throws IOException
+        {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null)
+                Files.createDirectories(parent);
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                       StandardOpenOption.TRUNCATE_EXISTING);
+            buffer = ByteBuffer.allocateDirect(width * height * 3);
+        }
+
+        @Override
+        public long write(BufferedImage image, long index) throws IOException
+        {
+            int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            buffer.clear();
+            for (int pixel : pixels)
+            {
+                buffer.put((byte) (pixel >>> 16));
+                buffer.put((byte) (pixel >>> 8));
+                buffer.put((byte) pixel);
+            }
+            buffer.flip();
+            long written = 0;
+            while (buffer.hasRemaining())
+                written += channel.write(buffer);
+            return written;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+    }
+
+    /**
+    * Uruchomienie z linii poleceń:
+    * java tetris.export.FrameExporter replay [plik powtórek] [numer gry] [wyjście] [png|raw] [szerokość] [wysokość] [kroki na klatkę]
+    * - klatki gry z pliku powtórek (0 kroków na klatkę - jedna klatka na klocek),
+    * java tetris.export.FrameExporter bot [ziarno] [maks. klocków] [wyjście] [png|raw] [szerokość] [wysokość]
+    * - klatki gry bota (jedna klatka na klocek).
+    * @param args parametry
+    * @throws IOException gdy odczyt lub zapis się nie powiedzie
+    */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 4)
+        {
+            System.out.println("Użycie: FrameExporter replay plik gra wyjście [png|raw] [szerokość] [wysokość] [kroki na klatkę]");
+            System.out.println("        FrameExporter bot ziarno klocki wyjście [png|raw] [szerokość] [wysokość]");
+            return;
+        }
+        if (System.getProperty("java.awt.headless") == null)
+            System.setProperty("java.awt.headless", "true");
+        Path output = Paths.get(args[3]);
+        Format format = args.length > 4 && args[4].equals("raw") ? Format.RAW : Format.PNG;
+        int width = args.length > 5 ? Integer.parseInt(args[5]) : 400;
+        int height = args.length > 6 ? Integer.parseInt(args[6]) : 660;
+        int ticksPerFrame = args.length > 7 ? Integer.parseInt(args[7]) : 1;
+        int encoders = Math.max(1, Runtime.getRuntime().availableProcessors() - 2);
+        FrameExporter exporter = new FrameExporter(width, height, format, 4 + 2 * encoders, encoders);
+        ExportResult result;
+        switch (args[0])
+        {
+            case "replay":
+                try (ReplayReader reader = new ReplayReader(Paths.get(args[1])))
+                {
+                    int game = Integer.parseInt(args[2]);
+                    for (int i = 0; i <= game; i++)
+                    {
+                        if (reader.nextGame() == false)
+                        {
+                            System.out.println("W pliku nie ma gry numer " + game);
+                            return;
+                        }
+                    }
+                    result = exporter.export(new ReplayFrameSource(reader, ticksPerFrame), output);
+                }
+                break;
+            case "bot":
+                int boardWidth = Integer.getInteger("tetris.width", 10);
+                int boardHeight = Integer.getInteger("tetris.height", 22);
+                GameEngine engine = new GameEngine(boardWidth, boardHeight, new BagPieceGenerator(0L));
+                SearchPlayer player = new SearchPlayer(boardWidth, boardHeight, Heuristic.DEFAULT);
+                result = exporter.export(new BotFrameSource(engine, player, Long.parseLong(args[1]), Long.parseLong(args[2])), output);
+                break;
+            default:
+                System.out.println("Nieznane polecenie: " + args[0]);
+                return;
+        }
+        System.out.println(result);
+        if (format == Format.RAW)
+        {
+            /*klatki co podaną liczbę kroków gry mają tempo gry, a klatki po każdym klocku - stałe tempo 10 klatek/s*/
+            int rate = args[0].equals("replay") && ticksPerFrame > 0 ? Math.max(1, GameLoop.TICKS_PER_SECOND / ticksPerFrame) : 10;
+            System.out.printf("ffmpeg -f rawvideo -pix_fmt rgb24 -s %dx%d -r %d -i %s film.mp4%n", width, height, rate, output);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package tetris.export;
+
+import tetris.engine.GameEngine;
+
+import java.io.IOException;
+
+/**
+* Interfejs źródła klatek do eksportu: silnik gry, który jest przesuwany od klatki do klatki
+* (np. odtwarzaną powtórką albo grą bota). Po każdym wywołaniu advance stan silnika to kolejna klatka.
+*/
+public interface FrameSource
+{
+    /**
+    * @return silnik gry, którego stan jest eksportowany
+    */
+    GameEngine engine();
+
+    /**
+    * Metoda przesuwająca grę do następnej klatki - pierwsze wywołanie zwraca stan początkowy gry.
+    * @return false, jeśli klatek już nie ma
+    * @throws IOException gdy odczyt źródła się nie powiedzie
+    */
+    boolean advance() throws IOException;
+}
@@ -0,0 +1,80 @@
+package tetris.export;
+
+import tetris.engine.GameEngine;
+import tetris.replay.ReplayFormat;
+import tetris.replay.ReplayReader;
+
+import java.io.IOException;
+
+/**
+* Źródło klatek odtwarzające grę z pliku powtórek: co podaną liczbę kroków pętli gry
+* (w tempie, w jakim grę rozgrywano) albo - przy zerowej liczbie kroków - po każdym nowym klocku,
+* np. dla powtórek gier botów, w których akcje nie mają numerów klatek.
+*/
+public class ReplayFrameSource implements FrameSource
+{
+    private final ReplayReader reader;
+    private final GameEngine engine;
+    private final int ticksPerFrame;
+    /*akcja przeczytana z wyprzedzeniem (-1 - koniec akcji gry)*/
+    private int pending;
+    private long target = 0;
+    private boolean started = false;
+    private boolean finished = false;
+
+    /**
+    * Konstruktor źródła klatek.
+    * @param reader plik powtórek ustawiony na grze do odtworzenia (po wywołaniu reader.nextGame)
+    * @param ticksPerFrame liczba kroków pętli gry na klatkę (0 - jedna klatka na klocek)
+    * @throws IOException gdy odczyt pliku się nie powiedzie
+    */
+    public ReplayFrameSource(ReplayReader reader, int ticksPerFrame) throws IOException
+    {
+        this.reader = reader;
+        this.ticksPerFrame = ticksPerFrame;
+        engine = new GameEngine(reader.getWidth(), reader.getHeight(), ReplayFormat.generator(reader.getGeneratorCode()));
+        engine.reset(reader.getSeed());
+        pending = reader.nextAction();
+    }
+
+    @Override
+    public GameEngine engine()
+    {
+        return engine;
+    }
+
+    @Override
+    public boolean advance() throws IOException
+    {
+        if (started == false)
+        {
+            started = true;
+            return true;
+        }
+        if (finished) return false;
+        if (pending < 0)
+        {
+            finished = true;
+            return false;
+        }
+        if (ticksPerFrame > 0)
+        {
+            target += ticksPerFrame;
+            while (pending >= 0 && reader.getFrame() <= target)
+                step();
+        }
+        else
+        {
+            long pieces = engine.getPiecesSpawned();
+            while (pending >= 0 && engine.getPiecesSpawned() == pieces)
+                step();
+        }
+        return true;
+    }
+
+    private void step() throws IOException
+    {
+        engine.step(ReplayReader.action(pending));
+        pending = reader.nextAction();
+    }
+}
@@ -0,0 +1,24 @@
+package tetris.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+* Zdarzenie JFR - koniec gry.
+*/
+@Name("tetris.GameOver")
+@Label("Koniec gry")
+@Description("Nowy klocek nie mieści się na planszy")
+@Category({"Tetris", "Gra"})
+@StackTrace(false)
+public class GameOverEvent extends jdk.jfr.Event
+{
+    @Label("Punkty")
+    public int points;
+
+    @Label("Klocki")
+    public long pieces;
+}
@@ -0,0 +1,25 @@
+package tetris.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+* Zdarzenie JFR obejmujące usuwanie pełnych linii.
+*/
+@Name("tetris.LineClear")
+@Label("Usunięcie linii")
+@Description("Usunięcie pełnych linii (removeFullLines)")
+@Category({"Tetris", "Gra"})
+@StackTrace(false)
+public class LineClearEvent extends jdk.jfr.Event
+{
+    @Label("Linie")
+    @Description("Liczba linii usuniętych naraz")
+    public int lines;
+
+    @Label("Punkty")
+    public int points;
+}
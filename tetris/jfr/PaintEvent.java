@@ -0,0 +1,34 @@
+package tetris.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+* Zdarzenie JFR obejmujące jedno rysowanie planszy (TetrisBoard.paint razem z Controller.paint).
+*/
+@Name("tetris.Paint")
+@Label("Rysowanie planszy")
+@Description("Jedno rysowanie planszy w wątku zdarzeń Swing")
+@Category({"Tetris", "Widok"})
+@StackTrace(false)
+public class PaintEvent extends jdk.jfr.Event
+{
+    @Label("X obszaru")
+    public int clipX;
+
+    @Label("Y obszaru")
+    public int clipY;
+
+    @Label("Szerokość obszaru")
+    public int clipWidth;
+
+    @Label("Wysokość obszaru")
+    public int clipHeight;
+
+    @Label("Całe okno")
+    @Description("Czy odmalowywany był cały obszar planszy")
+    public boolean full;
+}
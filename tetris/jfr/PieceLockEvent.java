@@ -0,0 +1,30 @@
+package tetris.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+* Zdarzenie JFR obejmujące zapisanie klocka na planszy razem z usunięciem linii i utworzeniem następnego klocka.
+*/
+@Name("tetris.PieceLock")
+@Label("Blokada klocka")
+@Description("Zapisanie klocka na planszy (actualPieceDropped)")
+@Category({"Tetris", "Gra"})
+@StackTrace(false)
+public class PieceLockEvent extends jdk.jfr.Event
+{
+    @Label("Kształt")
+    public String shape;
+
+    @Label("X")
+    public int x;
+
+    @Label("Y")
+    public int y;
+
+    @Label("Obrót")
+    public int rotation;
+}
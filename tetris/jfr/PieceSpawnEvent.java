@@ -0,0 +1,28 @@
+package tetris.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+* Zdarzenie JFR - pojawienie się nowego klocka na planszy.
+*/
+@Name("tetris.PieceSpawn")
+@Label("Nowy klocek")
+@Description("Utworzenie nowego klocka (createNewPiece)")
+@Category({"Tetris", "Gra"})
+@StackTrace(false)
+public class PieceSpawnEvent extends jdk.jfr.Event
+{
+    @Label("Kształt")
+    public String shape;
+
+    @Label("Numer klocka")
+    public long piece;
+
+    @Label("Koniec gry")
+    @Description("Czy klocek nie zmieścił się na planszy")
+    public boolean blocked;
+}
@@ -0,0 +1,35 @@
+/**
+* Pakiet ze zdarzeniami Java Flight Recorder opisującymi przebieg gry i rysowanie planszy.
+* Zdarzenia są włączane profilem ustawień tetris.jfc (w katalogu głównym projektu).
+*/
+package tetris.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+* Zdarzenie JFR obejmujące jeden krok pętli gry (grawitacja, blokada, pojawienie się klocka).
+*/
+@Name("tetris.Tick")
+@Label("Krok pętli gry")
+@Description("Jeden krok logiczny pętli gry (60 Hz)")
+@Category({"Tetris", "Gra"})
+@StackTrace(false)
+public class TickEvent extends jdk.jfr.Event
+{
+    @Label("Numer kroku")
+    public long tick;
+
+    @Label("Poziom")
+    public int level;
+
+    @Label("Punkty")
+    public int points;
+
+    @Label("Klocek leży")
+    @Description("Czy spadający klocek leży na stosie (trwa opóźnienie blokady)")
+    public boolean grounded;
+}
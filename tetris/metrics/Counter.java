@@ -0,0 +1,40 @@
+package tetris.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+* Licznik zdarzeń, który może być zwiększany z wielu wątków bez blokad i bez alokowania pamięci.
+*/
+public class Counter implements CounterMXBean
+{
+    private final LongAdder count = new LongAdder();
+
+    /**
+    * Metoda zwiększająca licznik o jeden.
+    */
+    public void increment()
+    {
+        count.increment();
+    }
+
+    /**
+    * Metoda zwiększająca licznik.
+    * @param value przyrost
+    */
+    public void add(long value)
+    {
+        count.add(value);
+    }
+
+    @Override
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    @Override
+    public void reset()
+    {
+        count.reset();
+    }
+}
@@ -0,0 +1,17 @@
+package tetris.metrics;
+
+/**
+* Interfejs licznika publikowanego przez JMX.
+*/
+public interface CounterMXBean
+{
+    /**
+    * @return wartość licznika
+    */
+    long getCount();
+
+    /**
+    * Metoda zerująca licznik.
+    */
+    void reset();
+}
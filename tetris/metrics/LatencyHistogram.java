@@ -0,0 +1,139 @@
+package tetris.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+* Histogram czasów, do którego można zapisywać z wielu wątków bez blokad i bez alokowania pamięci.
+* Przedziały są logarytmiczne: każda potęga dwójki jest podzielona na SUB_BUCKETS równych części,
+* więc percentyle są wyznaczane z błędem względnym nie większym niż 1 / SUB_BUCKETS,
+* a cały histogram to stała tablica liczników dla wartości od 0 do Long.MAX_VALUE.
+*/
+public class LatencyHistogram implements LatencyHistogramMXBean
+{
+    private static final int SUB_BITS = 3;
+    /*liczba przedziałów na jedną potęgę dwójki*/
+    public static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+    * Metoda zapisująca jeden pomiar.
+    * @param nanos zmierzony czas w nanosekundach (wartości ujemne są traktowane jak 0)
+    */
+    public void record(long nanos)
+    {
+        long value = Math.max(0L, nanos);
+        buckets.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+    * Metoda wyznaczająca percentyl zapisanych czasów.
+    * @param percentile percentyl z przedziału [0, 100]
+    * @return górna granica przedziału, w którym leży percentyl (0, gdy nie ma pomiarów)
+    */
+    public long percentile(double percentile)
+    {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            total += buckets.get(i);
+        if (total == 0) return 0L;
+        long rank = Math.max(1L, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += buckets.get(i);
+            if (seen >= rank)
+                return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    @Override
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    @Override
+    public double getMeanNanos()
+    {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) sum.sum() / n;
+    }
+
+    @Override
+    public long getMaxNanos()
+    {
+        return max.get();
+    }
+
+    @Override
+    public long getP50Nanos()
+    {
+        return percentile(50.0);
+    }
+
+    @Override
+    public long getP90Nanos()
+    {
+        return percentile(90.0);
+    }
+
+    @Override
+    public long getP99Nanos()
+    {
+        return percentile(99.0);
+    }
+
+    @Override
+    public long getP999Nanos()
+    {
+        return percentile(99.9);
+    }
+
+    @Override
+    public void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++)
+            buckets.set(i, 0L);
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("n=%d, śr=%.0f ns, p50=%d ns, p99=%d ns, max=%d ns",
+                             getCount(), getMeanNanos(), getP50Nanos(), getP99Nanos(), getMaxNanos());
+    }
+
+    /*numer przedziału: małe wartości mają własne przedziały, większe - wykładnik i SUB_BITS kolejnych bitów*/
+    static int bucket(long value)
+    {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /*największa wartość należąca do przedziału*/
+    static long upperBound(int bucket)
+    {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        long lower = (1L << exponent) + ((long) sub << (exponent - SUB_BITS));
+        long width = 1L << (exponent - SUB_BITS);
+        return lower + width - 1 < 0 ? Long.MAX_VALUE : lower + width - 1;
+    }
+}
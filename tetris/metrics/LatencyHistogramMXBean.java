@@ -0,0 +1,47 @@
+package tetris.metrics;
+
+/**
+* Interfejs histogramu czasów publikowanego przez JMX (wszystkie czasy w nanosekundach).
+*/
+public interface LatencyHistogramMXBean
+{
+    /**
+    * @return liczba zapisanych pomiarów
+    */
+    long getCount();
+
+    /**
+    * @return średni czas
+    */
+    double getMeanNanos();
+
+    /**
+    * @return najdłuższy czas
+    */
+    long getMaxNanos();
+
+    /**
+    * @return mediana czasu
+    */
+    long getP50Nanos();
+
+    /**
+    * @return 90. percentyl czasu
+    */
+    long getP90Nanos();
+
+    /**
+    * @return 99. percentyl czasu
+    */
+    long getP99Nanos();
+
+    /**
+    * @return 99,9. percentyl czasu
+    */
+    long getP999Nanos();
+
+    /**
+    * Metoda usuwająca wszystkie pomiary.
+    */
+    void reset();
+}
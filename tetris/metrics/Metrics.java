@@ -0,0 +1,105 @@
+/**
+* Pakiet implementujący pomiary działania gry (liczniki i histogramy czasów) publikowane przez JMX.
+*/
+package tetris.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+* Rejestr pomiarów gry: liczniki zdarzeń i histogramy czasów, publikowane jako MBeany JMX
+* (domena "tetris", np. tetris:type=LatencyHistogram,name=tick).
+* Pomiary są włączane właściwością systemową -Dtetris.metrics=true. Flaga ENABLED jest stałą,
+* więc przy wyłączonych pomiarach kompilator JIT usuwa cały kod pomiarów otoczony warunkiem if (Metrics.ENABLED).
+* Zapis pomiaru nie alokuje pamięci i nie używa blokad.
+*/
+public final class Metrics
+{
+    /*czy pomiary są włączone*/
+    public static final boolean ENABLED = Boolean.getBoolean("tetris.metrics");
+
+    /*czas jednego kroku pętli gry*/
+    public static final LatencyHistogram TICK = new LatencyHistogram();
+    /*czas rysowania planszy*/
+    public static final LatencyHistogram PAINT = new LatencyHistogram();
+    /*czas od naciśnięcia klawisza do najbliższego narysowania planszy*/
+    public static final LatencyHistogram INPUT_TO_REPAINT = new LatencyHistogram();
+    /*czas od odebrania zdarzenia klawiatury do zmiany stanu gry w wątku pętli*/
+    public static final LatencyHistogram INPUT_TO_STATE = new LatencyHistogram();
+    /*czas od zmiany stanu gry przez wejście gracza do końca rysowania planszy, która ją pokazuje*/
+    public static final LatencyHistogram STATE_TO_FRAME = new LatencyHistogram();
+
+    public static final Counter PIECES_SPAWNED = new Counter();
+    public static final Counter GAMES_OVER = new Counter();
+    /*liczba usunięć linii według liczby linii usuniętych naraz (indeksy 1-4)*/
+    private static final Counter[] LINES_CLEARED = {
+        new Counter(), new Counter(), new Counter(), new Counter(), new Counter()
+    };
+
+    private static boolean registered = false;
+
+    private Metrics()
+    {
+    }
+
+    /**
+    * Metoda zliczająca usunięcie linii.
+    * @param lines liczba linii usuniętych naraz
+    */
+    public static void linesCleared(int lines)
+    {
+        LINES_CLEARED[Math.min(lines, LINES_CLEARED.length - 1)].increment();
+    }
+
+    /**
+    * @param lines liczba linii usuniętych naraz (1-4)
+    * @return licznik usunięć danej liczby linii
+    */
+    public static Counter linesClearedCounter(int lines)
+    {
+        return LINES_CLEARED[lines];
+    }
+
+    /**
+    * Metoda rejestrująca pomiary jako MBeany w serwerze MBean platformy.
+    * Nic nie robi, gdy pomiary są wyłączone albo zostały już zarejestrowane.
+    */
+    public static synchronized void registerMBeans()
+    {
+        if (ENABLED == false || registered) return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            register(server, "LatencyHistogram", "tick", TICK);
+            register(server, "LatencyHistogram", "paint", PAINT);
+            register(server, "LatencyHistogram", "inputToRepaint", INPUT_TO_REPAINT);
+            register(server, "LatencyHistogram", "inputToState", INPUT_TO_STATE);
+            register(server, "LatencyHistogram", "stateToFrame", STATE_TO_FRAME);
+            register(server, "Counter", "piecesSpawned", PIECES_SPAWNED);
+            register(server, "Counter", "gamesOver", GAMES_OVER);
+            for (int lines = 1; lines < LINES_CLEARED.length; lines++)
+                register(server, "Counter", "linesCleared" + lines, LINES_CLEARED[lines]);
+            registered = true;
+        }
+        catch (JMException e)
+        {
+            throw new IllegalStateException("Nie można zarejestrować pomiarów w JMX", e);
+        }
+    }
+
+    private static void register(MBeanServer server, String type, String name, Object bean) throws JMException
+    {
+        ObjectName objectName = new ObjectName("tetris:type=" + type + ",name=" + name);
+        try
+        {
+            server.registerMBean(bean, objectName);
+        }
+        catch (InstanceAlreadyExistsException e)
+        {
+            /*pomiary zarejestrowane już przez inny program ładujący te same klasy*/
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package tetris.model;
+
+/**
+* Generator klocków typu "7-bag": wszystkie siedem klocków jest wkładanych do worka,
+* tasowanych i wydawanych po kolei, a po opróżnieniu worek jest napełniany od nowa.
+* Dzięki temu każdy klocek pojawia się dokładnie raz w każdej siódemce.
+*/
+public class BagPieceGenerator extends SeededPieceGenerator
+{
+    private static final Model.TetrisShape[] SHAPES = Model.TetrisShape.values();
+
+    private final Model.TetrisShape[] bag = PIECES.clone();
+    /*numer kolejnego klocka do wydania z worka*/
+    private int position = bag.length;
+
+    /**
+    * Konstruktor generatora.
+    * @param seed ziarno
+    */
+    public BagPieceGenerator(long seed)
+    {
+        super(seed);
+    }
+
+    @Override
+    public void setSeed(long seed)
+    {
+        super.setSeed(seed);
+        System.arraycopy(PIECES, 0, bag, 0, bag.length);
+        position = bag.length;
+    }
+
+    @Override
+    public Model.TetrisShape next()
+    {
+        if (position == bag.length)
+        {
+            /*tasowanie Fishera-Yatesa*/
+            for (int i = bag.length - 1; i > 0; i--)
+            {
+                int j = nextInt(i + 1);
+                Model.TetrisShape swap = bag[i];
+                bag[i] = bag[j];
+                bag[j] = swap;
+            }
+            position = 0;
+        }
+        return bag[position++];
+    }
+
+    @Override
+    public int stateSize()
+    {
+        return super.stateSize() + 1;
+    }
+
+    /*zawartość worka zapisana po 4 bity na klocek, a numer kolejnego klocka w starszej połowie liczby*/
+    @Override
+    public void saveState(long[] target, int offset)
+    {
+        super.saveState(target, offset);
+        long packed = (long) position << 32;
+        for (int i = 0; i < bag.length; i++)
+            packed |= (long) bag[i].ordinal() << (4 * i);
+        target[offset + super.stateSize()] = packed;
+    }
+
+    @Override
+    public void restoreState(long[] source, int offset)
+    {
+        super.restoreState(source, offset);
+        long packed = source[offset + super.stateSize()];
+        for (int i = 0; i < bag.length; i++)
+            bag[i] = SHAPES[(int) ((packed >>> (4 * i)) & 0xF)];
+        position = (int) (packed >>> 32);
+    }
+
+    @Override
+    public PieceGenerator split()
+    {
+        return new BagPieceGenerator(nextLong());
+    }
+}
@@ -0,0 +1,554 @@
+package tetris.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+* Klasa przechowująca planszę tetrisa w postaci upakowanych masek bitowych.
+* Każdy wiersz planszy to jedna liczba long, w której bit x oznacza zajęte pole w kolumnie x,
+* a kolory (rodzaje klocków) pól są trzymane osobno w zwartej tablicy bajtów.
+* Dzięki temu sprawdzenie kolizji to przesunięcie i iloczyn bitowy,
+* a sprawdzenie pełnej linii to jedno porównanie.
+* Wiersze są adresowane pośrednio - przez tablicę numerów miejsc (rowSlots),
+* więc usunięcie linii przestawia jedynie numery miejsc, a nie kopiuje zawartości wierszy:
+* koszt usunięcia dowolnej liczby linii to jedno przejście O(wysokość) po numerach,
+* a zwolnione miejsca są czyszczone i wykorzystywane ponownie jako wiersze na górze stosu.
+* Plansza pamięta wysokość stosu (wiersze od niej w górę są puste), więc usuwanie linii przechodzi
+* tylko od najniższej usuwanej linii do szczytu stosu - koszt nie zależy od wysokości całej planszy.
+* Plansza utrzymuje też przyrostowo wysokości kolumn (linię horyzontu stosu) - odległość zrzutu klocka
+* wynika z nich w czasie zależnym tylko od szerokości klocka (dropDistance) - oraz hasz Zobrista zajętych pól (zob. Zobrist).
+* Pełność wiersza nie wymaga osobnego licznika zajętych pól: to porównanie maski wiersza z maską pełnego wiersza.
+*/
+public class Board {
+
+    /*maksymalna szerokość planszy - liczba bitów w jednym wierszu*/
+    public static final int MAX_WIDTH = Long.SIZE;
+
+    private static final Model.TetrisShape[] SHAPES = Model.TetrisShape.values();
+    /*widok tablicy kolorów jako liczb long - kopiowanie wiersza po 8 pól naraz*/
+    private static final VarHandle COLOR_WORDS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final int width;
+    private final int height;
+    /*maska pełnego wiersza*/
+    private final long fullRow;
+    /*numer miejsca (indeks w rows i wiersz w colors) dla kolejnych wierszy planszy, od najniższego*/
+    private final int[] rowSlots;
+    /*wiersze planszy jako maski bitowe, według numerów miejsc*/
+    private final long[] rows;
+    /*rodzaje klocków zapisanych na planszy (ordinal typu TetrisShape), według numerów miejsc*/
+    private final byte[] colors;
+    /*miejsca zwolnione przy usuwaniu linii - tablica pomocnicza, aby usuwanie nie alokowało*/
+    private final int[] freedSlots;
+    /*hasz Zobrista zajętych pól*/
+    private long hash;
+    /*wysokość stosu - liczba wierszy od dołu do najwyższego niepustego wiersza włącznie*/
+    private int stackHeight = 0;
+    /*wysokości kolumn - numer najwyższego zajętego pola kolumny plus jeden (0 - pusta kolumna)*/
+    private final int[] columnHeights;
+    /*numery wierszy usuniętych przy usuwaniu linii, rosnąco - tablica pomocnicza jak freedSlots*/
+    private final int[] freedRows;
+
+    /**
+    * Konstruktor planszy.
+    * @param width szerokość planszy (co najwyżej MAX_WIDTH)
+    * @param height wysokość planszy
+    */
+    public Board(int width, int height)
+    {
+        if (width <= 0 || width > MAX_WIDTH || height <= 0)
+            throw new IllegalArgumentException("Niepoprawny rozmiar planszy: " + width + "x" + height);
+        this.width = width;
+        this.height = height;
+        fullRow = width == MAX_WIDTH ? -1L : (1L << width) - 1;
+        rowSlots = new int[height];
+        rows = new long[height];
+        colors = new byte[width * height];
+        freedSlots = new int[height];
+        columnHeights = new int[width];
+        freedRows = new int[height];
+        for (int y = 0; y < height; y++)
+            rowSlots[y] = y;
+    }
+
+    /**
+    * @return szerokość planszy
+    */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+    * @return wysokość planszy
+    */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+    * Metoda czyszcząca planszę - wszystkie pola stają się puste (Blank).
+    */
+    public void clear()
+    {
+        /*wiersze powyżej stosu są już puste*/
+        for (int y = 0; y < stackHeight; y++)
+        {
+            int slot = rowSlots[y];
+            rows[slot] = 0L;
+            Arrays.fill(colors, slot * width, (slot + 1) * width, (byte) 0);
+        }
+        stackHeight = 0;
+        Arrays.fill(columnHeights, 0);
+        hash = 0L;
+    }
+
+    /**
+    * Metoda kopiująca na tę planszę zawartość innej planszy o tych samych wymiarach.
+    * @param other plansza, z której kopiowane są pola
+    */
+    public void copyFrom(Board other)
+    {
+        if (other.width != width || other.height != height)
+            throw new IllegalArgumentException("Plansze mają różne rozmiary");
+        System.arraycopy(other.rowSlots, 0, rowSlots, 0, height);
+        System.arraycopy(other.rows, 0, rows, 0, height);
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        System.arraycopy(other.columnHeights, 0, columnHeights, 0, width);
+        hash = other.hash;
+        stackHeight = other.stackHeight;
+    }
+
+    /**
+    * @return hasz Zobrista zajętych pól planszy
+    */
+    public long getHash()
+    {
+        return hash;
+    }
+
+    /**
+    * @return wysokość stosu - wiersze od tego numeru w górę są puste
+    */
+    public int getStackHeight()
+    {
+        return stackHeight;
+    }
+
+    /**
+    * @param x numer kolumny
+    * @return wysokość kolumny - numer najwyższego zajętego pola plus jeden (0 - pusta kolumna)
+    */
+    public int columnHeight(int x)
+    {
+        return columnHeights[x];
+    }
+
+    /**
+    * Metoda wyliczająca, o ile wierszy klocek może opaść z podanego miejsca (w którym się mieści).
+    * Jeśli klocek leży w każdej swojej kolumnie nad jej najwyższym zajętym polem, odległość wynika wprost
+    * z wysokości kolumn - w czasie zależnym tylko od szerokości klocka. Klocek wsunięty pod nawis
+    * jest opuszczany wiersz po wierszu.
+    * @param piece klocek
+    * @param rotation orientacja klocka
+    * @param pieceX współrzędna x klocka
+    * @param pieceY współrzędna y klocka
+    * @return liczba wierszy, o którą klocek może opaść
+    */
+    public int dropDistance(Model piece, int rotation, int pieceX, int pieceY)
+    {
+        int left = pieceX + piece.minimumX(rotation);
+        int columns = piece.maximumX(rotation) - piece.minimumX(rotation) + 1;
+        int distance = Integer.MAX_VALUE;
+        for (int c = 0; c < columns; c++)
+        {
+            int gap = pieceY - piece.columnMaxY(rotation, c) - columnHeights[left + c];
+            if (gap < 0)
+            {
+                /*klocek pod nawisem - wysokości kolumn nie wystarczą*/
+                distance = 0;
+                while (fits(piece, rotation, pieceX, pieceY - distance - 1))
+                    distance++;
+                return distance;
+            }
+            distance = Math.min(distance, gap);
+        }
+        return distance;
+    }
+
+    /*poprawienie wysokości kolumny x, której pole w wierszu from - 1 lub wyżej zostało zwolnione*/
+    private void lowerColumn(int x, int from)
+    {
+        long bit = 1L << x;
+        int h = from;
+        while (h > 0 && (rows[rowSlots[h - 1]] & bit) == 0L)
+            h--;
+        columnHeights[x] = h;
+    }
+
+    /*poprawienie wysokości stosu i wysokości kolumn po zmianie wiersza y z maski old na mask*/
+    private void rowChanged(int y, long old, long mask)
+    {
+        for (long added = mask & ~old; added != 0; added &= added - 1)
+        {
+            int x = Long.numberOfTrailingZeros(added);
+            if (y >= columnHeights[x])
+                columnHeights[x] = y + 1;
+        }
+        for (long removed = old & ~mask; removed != 0; removed &= removed - 1)
+        {
+            int x = Long.numberOfTrailingZeros(removed);
+            if (y == columnHeights[x] - 1)
+                lowerColumn(x, y);
+        }
+        if (mask != 0L)
+        {
+            if (y >= stackHeight)
+                stackHeight = y + 1;
+        }
+        else if (y == stackHeight - 1)
+        {
+            while (stackHeight > 0 && rows[rowSlots[stackHeight - 1]] == 0L)
+                stackHeight--;
+        }
+    }
+
+    /**
+    * Metoda zwracająca maskę bitową danego wiersza.
+    * @param y numer wiersza (0 - najniższy)
+    * @return maska zajętych pól wiersza
+    */
+    public long row(int y)
+    {
+        return rows[rowSlots[y]];
+    }
+
+    /**
+    * @return liczba liczb long potrzebnych do zapisania jednego wiersza (maska i kolory po 8 na liczbę)
+    */
+    public int rowWords()
+    {
+        return 1 + (width + 7) / 8;
+    }
+
+    /**
+    * Metoda zapisująca wiersz planszy do tablicy liczb long: maskę zajętych pól, a po niej kolory pól.
+    * @param y numer wiersza
+    * @param target tablica docelowa (rowWords() liczb od indeksu offset)
+    * @param offset indeks pierwszej zapisywanej liczby
+    */
+    public void copyRowTo(int y, long[] target, int offset)
+    {
+        int slot = rowSlots[y];
+        target[offset] = rows[slot];
+        /*kolory pustych pól są zawsze zerami*/
+        if (rows[slot] == 0L)
+        {
+            Arrays.fill(target, offset + 1, offset + rowWords(), 0L);
+            return;
+        }
+        int base = slot * width;
+        for (int x = 0, word = offset + 1; x < width; x += 8, word++)
+            target[word] = packColors(base + x, Math.min(8, width - x));
+    }
+
+    /**
+    * Metoda sprawdzająca, czy wiersz planszy jest taki sam jak zapisany przez copyRowTo.
+    * @param y numer wiersza
+    * @param source tablica z zapisanym wierszem
+    * @param offset indeks pierwszej liczby wiersza
+    * @return true, jeśli maska i kolory wiersza są takie same
+    */
+    public boolean rowEquals(int y, long[] source, int offset)
+    {
+        int slot = rowSlots[y];
+        if (rows[slot] != source[offset]) return false;
+        /*kolory pustych pól są zawsze zerami, więc pusty wiersz wystarczy porównać maską*/
+        if (rows[slot] == 0L) return true;
+        int base = slot * width;
+        for (int x = 0, word = offset + 1; x < width; x += 8, word++)
+        {
+            if (packColors(base + x, Math.min(8, width - x)) != source[word]) return false;
+        }
+        return true;
+    }
+
+    /**
+    * Metoda ustawiająca wiersz planszy zapisany przez copyRowTo (hasz planszy jest poprawiany).
+    * @param y numer wiersza
+    * @param source tablica z zapisanym wierszem
+    * @param offset indeks pierwszej liczby wiersza
+    */
+    public void setRowFrom(int y, long[] source, int offset)
+    {
+        int slot = rowSlots[y];
+        long mask = source[offset];
+        if (rows[slot] == 0L && mask == 0L) return;
+        long old = rows[slot];
+        if (old != mask)
+        {
+            hash ^= Zobrist.row(y, old ^ mask);
+            rows[slot] = mask;
+            rowChanged(y, old, mask);
+        }
+        int base = slot * width;
+        for (int x = 0, word = offset + 1; x < width; x += 8, word++)
+        {
+            long packed = source[word];
+            if (width - x >= 8)
+            {
+                COLOR_WORDS.set(colors, base + x, packed);
+                continue;
+            }
+            for (int i = 0, end = width - x; i < end; i++)
+                colors[base + x + i] = (byte) (packed >>> (8 * i));
+        }
+    }
+
+    /*kolory count (najwyżej 8) kolejnych pól od indeksu index, po jednym bajcie, najmłodszy bajt pierwszy*/
+    private long packColors(int index, int count)
+    {
+        if (count == 8)
+            return (long) COLOR_WORDS.get(colors, index);
+        long packed = 0L;
+        for (int i = 0; i < count; i++)
+            packed |= (long) (colors[index + i] & 0xFF) << (8 * i);
+        return packed;
+    }
+
+    /**
+    * Metoda sprawdzająca, czy dane pole planszy jest zajęte.
+    * @param x współrzędna x pola
+    * @param y współrzędna y pola
+    * @return true, jeśli na polu leży już jakiś klocek
+    */
+    public boolean isOccupied(int x, int y)
+    {
+        return (rows[rowSlots[y]] & (1L << x)) != 0;
+    }
+
+    /**
+    * @param y numer wiersza (0 - najniższy)
+    * @return true, jeśli wszystkie pola wiersza są zajęte
+    */
+    public boolean isRowFull(int y)
+    {
+        return rows[rowSlots[y]] == fullRow;
+    }
+
+    /**
+    * Metoda zwracająca jaki kształt jest zapisany pod danym polem planszy.
+    * @param x współrzędna x pola
+    * @param y współrzędna y pola
+    * @return kształt zapisany na polu
+    */
+    public Model.TetrisShape shapeAt(int x, int y)
+    {
+        return SHAPES[colors[(rowSlots[y] * width) + x]];
+    }
+
+    /**
+    * Metoda ustawiająca kształt zapisany pod danym polem planszy.
+    * Kształt pusty (Blank) zwalnia pole.
+    * @param x współrzędna x pola
+    * @param y współrzędna y pola
+    * @param shape kształt do zapisania
+    */
+    public void setShapeAt(int x, int y, Model.TetrisShape shape)
+    {
+        int slot = rowSlots[y];
+        long old = rows[slot];
+        if (shape == Model.TetrisShape.Blank)
+            rows[slot] &= ~(1L << x);
+        else
+            rows[slot] |= 1L << x;
+        if (rows[slot] != old)
+        {
+            hash ^= Zobrist.cell(x, y);
+            rowChanged(y, old, rows[slot]);
+        }
+        colors[(slot * width) + x] = (byte) shape.ordinal();
+    }
+
+    /**
+    * Metoda sprawdzająca, czy klocek zmieści się na planszy w podanym miejscu.
+    * @param piece klocek
+    * @param tryX współrzędna x klocka
+    * @param tryY współrzędna y klocka
+    * @return true, jeśli klocek nie wychodzi poza planszę i nie nachodzi na inne klocki
+    */
+    public boolean fits(Model piece, int tryX, int tryY)
+    {
+        return fits(piece, piece.getRotation(), tryX, tryY);
+    }
+
+    /**
+    * Metoda sprawdzająca, czy klocek w zadanej orientacji zmieści się na planszy w podanym miejscu.
+    * Kolizja jest sprawdzana jednym przesunięciem i iloczynem bitowym na każdy wiersz klocka.
+    * @param piece klocek
+    * @param rotation orientacja klocka
+    * @param tryX współrzędna x klocka
+    * @param tryY współrzędna y klocka
+    * @return true, jeśli klocek nie wychodzi poza planszę i nie nachodzi na inne klocki
+    */
+    public boolean fits(Model piece, int rotation, int tryX, int tryY)
+    {
+        int left = tryX + piece.minimumX(rotation);
+        int top = tryY - piece.minimumY(rotation);
+        int bottom = tryY - piece.maximumY(rotation);
+        /* sprawdzenie, czy nie wychodzi poza planszę*/
+        if (left < 0 || tryX + piece.maximumX(rotation) >= width || bottom < 0 || top >= height) return false;
+        /*sprawdzenie, czy nie jest już na tym miejscu inny element*/
+        for (int y = top, r = 0; y >= bottom; y--, r++)
+        {
+            if ((rows[rowSlots[y]] & (piece.rowMask(rotation, r) << left)) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+    * Metoda zapisująca klocek na planszy w podanym miejscu.
+    * @param piece klocek
+    * @param pieceX współrzędna x klocka
+    * @param pieceY współrzędna y klocka
+    */
+    public void place(Model piece, int pieceX, int pieceY)
+    {
+        byte color = (byte) piece.getOneShape().ordinal();
+        for (int i = 0; i < 4; ++i)
+        {
+            int x = pieceX + piece.checkX(i);
+            int y = pieceY - piece.checkY(i);
+            int slot = rowSlots[y];
+            rows[slot] |= 1L << x;
+            colors[(slot * width) + x] = color;
+            hash ^= Zobrist.cell(x, y);
+            if (y >= stackHeight)
+                stackHeight = y + 1;
+            if (y >= columnHeights[x])
+                columnHeights[x] = y + 1;
+        }
+    }
+
+    /**
+    * Metoda dodająca na dół planszy linie śmieci (tryb pojedynku): pełne wiersze z dziurą w jednej kolumnie.
+    * Cały stos podnosi się o podaną liczbę wierszy - jak przy usuwaniu linii przestawiane są tylko
+    * numery miejsc wierszy, od dołu do szczytu stosu. Wiersze wypchnięte ponad planszę przepadają.
+    * @param lines liczba linii śmieci
+    * @param hole kolumna dziury (od 0 do width - 1)
+    * @param shape kształt (kolor) pól linii śmieci
+    * @return false, jeśli część stosu została wypchnięta ponad planszę
+    * @throws IllegalArgumentException gdy kolumna dziury leży poza planszą
+    */
+    public boolean addGarbage(int lines, int hole, Model.TetrisShape shape)
+    {
+        /*linia bez dziury byłaby pełna, a nie zostałaby usunięta - usuwane są tylko wiersze zapisanego klocka*/
+        if (hole < 0 || hole >= width)
+            throw new IllegalArgumentException("Kolumna dziury poza planszą: " + hole);
+        lines = Math.min(lines, height);
+        if (lines <= 0) return true;
+        boolean fits = stackHeight + lines <= height;
+        int top = Math.min(height, stackHeight + lines);
+        /*hasz przesuwanych wierszy jest liczony od nowa po przesunięciu*/
+        for (int y = 0; y < stackHeight; y++)
+            hash ^= Zobrist.row(y, rows[rowSlots[y]]);
+        /*miejsca wierszy ponad stosem albo wypchniętych ponad planszę stają się liniami śmieci*/
+        for (int i = 0; i < lines; i++)
+            freedSlots[i] = rowSlots[top - lines + i];
+        for (int y = top - 1; y >= lines; y--)
+            rowSlots[y] = rowSlots[y - lines];
+        long garbage = fullRow & ~(1L << hole);
+        byte color = (byte) shape.ordinal();
+        for (int i = 0; i < lines; i++)
+        {
+            int slot = freedSlots[i];
+            rowSlots[i] = slot;
+            rows[slot] = garbage;
+            Arrays.fill(colors, slot * width, (slot + 1) * width, color);
+            colors[slot * width + hole] = 0;
+        }
+        stackHeight = top;
+        while (stackHeight > 0 && rows[rowSlots[stackHeight - 1]] == 0L)
+            stackHeight--;
+        for (int y = 0; y < stackHeight; y++)
+            hash ^= Zobrist.row(y, rows[rowSlots[y]]);
+        for (int x = 0; x < width; x++)
+        {
+            int h = columnHeights[x];
+            lowerColumn(x, h == 0 ? lines : Math.min(height, h + lines));
+        }
+        return fits;
+    }
+
+    /**
+    * Metoda usuwająca pełne linie - wiersze powyżej usuniętych linii opadają w dół.
+    * @return liczba usuniętych linii
+    */
+    public int removeFullLines()
+    {
+        return removeFullLines(0, height - 1);
+    }
+
+    /**
+    * Metoda usuwająca pełne linie leżące w podanym zakresie wierszy (np. w wierszach właśnie zapisanego klocka)
+    * - wiersze powyżej usuniętych linii opadają w dół.
+    * Numery miejsc niepełnych wierszy są zsuwane w jednym przejściu od najniższego wiersza zakresu
+    * do szczytu stosu, a miejsca pełnych wierszy są czyszczone i trafiają na szczyt stosu.
+    * W tym samym przejściu poprawiany jest hasz - tylko dla wierszy, które zmieniły położenie.
+    * Wysokość kolumny maleje o liczbę usuniętych linii pod jej szczytem; kolumna, której najwyższe pole
+    * leżało w usuniętej linii, jest przeglądana w dół do następnego zajętego pola.
+    * @param from najniższy wiersz, w którym mogą być pełne linie
+    * @param to najwyższy wiersz, w którym mogą być pełne linie
+    * @return liczba usuniętych linii
+    */
+    public int removeFullLines(int from, int to)
+    {
+        int end = stackHeight;
+        to = Math.min(to, end - 1);
+        int numFullLines = 0;
+        int write = Math.max(0, from);
+        for (int read = write; read < end; read++)
+        {
+            int slot = rowSlots[read];
+            long mask = rows[slot];
+            if (read <= to && mask == fullRow)
+            {
+                freedRows[numFullLines] = read;
+                freedSlots[numFullLines++] = slot;
+                hash ^= Zobrist.row(read, mask);
+            }
+            else
+            {
+                if (write != read && mask != 0)
+                    hash ^= Zobrist.row(read, mask) ^ Zobrist.row(write, mask);
+                rowSlots[write++] = slot;
+            }
+        }
+        for (int i = 0; i < numFullLines; i++)
+        {
+            int slot = freedSlots[i];
+            rows[slot] = 0L;
+            Arrays.fill(colors, slot * width, (slot + 1) * width, (byte) 0);
+            rowSlots[write++] = slot;
+        }
+        stackHeight = end - numFullLines;
+        while (stackHeight > 0 && rows[rowSlots[stackHeight - 1]] == 0L)
+            stackHeight--;
+        if (numFullLines > 0)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                int h = columnHeights[x];
+                int below = 0;
+                while (below < numFullLines && freedRows[below] < h)
+                    below++;
+                if (below > 0)
+                    lowerColumn(x, h - below);
+            }
+        }
+        return numFullLines;
+    }
+}
@@ -3,12 +3,15 @@
 */
 package tetris.model;
 
-import java.util.Random;
+import java.util.Arrays;
 
 /**
 * Klasa implementująca model do programu tetris według wzorca MVC.
 * To tutaj są przechowywane informacje o danych - w tym przypadku o kształtach klocków używanych w tetrisie
 * oraz podstawowe metody udostępniające informacje o nim.
+* Współrzędne wszystkich kształtów we wszystkich orientacjach są wyliczane raz, w statycznych
+* niezmiennych tablicach, a sam klocek to para małych liczb: kształt i obrót.
+* Dzięki temu obracanie klocka ani odczyt jego współrzędnych niczego nie alokują.
 */
 public class Model {
 
@@ -20,46 +23,123 @@ public class Model {
          MirroredLElement
     }
 
+    /*liczba możliwych orientacji klocka*/
+    public static final int ROTATIONS = 4;
+
+    private static final TetrisShape[] SHAPES = TetrisShape.values();
+
+    /*współrzędne wszystkich klocków tetrisa w orientacji początkowej*/
+    private static final int[][][] BASE_SHAPES = new int[][][]
+    {
+            {{0, 0}, {0, 0}, {0, 0}, {0, 0}},
+            {{0, -1}, {0, 0}, {-1, 0}, {-1, 1}},
+            {{0, -1}, {0, 0}, {1, 0}, {1, 1}},
+            {{0, -1}, {0, 0}, {0, 1}, {0, 2}},
+            {{-1, 0}, {0, 0}, {1, 0}, {0, 1}},
+            {{0, 0}, {1, 0}, {0, 1}, {1, 1}},
+            {{-1, -1}, {0, -1}, {0, 0}, {0, 1}},
+            {{1, -1}, {0, -1}, {0, 0}, {0, 1}}
+    };
+
+    /*współrzędne x i y kwadracików: [kształt][obrót][kwadracik]*/
+    private static final int[][][] X_TABLE = new int[SHAPES.length][ROTATIONS][4];
+    private static final int[][][] Y_TABLE = new int[SHAPES.length][ROTATIONS][4];
+    /*prostokąt ograniczający klocek: [kształt][obrót]*/
+    private static final int[][] MIN_X = new int[SHAPES.length][ROTATIONS];
+    private static final int[][] MAX_X = new int[SHAPES.length][ROTATIONS];
+    private static final int[][] MIN_Y = new int[SHAPES.length][ROTATIONS];
+    private static final int[][] MAX_Y = new int[SHAPES.length][ROTATIONS];
+    /*maski bitowe kolejnych wierszy klocka (od minY do maxY), bit 0 to kolumna minX:
+    * [kształt][obrót][wiersz]*/
+    private static final long[][][] ROW_MASKS = new long[SHAPES.length][ROTATIONS][];
+    /*największa współrzędna y (najniższy kwadracik) w kolejnych kolumnach klocka (od minX do maxX):
+    * [kształt][obrót][kolumna]*/
+    private static final int[][][] COLUMN_MAX_Y = new int[SHAPES.length][ROTATIONS][];
+
+    static
+    {
+        for (int s = 0; s < SHAPES.length; s++)
+        {
+            for (int i = 0; i < 4; i++)
+            {
+                X_TABLE[s][0][i] = BASE_SHAPES[s][i][0];
+                Y_TABLE[s][0][i] = BASE_SHAPES[s][i][1];
+            }
+            for (int r = 1; r < ROTATIONS; r++)
+            {
+                for (int i = 0; i < 4; i++)
+                {
+                    /*klocek O nie jest obracany*/
+                    if (SHAPES[s] == TetrisShape.OElement)
+                    {
+                        X_TABLE[s][r][i] = X_TABLE[s][0][i];
+                        Y_TABLE[s][r][i] = Y_TABLE[s][0][i];
+                    }
+                    else
+                    {
+                        X_TABLE[s][r][i] = Y_TABLE[s][r - 1][i];
+                        Y_TABLE[s][r][i] = (-1)*X_TABLE[s][r - 1][i];
+                    }
+                }
+            }
+            for (int r = 0; r < ROTATIONS; r++)
+            {
+                int minX = X_TABLE[s][r][0], maxX = minX;
+                int minY = Y_TABLE[s][r][0], maxY = minY;
+                for (int i = 1; i < 4; i++)
+                {
+                    minX = Math.min(minX, X_TABLE[s][r][i]);
+                    maxX = Math.max(maxX, X_TABLE[s][r][i]);
+                    minY = Math.min(minY, Y_TABLE[s][r][i]);
+                    maxY = Math.max(maxY, Y_TABLE[s][r][i]);
+                }
+                MIN_X[s][r] = minX;
+                MAX_X[s][r] = maxX;
+                MIN_Y[s][r] = minY;
+                MAX_Y[s][r] = maxY;
+                long[] masks = new long[maxY - minY + 1];
+                for (int i = 0; i < 4; i++)
+                    masks[Y_TABLE[s][r][i] - minY] |= 1L << (X_TABLE[s][r][i] - minX);
+                ROW_MASKS[s][r] = masks;
+                int[] bottoms = new int[maxX - minX + 1];
+                Arrays.fill(bottoms, Integer.MIN_VALUE);
+                for (int i = 0; i < 4; i++)
+                    bottoms[X_TABLE[s][r][i] - minX] = Math.max(bottoms[X_TABLE[s][r][i] - minX], Y_TABLE[s][r][i]);
+                COLUMN_MAX_Y[s][r] = bottoms;
+            }
+        }
+    }
+
     private TetrisShape oneShape;
-    private int[][] oneShapeTable;
-    private int[][][] shapesTable;
+    private int shapeIndex;
+    private int rotation;
+    /*współrzędne aktualnego kształtu w aktualnej orientacji (współdzielone, niezmienne)*/
+    private int[] xs;
+    private int[] ys;
+    /*generator kolejnych kształtów klocka*/
+    private PieceGenerator pieceGenerator;
 
     /**
-    * Konstruktor klasy model - inicjuje tablice oneShapeTable,
-    * która ma przechowywać współrzędne jednego klocka (ustawia ten kształt na kształt pusty)
-    * inicjuje i zapełnia tablicę shapesTable, która przechowuje informacje (współrzędne)
-    * wszystkich klockach tetrisa
+    * Konstruktor klasy model - ustawia kształt klocka na kształt pusty.
+    * Współrzędne klocków nie są kopiowane - klocek wskazuje jedynie na wiersze
+    * wspólnych, wyliczonych wcześniej tablic.
     */
     public Model()
     {
-        oneShapeTable = new int[4][2];
-        shapesTable = new int[][][]
-        {
-                {{0, 0}, {0, 0}, {0, 0}, {0, 0}},
-                {{0, -1}, {0, 0}, {-1, 0}, {-1, 1}},
-                {{0, -1}, {0, 0}, {1, 0}, {1, 1}},
-                {{0, -1}, {0, 0}, {0, 1}, {0, 2}},
-                {{-1, 0}, {0, 0}, {1, 0}, {0, 1}},
-                {{0, 0}, {1, 0}, {0, 1}, {1, 1}},
-                {{-1, -1}, {0, -1}, {0, 0}, {0, 1}},
-                {{1, -1}, {0, -1}, {0, 0}, {0, 1}}
-        };
         /*ustawienie oneShape w naszej klasie*/
         setOneShape(TetrisShape.Blank);
     }
 
 
     /**
-    * Metoda służaca do przekopiowanie na oneShapeTable zadanego kształtu
-    * @param oneShape zadany kształt do przekopiowania
+    * Metoda służaca do ustawienia zadanego kształtu w orientacji początkowej.
+    * @param oneShape zadany kształt
     */
     public void setOneShape(TetrisShape oneShape)
     {
-        for (int i = 0; i < 4 ; i++)
-        {
-            System.arraycopy(shapesTable[oneShape.ordinal()][i], 0, oneShapeTable[i], 0, 2);
-        }
         this.oneShape = oneShape;
+        shapeIndex = oneShape.ordinal();
+        setRotation(0);
     }
 
     /**
@@ -71,15 +151,51 @@ public class Model {
     }
 
     /**
-    * Metoda, która służy do losowego ustawianie własnego oneShape.
+    * Metoda zwracająca aktualną orientację klocka.
+    * @return rotation numer obrotu (od 0 do ROTATIONS - 1)
+    */
+    public int getRotation()
+    {
+        return rotation;
+    }
+
+    /**
+    * Metoda ustawiająca orientację klocka.
+    * @param rotation numer obrotu (od 0 do ROTATIONS - 1)
+    */
+    public void setRotation(int rotation)
+    {
+        this.rotation = rotation;
+        xs = X_TABLE[shapeIndex][rotation];
+        ys = Y_TABLE[shapeIndex][rotation];
+    }
+
+    /**
+    * Metoda ustawiająca generator, z którego będą losowane kolejne kształty klocka.
+    * @param pieceGenerator generator klocków
+    */
+    public void setPieceGenerator(PieceGenerator pieceGenerator)
+    {
+        this.pieceGenerator = pieceGenerator;
+    }
+
+    /**
+    * @return generator, z którego są losowane kolejne kształty klocka
+    */
+    public PieceGenerator getPieceGenerator()
+    {
+        return pieceGenerator;
+    }
+
+    /**
+    * Metoda, która służy do losowego ustawianie własnego oneShape - kolejnym kształtem z generatora klocków.
+    * Jeśli żaden generator nie został ustawiony, to tworzony jest generator jednostajny z ziarnem z zegara.
     */
     public void setRandomShape()
     {
-        Random r = new Random();
-        //nie moze zostać wylosowanu klocek 0 - bo jest to kształt pusty
-        int x = Math.abs(r.nextInt()) % 7+1;
-        TetrisShape[] values = TetrisShape.values();
-        setOneShape(values[x]);
+        if (pieceGenerator == null)
+            pieceGenerator = new UniformPieceGenerator(System.nanoTime());
+        setOneShape(pieceGenerator.next());
     }
 
     /**
@@ -89,51 +205,130 @@ public class Model {
     */
     public int minimumY()
     {
-        int minimum = oneShapeTable[0][1];
-        for (int i = 0; i < 4; i++)
-        {
-            minimum = Math.min(minimum, oneShapeTable[i][1]);
-        }
-        return minimum;
+        return MIN_Y[shapeIndex][rotation];
     }
 
     /**
-    * Metoda służąca do rotacji elementu w tablicy
-    * Tworzy nowy obiekt Model, w którego tablicy oneShapeTable zapisuje klocek,
-    * który został obrócony.
-    * @return rotatedShape obiekt z przerotowanym klockiem Tetris'a
+    * @param rotation orientacja klocka
+    * @return maksymalna wartość współrzędnej y klocka w danej orientacji
     */
-    public Model rotate()
+    public int maximumY(int rotation)
     {
-        if (oneShape == TetrisShape.OElement) return this;
-        Model rotatedShape = new Model();
-        rotatedShape.oneShape = oneShape;
+        return MAX_Y[shapeIndex][rotation];
+    }
 
-        for (int i = 0; i < 4; ++i)
-        {
-            rotatedShape.oneShapeTable[i][0] = oneShapeTable[i][1];
-            rotatedShape.oneShapeTable[i][1] = (-1)*oneShapeTable[i][0];
-        }
-        return rotatedShape;
+    /**
+    * @param rotation orientacja klocka
+    * @return minimalna wartość współrzędnej y klocka w danej orientacji
+    */
+    public int minimumY(int rotation)
+    {
+        return MIN_Y[shapeIndex][rotation];
+    }
+
+    /**
+    * @param rotation orientacja klocka
+    * @return minimalna wartość współrzędnej x klocka w danej orientacji
+    */
+    public int minimumX(int rotation)
+    {
+        return MIN_X[shapeIndex][rotation];
+    }
+
+    /**
+    * @param rotation orientacja klocka
+    * @return maksymalna wartość współrzędnej x klocka w danej orientacji
+    */
+    public int maximumX(int rotation)
+    {
+        return MAX_X[shapeIndex][rotation];
+    }
+
+    /**
+    * Metoda zwracająca maskę bitową jednego wiersza klocka w danej orientacji.
+    * Wiersz 0 odpowiada współrzędnej minimumY, bit 0 - współrzędnej minimumX.
+    * @param rotation orientacja klocka
+    * @param row numer wiersza klocka
+    * @return maska bitowa wiersza
+    */
+    long rowMask(int rotation, int row)
+    {
+        return ROW_MASKS[shapeIndex][rotation][row];
+    }
+
+    /**
+    * Metoda zwracająca największą współrzędną y (najniższy kwadracik) jednej kolumny klocka w danej orientacji.
+    * Kolumna 0 odpowiada współrzędnej minimumX.
+    * @param rotation orientacja klocka
+    * @param column numer kolumny klocka
+    * @return największa współrzędna y kwadracików kolumny
+    */
+    int columnMaxY(int rotation, int column)
+    {
+        return COLUMN_MAX_Y[shapeIndex][rotation][column];
+    }
+
+    /**
+    * Metoda zwracająca numer orientacji po obrocie klocka.
+    * Sam klocek nie jest zmieniany - nowa orientacja zostaje ustawiona
+    * dopiero wtedy, gdy obrót jest możliwy na planszy.
+    * @return numer orientacji przerotowanego klocka
+    */
+    public int nextRotation()
+    {
+        return (rotation + 1) % ROTATIONS;
+    }
+
+    /**
+    * Metoda służąca do rotacji elementu - ustawia orientację klocka na kolejną.
+    * Nie tworzy żadnego nowego obiektu.
+    * @return ten sam obiekt z przerotowanym klockiem Tetris'a
+    */
+    public Model rotate()
+    {
+        setRotation(nextRotation());
+        return this;
     }
 
     /**
     *Metoda służaca do sprawdzenie współrzędnej x danego elementu z tablicy
     * @param i która współrzędna klocka
-    * @return oneShape[i][0] współrzędna x zadanej współrzędnej klocka
+    * @return współrzędna x zadanej współrzędnej klocka
     */
     public int checkX(int i)
     {
-      return oneShapeTable[i][0];
+      return xs[i];
     }
 
     /**
     *Metoda służaca do sprawdzenie współrzędnej y danego elementu z tablicy
     * @param i która współrzędna klocka
-    * @return oneShape[i][1] współrzędna y zadanej współrzędnej klocka
+    * @return współrzędna y zadanej współrzędnej klocka
     */
     public int checkY(int i)
     {
-      return oneShapeTable[i][1];
+      return ys[i];
+    }
+
+    /**
+    * Metoda służaca do sprawdzenie współrzędnej x klocka w zadanej orientacji
+    * @param rotation orientacja klocka
+    * @param i która współrzędna klocka
+    * @return współrzędna x zadanej współrzędnej klocka
+    */
+    public int checkX(int rotation, int i)
+    {
+      return X_TABLE[shapeIndex][rotation][i];
+    }
+
+    /**
+    * Metoda służaca do sprawdzenie współrzędnej y klocka w zadanej orientacji
+    * @param rotation orientacja klocka
+    * @param i która współrzędna klocka
+    * @return współrzędna y zadanej współrzędnej klocka
+    */
+    public int checkY(int rotation, int i)
+    {
+      return Y_TABLE[shapeIndex][rotation][i];
     }
 }
@@ -0,0 +1,49 @@
+package tetris.model;
+
+/**
+* Interfejs generatora kolejnych klocków tetrisa.
+* Generator przechowuje własny stan (jeden na grę), a dla tego samego ziarna
+* zawsze zwraca ten sam ciąg klocków - potrzebne przy powtórkach, testach regresji i porównaniach.
+*/
+public interface PieceGenerator
+{
+    /**
+    * Metoda zwracająca kolejny klocek (nigdy kształt pusty Blank).
+    * @return kształt kolejnego klocka
+    */
+    Model.TetrisShape next();
+
+    /**
+    * Metoda ustawiająca ziarno generatora - od tego momentu ciąg klocków zaczyna się od nowa.
+    * @param seed ziarno
+    */
+    void setSeed(long seed);
+
+    /**
+    * Metoda tworząca nowy, niezależny generator tego samego rodzaju.
+    * Nowy generator jest wyznaczony przez stan obecnego, więc podział jest deterministyczny -
+    * do użycia przy równoległych symulacjach.
+    * @return nowy generator
+    */
+    PieceGenerator split();
+
+    /**
+    * @return liczba liczb long potrzebnych do zapisania stanu generatora (zob. saveState)
+    */
+    int stateSize();
+
+    /**
+    * Metoda zapisująca pełny stan generatora do tablicy (bez alokowania pamięci).
+    * @param target tablica docelowa
+    * @param offset indeks pierwszej zapisywanej liczby
+    */
+    void saveState(long[] target, int offset);
+
+    /**
+    * Metoda przywracająca stan generatora zapisany przez saveState -
+    * od tego momentu generator zwraca te same klocki, co w chwili zapisu.
+    * @param source tablica ze stanem
+    * @param offset indeks pierwszej liczby stanu
+    */
+    void restoreState(long[] source, int offset);
+}
@@ -0,0 +1,82 @@
+package tetris.model;
+
+/**
+* Klasa bazowa generatorów klocków opartych na generatorze liczb pseudolosowych SplitMix64.
+* Cały stan generatora liczb to jedna liczba long, więc losowanie niczego nie alokuje.
+*/
+public abstract class SeededPieceGenerator implements PieceGenerator
+{
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /*kształty klocków, bez kształtu pustego Blank*/
+    static final Model.TetrisShape[] PIECES = new Model.TetrisShape[]
+    {
+        Model.TetrisShape.ZElement, Model.TetrisShape.SElement, Model.TetrisShape.IElement,
+        Model.TetrisShape.TElement, Model.TetrisShape.OElement, Model.TetrisShape.LElement,
+        Model.TetrisShape.MirroredLElement
+    };
+
+    private long state;
+
+    /**
+    * Konstruktor generatora.
+    * @param seed ziarno
+    */
+    protected SeededPieceGenerator(long seed)
+    {
+        state = seed;
+    }
+
+    @Override
+    public void setSeed(long seed)
+    {
+        state = seed;
+    }
+
+    @Override
+    public int stateSize()
+    {
+        return 1;
+    }
+
+    @Override
+    public void saveState(long[] target, int offset)
+    {
+        target[offset] = state;
+    }
+
+    @Override
+    public void restoreState(long[] source, int offset)
+    {
+        state = source[offset];
+    }
+
+    /**
+    * @return kolejna 64-bitowa liczba pseudolosowa
+    */
+    protected final long nextLong()
+    {
+        long z = (state += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+    * Metoda losująca liczbę z przedziału [0, bound) z rozkładem jednostajnym
+    * (wyniki, które dawałyby nierówny rozkład reszt z dzielenia, są odrzucane).
+    * @param bound górna granica (wyłącznie)
+    * @return wylosowana liczba
+    */
+    protected final int nextInt(int bound)
+    {
+        int u = (int) (nextLong() >>> 33);
+        int r = u % bound;
+        while (u - r + (bound - 1) < 0)
+        {
+            u = (int) (nextLong() >>> 33);
+            r = u % bound;
+        }
+        return r;
+    }
+}
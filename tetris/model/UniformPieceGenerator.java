@@ -0,0 +1,29 @@
+package tetris.model;
+
+/**
+* Generator klocków, w którym każdy z siedmiu klocków jest losowany niezależnie,
+* z jednakowym prawdopodobieństwem.
+*/
+public class UniformPieceGenerator extends SeededPieceGenerator
+{
+    /**
+    * Konstruktor generatora.
+    * @param seed ziarno
+    */
+    public UniformPieceGenerator(long seed)
+    {
+        super(seed);
+    }
+
+    @Override
+    public Model.TetrisShape next()
+    {
+        return PIECES[nextInt(PIECES.length)];
+    }
+
+    @Override
+    public PieceGenerator split()
+    {
+        return new UniformPieceGenerator(nextLong());
+    }
+}
@@ -0,0 +1,87 @@
+package tetris.model;
+
+/**
+* Klasa z kluczami haszowania Zobrista dla planszy i klocka.
+* Każde pole planszy ma własny losowy 64-bitowy klucz, a hasz planszy to XOR kluczy zajętych pól,
+* więc zajęcie lub zwolnienie pola zmienia hasz jednym XOR-em.
+* Klucze nie są trzymane w tablicy - są wyznaczane z położenia pola funkcją mieszającą SplitMix64,
+* dzięki czemu działają dla plansz dowolnej wysokości i są takie same przy każdym uruchomieniu programu.
+* Hasz obejmuje tylko zajętość pól, a nie ich kolory - kolory nie mają wpływu na przebieg gry.
+*/
+public final class Zobrist
+{
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    /*oddzielne przestrzenie kluczy dla pól planszy i położeń klocka*/
+    private static final long CELL_SEED = 0x2545F4914F6CDD1DL;
+    private static final long PIECE_SEED = 0x5851F42D4C957F2DL;
+
+    private Zobrist()
+    {
+    }
+
+    /**
+    * @param x współrzędna x pola
+    * @param y współrzędna y pola
+    * @return klucz zajętego pola planszy
+    */
+    public static long cell(int x, int y)
+    {
+        return mix(CELL_SEED + (((long) y * Board.MAX_WIDTH + x) + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+    * Metoda wyznaczająca XOR kluczy wszystkich zajętych pól jednego wiersza.
+    * @param y numer wiersza
+    * @param mask maska zajętych pól wiersza
+    * @return hasz wiersza (0 dla pustego wiersza)
+    */
+    public static long row(int y, long mask)
+    {
+        long hash = 0L;
+        while (mask != 0)
+        {
+            hash ^= cell(Long.numberOfTrailingZeros(mask), y);
+            mask &= mask - 1;
+        }
+        return hash;
+    }
+
+    /**
+    * Metoda wyznaczająca XOR kluczy pól, które zajmie klocek położony w danym miejscu.
+    * XOR tej wartości z haszem planszy daje hasz planszy z położonym klockiem (przed usunięciem linii).
+    * @param piece klocek
+    * @param rotation orientacja klocka
+    * @param pieceX współrzędna x klocka
+    * @param pieceY współrzędna y klocka
+    * @return hasz pól klocka
+    */
+    public static long cells(Model piece, int rotation, int pieceX, int pieceY)
+    {
+        long hash = 0L;
+        for (int i = 0; i < 4; i++)
+            hash ^= cell(pieceX + piece.checkX(rotation, i), pieceY - piece.checkY(rotation, i));
+        return hash;
+    }
+
+    /**
+    * @param shape kształt spadającego klocka
+    * @param rotation orientacja klocka
+    * @param pieceX współrzędna x klocka
+    * @param pieceY współrzędna y klocka
+    * @return klucz spadającego klocka w danym położeniu (0 dla klocka pustego)
+    */
+    public static long piece(Model.TetrisShape shape, int rotation, int pieceX, int pieceY)
+    {
+        if (shape == Model.TetrisShape.Blank) return 0L;
+        long position = (((long) pieceY * Board.MAX_WIDTH + pieceX) * Model.ROTATIONS + rotation) * 8 + shape.ordinal();
+        return mix(PIECE_SEED + (position + 1) * GOLDEN_GAMMA);
+    }
+
+    /*funkcja mieszająca SplitMix64*/
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
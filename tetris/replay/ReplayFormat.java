@@ -0,0 +1,80 @@
+/**
+* Pakiet implementujący zapis i odtwarzanie powtórek gier tetris.
+*/
+package tetris.replay;
+
+import tetris.engine.GameEngine;
+import tetris.model.BagPieceGenerator;
+import tetris.model.PieceGenerator;
+import tetris.model.UniformPieceGenerator;
+
+/**
+* Klasa opisująca binarny format powtórek.
+* Plik zaczyna się nagłówkiem: MAGIC (4 bajty) i numer wersji (1 bajt), po którym następują kolejne gry.
+* Każda gra to:
+*   nagłówek gry - szerokość i wysokość planszy (varint), rodzaj generatora klocków (1 bajt), ziarno (8 bajtów),
+*   ciąg akcji - każda jako varint ((przyrost numeru klatki &lt;&lt; ACTION_BITS | numer akcji) + 1),
+*   znacznik końca akcji - bajt 0,
+*   stopka - liczba punktów powiększona o 1 i liczba klocków na końcu gry (varint), do sprawdzenia odtworzenia
+*   (0 zamiast punktów oznacza grę przerwaną zamknięciem pliku, bez wyniku).
+* Liczby varint to zapis po 7 bitów na bajt (najmłodsze najpierw), z najstarszym bitem bajtu oznaczającym kontynuację;
+* akcje wykonywane w tej samej lub kolejnej klatce zajmują więc zwykle jeden bajt.
+*/
+public final class ReplayFormat
+{
+    /*"TRPL"*/
+    public static final int MAGIC = 0x5452504C;
+    public static final byte VERSION = 1;
+    /*liczba bitów numeru akcji w zapisie akcji*/
+    public static final int ACTION_BITS = 3;
+    public static final int ACTION_MASK = (1 << ACTION_BITS) - 1;
+    /*znacznik końca akcji gry*/
+    public static final int END_OF_ACTIONS = 0;
+    /*wartość w stopce gry bez wyniku*/
+    public static final long UNKNOWN_RESULT = 0L;
+
+    public static final byte UNIFORM_GENERATOR = 0;
+    public static final byte BAG_GENERATOR = 1;
+
+    /*wszystkie akcje silnika według numerów zapisanych w powtórce*/
+    static final GameEngine.Action[] ACTIONS = GameEngine.Action.values();
+
+    private ReplayFormat()
+    {
+    }
+
+    /**
+    * @param generator generator klocków
+    * @return kod rodzaju generatora zapisywany w powtórce
+    */
+    public static byte generatorCode(PieceGenerator generator)
+    {
+        if (generator instanceof BagPieceGenerator) return BAG_GENERATOR;
+        if (generator instanceof UniformPieceGenerator) return UNIFORM_GENERATOR;
+        throw new IllegalArgumentException("Nieobsługiwany generator klocków: " + generator.getClass().getName());
+    }
+
+    /**
+    * @param code kod rodzaju generatora zapisany w powtórce
+    * @return nowy generator klocków tego rodzaju
+    */
+    public static PieceGenerator generator(byte code)
+    {
+        switch (code)
+        {
+            case UNIFORM_GENERATOR: return new UniformPieceGenerator(0L);
+            case BAG_GENERATOR: return new BagPieceGenerator(0L);
+            default: throw new IllegalArgumentException("Nieznany rodzaj generatora klocków: " + code);
+        }
+    }
+
+    /**
+    * @param frameDelta przyrost numeru klatki od poprzedniej akcji
+    * @param action akcja
+    * @return kod akcji zapisywany jako varint (zawsze większy od END_OF_ACTIONS)
+    */
+    static long encodeAction(long frameDelta, GameEngine.Action action)
+    {
+        return ((frameDelta << ACTION_BITS) | action.ordinal()) + 1;
+    }
+}
@@ -0,0 +1,195 @@
+package tetris.replay;
+
+import tetris.ai.Heuristic;
+import tetris.ai.SearchPlayer;
+import tetris.engine.GameEngine;
+import tetris.model.BagPieceGenerator;
+import tetris.model.UniformPieceGenerator;
+import tetris.simulation.BatchSimulator;
+import tetris.simulation.Player;
+import tetris.simulation.RandomPlayer;
+import tetris.view.TetrisBoard;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+* Klasa odtwarzająca powtórki bez interfejsu graficznego, z pełną szybkością silnika gry.
+* Każda gra jest rozgrywana od nowa na silniku z tym samym ziarnem i tymi samymi akcjami,
+* a wynik jest porównywany ze stopką gry - tak można sprawdzać całe archiwa powtórek.
+* Silnik jest tworzony ponownie tylko wtedy, gdy zmieni się rozmiar planszy lub rodzaj generatora.
+*/
+public class ReplayPlayer
+{
+    private GameEngine engine;
+    private byte generatorCode;
+    private long games = 0;
+    private long actions = 0;
+    private long mismatches = 0;
+
+    /**
+    * Metoda odtwarzająca bieżącą grę pliku powtórek (po wywołaniu reader.nextGame).
+    * @param reader plik powtórek
+    * @return true, jeśli wynik odtworzonej gry zgadza się z zapisanym (albo gra nie ma zapisanego wyniku)
+    * @throws IOException gdy odczyt pliku się nie powiedzie
+    */
+    public boolean play(ReplayReader reader) throws IOException
+    {
+        if (engine == null || engine.getBoardWidth() != reader.getWidth() || engine.getBoardHeight() != reader.getHeight()
+            || generatorCode != reader.getGeneratorCode())
+        {
+            generatorCode = reader.getGeneratorCode();
+            engine = new GameEngine(reader.getWidth(), reader.getHeight(), ReplayFormat.generator(generatorCode));
+        }
+        engine.reset(reader.getSeed());
+        for (int code = reader.nextAction(); code >= 0; code = reader.nextAction())
+        {
+            engine.step(ReplayReader.action(code));
+            actions++;
+        }
+        games++;
+        boolean verified = reader.getFinalPoints() < 0
+                || (reader.getFinalPoints() == engine.getPoints() && reader.getFinalPieces() == engine.getPiecesSpawned());
+        if (verified == false)
+            mismatches++;
+        return verified;
+    }
+
+    /**
+    * @return silnik, na którym odtworzono ostatnią grę
+    */
+    public GameEngine getEngine()
+    {
+        return engine;
+    }
+
+    /**
+    * @return liczba odtworzonych gier
+    */
+    public long getGames()
+    {
+        return games;
+    }
+
+    /**
+    * @return liczba odtworzonych akcji
+    */
+    public long getActions()
+    {
+        return actions;
+    }
+
+    /**
+    * @return liczba gier, których wynik nie zgadzał się z zapisanym
+    */
+    public long getMismatches()
+    {
+        return mismatches;
+    }
+
+    /**
+    * Uruchomienie z linii poleceń:
+    * java tetris.replay.ReplayPlayer record [plik] [gry] [ziarno] [maks. klocków] [random|search] - zapis gier bota,
+    * java tetris.replay.ReplayPlayer verify [plik] - odtworzenie i sprawdzenie wszystkich gier,
+    * java tetris.replay.ReplayPlayer show [plik] [numer gry] - odtworzenie gry na planszy w oknie.
+    * @param args parametry
+    * @throws IOException gdy odczyt lub zapis pliku się nie powiedzie
+    */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 2)
+        {
+            System.out.println("Użycie: ReplayPlayer record|verify|show plik ...");
+            return;
+        }
+        Path path = Paths.get(args[1]);
+        switch (args[0])
+        {
+            case "record":
+                record(path, args.length > 2 ? Integer.parseInt(args[2]) : 1000,
+                       args.length > 3 ? Long.parseLong(args[3]) : 1L,
+                       args.length > 4 ? Long.parseLong(args[4]) : 10000L,
+                       args.length > 5 && args[5].equals("search"));
+                break;
+            case "verify":
+                verify(path);
+                break;
+            case "show":
+                show(path, args.length > 2 ? Integer.parseInt(args[2]) : 0);
+                break;
+            default:
+                System.out.println("Nieznane polecenie: " + args[0]);
+        }
+    }
+
+    private static void record(Path path, int games, long seed, long maxPieces, boolean search) throws IOException
+    {
+        GameEngine engine = new GameEngine(10, 22, search ? new BagPieceGenerator(0L) : new UniformPieceGenerator(0L));
+        long begin = System.nanoTime();
+        try (ReplayWriter writer = new ReplayWriter(path))
+        {
+            ReplayRecorder recorder = new ReplayRecorder(writer);
+            engine.setActionRecorder(recorder);
+            for (int game = 0; game < games; game++)
+            {
+                long gameSeed = BatchSimulator.gameSeed(seed, game);
+                Player player = search ? new SearchPlayer(10, 22, Heuristic.DEFAULT) : new RandomPlayer(~gameSeed);
+                engine.reset(gameSeed);
+                while (engine.isGameOver() == false && engine.getPiecesSpawned() <= maxPieces)
+                    engine.step(player.nextAction(engine));
+                recorder.finish(engine);
+            }
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            System.out.printf("Zapisane gry: %d, akcje: %d, czas: %.3f s%n", writer.getGames(), writer.getActions(), seconds);
+        }
+    }
+
+    private static void verify(Path path) throws IOException
+    {
+        ReplayPlayer player = new ReplayPlayer();
+        long begin = System.nanoTime();
+        try (ReplayReader reader = new ReplayReader(path))
+        {
+            while (reader.nextGame())
+                player.play(reader);
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            System.out.printf("Gry: %d, akcje: %d, niezgodne: %d, czas: %.3f s%n",
+                              player.getGames(), player.getActions(), player.getMismatches(), seconds);
+            System.out.printf("gry/s: %.1f, akcje/s: %.1f, bajty/akcję: %.2f%n", player.getGames() / seconds,
+                              player.getActions() / seconds, (double) reader.size() / Math.max(1L, player.getActions()));
+        }
+    }
+
+    private static void show(Path path, int game) throws IOException
+    {
+        ReplayReader reader = new ReplayReader(path);
+        for (int i = 0; i <= game; i++)
+        {
+            if (reader.nextGame() == false)
+            {
+                reader.close();
+                System.out.println("W pliku nie ma gry numer " + game);
+                return;
+            }
+        }
+        SwingUtilities.invokeLater(() -> {
+            JLabel statusBar = new JLabel(" Powtórka gry " + game);
+            statusBar.setForeground(Color.white);
+            statusBar.setFont(new Font("Verdana", Font.PLAIN, 20));
+            TetrisBoard board = new TetrisBoard(statusBar);
+            JFrame frame = new JFrame("Gra: Tetris - powtórka");
+            frame.setLayout(new BorderLayout());
+            frame.add(statusBar, BorderLayout.SOUTH);
+            frame.add(board, BorderLayout.CENTER);
+            frame.getContentPane().setBackground(new Color(25,25,112));
+            frame.setPreferredSize(new Dimension(400, 700));
+            frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+            frame.pack();
+            frame.setVisible(true);
+            board.playReplay(reader);
+        });
+    }
+}
@@ -0,0 +1,257 @@
+package tetris.replay;
+
+import tetris.engine.GameEngine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+* Klasa czytająca plik powtórek (format opisany w ReplayFormat) przez odwzorowanie pliku w pamięci.
+* Plik jest odwzorowywany oknami po co najwyżej WINDOW_SIZE bajtów, więc można czytać archiwa większe niż 2 GB.
+* Gry i akcje są czytane strumieniowo, bez tworzenia obiektów: nextGame przechodzi do kolejnej gry,
+* a nextAction zwraca kolejne akcje, dopóki nie skończą się akcje gry.
+* Ucięta końcówka pliku (np. po przerwaniu zapisu) jest traktowana jak koniec pliku.
+* Obiekt nie jest bezpieczny dla wielu wątków.
+*/
+public class ReplayReader implements Closeable
+{
+    /*największy rozmiar odwzorowanego okna pliku*/
+    public static final int WINDOW_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    private MappedByteBuffer window;
+    /*położenie początku okna w pliku*/
+    private long windowStart;
+
+    private boolean inActions = false;
+    private int width;
+    private int height;
+    private byte generatorCode;
+    private long seed;
+    private long frame;
+    private long finalPoints;
+    private long finalPieces;
+    private long games = 0;
+
+    /**
+    * Konstruktor otwierający plik powtórek.
+    * @param path ścieżka pliku
+    * @throws IOException gdy pliku nie da się otworzyć albo nie jest plikiem powtórek
+    */
+    public ReplayReader(Path path) throws IOException
+    {
+        this(path, WINDOW_SIZE);
+    }
+
+    ReplayReader(Path path, int windowSize) throws IOException
+    {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        size = channel.size();
+        this.windowSize = windowSize;
+        map(0L);
+        if (size < 5 || window.getInt() != ReplayFormat.MAGIC)
+        {
+            channel.close();
+            throw new IOException("To nie jest plik powtórek: " + path);
+        }
+        byte version = window.get();
+        if (version != ReplayFormat.VERSION)
+        {
+            channel.close();
+            throw new IOException("Nieobsługiwana wersja pliku powtórek: " + version);
+        }
+    }
+
+    /**
+    * Metoda przechodząca do kolejnej gry - nieprzeczytane akcje bieżącej gry są pomijane.
+    * @return false, jeśli w pliku nie ma już gier
+    * @throws IOException gdy odwzorowanie pliku się nie powiedzie
+    */
+    public boolean nextGame() throws IOException
+    {
+        while (inActions)
+            nextAction();
+        if (position() >= size) return false;
+        width = (int) readVarLong();
+        height = (int) readVarLong();
+        generatorCode = (byte) readByte();
+        seed = readLong();
+        /*pełna gra ma co najmniej znacznik końca akcji - nagłówek bez niego to ucięta końcówka pliku*/
+        if (position() >= size) return false;
+        frame = 0;
+        finalPoints = -1;
+        finalPieces = -1;
+        inActions = true;
+        games++;
+        return true;
+    }
+
+    /**
+    * Metoda czytająca kolejną akcję bieżącej gry.
+    * Po ostatniej akcji czytana jest stopka gry (getFinalPoints, getFinalPieces).
+    * @return numer akcji (indeks w GameEngine.Action.values()) albo -1, gdy akcje gry się skończyły
+    * @throws IOException gdy odwzorowanie pliku się nie powiedzie
+    */
+    public int nextAction() throws IOException
+    {
+        if (inActions == false) return -1;
+        long code = readVarLong();
+        if (code <= ReplayFormat.END_OF_ACTIONS)
+        {
+            inActions = false;
+            if (code == ReplayFormat.END_OF_ACTIONS)
+            {
+                long points = readVarLong();
+                finalPoints = points > ReplayFormat.UNKNOWN_RESULT ? points - 1 : -1;
+                finalPieces = readVarLong();
+            }
+            return -1;
+        }
+        code--;
+        frame += code >>> ReplayFormat.ACTION_BITS;
+        return (int) (code & ReplayFormat.ACTION_MASK);
+    }
+
+    /**
+    * @param code numer akcji zwrócony przez nextAction
+    * @return akcja silnika gry
+    */
+    public static GameEngine.Action action(int code)
+    {
+        return ReplayFormat.ACTIONS[code];
+    }
+
+    /**
+    * @return numer klatki ostatnio przeczytanej akcji (licząc od początku gry)
+    */
+    public long getFrame()
+    {
+        return frame;
+    }
+
+    /**
+    * @return szerokość planszy bieżącej gry
+    */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+    * @return wysokość planszy bieżącej gry
+    */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+    * @return rodzaj generatora klocków bieżącej gry (kody z ReplayFormat)
+    */
+    public byte getGeneratorCode()
+    {
+        return generatorCode;
+    }
+
+    /**
+    * @return ziarno generatora klocków bieżącej gry
+    */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+    * @return liczba punktów na końcu gry albo -1, jeśli gra nie ma wyniku (lub akcje nie zostały przeczytane)
+    */
+    public long getFinalPoints()
+    {
+        return finalPoints;
+    }
+
+    /**
+    * @return liczba klocków na końcu gry albo -1, jeśli akcje gry nie zostały przeczytane
+    */
+    public long getFinalPieces()
+    {
+        return finalPieces;
+    }
+
+    /**
+    * @return liczba gier przeczytanych do tej pory
+    */
+    public long getGames()
+    {
+        return games;
+    }
+
+    /**
+    * @return rozmiar pliku w bajtach
+    */
+    public long size()
+    {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        window = null;
+        channel.close();
+    }
+
+    private long position()
+    {
+        return windowStart + window.position();
+    }
+
+    private void map(long start) throws IOException
+    {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+    }
+
+    /*kolejny bajt pliku albo -1 na końcu pliku*/
+    private int readByte() throws IOException
+    {
+        if (window.hasRemaining() == false)
+        {
+            long next = windowStart + window.limit();
+            if (next >= size) return -1;
+            map(next);
+        }
+        return window.get() & 0xFF;
+    }
+
+    /*liczba varint; na końcu pliku -1 (ucięta gra kończy się jak gra bez wyniku)*/
+    private long readVarLong() throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            int b = readByte();
+            if (b < 0) return -1L;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Niepoprawna liczba w pliku powtórek");
+    }
+
+    private long readLong() throws IOException
+    {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++)
+        {
+            int b = readByte();
+            if (b < 0) return -1L;
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,106 @@
+package tetris.replay;
+
+import tetris.engine.ActionRecorder;
+import tetris.engine.GameEngine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.LongSupplier;
+
+/**
+* Klasa zapisująca do pliku powtórek przebieg gier silnika (ustawiana przez GameEngine.setActionRecorder).
+* Gra jest kończona w powtórce, gdy się zakończy albo gdy silnik zacznie nową grę -
+* wtedy stopka zawiera wynik z chwili przerwania gry.
+* Numer klatki akcji jest brany z zadanego zegara (np. licznika kroków pętli gry),
+* a bez zegara jest nim numer kolejnej akcji.
+*/
+public class ReplayRecorder implements ActionRecorder
+{
+    private final ReplayWriter writer;
+    private final LongSupplier frames;
+    private final boolean flushAfterGame;
+    private long steps = 0;
+
+    /**
+    * Konstruktor zapisujący numer kolejnej akcji jako numer klatki.
+    * @param writer plik powtórek
+    */
+    public ReplayRecorder(ReplayWriter writer)
+    {
+        this(writer, null, false);
+    }
+
+    /**
+    * Konstruktor.
+    * @param writer plik powtórek
+    * @param frames zegar klatek albo null - wtedy numerem klatki jest numer akcji
+    * @param flushAfterGame czy zapisywać bufor do pliku po każdej grze (np. przy grze z klawiatury)
+    */
+    public ReplayRecorder(ReplayWriter writer, LongSupplier frames, boolean flushAfterGame)
+    {
+        this.writer = writer;
+        this.frames = frames;
+        this.flushAfterGame = flushAfterGame;
+    }
+
+    @Override
+    public void gameStarted(GameEngine engine, long seed)
+    {
+        try
+        {
+            /*silnik nie jest jeszcze wyczyszczony - wynik przerwanej gry jest aktualny*/
+            if (writer.inGame())
+                finish(engine);
+            steps = 0;
+            writer.beginGame(engine.getBoardWidth(), engine.getBoardHeight(),
+                             ReplayFormat.generatorCode(engine.getPieceGenerator()), seed, frame());
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void actionApplied(GameEngine engine, GameEngine.Action action)
+    {
+        if (writer.inGame() == false) return;
+        try
+        {
+            steps++;
+            writer.action(frame(), action);
+            if (engine.isGameOver())
+                finish(engine);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+    * Metoda kończąca w powtórce trwającą grę silnika (np. przed zamknięciem pliku).
+    * @param engine silnik gry
+    * @throws IOException gdy zapis się nie powiedzie
+    */
+    public void finish(GameEngine engine) throws IOException
+    {
+        if (writer.inGame() == false) return;
+        writer.endGame(engine.getPoints(), engine.getPiecesSpawned());
+        if (flushAfterGame)
+            writer.flush();
+    }
+
+    /**
+    * @return plik powtórek
+    */
+    public ReplayWriter getWriter()
+    {
+        return writer;
+    }
+
+    private long frame()
+    {
+        return frames != null ? frames.getAsLong() : steps;
+    }
+}
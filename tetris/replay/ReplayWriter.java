@@ -0,0 +1,225 @@
+package tetris.replay;
+
+import tetris.engine.GameEngine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+* Klasa dopisująca gry do pliku powtórek (format opisany w ReplayFormat).
+* Dane są zbierane w buforze i zapisywane do kanału FileChannel całymi porcjami -
+* gdy bufor się zapełni, przy wywołaniu flush albo przy zamknięciu pliku.
+* Zapis akcji nie alokuje obiektów. Obiekt nie jest bezpieczny dla wielu wątków.
+*/
+public class ReplayWriter implements Closeable
+{
+    /*domyślny rozmiar bufora zapisu*/
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    /*najdłuższy zapis pojedynczej wartości - nagłówek gry*/
+    private static final int MAX_RECORD_BYTES = 32;
+    /*rozmiar nagłówka pliku: MAGIC i numer wersji*/
+    private static final int HEADER_BYTES = 5;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private boolean inGame = false;
+    private long lastFrame;
+    private long games = 0;
+    private long actions = 0;
+
+    /**
+    * Konstruktor otwierający plik powtórek do dopisywania (plik jest tworzony, jeśli nie istnieje).
+    * @param path ścieżka pliku
+    * @throws IOException gdy pliku nie da się otworzyć
+    */
+    public ReplayWriter(Path path) throws IOException
+    {
+        this(path, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+    * Konstruktor otwierający plik powtórek do dopisywania (plik jest tworzony, jeśli nie istnieje).
+    * Nagłówek nowego pliku jest zapisywany od razu, a nagłówek istniejącego pliku jest sprawdzany.
+    * @param path ścieżka pliku
+    * @param bufferSize rozmiar bufora zapisu w bajtach
+    * @throws IOException gdy pliku nie da się otworzyć albo nie jest plikiem powtórek
+    */
+    public ReplayWriter(Path path, int bufferSize) throws IOException
+    {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = ByteBuffer.allocateDirect(Math.max(MAX_RECORD_BYTES, bufferSize));
+        try
+        {
+            if (channel.size() == 0)
+            {
+                /*nagłówek trafia do pliku od razu - kolejny zapis do tego pliku go zobaczy i nie zapisze drugiego*/
+                buffer.putInt(ReplayFormat.MAGIC);
+                buffer.put(ReplayFormat.VERSION);
+                flush();
+            }
+            else
+            {
+                checkHeader(path);
+            }
+            channel.position(channel.size());
+        }
+        catch (IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /*sprawdzenie nagłówka istniejącego pliku, do którego będą dopisywane gry*/
+    private void checkHeader(Path path) throws IOException
+    {
+        buffer.limit(HEADER_BYTES);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0)
+        {
+        }
+        buffer.flip();
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != ReplayFormat.MAGIC)
+            throw new IOException("To nie jest plik powtórek: " + path);
+        byte version = buffer.get();
+        if (version != ReplayFormat.VERSION)
+            throw new IOException("Nieobsługiwana wersja pliku powtórek: " + version);
+        buffer.clear();
+    }
+
+    /**
+    * Metoda zaczynająca zapis nowej gry. Poprzednia gra musi być zakończona (endGame).
+    * @param width szerokość planszy
+    * @param height wysokość planszy
+    * @param generatorCode rodzaj generatora klocków (ReplayFormat.generatorCode)
+    * @param seed ziarno generatora klocków
+    * @param frame numer klatki początku gry
+    * @throws IOException gdy zapis się nie powiedzie
+    */
+    public void beginGame(int width, int height, byte generatorCode, long seed, long frame) throws IOException
+    {
+        if (inGame)
+            throw new IllegalStateException("Poprzednia gra nie została zakończona");
+        ensure(MAX_RECORD_BYTES);
+        putVarLong(width);
+        putVarLong(height);
+        buffer.put(generatorCode);
+        buffer.putLong(seed);
+        lastFrame = frame;
+        inGame = true;
+    }
+
+    /**
+    * Metoda zapisująca jedną akcję gry.
+    * @param frame numer klatki, w której wykonano akcję (nie mniejszy niż poprzedni)
+    * @param action akcja
+    * @throws IOException gdy zapis się nie powiedzie
+    */
+    public void action(long frame, GameEngine.Action action) throws IOException
+    {
+        if (inGame == false)
+            throw new IllegalStateException("Nie rozpoczęto zapisu gry");
+        ensure(10);
+        putVarLong(ReplayFormat.encodeAction(Math.max(0L, frame - lastFrame), action));
+        lastFrame = Math.max(lastFrame, frame);
+        actions++;
+    }
+
+    /**
+    * Metoda kończąca zapis gry - zapisuje znacznik końca akcji i stopkę z wynikiem gry.
+    * @param points liczba punktów na końcu gry
+    * @param pieces liczba klocków na końcu gry
+    * @throws IOException gdy zapis się nie powiedzie
+    */
+    public void endGame(int points, long pieces) throws IOException
+    {
+        if (inGame == false) return;
+        ensure(MAX_RECORD_BYTES);
+        buffer.put((byte) ReplayFormat.END_OF_ACTIONS);
+        putVarLong(points + 1L);
+        putVarLong(pieces);
+        inGame = false;
+        games++;
+    }
+
+    /**
+    * @return true, jeśli trwa zapis gry
+    */
+    public boolean inGame()
+    {
+        return inGame;
+    }
+
+    /**
+    * @return liczba zapisanych (zakończonych) gier
+    */
+    public long getGames()
+    {
+        return games;
+    }
+
+    /**
+    * @return liczba zapisanych akcji
+    */
+    public long getActions()
+    {
+        return actions;
+    }
+
+    /**
+    * Metoda zapisująca zawartość bufora do pliku.
+    * @throws IOException gdy zapis się nie powiedzie
+    */
+    public void flush() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+    * Metoda zamykająca plik. Trwająca gra jest kończona stopką bez wyniku,
+    * więc jej akcje można odtworzyć, ale nie sprawdzić.
+    * @throws IOException gdy zapis się nie powiedzie
+    */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            if (inGame)
+            {
+                ensure(MAX_RECORD_BYTES);
+                buffer.put((byte) ReplayFormat.END_OF_ACTIONS);
+                putVarLong(ReplayFormat.UNKNOWN_RESULT);
+                putVarLong(0L);
+                inGame = false;
+            }
+            flush();
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    private void ensure(int bytes) throws IOException
+    {
+        if (buffer.remaining() < bytes)
+            flush();
+    }
+
+    private void putVarLong(long value)
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
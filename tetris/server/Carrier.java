@@ -0,0 +1,199 @@
+package tetris.server;
+
+import tetris.engine.GameLoop;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+* Klasa wątku serwera obsługującego wiele sesji gry naraz.
+* Wątek ma własny selektor połączeń i własne koło czasowe, w którym zaplanowane są kroki gry wszystkich jego sesji.
+* W każdym obrocie pętli wątek wykonuje kroki, których termin minął, przyjmuje nowe połączenia
+* i obsługuje gniazda gotowe do odczytu lub zapisu; czeka w selektorze co najwyżej jeden krok koła (WHEEL_NANOS).
+* Pierwsze kroki kolejnych sesji są rozkładane na cały krok gry, aby wątek nie wykonywał wszystkich kroków naraz.
+*/
+class Carrier implements Runnable
+{
+    /*krok koła czasowego*/
+    static final long WHEEL_NANOS = 1_000_000L;
+    /*przy większym opóźnieniu zaległe kroki sesji nie są nadrabiane, tylko liczone jako pominięte*/
+    static final int MAX_CATCH_UP_TICKS = 5;
+
+    private final GameServer server;
+    private final Selector selector;
+    private final TimingWheel wheel;
+    private final long startNanos;
+    private final Queue<GameSession> pending = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    /*pomiary (zapisywane tylko przez wątek)*/
+    private volatile int sessions = 0;
+    private volatile long busyNanos = 0;
+
+    Carrier(GameServer server) throws IOException
+    {
+        this.server = server;
+        selector = Selector.open();
+        startNanos = System.nanoTime();
+        wheel = new TimingWheel(0L);
+    }
+
+    /**
+    * Metoda uruchamiająca wątek.
+    * @param name nazwa wątku
+    */
+    void start(String name)
+    {
+        Thread thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+    * Metoda zatrzymująca wątek i zamykająca wszystkie jego sesje.
+    */
+    void stop()
+    {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+    * Metoda przekazująca wątkowi nowe połączenie (wywoływana przez wątek przyjmujący połączenia).
+    * @param session sesja nowego połączenia
+    */
+    void add(GameSession session)
+    {
+        pending.add(session);
+        selector.wakeup();
+    }
+
+    /**
+    * @return liczba sesji wątku
+    */
+    int getSessions()
+    {
+        return sessions;
+    }
+
+    /**
+    * @return łączny czas pracy wątku (poza oczekiwaniem w selektorze), w nanosekundach
+    */
+    long getBusyNanos()
+    {
+        return busyNanos;
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            while (running)
+            {
+                long begin = System.nanoTime();
+                wheel.advance(wheelTick(begin));
+                for (GameSession session = pending.poll(); session != null; session = pending.poll())
+                    register(session, begin);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext())
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    GameSession session = (GameSession) key.attachment();
+                    if (key.isValid() && key.isReadable())
+                        session.read();
+                    if (key.isValid() && key.isWritable())
+                        session.flush();
+                }
+                busyNanos += System.nanoTime() - begin;
+                selector.select(Math.max(1L, WHEEL_NANOS / 1_000_000L));
+            }
+        }
+        catch (IOException e)
+        {
+            System.err.println("Błąd wątku serwera: " + e.getMessage());
+        }
+        finally
+        {
+            for (SelectionKey key : new ArrayList<>(selector.keys()))
+                ((GameSession) key.attachment()).close();
+            for (GameSession session = pending.poll(); session != null; session = pending.poll())
+                session.close();
+            try
+            {
+                selector.close();
+            }
+            catch (IOException e)
+            {
+                /*wątek i tak się kończy*/
+            }
+        }
+    }
+
+    private void register(GameSession session, long now)
+    {
+        try
+        {
+            SocketChannel channel = session.channel();
+            channel.configureBlocking(false);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            /*rozłożenie pierwszych kroków sesji na cały krok gry*/
+            long phase = (session.getId() * WHEEL_NANOS) % GameLoop.TICK_NANOS;
+            session.start(key, now + phase);
+            sessions++;
+        }
+        catch (ClosedChannelException e)
+        {
+            /*klient rozłączył się, zanim sesja się rozpoczęła*/
+        }
+        catch (IOException e)
+        {
+            session.close();
+        }
+    }
+
+    void schedule(GameSession session, long nanos)
+    {
+        wheel.schedule(session, wheelTick(nanos + WHEEL_NANOS - 1));
+    }
+
+    void cancel(GameSession session)
+    {
+        wheel.cancel(session);
+    }
+
+    void sessionClosed(GameSession session)
+    {
+        if (session.isStarted())
+            sessions--;
+        server.sessionClosed();
+    }
+
+    void tickDone(long nanos)
+    {
+        server.tickDone(nanos);
+    }
+
+    void ticksMissed(long ticks)
+    {
+        server.ticksMissed(ticks);
+    }
+
+    void frameDropped()
+    {
+        server.frameDropped();
+    }
+
+    private long wheelTick(long nanos)
+    {
+        return (nanos - startNanos) / WHEEL_NANOS;
+    }
+}
@@ -0,0 +1,321 @@
+package tetris.server;
+
+import tetris.engine.GameEngine;
+import tetris.engine.GameEvent;
+import tetris.engine.GameEventHandler;
+import tetris.engine.GameEventRing;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+* Klasa kodująca stan gry dla widzów jako klatkę kluczową, po której następują różnice względem poprzedniej ramki.
+* Ramka (liczby w kolejności big-endian) to długość ramki bez pola długości (2 bajty), rodzaj ramki (1 bajt) i znaczniki (1 bajt).
+* Klatka kluczowa (KEYFRAME) zawiera całą grę: szerokość i wysokość planszy (po 2 bajty), punkty (4 bajty),
+* klocek (kształt i orientacja po 1 bajcie, x i y po 2 bajty) i wszystkie wiersze planszy.
+* Ramka różnic (DELTA) zawiera tylko części wskazane znacznikami, w kolejności:
+*   PIECE - klocek (6 bajtów jak wyżej), POINTS - punkty (4 bajty),
+*   CLEARS - usunięcia linii: liczba (1 bajt) i dla każdego najniższy wiersz (2 bajty) i maska usuniętych wierszy (1 bajt),
+*   ROWS - zmienione wiersze: liczba (2 bajty) i dla każdego numer wiersza (2 bajty) i jego pola.
+* Usunięcia linii są stosowane do poprzedniego stanu przed zmienionymi wierszami, więc po usunięciu linii
+* przesunięte wiersze nie są wysyłane ponownie. Pola wiersza to numery kształtów na 4 bitach, dwa pola na bajt,
+* jak w ServerProtocol; spadający klocek nie jest częścią wierszy.
+* Koder czyta zdarzenia gry (GameEventRing) i porównuje z poprzednim stanem tylko wiersze, które mogły się zmienić:
+* w krokach, w których klocek tylko się przesunął, wiersze planszy nie są w ogóle odczytywane.
+* Koder musi być używany w wątku, który zmienia silnik gry (albo pod blokadą silnika).
+*/
+public class DeltaEncoder implements GameEventHandler
+{
+    /*rodzaje ramek*/
+    public static final byte KEYFRAME = 1;
+    public static final byte DELTA = 2;
+
+    /*znaczniki ramki*/
+    public static final int PIECE = 1;
+    public static final int POINTS = 2;
+    public static final int GAME_OVER = 4;
+    public static final int CLEARS = 8;
+    public static final int ROWS = 16;
+
+    /*co ile kroków wysyłana jest klatka kluczowa - od niej zaczynają nowi widzowie*/
+    public static final int KEYFRAME_TICKS = 120;
+    /*rozmiar nagłówka ramki: długość, rodzaj i znaczniki*/
+    static final int HEADER_BYTES = ServerProtocol.LENGTH_BYTES + 2;
+    private static final int PIECE_BYTES = 6;
+    private static final int MAX_CLEARS = 16;
+
+    private final GameEngine engine;
+    private final GameEventRing.Subscription events;
+    private final int width;
+    private final int height;
+    private final int rowBytes;
+    /*stan wysłany w poprzedniej ramce*/
+    private final byte[] rows;
+    private final byte[] row;
+    private int shape;
+    private int rotation;
+    private int pieceX;
+    private int pieceY;
+    private int points;
+    private boolean gameOver;
+
+    /*zmiany planszy od poprzedniej ramki, według zdarzeń gry*/
+    private boolean keyframeNeeded = true;
+    private int ticksSinceKeyframe = 0;
+    private int dirtyFrom;
+    private final int[] clearBase = new int[MAX_CLEARS];
+    private final int[] clearMask = new int[MAX_CLEARS];
+    private int clears = 0;
+    private long lost = 0;
+
+    /**
+    * Konstruktor kodera.
+    * @param engine silnik gry
+    * @param events odbiorca strumienia zdarzeń tego silnika (GameEngine.setEventRing)
+    * @throws IllegalArgumentException gdy plansza jest za duża, żeby jej klatka kluczowa zmieściła się w ramce
+    */
+    public DeltaEncoder(GameEngine engine, GameEventRing.Subscription events)
+    {
+        width = engine.getBoardWidth();
+        height = engine.getBoardHeight();
+        /*długość ramki to 2 bajty bez znaku, a numery wierszy są zapisywane jako 2 bajty ze znakiem*/
+        if (maxFrameSize(width, height) - ServerProtocol.LENGTH_BYTES > ServerProtocol.MAX_FRAME_BYTES || height > Short.MAX_VALUE)
+            throw new IllegalArgumentException("Plansza jest za duża dla ramki widza: " + width + "x" + height);
+        this.engine = engine;
+        this.events = events;
+        rowBytes = rowBytes(width);
+        rows = new byte[height * rowBytes];
+        row = new byte[rowBytes];
+        dirtyFrom = height;
+    }
+
+    /**
+    * @param width szerokość planszy
+    * @param height wysokość planszy
+    * @return największy rozmiar ramki w bajtach, razem z polem długości
+    */
+    public static int maxFrameSize(int width, int height)
+    {
+        return HEADER_BYTES + PIECE_BYTES + 4 + 1 + MAX_CLEARS * 3 + 2 + height * (2 + rowBytes(width)) + 4;
+    }
+
+    static int rowBytes(int width)
+    {
+        return (width + 1) / 2;
+    }
+
+    /**
+    * Metoda sprawiająca, że następna ramka będzie klatką kluczową.
+    */
+    public void requestKeyframe()
+    {
+        keyframeNeeded = true;
+    }
+
+    /**
+    * Metoda kodująca jedną ramkę: klatkę kluczową (co KEYFRAME_TICKS wywołań, po nowej grze albo na żądanie)
+    * albo różnice względem poprzedniej ramki. Gdy od poprzedniej ramki nic się nie zmieniło, nic nie jest zapisywane.
+    * @param out bufor docelowy (co najmniej maxFrameSize wolnych bajtów)
+    * @return true, jeśli ramka została zapisana
+    */
+    public boolean encode(ByteBuffer out)
+    {
+        events.poll(this);
+        if (events.getLost() != lost)
+        {
+            /*część zdarzeń przepadła - nie wiadomo, które wiersze się zmieniły*/
+            lost = events.getLost();
+            keyframeNeeded = true;
+        }
+        if (keyframeNeeded || ++ticksSinceKeyframe >= KEYFRAME_TICKS)
+        {
+            writeKeyframe(out);
+            return true;
+        }
+        return writeDelta(out);
+    }
+
+    /**
+    * Metoda odbiorcy zdarzeń gry - zapamiętuje, które wiersze planszy mogły się zmienić.
+    * @param event zdarzenie gry
+    */
+    @Override
+    public void onEvent(GameEvent event)
+    {
+        switch (event.getType())
+        {
+            case GAME_STARTED:
+            case GARBAGE_RECEIVED:
+                keyframeNeeded = true;
+                break;
+            case LOCKED:
+                dirtyFrom = Math.min(dirtyFrom, Math.max(0, event.getMinY()));
+                break;
+            case LINES_CLEARED:
+                if (clears == MAX_CLEARS)
+                {
+                    keyframeNeeded = true;
+                    break;
+                }
+                clearBase[clears] = event.getMinY();
+                clearMask[clears] = event.getClearedRows();
+                clears++;
+                dirtyFrom = Math.min(dirtyFrom, Math.max(0, event.getMinY()));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void writeKeyframe(ByteBuffer out)
+    {
+        int start = out.position();
+        out.putShort((short) 0);
+        out.put(KEYFRAME);
+        gameOver = engine.isGameOver();
+        out.put((byte) (gameOver ? GAME_OVER : 0));
+        out.putShort((short) width);
+        out.putShort((short) height);
+        points = engine.getPoints();
+        out.putInt(points);
+        rememberPiece();
+        writePiece(out);
+        for (int y = 0; y < height; y++)
+        {
+            encodeRow(y, rows, y * rowBytes);
+            out.put(rows, y * rowBytes, rowBytes);
+        }
+        out.putShort(start, (short) (out.position() - start - ServerProtocol.LENGTH_BYTES));
+        keyframeNeeded = false;
+        ticksSinceKeyframe = 0;
+        clears = 0;
+        dirtyFrom = height;
+    }
+
+    private boolean writeDelta(ByteBuffer out)
+    {
+        int start = out.position();
+        out.putShort((short) 0);
+        out.put(DELTA);
+        int flags = 0;
+        out.put((byte) 0);
+        if (engine.getPieceShape().ordinal() != shape || engine.getPieceRotation() != rotation
+            || engine.getPieceX() != pieceX || engine.getPieceY() != pieceY)
+        {
+            rememberPiece();
+            writePiece(out);
+            flags |= PIECE;
+        }
+        if (engine.getPoints() != points)
+        {
+            points = engine.getPoints();
+            out.putInt(points);
+            flags |= POINTS;
+        }
+        gameOver = engine.isGameOver();
+        if (gameOver)
+            flags |= GAME_OVER;
+        if (clears > 0)
+        {
+            out.put((byte) clears);
+            for (int i = 0; i < clears; i++)
+            {
+                out.putShort((short) clearBase[i]);
+                out.put((byte) clearMask[i]);
+                removeRows(rows, rowBytes, height, clearBase[i], clearMask[i]);
+            }
+            flags |= CLEARS;
+            clears = 0;
+        }
+        if (dirtyFrom < height)
+        {
+            int countPosition = out.position();
+            out.putShort((short) 0);
+            int count = 0;
+            for (int y = dirtyFrom; y < height; y++)
+            {
+                encodeRow(y, row, 0);
+                int offset = y * rowBytes;
+                if (Arrays.equals(row, 0, rowBytes, rows, offset, offset + rowBytes)) continue;
+                System.arraycopy(row, 0, rows, offset, rowBytes);
+                out.putShort((short) y);
+                out.put(row, 0, rowBytes);
+                count++;
+            }
+            dirtyFrom = height;
+            if (count > 0)
+            {
+                out.putShort(countPosition, (short) count);
+                flags |= ROWS;
+            }
+            else
+            {
+                out.position(countPosition);
+            }
+        }
+        /*sam znacznik końca gry bez innych zmian nie wymaga nowej ramki*/
+        if ((flags & ~GAME_OVER) == 0)
+        {
+            out.position(start);
+            return false;
+        }
+        out.put(start + ServerProtocol.LENGTH_BYTES + 1, (byte) flags);
+        out.putShort(start, (short) (out.position() - start - ServerProtocol.LENGTH_BYTES));
+        return true;
+    }
+
+    private void rememberPiece()
+    {
+        shape = engine.getPieceShape().ordinal();
+        rotation = engine.getPieceRotation();
+        pieceX = engine.getPieceX();
+        pieceY = engine.getPieceY();
+    }
+
+    private void writePiece(ByteBuffer out)
+    {
+        out.put((byte) shape);
+        out.put((byte) rotation);
+        out.putShort((short) pieceX);
+        out.putShort((short) pieceY);
+    }
+
+    /*pola wiersza planszy: numery kształtów na 4 bitach, dwa pola na bajt*/
+    private void encodeRow(int y, byte[] target, int offset)
+    {
+        if (engine.row(y) == 0L)
+        {
+            Arrays.fill(target, offset, offset + rowBytes, (byte) 0);
+            return;
+        }
+        for (int x = 0; x < width; x += 2)
+        {
+            int low = engine.shapeAt(x, y).ordinal();
+            int high = x + 1 < width ? engine.shapeAt(x + 1, y).ordinal() : 0;
+            target[offset + x / 2] = (byte) (low | (high << 4));
+        }
+    }
+
+    /**
+    * Metoda usuwająca wiersze z zakodowanej planszy - wiersze powyżej usuniętych przesuwają się w dół,
+    * a na górze pojawiają się puste wiersze (tak jak Board.removeFullLines).
+    * @param rows wiersze planszy
+    * @param rowBytes liczba bajtów wiersza
+    * @param height wysokość planszy
+    * @param base najniższy usuwany wiersz
+    * @param mask maska usuwanych wierszy (bit i - wiersz base + i)
+    */
+    static void removeRows(byte[] rows, int rowBytes, int height, int base, int mask)
+    {
+        int write = base;
+        for (int read = base; read < height; read++)
+        {
+            int bit = read - base;
+            if (bit < Integer.SIZE && (mask & (1 << bit)) != 0) continue;
+            if (write != read)
+                System.arraycopy(rows, read * rowBytes, rows, write * rowBytes, rowBytes);
+            write++;
+        }
+        Arrays.fill(rows, write * rowBytes, height * rowBytes, (byte) 0);
+    }
+}
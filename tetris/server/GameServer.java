@@ -0,0 +1,222 @@
+/**
+* Pakiet implementujący serwer gier tetris dla wielu zdalnych graczy w jednej maszynie wirtualnej.
+*/
+package tetris.server;
+
+import tetris.metrics.LatencyHistogram;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+* Klasa serwera gier: przyjmuje połączenia TCP (protokół w ServerProtocol) i dla każdego tworzy sesję gry.
+* Sesje są rozdzielane po kolei między kilka wątków serwera (Carrier) - każdy z nich wykonuje kroki gry
+* tysięcy sesji według własnego koła czasowego, zamiast osobnego wątku lub zegara Swing na każdą grę.
+* Zbierane są pomiary: czas kroku jednej sesji (z wysłaniem ramki), czas pracy wątków,
+* pominięte kroki i ramki niewysłane z powodu wolnych klientów.
+*/
+public class GameServer implements Closeable
+{
+    private final int boardWidth;
+    private final int boardHeight;
+    private final long seed;
+    private final Carrier[] carriers;
+    private final ServerSocketChannel serverChannel;
+    private final AtomicLong nextId = new AtomicLong();
+    private volatile boolean running = true;
+
+    private final LatencyHistogram sessionTicks = new LatencyHistogram();
+    private final LongAdder missedTicks = new LongAdder();
+    private final LongAdder droppedFrames = new LongAdder();
+    private final LongAdder closedSessions = new LongAdder();
+
+    /**
+    * Konstruktor serwera - otwiera gniazdo nasłuchujące i uruchamia wątki serwera.
+    * @param address adres nasłuchiwania (port 0 - dowolny wolny port)
+    * @param carrierCount liczba wątków serwera
+    * @param boardWidth szerokość planszy gier
+    * @param boardHeight wysokość planszy gier
+    * @param seed ziarno, z którego wyznaczane są ziarna gier kolejnych sesji
+    * @throws IOException gdy gniazda nie da się otworzyć
+    */
+    public GameServer(InetSocketAddress address, int carrierCount, int boardWidth, int boardHeight, long seed) throws IOException
+    {
+        ServerProtocol.frameSize(boardWidth, boardHeight);
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.seed = seed;
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        carriers = new Carrier[carrierCount];
+        for (int i = 0; i < carrierCount; i++)
+        {
+            carriers[i] = new Carrier(this);
+            carriers[i].start("tetris-server-" + i);
+        }
+        Thread acceptor = new Thread(this::accept, "tetris-server-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void accept()
+    {
+        while (running)
+        {
+            try
+            {
+                SocketChannel channel = serverChannel.accept();
+                channel.socket().setTcpNoDelay(true);
+                long id = nextId.getAndIncrement();
+                Carrier carrier = carriers[(int) (id % carriers.length)];
+                carrier.add(new GameSession(carrier, id, channel, boardWidth, boardHeight, seed ^ id));
+            }
+            catch (IOException e)
+            {
+                if (running)
+                    System.err.println("Błąd przyjmowania połączenia: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+    * @return port, na którym serwer przyjmuje połączenia
+    * @throws IOException gdy gniazdo jest zamknięte
+    */
+    public int getPort() throws IOException
+    {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+    * @return liczba wątków serwera
+    */
+    public int getCarrierCount()
+    {
+        return carriers.length;
+    }
+
+    /**
+    * @return liczba trwających sesji
+    */
+    public int getSessions()
+    {
+        int sessions = 0;
+        for (Carrier carrier : carriers)
+            sessions += carrier.getSessions();
+        return sessions;
+    }
+
+    /**
+    * @return liczba zakończonych sesji
+    */
+    public long getClosedSessions()
+    {
+        return closedSessions.sum();
+    }
+
+    /**
+    * @return histogram czasów kroku jednej sesji (krok gry, zapis i wysłanie ramki stanu)
+    */
+    public LatencyHistogram getSessionTicks()
+    {
+        return sessionTicks;
+    }
+
+    /**
+    * @return łączny czas pracy wątków serwera (poza oczekiwaniem na połączenia i terminy), w nanosekundach
+    */
+    public long getBusyNanos()
+    {
+        long busy = 0;
+        for (Carrier carrier : carriers)
+            busy += carrier.getBusyNanos();
+        return busy;
+    }
+
+    /**
+    * @return liczba kroków sesji pominiętych, bo wątek serwera spóźnił się o więcej niż kilka kroków
+    */
+    public long getMissedTicks()
+    {
+        return missedTicks.sum();
+    }
+
+    /**
+    * @return liczba ramek stanu niewysłanych, bo klient nie odbierał danych
+    */
+    public long getDroppedFrames()
+    {
+        return droppedFrames.sum();
+    }
+
+    void tickDone(long nanos)
+    {
+        sessionTicks.record(nanos);
+    }
+
+    void ticksMissed(long ticks)
+    {
+        missedTicks.add(ticks);
+    }
+
+    void frameDropped()
+    {
+        droppedFrames.increment();
+    }
+
+    void sessionClosed()
+    {
+        closedSessions.increment();
+    }
+
+    /**
+    * Metoda zatrzymująca serwer - zamyka gniazdo nasłuchujące i wszystkie sesje.
+    * @throws IOException gdy zamknięcie gniazda się nie powiedzie
+    */
+    @Override
+    public void close() throws IOException
+    {
+        running = false;
+        serverChannel.close();
+        for (Carrier carrier : carriers)
+            carrier.stop();
+    }
+
+    /**
+    * Uruchomienie z linii poleceń:
+    * java tetris.server.GameServer [port] [liczba wątków] [szerokość] [wysokość]
+    * co 5 sekund wypisywane są pomiary serwera.
+    * @param args parametry
+    * @throws IOException gdy gniazda nie da się otworzyć
+    * @throws InterruptedException gdy wątek główny zostanie przerwany
+    */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7000;
+        int carrierCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int width = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int height = args.length > 3 ? Integer.parseInt(args[3]) : 22;
+        try (GameServer server = new GameServer(new InetSocketAddress(port), carrierCount, width, height, System.nanoTime()))
+        {
+            System.out.println("Serwer gier na porcie " + server.getPort() + ", wątki: " + carrierCount);
+            long lastBusy = 0;
+            long lastTime = System.nanoTime();
+            while (true)
+            {
+                Thread.sleep(5000);
+                long busy = server.getBusyNanos();
+                long time = System.nanoTime();
+                System.out.printf("sesje: %d, obciążenie wątków: %.1f%%, krok sesji: %s, pominięte kroki: %d, pominięte ramki: %d%n",
+                                  server.getSessions(), 100.0 * (busy - lastBusy) / ((time - lastTime) * (double) carrierCount),
+                                  server.getSessionTicks(), server.getMissedTicks(), server.getDroppedFrames());
+                lastBusy = busy;
+                lastTime = time;
+            }
+        }
+    }
+}
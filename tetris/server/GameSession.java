@@ -0,0 +1,232 @@
+package tetris.server;
+
+import tetris.engine.GameEngine;
+import tetris.engine.GameLoop;
+import tetris.model.BagPieceGenerator;
+import tetris.simulation.BatchSimulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+* Klasa sesji gry jednego zdalnego gracza: silnik gry z krokiem logicznym (GameLoop.tick, bez własnego wątku)
+* i połączenie TCP z klientem.
+* Sesja należy do jednego wątku serwera (Carrier) i tylko on ją zmienia, dlatego nie ma tu żadnej synchronizacji
+* poza blokadą silnika zakładaną przez GameLoop.tick, która nie jest nigdy przez nikogo innego zajmowana.
+* Kolejne kroki gry są planowane w kole czasowym wątku co GameLoop.TICK_NANOS.
+* Wolny klient nie zatrzymuje wątku: zapis do gniazda jest nieblokujący, a ramka, która nie mieści się
+* w buforze wyjściowym, jest pomijana - klient dostanie aktualny stan w jednej z kolejnych ramek.
+*/
+class GameSession extends TimingWheel.Timeout
+{
+    /*liczba ramek stanu mieszczących się w buforze wyjściowym*/
+    private static final int OUTPUT_FRAMES = 4;
+    private static final int INPUT_BYTES = 64;
+
+    private final Carrier carrier;
+    private final long id;
+    private final SocketChannel channel;
+    private final GameEngine engine;
+    private final GameLoop loop;
+    private final int frameSize;
+    private final ByteBuffer input = ByteBuffer.allocate(INPUT_BYTES);
+    private final ByteBuffer output;
+    private SelectionKey key;
+    private long seed;
+    private int games = 0;
+    /*termin kolejnego kroku gry (System.nanoTime)*/
+    private long nextTickNanos;
+
+    /*stan gry wysłany w ostatniej ramce*/
+    private boolean sent = false;
+    private long sentHash;
+    private int sentPoints;
+    private boolean sentGameOver;
+
+    GameSession(Carrier carrier, long id, SocketChannel channel, int width, int height, long seed)
+    {
+        this.carrier = carrier;
+        this.id = id;
+        this.channel = channel;
+        this.seed = seed;
+        engine = new GameEngine(width, height, new BagPieceGenerator(0L));
+        loop = new GameLoop(engine);
+        frameSize = ServerProtocol.frameSize(width, height);
+        output = ByteBuffer.allocate(frameSize * OUTPUT_FRAMES);
+    }
+
+    /**
+    * Metoda rozpoczynająca sesję: rejestruje połączenie w selektorze wątku i planuje pierwszy krok gry.
+    * @param key klucz połączenia w selektorze wątku
+    * @param firstTickNanos termin pierwszego kroku gry
+    */
+    void start(SelectionKey key, long firstTickNanos)
+    {
+        this.key = key;
+        key.attach(this);
+        newGame();
+        nextTickNanos = firstTickNanos;
+        carrier.schedule(this, nextTickNanos);
+    }
+
+    /**
+    * @return numer sesji
+    */
+    long getId()
+    {
+        return id;
+    }
+
+    /**
+    * @return połączenie z klientem
+    */
+    SocketChannel channel()
+    {
+        return channel;
+    }
+
+    /**
+    * @return true, jeśli sesja została rozpoczęta w wątku serwera
+    */
+    boolean isStarted()
+    {
+        return key != null;
+    }
+
+    private void newGame()
+    {
+        loop.reset(BatchSimulator.gameSeed(seed, games++));
+    }
+
+    /**
+    * Metoda koła czasowego - termin kroku gry: wykonuje krok, wysyła ramkę stanu, jeśli stan się zmienił,
+    * i planuje kolejny krok. Gdy wątek spóźnia się o więcej niż kilka kroków, zaległe kroki są pomijane.
+    * @param tick bieżący krok koła
+    */
+    @Override
+    void expired(long tick)
+    {
+        long start = System.nanoTime();
+        loop.tick();
+        if (stateChanged())
+        {
+            if (output.remaining() >= frameSize)
+            {
+                ServerProtocol.writeFrame(engine, output);
+                remember();
+            }
+            else
+            {
+                carrier.frameDropped();
+            }
+        }
+        flush();
+        long end = System.nanoTime();
+        carrier.tickDone(end - start);
+        nextTickNanos += GameLoop.TICK_NANOS;
+        if (end - nextTickNanos > Carrier.MAX_CATCH_UP_TICKS * GameLoop.TICK_NANOS)
+        {
+            long skipped = (end - nextTickNanos) / GameLoop.TICK_NANOS;
+            carrier.ticksMissed(skipped);
+            nextTickNanos += skipped * GameLoop.TICK_NANOS;
+        }
+        if (channel.isOpen())
+            carrier.schedule(this, nextTickNanos);
+    }
+
+    /**
+    * Metoda obsługująca dane od klienta: akcje gracza są wykonywane od razu, a ich skutek
+    * trafia do klienta w ramce najbliższego kroku gry.
+    */
+    void read()
+    {
+        try
+        {
+            input.clear();
+            if (channel.read(input) < 0)
+            {
+                close();
+                return;
+            }
+            for (int i = 0; i < input.position(); i++)
+            {
+                byte code = input.get(i);
+                if (code == ServerProtocol.NEW_GAME)
+                {
+                    if (engine.isGameOver())
+                        newGame();
+                    continue;
+                }
+                GameEngine.Action action = ServerProtocol.action(code);
+                if (action != null)
+                {
+                    synchronized (engine)
+                    {
+                        engine.step(action);
+                    }
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            close();
+        }
+    }
+
+    /**
+    * Metoda wysyłająca do klienta zawartość bufora wyjściowego - tyle, ile gniazdo przyjmie bez czekania.
+    * Jeśli coś zostało w buforze, wątek zostanie powiadomiony, gdy gniazdo będzie gotowe do zapisu.
+    */
+    void flush()
+    {
+        if (output.position() == 0 || key == null || key.isValid() == false) return;
+        try
+        {
+            output.flip();
+            channel.write(output);
+            output.compact();
+            key.interestOps(output.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+        catch (IOException e)
+        {
+            close();
+        }
+    }
+
+    /**
+    * Metoda kończąca sesję - zamyka połączenie i usuwa sesję z koła czasowego.
+    */
+    void close()
+    {
+        if (channel.isOpen() == false) return;
+        carrier.cancel(this);
+        if (key != null)
+            key.cancel();
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            /*połączenie i tak jest już zamykane*/
+        }
+        carrier.sessionClosed(this);
+    }
+
+    /*czy stan gry różni się od wysłanego - porównywany jest hasz Zobrista planszy i klocka, punkty i koniec gry*/
+    private boolean stateChanged()
+    {
+        return sent == false || engine.getStateHash() != sentHash || engine.getPoints() != sentPoints
+               || engine.isGameOver() != sentGameOver;
+    }
+
+    private void remember()
+    {
+        sent = true;
+        sentHash = engine.getStateHash();
+        sentPoints = engine.getPoints();
+        sentGameOver = engine.isGameOver();
+    }
+}
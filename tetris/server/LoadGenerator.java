@@ -0,0 +1,196 @@
+package tetris.server;
+
+import tetris.engine.GameEngine;
+import tetris.engine.GameLoop;
+import tetris.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+/**
+* Klasa generatora obciążenia serwera gier: uruchamia serwer w tym samym procesie i łączy z nim
+* podaną liczbę klientów przez interfejs pętli zwrotnej. Wszyscy klienci działają w jednym wątku
+* (nieblokujące gniazda i selektor) i wysyłają losowe akcje gracza w zadanym tempie,
+* a po końcu gry rozpoczynają nową.
+* Na końcu wypisywane są: pamięć na sesję, czas kroku jednej sesji, obciążenie wątków serwera
+* i wynikająca z niego szacunkowa liczba sesji, które obsłuży jeden rdzeń.
+*/
+public class LoadGenerator
+{
+    private static final int INPUT_BYTES = 1024;
+
+    /**
+    * Klasa jednego symulowanego klienta.
+    */
+    private static final class Client
+    {
+        final SocketChannel channel;
+        final ByteBuffer input = ByteBuffer.allocate(INPUT_BYTES);
+        final ByteBuffer output = ByteBuffer.allocate(1);
+        long nextActionNanos;
+        boolean gameOver = false;
+
+        Client(SocketChannel channel)
+        {
+            this.channel = channel;
+        }
+    }
+
+    private final Selector selector;
+    private final Client[] clients;
+    private final SplittableRandom random = new SplittableRandom(1L);
+    private final long actionNanos;
+    private long frames = 0;
+    private long bytes = 0;
+    private long actions = 0;
+
+    private LoadGenerator(int port, int clientCount, double actionsPerSecond) throws IOException
+    {
+        selector = Selector.open();
+        clients = new Client[clientCount];
+        actionNanos = (long) (1e9 / actionsPerSecond);
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        long now = System.nanoTime();
+        for (int i = 0; i < clientCount; i++)
+        {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.socket().setTcpNoDelay(true);
+            channel.configureBlocking(false);
+            clients[i] = new Client(channel);
+            clients[i].nextActionNanos = now + random.nextLong(actionNanos);
+            channel.register(selector, SelectionKey.OP_READ, clients[i]);
+        }
+    }
+
+    /*obsługa klientów przez podany czas: odbieranie ramek stanu i wysyłanie akcji*/
+    private void run(long nanos) throws IOException
+    {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end)
+        {
+            selector.select(1);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext())
+            {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (key.isValid() && key.isReadable())
+                    read((Client) key.attachment());
+            }
+            long now = System.nanoTime();
+            for (Client client : clients)
+            {
+                if (now < client.nextActionNanos) continue;
+                client.nextActionNanos += actionNanos;
+                byte code = client.gameOver ? ServerProtocol.NEW_GAME
+                        : (byte) (GameEngine.Action.LEFT.ordinal()
+                                  + random.nextInt(GameEngine.Action.HARD_DROP.ordinal() - GameEngine.Action.LEFT.ordinal() + 1));
+                client.output.clear();
+                client.output.put(code).flip();
+                client.channel.write(client.output);
+                actions++;
+            }
+        }
+    }
+
+    private void read(Client client) throws IOException
+    {
+        ByteBuffer input = client.input;
+        int read = client.channel.read(input);
+        if (read < 0)
+        {
+            client.channel.close();
+            return;
+        }
+        bytes += read;
+        int position = 0;
+        int limit = input.position();
+        while (limit - position >= ServerProtocol.LENGTH_BYTES)
+        {
+            int length = input.getShort(position) & 0xFFFF;
+            if (limit - position < ServerProtocol.LENGTH_BYTES + length) break;
+            client.gameOver = (ServerProtocol.flags(input, position) & ServerProtocol.GAME_OVER) != 0;
+            frames++;
+            position += ServerProtocol.LENGTH_BYTES + length;
+        }
+        input.limit(limit).position(position);
+        input.compact();
+    }
+
+    private void close() throws IOException
+    {
+        for (Client client : clients)
+            client.channel.close();
+        selector.close();
+    }
+
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+    * Uruchomienie z linii poleceń:
+    * java tetris.server.LoadGenerator [klienci] [sekundy] [wątki serwera] [akcje na sekundę na klienta]
+    * @param args parametry
+    * @throws IOException gdy połączenie się nie powiedzie
+    * @throws InterruptedException gdy wątek główny zostanie przerwany
+    */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int carrierCount = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        double actionsPerSecond = args.length > 3 ? Double.parseDouble(args[3]) : 4.0;
+
+        long heapBefore = usedHeap();
+        try (GameServer server = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                                                carrierCount, 10, 22, 1L))
+        {
+            LoadGenerator generator = new LoadGenerator(server.getPort(), clientCount, actionsPerSecond);
+            while (server.getSessions() < clientCount)
+                Thread.sleep(10);
+            /*pamięć obejmuje sesje serwera i klientów, bo działają w tym samym procesie*/
+            long heapAfter = usedHeap();
+            System.out.printf("Sesje: %d, wątki serwera: %d, pamięć na sesję (serwer i klient): %d B%n",
+                              clientCount, carrierCount, (heapAfter - heapBefore) / clientCount);
+
+            /*rozgrzewka, po której pomiary są zerowane*/
+            generator.run(Math.min(5L, seconds) * 1_000_000_000L);
+            server.getSessionTicks().reset();
+            long missedBefore = server.getMissedTicks();
+            long busyBefore = server.getBusyNanos();
+            long framesBefore = generator.frames;
+            long bytesBefore = generator.bytes;
+            long actionsBefore = generator.actions;
+            long begin = System.nanoTime();
+            generator.run(seconds * 1_000_000_000L);
+            double elapsed = (System.nanoTime() - begin) / 1e9;
+            double busySeconds = (server.getBusyNanos() - busyBefore) / 1e9;
+
+            LatencyHistogram ticks = server.getSessionTicks();
+            double expectedTicks = clientCount * elapsed * GameLoop.TICKS_PER_SECOND;
+            System.out.printf("Kroki sesji/s: %.0f (oczekiwane %.0f), pominięte kroki: %d%n",
+                              ticks.getCount() / elapsed, expectedTicks / elapsed, server.getMissedTicks() - missedBefore);
+            System.out.printf("Krok sesji: śr=%.0f ns, p50=%d ns, p99=%d ns, p99.9=%d ns, max=%d ns%n",
+                              ticks.getMeanNanos(), ticks.getP50Nanos(), ticks.getP99Nanos(), ticks.getP999Nanos(), ticks.getMaxNanos());
+            System.out.printf("Obciążenie wątków serwera: %.1f%% (%.2f rdzenia)%n",
+                              100.0 * busySeconds / (elapsed * carrierCount), busySeconds / elapsed);
+            System.out.printf("Ramki/s: %.0f, bajty/s: %.0f, akcje/s: %.0f, pominięte ramki: %d%n",
+                              (generator.frames - framesBefore) / elapsed, (generator.bytes - bytesBefore) / elapsed,
+                              (generator.actions - actionsBefore) / elapsed, server.getDroppedFrames());
+            System.out.printf("Szacowana liczba sesji na rdzeń: %.0f%n", clientCount / Math.max(1e-9, busySeconds / elapsed));
+            generator.close();
+        }
+    }
+}
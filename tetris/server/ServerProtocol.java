@@ -0,0 +1,124 @@
+package tetris.server;
+
+import tetris.engine.GameEngine;
+import tetris.model.Model;
+
+import java.nio.ByteBuffer;
+
+/**
+* Klasa opisująca protokół serwera gier (TCP, liczby w kolejności big-endian).
+* Klient wysyła pojedyncze bajty: numer akcji gracza (LEFT, RIGHT, ROTATE, SOFT_DROP, HARD_DROP
+* według GameEngine.Action.ordinal) albo NEW_GAME. Inne bajty są ignorowane.
+* Serwer po każdym kroku gry, w którym zmienił się jej stan, wysyła ramkę stanu:
+*   długość ramki bez pola długości (2 bajty, bez znaku),
+*   znaczniki (1 bajt, GAME_OVER), punkty (4 bajty), liczba klocków (4 bajty),
+*   kształt, orientacja (po 1 bajcie) i współrzędne x, y aktualnego klocka (po 2 bajty),
+*   szerokość i wysokość planszy (po 2 bajty),
+*   pola planszy od najniższego wiersza - numer kształtu (Model.TetrisShape.ordinal) na 4 bitach, dwa pola na bajt.
+*/
+public final class ServerProtocol
+{
+    /*bajt klienta rozpoczynający nową grę*/
+    public static final byte NEW_GAME = 0x40;
+    /*znacznik ramki stanu: gra zakończona*/
+    public static final int GAME_OVER = 1;
+    /*rozmiar pola długości ramki*/
+    public static final int LENGTH_BYTES = 2;
+    private static final int HEADER_BYTES = 1 + 4 + 4 + 1 + 1 + 2 + 2 + 2 + 2;
+    /*największa długość ramki bez pola długości (2 bajty bez znaku)*/
+    static final int MAX_FRAME_BYTES = 0xFFFF;
+
+    private static final GameEngine.Action[] ACTIONS = GameEngine.Action.values();
+    private static final Model.TetrisShape[] SHAPES = Model.TetrisShape.values();
+
+    private ServerProtocol()
+    {
+    }
+
+    /**
+    * Metoda zamieniająca bajt klienta na akcję gracza.
+    * @param code bajt klienta
+    * @return akcja albo null, gdy bajt nie jest akcją, którą może wykonać gracz
+    */
+    public static GameEngine.Action action(byte code)
+    {
+        if (code < GameEngine.Action.LEFT.ordinal() || code > GameEngine.Action.HARD_DROP.ordinal()) return null;
+        return ACTIONS[code];
+    }
+
+    /**
+    * @param width szerokość planszy
+    * @param height wysokość planszy
+    * @return rozmiar ramki stanu w bajtach, razem z polem długości
+    */
+    public static int frameSize(int width, int height)
+    {
+        int size = LENGTH_BYTES + HEADER_BYTES + height * ((width + 1) / 2);
+        if (size - LENGTH_BYTES > MAX_FRAME_BYTES)
+            throw new IllegalArgumentException("Plansza jest za duża dla ramki stanu: " + width + "x" + height);
+        return size;
+    }
+
+    /**
+    * Metoda zapisująca ramkę stanu gry do bufora (bufor musi mieć co najmniej frameSize wolnych bajtów).
+    * @param engine silnik gry
+    * @param buffer bufor docelowy
+    */
+    public static void writeFrame(GameEngine engine, ByteBuffer buffer)
+    {
+        int width = engine.getBoardWidth();
+        int height = engine.getBoardHeight();
+        buffer.putShort((short) (frameSize(width, height) - LENGTH_BYTES));
+        buffer.put((byte) (engine.isGameOver() ? GAME_OVER : 0));
+        buffer.putInt(engine.getPoints());
+        buffer.putInt((int) engine.getPiecesSpawned());
+        buffer.put((byte) engine.getPieceShape().ordinal());
+        buffer.put((byte) engine.getPieceRotation());
+        buffer.putShort((short) engine.getPieceX());
+        buffer.putShort((short) engine.getPieceY());
+        buffer.putShort((short) width);
+        buffer.putShort((short) height);
+        int rowBytes = (width + 1) / 2;
+        for (int y = 0; y < height; y++)
+        {
+            if (engine.row(y) == 0L)
+            {
+                for (int i = 0; i < rowBytes; i++)
+                    buffer.put((byte) 0);
+                continue;
+            }
+            for (int x = 0; x < width; x += 2)
+            {
+                int low = engine.shapeAt(x, y).ordinal();
+                int high = x + 1 < width ? engine.shapeAt(x + 1, y).ordinal() : 0;
+                buffer.put((byte) (low | (high << 4)));
+            }
+        }
+    }
+
+    /**
+    * Metoda odczytująca znaczniki ramki stanu.
+    * @param buffer bufor z ramką
+    * @param frame indeks pierwszego bajtu ramki (pola długości)
+    * @return znaczniki ramki
+    */
+    public static int flags(ByteBuffer buffer, int frame)
+    {
+        return buffer.get(frame + LENGTH_BYTES);
+    }
+
+    /**
+    * Metoda odczytująca pole planszy z ramki stanu.
+    * @param buffer bufor z ramką
+    * @param frame indeks pierwszego bajtu ramki (pola długości)
+    * @param x współrzędna x pola
+    * @param y współrzędna y pola (0 - najniższy wiersz)
+    * @return kształt zapisany na polu
+    */
+    public static Model.TetrisShape shapeAt(ByteBuffer buffer, int frame, int x, int y)
+    {
+        int width = buffer.getShort(frame + LENGTH_BYTES + HEADER_BYTES - 4);
+        int cell = buffer.get(frame + LENGTH_BYTES + HEADER_BYTES + y * ((width + 1) / 2) + x / 2);
+        return SHAPES[(x & 1) == 0 ? cell & 0xF : (cell >>> 4) & 0xF];
+    }
+}
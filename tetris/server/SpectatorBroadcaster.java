@@ -0,0 +1,398 @@
+package tetris.server;
+
+import tetris.ai.Heuristic;
+import tetris.ai.SearchPlayer;
+import tetris.engine.GameEngine;
+import tetris.engine.GameEventRing;
+import tetris.model.BagPieceGenerator;
+import tetris.simulation.Player;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+* Klasa rozsyłająca przebieg jednej gry do widzów.
+* Ramka jest kodowana (DeltaEncoder) raz na krok gry i dopisywana do wspólnego dziennika - bufora cyklicznego
+* poza stertą. Każdy widz ma tylko własną pozycję w dzienniku i własny widok bufora (ByteBuffer.duplicate,
+* tworzony raz przy dołączeniu), więc te same bajty trafiają do gniazd wszystkich widzów bez kopiowania.
+* Nowy widz zaczyna od ostatniej klatki kluczowej w dzienniku. Zapis do gniazd jest nieblokujący;
+* widz, który nie odbiera danych tak długo, że dziennik go wyprzedzi, jest rozłączany.
+* Koszt rozsyłania to głównie jedno wywołanie systemowe zapisu na widza, dlatego ramki mogą być wysyłane
+* co kilka kroków (setSendInterval) - widzowie dostają wtedy naraz wszystkie ramki z tych kroków.
+* Metody broadcast i close muszą być wywoływane w wątku, który zmienia silnik gry (albo pod blokadą silnika).
+*/
+public class SpectatorBroadcaster implements Closeable
+{
+    /*domyślny rozmiar dziennika ramek*/
+    public static final int DEFAULT_LOG_BYTES = 256 * 1024;
+
+    /**
+    * Klasa jednego widza.
+    */
+    private static final class Spectator
+    {
+        final SocketChannel channel;
+        final ByteBuffer view;
+        long position;
+
+        Spectator(SocketChannel channel, ByteBuffer view, long position)
+        {
+            this.channel = channel;
+            this.view = view;
+            this.position = position;
+        }
+    }
+
+    private final DeltaEncoder encoder;
+    private final ByteBuffer frame;
+    private final ByteBuffer log;
+    private final int capacity;
+    /*liczba bajtów zapisanych do dziennika od początku i pozycja ostatniej klatki kluczowej*/
+    private long head = 0;
+    private long lastKeyframe = 0;
+    private final List<Spectator> spectators = new ArrayList<>();
+    private final Queue<SocketChannel> joining = new ConcurrentLinkedQueue<>();
+    private int sendInterval = 1;
+    private int ticksSinceSend = 0;
+    /*pozycja dziennika, do której ramki zostały już rozesłane*/
+    private long flushed = 0;
+
+    private long frames = 0;
+    private long bytesSent = 0;
+    private long dropped = 0;
+
+    /**
+    * Konstruktor z domyślnym rozmiarem dziennika.
+    * @param engine silnik gry
+    * @param events odbiorca strumienia zdarzeń tego silnika (GameEngine.setEventRing)
+    */
+    public SpectatorBroadcaster(GameEngine engine, GameEventRing.Subscription events)
+    {
+        this(engine, events, DEFAULT_LOG_BYTES);
+    }
+
+    /**
+    * Konstruktor.
+    * @param engine silnik gry
+    * @param events odbiorca strumienia zdarzeń tego silnika (GameEngine.setEventRing)
+    * @param logBytes rozmiar dziennika ramek w bajtach
+    */
+    public SpectatorBroadcaster(GameEngine engine, GameEventRing.Subscription events, int logBytes)
+    {
+        encoder = new DeltaEncoder(engine, events);
+        int frameBytes = DeltaEncoder.maxFrameSize(engine.getBoardWidth(), engine.getBoardHeight());
+        if (logBytes < 2 * frameBytes)
+            throw new IllegalArgumentException("Dziennik ramek jest za mały: " + logBytes + " B");
+        frame = ByteBuffer.allocate(frameBytes);
+        log = ByteBuffer.allocateDirect(logBytes);
+        capacity = logBytes;
+    }
+
+    /**
+    * Metoda dodająca widza - połączenie zostanie dołączone przy najbliższym wywołaniu broadcast.
+    * Może być wywoływana z dowolnego wątku.
+    * @param channel połączenie z widzem
+    */
+    public void addSpectator(SocketChannel channel)
+    {
+        joining.add(channel);
+    }
+
+    /**
+    * Metoda ustawiająca, co ile kroków gry ramki są rozsyłane do widzów (domyślnie w każdym kroku).
+    * @param ticks liczba kroków między rozesłaniami
+    */
+    public void setSendInterval(int ticks)
+    {
+        sendInterval = Math.max(1, ticks);
+    }
+
+    /**
+    * Metoda wywoływana raz na krok gry: koduje ramkę zmian i co setSendInterval kroków
+    * wysyła widzom wszystko, czego jeszcze nie dostali.
+    */
+    public void broadcast()
+    {
+        for (SocketChannel channel = joining.poll(); channel != null; channel = joining.poll())
+            join(channel);
+        frame.clear();
+        if (encoder.encode(frame))
+        {
+            frame.flip();
+            if (frame.get(ServerProtocol.LENGTH_BYTES) == DeltaEncoder.KEYFRAME)
+                lastKeyframe = head;
+            append(frame);
+            frames++;
+        }
+        if (++ticksSinceSend < sendInterval) return;
+        ticksSinceSend = 0;
+        flushed = head;
+        for (int i = spectators.size() - 1; i >= 0; i--)
+        {
+            Spectator spectator = spectators.get(i);
+            if (send(spectator) == false)
+            {
+                close(spectator);
+                spectators.set(i, spectators.get(spectators.size() - 1));
+                spectators.remove(spectators.size() - 1);
+            }
+        }
+    }
+
+    private void join(SocketChannel channel)
+    {
+        try
+        {
+            channel.configureBlocking(false);
+            spectators.add(new Spectator(channel, log.duplicate(), head - lastKeyframe <= capacity ? lastKeyframe : head));
+            if (head - lastKeyframe > capacity)
+                encoder.requestKeyframe();
+        }
+        catch (IOException e)
+        {
+            closeQuietly(channel);
+        }
+    }
+
+    /*dopisanie ramki do dziennika - ramka może się zawinąć na początek bufora*/
+    private void append(ByteBuffer source)
+    {
+        int length = source.remaining();
+        int offset = (int) (head % capacity);
+        int first = Math.min(length, capacity - offset);
+        for (int i = 0; i < first; i++)
+            log.put(offset + i, source.get(i));
+        for (int i = first; i < length; i++)
+            log.put(i - first, source.get(i));
+        head += length;
+    }
+
+    /*wysłanie widzowi zaległych bajtów dziennika bez czekania; false - widza trzeba rozłączyć*/
+    private boolean send(Spectator spectator)
+    {
+        if (head - spectator.position > capacity)
+        {
+            dropped++;
+            return false;
+        }
+        try
+        {
+            while (spectator.position < head)
+            {
+                int offset = (int) (spectator.position % capacity);
+                int length = (int) Math.min(capacity - offset, head - spectator.position);
+                ByteBuffer view = spectator.view;
+                view.limit(offset + length).position(offset);
+                int written = spectator.channel.write(view);
+                spectator.position += written;
+                bytesSent += written;
+                if (written < length) break;
+            }
+            return true;
+        }
+        catch (IOException e)
+        {
+            return false;
+        }
+    }
+
+    private void close(Spectator spectator)
+    {
+        closeQuietly(spectator.channel);
+    }
+
+    private static void closeQuietly(SocketChannel channel)
+    {
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            /*połączenie i tak jest zamykane*/
+        }
+    }
+
+    /**
+    * @return liczba widzów
+    */
+    public int getSpectators()
+    {
+        return spectators.size();
+    }
+
+    /**
+    * @return liczba zakodowanych ramek
+    */
+    public long getFrames()
+    {
+        return frames;
+    }
+
+    /**
+    * @return liczba bajtów zapisanych do dziennika (wysyłanych do każdego widza)
+    */
+    public long getBytesEncoded()
+    {
+        return head;
+    }
+
+    /**
+    * @return pozycja dziennika, do której ramki zostały już rozesłane do widzów
+    */
+    public long getBytesFlushed()
+    {
+        return flushed;
+    }
+
+    /**
+    * @return łączna liczba bajtów wysłanych do wszystkich widzów
+    */
+    public long getBytesSent()
+    {
+        return bytesSent;
+    }
+
+    /**
+    * @return liczba widzów rozłączonych, bo nie odbierali danych
+    */
+    public long getDropped()
+    {
+        return dropped;
+    }
+
+    /**
+    * Metoda rozłączająca wszystkich widzów.
+    */
+    @Override
+    public void close()
+    {
+        for (Spectator spectator : spectators)
+            close(spectator);
+        spectators.clear();
+        for (SocketChannel channel = joining.poll(); channel != null; channel = joining.poll())
+            closeQuietly(channel);
+    }
+
+    /**
+    * Test w pętli zwrotnej: bot rozgrywa gry, których przebieg jest rozsyłany do podanej liczby widzów.
+    * Pierwszy widz dekoduje każdą ramkę (SpectatorView) i porównuje odtworzony stan ze stanem silnika,
+    * pozostali tylko odbierają dane w osobnym wątku.
+    * java tetris.server.SpectatorBroadcaster [widzowie] [kroki gry] [co ile kroków rozsyłać]
+    * @param args parametry
+    * @throws IOException gdy połączenie się nie powiedzie
+    * @throws InterruptedException gdy wątek główny zostanie przerwany
+    */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        int spectatorCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int sendInterval = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+        GameEngine engine = new GameEngine(10, 22, new BagPieceGenerator(0L));
+        GameEventRing ring = new GameEventRing(1024);
+        engine.setEventRing(ring);
+        SpectatorBroadcaster broadcaster = new SpectatorBroadcaster(engine, ring.subscribe());
+        broadcaster.setSendInterval(sendInterval);
+
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), spectatorCount);
+        SocketChannel verifier = SocketChannel.open(server.getLocalAddress());
+        broadcaster.addSpectator(server.accept());
+        Selector selector = Selector.open();
+        List<SocketChannel> clients = new ArrayList<>();
+        for (int i = 1; i < spectatorCount; i++)
+        {
+            SocketChannel client = SocketChannel.open(server.getLocalAddress());
+            broadcaster.addSpectator(server.accept());
+            client.configureBlocking(false);
+            client.register(selector, SelectionKey.OP_READ);
+            clients.add(client);
+        }
+        Thread drain = new Thread(() -> drain(selector), "tetris-spectators");
+        drain.setDaemon(true);
+        drain.start();
+
+        SpectatorView view = new SpectatorView();
+        ByteBuffer input = ByteBuffer.allocate(DEFAULT_LOG_BYTES);
+        long received = 0;
+        long mismatches = 0;
+        long broadcastNanos = 0;
+        long games = 0;
+        Player player = null;
+        for (int tick = 0; tick < ticks; tick++)
+        {
+            if (player == null || engine.isGameOver())
+            {
+                engine.reset(tick);
+                player = new SearchPlayer(10, 22, Heuristic.DEFAULT);
+                games++;
+            }
+            engine.step(player.nextAction(engine));
+            long begin = System.nanoTime();
+            broadcaster.broadcast();
+            broadcastNanos += System.nanoTime() - begin;
+            /*pierwszy widz odbiera wszystko, co zostało rozesłane*/
+            while (received < broadcaster.getBytesFlushed())
+                received += verifier.read(input);
+            int position = 0;
+            while (position < input.position())
+                position += view.apply(input, position);
+            input.clear();
+            if (received == broadcaster.getBytesEncoded() && view.matches(engine) == false)
+                mismatches++;
+        }
+        long full = (long) ticks * ServerProtocol.frameSize(10, 22);
+        System.out.printf("Kroki: %d, gry: %d, widzowie: %d, rozłączeni: %d, niezgodne stany: %d%n",
+                          ticks, games, broadcaster.getSpectators(), broadcaster.getDropped(), mismatches);
+        System.out.printf("Ramki: %d, bajty na krok: %.1f (pełny stan: %d), zaoszczędzone: %.1f%%%n",
+                          broadcaster.getFrames(), (double) broadcaster.getBytesEncoded() / ticks,
+                          ServerProtocol.frameSize(10, 22), 100.0 * (1.0 - (double) broadcaster.getBytesEncoded() / full));
+        System.out.printf("Czas kodowania i rozesłania: %.0f ns na krok, %.0f ns na widza%n",
+                          (double) broadcastNanos / ticks, (double) broadcastNanos / ticks / spectatorCount);
+        broadcaster.close();
+        verifier.close();
+        for (SocketChannel client : clients)
+            client.close();
+        selector.close();
+        server.close();
+    }
+
+    private static void drain(Selector selector)
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        try
+        {
+            while (selector.isOpen())
+            {
+                selector.select(10);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext())
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    buffer.clear();
+                    if (key.isValid() && ((SocketChannel) key.channel()).read(buffer) < 0)
+                        key.cancel();
+                }
+            }
+        }
+        catch (IOException | ClosedSelectorException e)
+        {
+            /*test zakończony*/
+        }
+    }
+}
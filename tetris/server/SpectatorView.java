@@ -0,0 +1,167 @@
+package tetris.server;
+
+import tetris.engine.GameEngine;
+import tetris.model.Model;
+
+import java.nio.ByteBuffer;
+
+/**
+* Klasa widza - odtwarza stan gry z ramek zakodowanych przez DeltaEncoder.
+* Ramki różnic otrzymane przed pierwszą klatką kluczową są pomijane.
+*/
+public class SpectatorView
+{
+    private static final Model.TetrisShape[] SHAPES = Model.TetrisShape.values();
+
+    private int width;
+    private int height;
+    private int rowBytes;
+    private byte[] rows = new byte[0];
+    private boolean synced = false;
+    private int shape;
+    private int rotation;
+    private int pieceX;
+    private int pieceY;
+    private int points;
+    private boolean gameOver;
+    private long frames = 0;
+
+    /**
+    * Metoda stosująca jedną ramkę do stanu widza.
+    * @param buffer bufor z ramką
+    * @param frame indeks pierwszego bajtu ramki (pola długości)
+    * @return rozmiar ramki w bajtach, razem z polem długości
+    */
+    public int apply(ByteBuffer buffer, int frame)
+    {
+        int length = ServerProtocol.LENGTH_BYTES + (buffer.getShort(frame) & 0xFFFF);
+        byte type = buffer.get(frame + ServerProtocol.LENGTH_BYTES);
+        int flags = buffer.get(frame + ServerProtocol.LENGTH_BYTES + 1);
+        int position = frame + DeltaEncoder.HEADER_BYTES;
+        if (type == DeltaEncoder.KEYFRAME)
+        {
+            width = buffer.getShort(position);
+            height = buffer.getShort(position + 2);
+            rowBytes = DeltaEncoder.rowBytes(width);
+            if (rows.length != height * rowBytes)
+                rows = new byte[height * rowBytes];
+            points = buffer.getInt(position + 4);
+            position = readPiece(buffer, position + 8);
+            for (int i = 0; i < rows.length; i++)
+                rows[i] = buffer.get(position + i);
+            synced = true;
+        }
+        else if (type == DeltaEncoder.DELTA && synced)
+        {
+            if ((flags & DeltaEncoder.PIECE) != 0)
+                position = readPiece(buffer, position);
+            if ((flags & DeltaEncoder.POINTS) != 0)
+            {
+                points = buffer.getInt(position);
+                position += 4;
+            }
+            if ((flags & DeltaEncoder.CLEARS) != 0)
+            {
+                int clears = buffer.get(position++) & 0xFF;
+                for (int i = 0; i < clears; i++)
+                {
+                    DeltaEncoder.removeRows(rows, rowBytes, height, buffer.getShort(position), buffer.get(position + 2) & 0xFF);
+                    position += 3;
+                }
+            }
+            if ((flags & DeltaEncoder.ROWS) != 0)
+            {
+                int count = buffer.getShort(position) & 0xFFFF;
+                position += 2;
+                for (int i = 0; i < count; i++)
+                {
+                    int offset = buffer.getShort(position) * rowBytes;
+                    position += 2;
+                    for (int b = 0; b < rowBytes; b++)
+                        rows[offset + b] = buffer.get(position++);
+                }
+            }
+        }
+        gameOver = (flags & DeltaEncoder.GAME_OVER) != 0;
+        frames++;
+        return length;
+    }
+
+    private int readPiece(ByteBuffer buffer, int position)
+    {
+        shape = buffer.get(position);
+        rotation = buffer.get(position + 1);
+        pieceX = buffer.getShort(position + 2);
+        pieceY = buffer.getShort(position + 4);
+        return position + 6;
+    }
+
+    /**
+    * @return true, jeśli widz otrzymał już klatkę kluczową
+    */
+    public boolean isSynced()
+    {
+        return synced;
+    }
+
+    /**
+    * Metoda zwracająca jaki kształt jest zapisany pod danym polem planszy.
+    * @param x współrzędna x pola
+    * @param y współrzędna y pola (0 - najniższy wiersz)
+    * @return kształt zapisany na polu
+    */
+    public Model.TetrisShape shapeAt(int x, int y)
+    {
+        int cell = rows[y * rowBytes + x / 2];
+        return SHAPES[(x & 1) == 0 ? cell & 0xF : (cell >>> 4) & 0xF];
+    }
+
+    /**
+    * @return kształt aktualnie spadającego klocka
+    */
+    public Model.TetrisShape getPieceShape()
+    {
+        return SHAPES[shape];
+    }
+
+    /**
+    * @return liczba punktów
+    */
+    public int getPoints()
+    {
+        return points;
+    }
+
+    /**
+    * @return true, jeśli gra się zakończyła
+    */
+    public boolean isGameOver()
+    {
+        return gameOver;
+    }
+
+    /**
+    * @return liczba odebranych ramek
+    */
+    public long getFrames()
+    {
+        return frames;
+    }
+
+    /**
+    * Metoda sprawdzająca, czy stan widza zgadza się ze stanem silnika gry (np. w testach w pętli zwrotnej).
+    * @param engine silnik gry
+    * @return true, jeśli plansza, klocek i punkty są takie same
+    */
+    public boolean matches(GameEngine engine)
+    {
+        if (synced == false || engine.getBoardWidth() != width || engine.getBoardHeight() != height) return false;
+        if (engine.getPieceShape().ordinal() != shape || engine.getPieceRotation() != rotation
+            || engine.getPieceX() != pieceX || engine.getPieceY() != pieceY || engine.getPoints() != points)
+            return false;
+        for (int y = 0; y < height; y++)
+            for (int x = 0; x < width; x++)
+                if (engine.shapeAt(x, y) != shapeAt(x, y)) return false;
+        return true;
+    }
+}
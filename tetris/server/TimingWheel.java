@@ -0,0 +1,182 @@
+package tetris.server;
+
+/**
+* Klasa hierarchicznego koła czasowego (timing wheel) - planowanie wielu zadań o terminach w przyszłości
+* przy stałym koszcie dodania, usunięcia i obsłużenia zadania, niezależnie od liczby zaplanowanych zadań.
+* Czas jest liczony w krokach koła. Poziom 0 ma osobne miejsce dla każdego z najbliższych SLOTS kroków,
+* a każdy wyższy poziom obejmuje SLOTS razy dłuższy czas; gdy zbliża się termin zadania z wyższego poziomu,
+* zadanie jest przenoszone na niższy poziom (kaskada).
+* Zadania są węzłami list dwukierunkowych (Timeout), więc planowanie nie alokuje pamięci.
+* Koło nie jest bezpieczne dla wielu wątków - każdy wątek serwera ma własne koło.
+*/
+class TimingWheel
+{
+    private static final int SLOT_BITS = 8;
+    /*liczba miejsc na jednym poziomie koła*/
+    static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    /*4 poziomy obejmują 2^32 kroków*/
+    private static final int LEVELS = 4;
+
+    /**
+    * Klasa zadania planowanego w kole czasowym.
+    */
+    abstract static class Timeout
+    {
+        private long deadline;
+        private Timeout next;
+        private Timeout prev;
+        /*poziom i miejsce, na których zadanie jest zaplanowane (-1, gdy nie jest zaplanowane)*/
+        private int level = -1;
+        private int slot;
+
+        /**
+        * Metoda wywoływana w kroku koła, w którym minął termin zadania.
+        * Zadanie może się w niej zaplanować ponownie.
+        * @param tick bieżący krok koła
+        */
+        abstract void expired(long tick);
+
+        /**
+        * @return true, jeśli zadanie jest zaplanowane
+        */
+        boolean isScheduled()
+        {
+            return level >= 0;
+        }
+    }
+
+    private final Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+    private long currentTick;
+    private int size = 0;
+
+    /**
+    * Konstruktor koła czasowego.
+    * @param tick krok, od którego koło zaczyna liczyć czas
+    */
+    TimingWheel(long tick)
+    {
+        currentTick = tick;
+    }
+
+    /**
+    * @return bieżący krok koła
+    */
+    long currentTick()
+    {
+        return currentTick;
+    }
+
+    /**
+    * @return liczba zaplanowanych zadań
+    */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+    * Metoda planująca zadanie (zadanie już zaplanowane jest najpierw usuwane z koła).
+    * Termin, który już minął, jest przesuwany na najbliższy krok.
+    * @param timeout zadanie
+    * @param deadline krok, w którym zadanie ma zostać wykonane
+    */
+    void schedule(Timeout timeout, long deadline)
+    {
+        if (timeout.isScheduled())
+            cancel(timeout);
+        timeout.deadline = Math.max(deadline, currentTick + 1);
+        insert(timeout);
+        size++;
+    }
+
+    /**
+    * Metoda usuwająca zaplanowane zadanie z koła.
+    * @param timeout zadanie
+    */
+    void cancel(Timeout timeout)
+    {
+        if (timeout.isScheduled() == false) return;
+        unlink(timeout);
+        size--;
+    }
+
+    /**
+    * Metoda przesuwająca koło do podanego kroku i wykonująca wszystkie zadania, których termin minął.
+    * @param tick krok docelowy
+    * @return liczba wykonanych zadań
+    */
+    int advance(long tick)
+    {
+        int expired = 0;
+        while (currentTick < tick)
+        {
+            currentTick++;
+            /*na początku każdego okresu poziomu najpierw przenoszone są zadania z poziomów wyższych*/
+            for (int level = LEVELS - 1; level > 0; level--)
+            {
+                if ((currentTick & ((1L << (level * SLOT_BITS)) - 1)) == 0)
+                    cascade(level, (int) (currentTick >>> (level * SLOT_BITS)) & SLOT_MASK);
+            }
+            int slot = (int) currentTick & SLOT_MASK;
+            Timeout timeout = slots[0][slot];
+            slots[0][slot] = null;
+            while (timeout != null)
+            {
+                Timeout next = timeout.next;
+                timeout.next = null;
+                timeout.prev = null;
+                timeout.level = -1;
+                size--;
+                timeout.expired(currentTick);
+                expired++;
+                timeout = next;
+            }
+        }
+        return expired;
+    }
+
+    private void cascade(int level, int slot)
+    {
+        Timeout timeout = slots[level][slot];
+        slots[level][slot] = null;
+        while (timeout != null)
+        {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            timeout.prev = null;
+            insert(timeout);
+            timeout = next;
+        }
+    }
+
+    /*najniższy poziom, na którym miejsce terminu nie pokrywa się z miejscem bieżącego okresu*/
+    private void insert(Timeout timeout)
+    {
+        int level = 0;
+        while (level < LEVELS - 1
+               && (timeout.deadline >>> (level * SLOT_BITS)) - (currentTick >>> (level * SLOT_BITS)) >= SLOTS)
+            level++;
+        int slot = (int) (timeout.deadline >>> (level * SLOT_BITS)) & SLOT_MASK;
+        Timeout head = slots[level][slot];
+        timeout.next = head;
+        if (head != null)
+            head.prev = timeout;
+        slots[level][slot] = timeout;
+        timeout.level = level;
+        timeout.slot = slot;
+    }
+
+    private void unlink(Timeout timeout)
+    {
+        if (timeout.prev != null)
+            timeout.prev.next = timeout.next;
+        else
+            slots[timeout.level][timeout.slot] = timeout.next;
+        if (timeout.next != null)
+            timeout.next.prev = timeout.prev;
+        timeout.next = null;
+        timeout.prev = null;
+        timeout.level = -1;
+    }
+}
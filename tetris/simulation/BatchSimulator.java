@@ -0,0 +1,197 @@
+/**
+* Pakiet implementujący symulacje wielu gier tetrisa bez interfejsu graficznego.
+*/
+package tetris.simulation;
+
+import tetris.ai.Heuristic;
+import tetris.ai.SearchPlayer;
+import tetris.ai.TranspositionTable;
+import tetris.engine.GameEngine;
+import tetris.metrics.Metrics;
+import tetris.model.BagPieceGenerator;
+import tetris.model.PieceGenerator;
+import tetris.model.UniformPieceGenerator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+* Klasa rozgrywająca wiele niezależnych gier równolegle na wszystkich rdzeniach procesora.
+* Gry są dzielone na zadania puli ForkJoinPool, a każda gra ma własny silnik, gracza i ziarno,
+* wyliczane wyłącznie z ziarna serii i numeru gry - wyniki nie zależą od liczby wątków.
+* Gry nie współdzielą żadnego zmiennego stanu: każda zapisuje wynik w swoim polu tablicy wyników.
+*/
+public class BatchSimulator
+{
+    /*liczba gier rozgrywanych przez jedno zadanie bez dalszego dzielenia*/
+    private static final int GAMES_PER_TASK = 8;
+
+    private final int boardWidth;
+    private final int boardHeight;
+    private final long maxPieces;
+    private final LongFunction<Player> players;
+    private final Supplier<PieceGenerator> generators;
+
+    /**
+    * Konstruktor symulatora z jednostajnym generatorem klocków.
+    * @param boardWidth szerokość planszy
+    * @param boardHeight wysokość planszy
+    * @param maxPieces maksymalna liczba klocków w jednej grze
+    * @param players fabryka graczy - dostaje ziarno gry i zwraca nowego gracza
+    */
+    public BatchSimulator(int boardWidth, int boardHeight, long maxPieces, LongFunction<Player> players)
+    {
+        this(boardWidth, boardHeight, maxPieces, players, () -> new UniformPieceGenerator(0L));
+    }
+
+    /**
+    * Konstruktor symulatora.
+    * @param boardWidth szerokość planszy
+    * @param boardHeight wysokość planszy
+    * @param maxPieces maksymalna liczba klocków w jednej grze
+    * @param players fabryka graczy - dostaje ziarno gry i zwraca nowego gracza
+    * @param generators fabryka generatorów klocków - każde zadanie dostaje własny generator
+    */
+    public BatchSimulator(int boardWidth, int boardHeight, long maxPieces, LongFunction<Player> players,
+                          Supplier<PieceGenerator> generators)
+    {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.maxPieces = maxPieces;
+        this.players = players;
+        this.generators = generators;
+    }
+
+    /**
+    * Metoda rozgrywająca serię gier.
+    * @param games liczba gier
+    * @param seed ziarno serii
+    * @param threads liczba wątków
+    * @return wyniki symulacji
+    */
+    public SimulationResult run(int games, long seed, int threads)
+    {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try
+        {
+            return run(games, seed, pool);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+    * Metoda rozgrywająca serię gier we wspólnej puli wątków - np. serie wielu symulatorów naraz.
+    * Wywołana z zadania tej samej puli rozgrywa gry w nim, bez czekania na inne wątki.
+    * @param games liczba gier
+    * @param seed ziarno serii
+    * @param pool pula wątków
+    * @return wyniki symulacji
+    */
+    public SimulationResult run(int games, long seed, ForkJoinPool pool)
+    {
+        int[] points = new int[games];
+        long[] pieces = new long[games];
+        GamesTask task = new GamesTask(seed, 0, games, points, pieces);
+        long begin = System.nanoTime();
+        if (ForkJoinTask.getPool() == pool)
+            task.invoke();
+        else
+            pool.invoke(task);
+        return new SimulationResult(points, pieces, System.nanoTime() - begin, pool.getParallelism());
+    }
+
+    /**
+    * Metoda wyliczająca ziarno jednej gry z ziarna serii i numeru gry (funkcja mieszająca SplitMix64).
+    * @param seed ziarno serii
+    * @param game numer gry
+    * @return ziarno gry
+    */
+    public static long gameSeed(long seed, int game)
+    {
+        long z = seed + (game + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+    * Metoda rozgrywająca jedną grę do końca lub do limitu klocków.
+    */
+    private void play(GameEngine engine, long seed, int game, int[] points, long[] pieces)
+    {
+        Player player = players.apply(~seed);
+        engine.reset(seed);
+        while (engine.isGameOver() == false && engine.getPiecesSpawned() <= maxPieces)
+            engine.step(player.nextAction(engine));
+        points[game] = engine.getPoints();
+        pieces[game] = engine.getPiecesSpawned();
+    }
+
+    /**
+    * Zadanie puli ForkJoinPool rozgrywające gry o numerach z przedziału [from, to).
+    */
+    private class GamesTask extends RecursiveAction
+    {
+        private final long seed;
+        private final int from;
+        private final int to;
+        private final int[] points;
+        private final long[] pieces;
+
+        GamesTask(long seed, int from, int to, int[] points, long[] pieces)
+        {
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+            this.points = points;
+            this.pieces = pieces;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= GAMES_PER_TASK)
+            {
+                GameEngine engine = new GameEngine(boardWidth, boardHeight, generators.get());
+                for (int game = from; game < to; game++)
+                    play(engine, gameSeed(seed, game), game, points, pieces);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new GamesTask(seed, from, middle, points, pieces),
+                      new GamesTask(seed, middle, to, points, pieces));
+        }
+    }
+
+    /**
+    * Uruchomienie symulacji z linii poleceń:
+    * java tetris.simulation.BatchSimulator [gry] [wątki] [ziarno] [maks. klocków] [uniform|bag] [random|search] [MB tablicy transpozycji]
+    * @param args parametry symulacji
+    */
+    public static void main(String[] args)
+    {
+        Metrics.registerMBeans();
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1L;
+        long maxPieces = args.length > 3 ? Long.parseLong(args[3]) : 100000L;
+        boolean bag = args.length > 4 && args[4].equals("bag");
+        boolean search = args.length > 5 && args[5].equals("search");
+        long tableMegabytes = args.length > 6 ? Long.parseLong(args[6]) : 0L;
+        TranspositionTable table = search && tableMegabytes > 0 ? TranspositionTable.forMemory(tableMegabytes << 20) : null;
+        LongFunction<Player> players = search
+                ? playerSeed -> new SearchPlayer(10, 22, Heuristic.DEFAULT, table)
+                : RandomPlayer::new;
+        BatchSimulator simulator = new BatchSimulator(10, 22, maxPieces, players,
+                () -> bag ? new BagPieceGenerator(0L) : new UniformPieceGenerator(0L));
+        System.out.println(simulator.run(games, seed, threads));
+        if (table != null)
+            System.out.println(table);
+    }
+}
@@ -0,0 +1,18 @@
+package tetris.simulation;
+
+import tetris.engine.GameEngine;
+
+/**
+* Interfejs gracza (bota) sterującego silnikiem gry w symulacjach.
+* Każda gra dostaje własny obiekt gracza, więc implementacje mogą przechowywać stan,
+* ale nie mogą go współdzielić z innymi grami.
+*/
+public interface Player
+{
+    /**
+    * Metoda wybierająca kolejną akcję dla danego stanu gry.
+    * @param engine silnik gry (tylko do odczytu stanu)
+    * @return akcja do wykonania
+    */
+    GameEngine.Action nextAction(GameEngine engine);
+}
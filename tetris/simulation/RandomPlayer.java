@@ -0,0 +1,50 @@
+package tetris.simulation;
+
+import tetris.engine.GameEngine;
+
+import java.util.SplittableRandom;
+
+/**
+* Prosty gracz losowy: dla każdego nowego klocka losuje orientację i kolumnę docelową,
+* obraca i przesuwa klocek w jej stronę, a następnie zrzuca go na sam dół.
+*/
+public class RandomPlayer implements Player
+{
+    private final SplittableRandom random;
+    private long piece = -1;
+    private int rotationsLeft;
+    private int targetX;
+    private int movesLeft;
+
+    /**
+    * Konstruktor gracza losowego.
+    * @param seed ziarno generatora decyzji gracza
+    */
+    public RandomPlayer(long seed)
+    {
+        random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public GameEngine.Action nextAction(GameEngine engine)
+    {
+        /*po usunięciu linii klocek jest pusty - nowy pojawi się w następnym kroku zegara*/
+        if (engine.pieceBlank()) return GameEngine.Action.TICK;
+        if (engine.getPiecesSpawned() != piece)
+        {
+            piece = engine.getPiecesSpawned();
+            rotationsLeft = random.nextInt(4);
+            targetX = random.nextInt(engine.getBoardWidth());
+            movesLeft = engine.getBoardWidth();
+        }
+        if (rotationsLeft > 0)
+        {
+            rotationsLeft--;
+            return GameEngine.Action.ROTATE;
+        }
+        /*ograniczenie liczby ruchów - klocek mógł zostać zablokowany przez inne klocki lub ścianę*/
+        if (movesLeft-- > 0 && engine.getPieceX() != targetX)
+            return engine.getPieceX() < targetX ? GameEngine.Action.RIGHT : GameEngine.Action.LEFT;
+        return GameEngine.Action.HARD_DROP;
+    }
+}
@@ -0,0 +1,124 @@
+package tetris.simulation;
+
+import java.util.Arrays;
+
+/**
+* Klasa przechowująca wyniki serii symulowanych gier:
+* punkty i liczbę klocków każdej gry oraz czas trwania całej serii.
+*/
+public class SimulationResult
+{
+    private final int[] points;
+    private final long[] pieces;
+    private final long nanos;
+    private final int threads;
+    /*posortowane punkty - potrzebne do wyliczania percentyli*/
+    private final int[] sortedPoints;
+
+    /**
+    * Konstruktor wyników symulacji.
+    * @param points punkty zdobyte w kolejnych grach
+    * @param pieces liczba klocków w kolejnych grach
+    * @param nanos czas trwania symulacji w nanosekundach
+    * @param threads liczba wątków, na których grano
+    */
+    public SimulationResult(int[] points, long[] pieces, long nanos, int threads)
+    {
+        this.points = points;
+        this.pieces = pieces;
+        this.nanos = nanos;
+        this.threads = threads;
+        sortedPoints = points.clone();
+        Arrays.sort(sortedPoints);
+    }
+
+    /**
+    * @return liczba rozegranych gier
+    */
+    public int games()
+    {
+        return points.length;
+    }
+
+    /**
+    * @param game numer gry
+    * @return punkty zdobyte w danej grze
+    */
+    public int points(int game)
+    {
+        return points[game];
+    }
+
+    /**
+    * @param game numer gry
+    * @return liczba klocków w danej grze
+    */
+    public long pieces(int game)
+    {
+        return pieces[game];
+    }
+
+    /**
+    * @return łączna liczba klocków we wszystkich grach
+    */
+    public long totalPieces()
+    {
+        long total = 0;
+        for (long p : pieces)
+            total += p;
+        return total;
+    }
+
+    /**
+    * @return liczba gier rozgrywanych na sekundę
+    */
+    public double gamesPerSecond()
+    {
+        return games() * 1e9 / Math.max(1, nanos);
+    }
+
+    /**
+    * @return liczba klocków na sekundę
+    */
+    public double piecesPerSecond()
+    {
+        return totalPieces() * 1e9 / Math.max(1, nanos);
+    }
+
+    /**
+    * @return średnia liczba punktów na grę
+    */
+    public double meanPoints()
+    {
+        long sum = 0;
+        for (int p : points)
+            sum += p;
+        return games() == 0 ? 0 : (double) sum / games();
+    }
+
+    /**
+    * Metoda zwracająca percentyl rozkładu punktów.
+    * @param percent percentyl (od 0 do 100)
+    * @return liczba punktów odpowiadająca percentylowi
+    */
+    public int percentile(double percent)
+    {
+        if (sortedPoints.length == 0) return 0;
+        int index = (int) Math.ceil(percent / 100.0 * sortedPoints.length) - 1;
+        return sortedPoints[Math.max(0, Math.min(sortedPoints.length - 1, index))];
+    }
+
+    /**
+    * @return raport z wynikami symulacji w postaci tekstu
+    */
+    @Override
+    public String toString()
+    {
+        return String.format("Gry: %d, wątki: %d, czas: %.3f s%n"
+                + "gry/s: %.1f, klocki/s: %.1f%n"
+                + "punkty: min %d, śr %.2f, p50 %d, p90 %d, p99 %d, max %d",
+                games(), threads, nanos / 1e9,
+                gamesPerSecond(), piecesPerSecond(),
+                percentile(0), meanPoints(), percentile(50), percentile(90), percentile(99), percentile(100));
+    }
+}
@@ -0,0 +1,136 @@
+package tetris.versus;
+
+import tetris.engine.GarbageMailbox;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+* Test obciążeniowy skrzynki linii śmieci (GarbageMailbox) z wieloma nadawcami i jednym odbiorcą.
+*/
+public final class GarbageMailboxStress
+{
+    /*liczba linii wpisów sprawdzających clear - dużo, żeby licznik nadmiaru trzeba było opróżniać kilka razy*/
+    private static final int CLEAR_LINES = 50_000;
+
+    private GarbageMailboxStress()
+    {
+    }
+
+    /**
+    * Test obciążeniowy skrzynki: nadawcy w osobnych wątkach wysyłają naraz wpisy do małej skrzynki,
+    * a wątek główny je odczytuje, w wielu rundach. Każdy wpis rundy ma inną kolumnę dziury, więc wpis
+    * odczytany dwa razy jest wykrywany po kolumnie, która już wystąpiła; odczyt z licznika nadmiaru
+    * ma kolumnę poprzedniego wpisu. Na końcu sprawdzane są bilans linii (wysłane = odebrane),
+    * bilans wpisów (wysłane = odczytane z bufora + przekazane do nadmiaru) i opróżnianie skrzynki przez clear.
+    * Nadawca między wpisami może czekać przez losową liczbę obrotów pętli (do podanej przerwy, domyślnie 0),
+    * żeby więcej wpisów trafiało do bufora, a nie do nadmiaru.
+    * java tetris.versus.GarbageMailboxStress [nadawcy] [rundy] [rozmiar skrzynki] [przerwa nadawcy]
+    * @param args parametry
+    * @throws InterruptedException gdy wątek główny zostanie przerwany
+    * @throws BrokenBarrierException gdy wątek nadawcy zostanie przerwany
+    */
+    public static void main(String[] args) throws InterruptedException, BrokenBarrierException
+    {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int pause = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        /*kolumny dziur rund parzystych i nieparzystych są rozłączne, więc pierwszy wpis rundy
+          nie ma kolumny ostatniego wpisu poprzedniej rundy*/
+        int holes = 1 << 14;
+        int perProducer = (holes - 1) / producers;
+        if (perProducer == 0)
+            throw new IllegalArgumentException("Za dużo nadawców: " + producers);
+
+        GarbageMailbox mailbox = new GarbageMailbox(capacity);
+        CyclicBarrier start = new CyclicBarrier(producers + 1);
+        AtomicInteger running = new AtomicInteger();
+        LongAdder sentLines = new LongAdder();
+        for (int p = 0; p < producers; p++)
+        {
+            int first = 1 + p * perProducer;
+            SplittableRandom random = new SplittableRandom(p);
+            Thread producer = new Thread(() ->
+            {
+                try
+                {
+                    for (int r = 0; r < rounds; r++)
+                    {
+                        start.await();
+                        int offset = (r & 1) * holes;
+                        long lines = 0;
+                        for (int i = 0; i < perProducer; i++)
+                        {
+                            int count = 1 + (i & 3);
+                            mailbox.send(count, offset + first + i);
+                            lines += count;
+                            for (int spin = pause > 0 ? random.nextInt(pause) : 0; spin > 0; spin--)
+                                Thread.onSpinWait();
+                        }
+                        sentLines.add(lines);
+                        running.decrementAndGet();
+                    }
+                }
+                catch (InterruptedException | BrokenBarrierException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }, "tetris-garbage-" + p);
+            producer.setDaemon(true);
+            producer.start();
+        }
+
+        long receivedLines = 0, ringEntries = 0, duplicates = 0;
+        BitSet seen = new BitSet(2 * holes);
+        int lastHole = 0;
+        long begin = System.nanoTime();
+        for (int r = 0; r < rounds; r++)
+        {
+            seen.clear();
+            running.set(producers);
+            start.await();
+            while (true)
+            {
+                /*po zakończeniu wszystkich nadawców pusta skrzynka oznacza koniec rundy*/
+                boolean done = running.get() == 0;
+                int message = mailbox.poll();
+                if (message < 0)
+                {
+                    if (done) break;
+                    Thread.onSpinWait();
+                    continue;
+                }
+                receivedLines += GarbageMailbox.lines(message);
+                int hole = GarbageMailbox.hole(message);
+                /*odczyt z licznika nadmiaru (ponowny odczyt ostatniego wpisu zaburzyłby bilans linii)*/
+                if (hole == lastHole) continue;
+                if (seen.get(hole))
+                    duplicates++;
+                seen.set(hole);
+                lastHole = hole;
+                ringEntries++;
+            }
+        }
+        long nanos = System.nanoTime() - begin;
+        long sent = mailbox.getSent();
+        long overflowed = mailbox.getOverflowed();
+        long lostEntries = sent - overflowed - ringEntries;
+
+        /*clear musi opróżnić i bufor, i licznik nadmiaru*/
+        for (int i = 0; i < 2 * capacity; i++)
+            mailbox.send(CLEAR_LINES, 1);
+        mailbox.clear();
+        boolean cleared = mailbox.poll() < 0;
+
+        System.out.printf("Rundy: %d, nadawcy: %d, rozmiar skrzynki: %d, czas: %.3f s%n", rounds, producers, capacity, nanos / 1e9);
+        System.out.printf("Wpisy: %d (odczytane z bufora: %d, do nadmiaru: %d), nieudane rezerwacje: %d%n",
+                          sent, ringEntries, overflowed, mailbox.getContended());
+        System.out.printf("Linie wysłane: %d, odebrane: %d, wpisy odczytane dwa razy: %d, zgubione: %d, clear: %s%n",
+                          sentLines.sum(), receivedLines, duplicates, lostEntries, cleared ? "pusta" : "NIEPUSTA");
+    }
+}
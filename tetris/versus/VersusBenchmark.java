@@ -0,0 +1,162 @@
+package tetris.versus;
+
+import tetris.ai.Heuristic;
+import tetris.ai.SearchPlayer;
+import tetris.engine.GameEngine;
+import tetris.model.BagPieceGenerator;
+import tetris.simulation.BatchSimulator;
+import tetris.simulation.Player;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+* Klasa turnieju botów w trybie pojedynku, mierząca jego wydajność: rozgrywa naraz tysiące pojedynków
+* na wszystkich rdzeniach procesora. Każda gra każdego pojedynku jest osobnym zadaniem puli wątków, które
+* rozgrywa kilka klocków i zgłasza się do puli ponownie, więc gry jednego pojedynku działają w różnych
+* wątkach równocześnie, a jedyną wspólną rzeczą są skrzynki linii śmieci.
+* Gra, która osiągnie limit klocków, zatrzymuje się, ale się nie kończy. Pojedynek kończy się, gdy zostanie w nim
+* jedna niezakończona gra (zwycięzca), albo gdy wszystkie niezakończone gry osiągną limit klocków (remis).
+* Na końcu wypisywane są: pojedynki na sekundę, klocki na sekundę, wyniki graczy oraz ruch i rywalizacja
+* w skrzynkach linii śmieci.
+*/
+public class VersusBenchmark
+{
+    /*liczba klocków rozgrywanych przez jedno zadanie gry przed ponownym zgłoszeniem do puli*/
+    private static final int PIECES_PER_SLICE = 8;
+
+    private final ForkJoinPool pool;
+    private final long maxPieces;
+    private final CountDownLatch finished;
+
+    /**
+    * Klasa jednego pojedynku turnieju: gry, ich boty i liczba gier, które jeszcze działają.
+    */
+    private final class Bout
+    {
+        final VersusMatch match;
+        final Player[] players;
+        /*gry, które się nie zakończyły (także te zatrzymane na limicie klocków)*/
+        final AtomicInteger alive;
+        /*gry, których zadania jeszcze działają*/
+        final AtomicInteger running;
+
+        Bout(int boardWidth, int boardHeight, int playerCount, long seed)
+        {
+            GameEngine[] engines = new GameEngine[playerCount];
+            players = new Player[playerCount];
+            for (int i = 0; i < playerCount; i++)
+            {
+                engines[i] = new GameEngine(boardWidth, boardHeight, new BagPieceGenerator(0L));
+                players[i] = new SearchPlayer(boardWidth, boardHeight, Heuristic.DEFAULT);
+            }
+            match = new VersusMatch(engines);
+            match.reset(seed);
+            alive = new AtomicInteger(playerCount);
+            running = new AtomicInteger(playerCount);
+        }
+    }
+
+    /**
+    * Zadanie jednej gry pojedynku - rozgrywa kilka klocków i zgłasza się ponownie, dopóki gra trwa.
+    */
+    private final class Game implements Runnable
+    {
+        private final Bout bout;
+        private final int index;
+
+        Game(Bout bout, int index)
+        {
+            this.bout = bout;
+            this.index = index;
+        }
+
+        @Override
+        public void run()
+        {
+            GameEngine engine = bout.match.engine(index);
+            Player player = bout.players[index];
+            long sliceEnd = engine.getPiecesSpawned() + PIECES_PER_SLICE;
+            while (engine.isGameOver() == false && engine.getPiecesSpawned() <= maxPieces
+                   && engine.getPiecesSpawned() < sliceEnd)
+                engine.step(player.nextAction(engine));
+            boolean over = engine.isGameOver();
+            if (over)
+                bout.alive.decrementAndGet();
+            /*gra osiągnęła limit klocków albo pojedynek jest rozstrzygnięty - została najwyżej jedna gra*/
+            if (over || engine.getPiecesSpawned() > maxPieces || bout.alive.get() <= 1)
+            {
+                if (bout.running.decrementAndGet() == 0)
+                    finished.countDown();
+                return;
+            }
+            pool.execute(this);
+        }
+    }
+
+    private VersusBenchmark(int threads, long maxPieces, int matches)
+    {
+        /*kolejki zadań FIFO - zgłaszające się ponownie gry nie wyprzedzają innych pojedynków*/
+        pool = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.maxPieces = maxPieces;
+        finished = new CountDownLatch(matches);
+    }
+
+    /**
+    * Uruchomienie turnieju z linii poleceń:
+    * java tetris.versus.VersusBenchmark [pojedynki] [gracze w pojedynku] [wątki] [maks. klocków] [ziarno]
+    * @param args parametry turnieju
+    * @throws InterruptedException gdy wątek zostanie przerwany w trakcie oczekiwania na koniec turnieju
+    */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int playerCount = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long maxPieces = args.length > 3 ? Long.parseLong(args[3]) : 500L;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1L;
+
+        VersusBenchmark benchmark = new VersusBenchmark(threads, maxPieces, matches);
+        Bout[] bouts = new Bout[matches];
+        for (int m = 0; m < matches; m++)
+            bouts[m] = benchmark.new Bout(10, 22, playerCount, BatchSimulator.gameSeed(seed, m));
+        long begin = System.nanoTime();
+        for (Bout bout : bouts)
+        {
+            for (int i = 0; i < playerCount; i++)
+                benchmark.pool.execute(benchmark.new Game(bout, i));
+        }
+        benchmark.finished.await();
+        long nanos = System.nanoTime() - begin;
+        benchmark.pool.shutdown();
+
+        long pieces = 0, linesSent = 0, sent = 0, contended = 0, overflowed = 0;
+        int draws = 0;
+        int[] wins = new int[playerCount];
+        for (Bout bout : bouts)
+        {
+            int winner = bout.match.winner();
+            if (winner >= 0)
+                wins[winner]++;
+            else
+                draws++;
+            for (int i = 0; i < playerCount; i++)
+            {
+                pieces += bout.match.engine(i).getPiecesSpawned();
+                linesSent += bout.match.linesSent(i);
+                sent += bout.match.mailbox(i).getSent();
+                contended += bout.match.mailbox(i).getContended();
+                overflowed += bout.match.mailbox(i).getOverflowed();
+            }
+        }
+        System.out.printf("Pojedynki: %d, gracze: %d, wątki: %d, czas: %.3f s%n", matches, playerCount, threads, nanos / 1e9);
+        System.out.printf("pojedynki/s: %.1f, klocki/s: %.0f%n", matches * 1e9 / nanos, pieces * 1e9 / nanos);
+        StringBuilder results = new StringBuilder("wygrane:");
+        for (int i = 0; i < playerCount; i++)
+            results.append(" gracz ").append(i).append(' ').append(wins[i]).append(',');
+        System.out.println(results.append(" remisy ").append(draws));
+        System.out.printf("linie śmieci: %d, wpisy skrzynek: %d, nieudane rezerwacje: %d (%.3f na wpis), nadmiar: %d%n",
+                linesSent, sent, contended, sent == 0 ? 0.0 : (double) contended / sent, overflowed);
+    }
+}
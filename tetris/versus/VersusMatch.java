@@ -0,0 +1,151 @@
+/**
+* Pakiet implementujący tryb pojedynku: kilka gier w jednym procesie wysyłających sobie linie śmieci.
+*/
+package tetris.versus;
+
+import tetris.engine.GameEngine;
+import tetris.engine.GarbageMailbox;
+import tetris.engine.GarbageSender;
+
+import java.util.SplittableRandom;
+
+/**
+* Klasa pojedynku kilku gier: linie usunięte w jednej grze są zamieniane na linie śmieci
+* i wysyłane kolejnym przeciwnikom (po kolei) do ich skrzynek GarbageMailbox.
+* Każda gra może działać we własnym wątku (np. we własnej pętli gry GameLoop albo w zadaniu puli wątków):
+* wysłanie śmieci nie bierze blokady przeciwnika i nie czeka na niego, a przeciwnik dodaje odebrane linie
+* na dół swojej planszy przy zapisie najbliższego klocka.
+* Wszystkie gry pojedynku dostają to samo ziarno, więc grają tymi samymi klockami.
+*/
+public class VersusMatch
+{
+    /*liczba wpisów skrzynki linii śmieci każdej gry*/
+    public static final int MAILBOX_CAPACITY = 64;
+    /*liczba linii śmieci za usunięcie naraz 0-4 linii*/
+    private static final int[] ATTACK = {0, 0, 1, 2, 4};
+
+    private final GameEngine[] engines;
+    private final GarbageMailbox[] mailboxes;
+    private final Seat[] seats;
+
+    /**
+    * Konstruktor pojedynku - włącza w silnikach tryb pojedynku.
+    * @param engines silniki gier (co najmniej dwa)
+    */
+    public VersusMatch(GameEngine... engines)
+    {
+        if (engines.length < 2)
+            throw new IllegalArgumentException("Pojedynek wymaga co najmniej dwóch gier");
+        this.engines = engines.clone();
+        mailboxes = new GarbageMailbox[engines.length];
+        seats = new Seat[engines.length];
+        for (int i = 0; i < engines.length; i++)
+        {
+            mailboxes[i] = new GarbageMailbox(MAILBOX_CAPACITY);
+            seats[i] = new Seat(i);
+            engines[i].setGarbage(mailboxes[i], seats[i]);
+        }
+    }
+
+    /**
+    * Metoda zaczynająca nowy pojedynek - wywoływana, gdy żadna gra pojedynku nie działa.
+    * @param seed ziarno klocków (wspólne dla wszystkich gier) i dziur w liniach śmieci
+    */
+    public void reset(long seed)
+    {
+        for (int i = 0; i < engines.length; i++)
+        {
+            mailboxes[i].clear();
+            seats[i].reset(seed);
+            engines[i].reset(seed);
+        }
+    }
+
+    /**
+    * @return liczba gier pojedynku
+    */
+    public int players()
+    {
+        return engines.length;
+    }
+
+    /**
+    * @param player numer gry
+    * @return silnik gry
+    */
+    public GameEngine engine(int player)
+    {
+        return engines[player];
+    }
+
+    /**
+    * @param player numer gry
+    * @return skrzynka linii śmieci gry
+    */
+    public GarbageMailbox mailbox(int player)
+    {
+        return mailboxes[player];
+    }
+
+    /**
+    * Metoda wskazująca zwycięzcę zakończonego pojedynku (odczytywana po zatrzymaniu wszystkich gier).
+    * @return numer jedynej gry, która się nie zakończyła, albo -1 (remis)
+    */
+    public int winner()
+    {
+        int winner = -1;
+        for (int i = 0; i < engines.length; i++)
+        {
+            if (engines[i].isGameOver()) continue;
+            if (winner >= 0) return -1;
+            winner = i;
+        }
+        return winner;
+    }
+
+    /**
+    * @param player numer gry
+    * @return liczba linii śmieci wysłanych przez grę w bieżącym pojedynku
+    */
+    public long linesSent(int player)
+    {
+        return seats[player].linesSent;
+    }
+
+    /**
+    * Miejsce gracza w pojedynku - zamienia usunięte linie na śmieci dla kolejnego przeciwnika.
+    * Używane tylko przez wątek swojej gry.
+    */
+    private final class Seat implements GarbageSender
+    {
+        private final int index;
+        private SplittableRandom random;
+        private int target;
+        private long linesSent;
+
+        Seat(int index)
+        {
+            this.index = index;
+            reset(0L);
+        }
+
+        void reset(long seed)
+        {
+            random = new SplittableRandom(seed + index);
+            target = index;
+            linesSent = 0;
+        }
+
+        @Override
+        public void linesCleared(GameEngine engine, int lines)
+        {
+            int garbage = ATTACK[Math.min(lines, ATTACK.length - 1)];
+            if (garbage == 0) return;
+            target = (target + 1) % engines.length;
+            if (target == index)
+                target = (target + 1) % engines.length;
+            mailboxes[target].send(garbage, random.nextInt(engines[target].getBoardWidth()));
+            linesSent += garbage;
+        }
+    }
+}
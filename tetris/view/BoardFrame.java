@@ -0,0 +1,194 @@
+package tetris.view;
+
+import tetris.engine.GameEngine;
+import tetris.model.Model;
+
+import java.util.Arrays;
+
+/**
+* Klasa migawki stanu planszy do narysowania: kształty pól widocznych wierszy (Viewport) razem ze spadającym
+* klockiem, jego "duchem" (miejscem, w którym klocek wyląduje po zrzuceniu) i punkty.
+* Kopiowane są tylko widoczne wiersze, więc koszt migawki nie zależy od wysokości planszy.
+* Ducha klocka można wyłączyć właściwością systemową -Dtetris.ghost=false.
+* Migawka jest kopiowana z silnika gry pod jego blokadą, a rysowana (BoardRenderer) już bez blokady
+* i w dowolnym wątku - np. przez wątek rysujący klatki poza ekranem. Obiekty migawek można używać wielokrotnie.
+*/
+public final class BoardFrame
+{
+    private static final Model.TetrisShape[] SHAPES = Model.TetrisShape.values();
+    /*czy rysowany jest duch klocka*/
+    public static final boolean GHOST = Boolean.parseBoolean(System.getProperty("tetris.ghost", "true"));
+    /*numer obrazka pola ducha: GHOST_TILE + numer kształtu klocka (zob. TileCache)*/
+    static final int GHOST_TILE = SHAPES.length;
+
+    private final int boardWidth;
+    private final int boardHeight;
+    /*liczba widocznych wierszy i najniższy z nich*/
+    private final int viewRows;
+    private int viewBottom;
+    /*numery obrazków pól widocznych wierszy (kształt albo duch klocka), wiersz po wierszu od najniższego*/
+    private final byte[] cells;
+    private int points;
+    private long index;
+
+    /**
+    * Konstruktor pustej migawki całej planszy.
+    * @param boardWidth szerokość planszy
+    * @param boardHeight wysokość planszy
+    */
+    public BoardFrame(int boardWidth, int boardHeight)
+    {
+        this(boardWidth, boardHeight, boardHeight);
+    }
+
+    /**
+    * Konstruktor pustej migawki części planszy.
+    * @param boardWidth szerokość planszy
+    * @param boardHeight wysokość planszy
+    * @param viewRows liczba widocznych wierszy (zob. Viewport.getRows)
+    */
+    public BoardFrame(int boardWidth, int boardHeight, int viewRows)
+    {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.viewRows = Math.min(boardHeight, viewRows);
+        cells = new byte[boardWidth * this.viewRows];
+    }
+
+    /**
+    * Metoda kopiująca do migawki stan silnika gry od najniższego wiersza planszy
+    * (wywoływana pod blokadą silnika, jeśli zmienia go inny wątek).
+    * @param engine silnik gry o tych samych wymiarach planszy
+    */
+    public void copyFrom(GameEngine engine)
+    {
+        copyFrom(engine, 0);
+    }
+
+    /**
+    * Metoda kopiująca do migawki widoczne wiersze silnika gry
+    * (wywoływana pod blokadą silnika, jeśli zmienia go inny wątek).
+    * @param engine silnik gry o tych samych wymiarach planszy
+    * @param viewBottom najniższy widoczny wiersz (zob. Viewport.getBottom)
+    */
+    public void copyFrom(GameEngine engine, int viewBottom)
+    {
+        if (engine.getBoardWidth() != boardWidth || engine.getBoardHeight() != boardHeight)
+            throw new IllegalArgumentException("Migawka ma inne wymiary niż plansza silnika");
+        this.viewBottom = Math.max(0, Math.min(boardHeight - viewRows, viewBottom));
+        for (int row = 0; row < viewRows; row++)
+        {
+            int y = this.viewBottom + row;
+            int offset = row * boardWidth;
+            if (engine.row(y) == 0L)
+            {
+                Arrays.fill(cells, offset, offset + boardWidth, (byte) 0);
+                continue;
+            }
+            for (int x = 0; x < boardWidth; x++)
+                cells[offset + x] = (byte) engine.shapeAt(x, y).ordinal();
+        }
+        if (engine.pieceBlank() == false)
+        {
+            byte shape = (byte) engine.getPieceShape().ordinal();
+            /*duch klocka - odległość zrzutu wynika z wysokości kolumn planszy*/
+            int drop = GHOST ? engine.getDropDistance() : 0;
+            if (drop > 0)
+            {
+                for (int i = 0; i < 4; i++)
+                {
+                    int x = engine.pieceCellX(i);
+                    int row = engine.pieceCellY(i) - drop - this.viewBottom;
+                    if (x >= 0 && x < boardWidth && row >= 0 && row < viewRows)
+                        cells[row * boardWidth + x] = (byte) (GHOST_TILE + shape);
+                }
+            }
+            for (int i = 0; i < 4; i++)
+            {
+                int x = engine.pieceCellX(i);
+                int y = engine.pieceCellY(i);
+                int row = y - this.viewBottom;
+                if (x >= 0 && x < boardWidth && row >= 0 && row < viewRows)
+                    cells[row * boardWidth + x] = shape;
+            }
+        }
+        points = engine.getPoints();
+    }
+
+    /**
+    * @return szerokość planszy
+    */
+    public int getBoardWidth()
+    {
+        return boardWidth;
+    }
+
+    /**
+    * @return wysokość planszy
+    */
+    public int getBoardHeight()
+    {
+        return boardHeight;
+    }
+
+    /**
+    * @return liczba widocznych wierszy
+    */
+    public int getViewRows()
+    {
+        return viewRows;
+    }
+
+    /**
+    * @return najniższy widoczny wiersz planszy
+    */
+    public int getViewBottom()
+    {
+        return viewBottom;
+    }
+
+    /**
+    * @param x współrzędna x pola
+    * @param y współrzędna y pola (0 - najniższy wiersz planszy, w zakresie widocznych wierszy)
+    * @return kształt pola (razem ze spadającym klockiem; pole ducha klocka jest puste)
+    */
+    public Model.TetrisShape shapeAt(int x, int y)
+    {
+        int tile = tileAt(x, y);
+        return tile < GHOST_TILE ? SHAPES[tile] : Model.TetrisShape.Blank;
+    }
+
+    /**
+    * @param x współrzędna x pola
+    * @param y współrzędna y pola (0 - najniższy wiersz planszy, w zakresie widocznych wierszy)
+    * @return numer obrazka pola: numer kształtu albo GHOST_TILE + numer kształtu dla ducha klocka
+    */
+    int tileAt(int x, int y)
+    {
+        return cells[(y - viewBottom) * boardWidth + x];
+    }
+
+    /**
+    * @return liczba punktów
+    */
+    public int getPoints()
+    {
+        return points;
+    }
+
+    /**
+    * @return numer klatki nadany przez użytkownika migawki (np. przy eksporcie klatek)
+    */
+    public long getIndex()
+    {
+        return index;
+    }
+
+    /**
+    * @param index numer klatki
+    */
+    public void setIndex(long index)
+    {
+        this.index = index;
+    }
+}
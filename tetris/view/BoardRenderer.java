@@ -0,0 +1,81 @@
+package tetris.view;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+
+/**
+* Klasa rysująca planszę z migawki stanu (BoardFrame): tło i wszystkie pola (razem z duchem klocka)
+* jako kwadraciki z TileCache.
+* Tego samego kodu używa plansza w oknie (TetrisBoard) i rysowanie klatek poza ekranem (tetris.export),
+* więc wyeksportowane klatki wyglądają dokładnie tak jak plansza na ekranie.
+* Rysowane są tylko widoczne wiersze migawki (Viewport) i tylko te pola, które leżą w obszarze odmalowywania (clip).
+* Obiekt nie jest bezpieczny dla wielu wątków - każdy wątek rysujący potrzebuje własnego.
+*/
+public class BoardRenderer
+{
+    /*kolor tła planszy*/
+    static final Color BACKGROUND = new Color(25,25,125);
+
+    private final TileCache tiles;
+
+    /**
+    * Konstruktor z własną pamięcią podręczną kwadracików.
+    */
+    public BoardRenderer()
+    {
+        this(new TileCache());
+    }
+
+    /**
+    * Konstruktor ze wspólną pamięcią podręczną kwadracików.
+    * @param tiles pamięć podręczna kwadracików
+    */
+    public BoardRenderer(TileCache tiles)
+    {
+        this.tiles = tiles;
+    }
+
+    /**
+    * Metoda rysująca widoczne wiersze planszy w obszarze o zadanym rozmiarze: pola są jednakowymi prostokątami,
+    * a wiersze są dosunięte do dolnej krawędzi obszaru.
+    * @param g kontekst graficzny
+    * @param frame migawka stanu planszy
+    * @param width szerokość obszaru
+    * @param height wysokość obszaru
+    * @param configuration konfiguracja ekranu dla obrazków kwadracików (null - poza ekranem)
+    */
+    public void render(Graphics g, BoardFrame frame, int width, int height, GraphicsConfiguration configuration)
+    {
+        int boardWidth = frame.getBoardWidth();
+        int rows = frame.getViewRows();
+        int viewBottom = frame.getViewBottom();
+        int elementWidth = width / boardWidth;
+        int elementHeight = height / rows;
+        if (elementWidth <= 0 || elementHeight <= 0) return;
+        int boardTop = height - rows * elementHeight;
+        /*wyrysowanie tła*/
+        g.setColor(BACKGROUND);
+        g.fillRect(0, 0, width, height);
+
+        /*zakres wierszy (licząc od góry) i kolumn w obszarze odmalowywania*/
+        int firstRow = 0, lastRow = rows - 1, firstColumn = 0, lastColumn = boardWidth - 1;
+        Rectangle clip = g.getClipBounds();
+        if (clip != null)
+        {
+            firstRow = Math.max(firstRow, Math.floorDiv(clip.y - boardTop, elementHeight));
+            lastRow = Math.min(lastRow, Math.floorDiv(clip.y + clip.height - 1 - boardTop, elementHeight));
+            firstColumn = Math.max(firstColumn, clip.x / elementWidth);
+            lastColumn = Math.min(lastColumn, (clip.x + clip.width - 1) / elementWidth);
+        }
+        for (int i = firstRow; i <= lastRow; ++i)
+        {
+            for (int j = firstColumn; j <= lastColumn; ++j)
+            {
+                g.drawImage(tiles.tile(frame.tileAt(j, viewBottom + rows - i - 1), elementWidth, elementHeight, configuration),
+                            j * elementWidth, boardTop + i * elementHeight, null);
+            }
+        }
+    }
+}
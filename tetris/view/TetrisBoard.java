@@ -5,34 +5,55 @@ package tetris.view;
 
 
 import tetris.controller.Controller;
+import tetris.engine.GameEngine;
+import tetris.jfr.PaintEvent;
+import tetris.metrics.Metrics;
+import tetris.replay.ReplayReader;
 
 import javax.swing.*;
 import java.awt.*;
 /**
 * Zaimportowanie interfejsów słuchaczy.
 */
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 
-import java.util.Random;
-
 /**
 * Klasa implemenrująca planszę tetrisa:
 *    pola prywatne:
 *      wysokosc, szerokosc, ststusBar, control
 * Klasa zawiera metody służące do rysowania elementów na planszy,
-* nasłuchiwania za pomocą słuchacza (ActionListener) naciśnięcia przez urzytkownika klawiszy,
+* nasłuchiwania za pomocą słuchacza (KeyAdapter) naciśnięcia przez urzytkownika klawiszy,
 * wyświetlania informacji dla użytkownika (w tym Menu).
  */
-public class TetrisBoard extends JPanel implements ActionListener
+public class TetrisBoard extends JPanel
 {
 
-    private final int WIDTH = 10;
-    private final int HEIGHT = 22;
+    /*domyślny rozmiar planszy, zmieniany właściwościami systemowymi tetris.width i tetris.height*/
+    private static final int DEFAULT_WIDTH = 10;
+    private static final int DEFAULT_HEIGHT = 22;
+    private final int WIDTH;
+    private final int HEIGHT;
+    /*akcje gracza sterowane klawiszami strzałek i spacją*/
+    private static final GameEngine.Action[] INPUT_ACTIONS = {
+        GameEngine.Action.LEFT, GameEngine.Action.RIGHT, GameEngine.Action.ROTATE,
+        GameEngine.Action.SOFT_DROP, GameEngine.Action.HARD_DROP
+    };
+    /*kolory i czcionki tworzone raz, a nie przy każdym rysowaniu*/
+    private static final Color BACKGROUND = BoardRenderer.BACKGROUND;
+    private static final Color MENU_TEXT = new Color(225,225,225);
+    private static final Font MENU_TITLE_FONT = new Font("Verdana", Font.BOLD, 20);
+    private static final Font MENU_FONT = new Font("Verdana", Font.PLAIN, 18);
     private JLabel statusBar;
     private Controller control;
+    /*rysowanie planszy z migawki stanu (z własną pamięcią podręczną kwadracików) - to samo co przy eksporcie klatek poza ekranem*/
+    private final BoardRenderer renderer = new BoardRenderer();
+    /*czas naciśnięcia klawisza, którego skutek nie został jeszcze narysowany (0 - brak), tylko w wątku zdarzeń*/
+    private long inputNanos = 0;
+    /*czas zmiany stanu gry przez wejście gracza, która nie została jeszcze narysowana (0 - brak), tylko w wątku zdarzeń*/
+    private long stateNanos = 0;
 
     /**
     * Konstruktor klasy TetrisBoard.
@@ -43,158 +64,134 @@ public class TetrisBoard extends JPanel implements ActionListener
     */
     public TetrisBoard(TetrisBackgroundFrame parent)
     {
-        setFocusable(true);
-        control = new Controller(WIDTH, HEIGHT, this);
-        statusBar = parent.getStatusBar();
-        addKeyListener(new TetrisKeyAdapter());
-    }
-
-    /** wystartowanie działania planszy jest bezpośrednio zależne
-    * od wystartowania działania kontrolera,
-    * który startuje wszystkie metody TetrisBoard
-    */
-    void start()
-    {
-        control.start();
+        this(parent.getStatusBar());
     }
 
     /**
-    *Metoda nadpisująca działanie metody actionPerformed,
-    *która jest wywoływana, kiedy zostanie wygenerowane zdarzenie
-    * na obiekcie powiązanym ze słuchaczem.
-    *Jest wtedy uruchamiana metoda z klasy kontrolera.
-    *@param e wydarzenie słuchacza
+    * Konstruktor klasy TetrisBoard z zadanym polem tekstowym statusu.
+    * Nie wymaga okna JFrame, więc planszę można tworzyć i rysować poza ekranem
+    * (np. w testach wydajności rysowania).
+    * Rozmiar planszy jest brany z właściwości systemowych tetris.width (do Board.MAX_WIDTH) i tetris.height,
+    * domyślnie 10x22.
+    *@param statusBar pole tekstowe, w którym wyświetlany jest status gry
     */
-    @Override
-    public void actionPerformed(ActionEvent e)
+    public TetrisBoard(JLabel statusBar)
     {
-        control.gameAction();
+        this(statusBar, Integer.getInteger("tetris.width", DEFAULT_WIDTH), Integer.getInteger("tetris.height", DEFAULT_HEIGHT));
     }
 
     /**
-    * Metoda inicjująca narysowanie komponentów planszy oraz kontrolera,
-    * Nie można jej bezpośrednio wywołać -
-    * jedyną możliwością jej wywołania jest użycie metody repaint().
-    * @param g potrzebny do metody ustawiającej komponenty graficzne
-     */
-    public void paint(Graphics g)
+    * Konstruktor klasy TetrisBoard z zadanym polem tekstowym statusu i rozmiarem planszy.
+    * Plansza wyższa niż okno widoku (Viewport) jest przewijana za spadającym klockiem.
+    *@param statusBar pole tekstowe, w którym wyświetlany jest status gry
+    *@param width szerokość planszy (do Board.MAX_WIDTH)
+    *@param height wysokość planszy
+    */
+    public TetrisBoard(JLabel statusBar, int width, int height)
     {
-        super.paint(g);
-        control.paint(g, getSize().getWidth(), getSize().getHeight());
+        WIDTH = width;
+        HEIGHT = height;
+        setFocusable(true);
+        control = new Controller(WIDTH, HEIGHT, this);
+        this.statusBar = statusBar;
+        addKeyListener(new TetrisKeyAdapter());
+        addFocusListener(new FocusAdapter()
+        {
+            /*po utracie fokusu puszczenia klawiszy już nie dotrą - przytrzymane klawisze nie mogą się dalej powtarzać*/
+            public void focusLost(FocusEvent e)
+            {
+                long now = System.nanoTime();
+                for (GameEngine.Action action : INPUT_ACTIONS)
+                    control.input(action, false, now);
+            }
+        });
     }
 
     /**
-    * Metoda ustawiająca tło dla póżniej rysowanych elementów:
-    * kolor oraz rozmiar.
-    * @param g potrzebny do metody ustawiającej komponenty graficzne
-    * @param width wysokość planszy
-    * @param height szerokość planszy
+    * Metoda zapamiętująca czas zmiany stanu gry przez wejście gracza - przy włączonych pomiarach (Metrics)
+    * czas od tej zmiany do końca najbliższego rysowania trafia do histogramu Metrics.STATE_TO_FRAME.
+    * @param nanos czas zmiany stanu gry (System.nanoTime)
     */
-    public void drawBackgroundForElements(Graphics g, int width, int height)
+    public void stateChanged(long nanos)
     {
-      Color color = new Color(25,25,125);
-      g.setColor(color);
-      g.fillRect(0,0, width, height);
-
+        if (stateNanos == 0)
+            stateNanos = nanos;
     }
 
     /**
-    * Metody prywatne potrzebne do wyliczenia szerokości i wysokości
-    * pojedynczego kwadracika dla klocka tetrisa.
+    * Metoda odtwarzająca na planszy powtórkę gry (zob. Controller.playReplay).
+    * @param reader plik powtórek ustawiony na grze do odtworzenia
     */
-    private int elementWidth()
+    public void playReplay(ReplayReader reader)
     {
-      int width = (int) getSize().getWidth() / WIDTH;
-      return width;
+        control.playReplay(reader);
     }
 
-    private int elementHeight()
+    /** wystartowanie działania planszy jest bezpośrednio zależne
+    * od wystartowania działania kontrolera,
+    * który startuje wszystkie metody TetrisBoard
+    */
+    void start()
     {
-      int height = (int) getSize().getHeight() / HEIGHT;
-      return height;
+        control.start();
     }
 
     /**
-    * Metoda prywatna pomocnicza, do ustalenia wartości liczbowej
-    * potrzebnej do ustalenia koloru komponentu na podstawie typu kształtu.
-    */
-    private int setParamShape(tetris.model.Model.TetrisShape shape){
-      int c = 10;
-      if(shape!=null)
-      {
-        switch (shape)
+    * Metoda inicjująca narysowanie komponentów planszy oraz kontrolera,
+    * przy włączonych pomiarach (Metrics) mierzony jest czas rysowania i opóźnienie od naciśnięcia klawisza,
+    * a w nagraniu JFR każde rysowanie jest zdarzeniem tetris.Paint.
+    * Nie można jej bezpośrednio wywołać -
+    * jedyną możliwością jej wywołania jest użycie metody repaint().
+    * @param g potrzebny do metody ustawiającej komponenty graficzne
+     */
+    public void paint(Graphics g)
+    {
+        PaintEvent event = new PaintEvent();
+        event.begin();
+        long start = Metrics.ENABLED ? System.nanoTime() : 0L;
+        super.paint(g);
+        control.paint(g, getSize().getWidth(), getSize().getHeight());
+        if (Metrics.ENABLED)
+        {
+            long end = System.nanoTime();
+            Metrics.PAINT.record(end - start);
+            /*pierwsze rysowanie po naciśnięciu klawisza pokazuje już jego skutek*/
+            if (inputNanos != 0)
+            {
+                Metrics.INPUT_TO_REPAINT.record(end - inputNanos);
+                inputNanos = 0;
+            }
+            if (stateNanos != 0)
+            {
+                Metrics.STATE_TO_FRAME.record(end - stateNanos);
+                stateNanos = 0;
+            }
+        }
+        if (event.shouldCommit())
         {
-          case Blank:
-                    c=0;
-                    break;
-          case ZElement:
-                    c=1;
-                    break;
-          case SElement:
-                    c=2;
-                    break;
-          case IElement:
-                    c=3;
-                    break;
-          case TElement:
-                    c=4;
-                    break;
-          case OElement:
-                    c=5;
-                    break;
-          case LElement:
-                    c=6;
-                    break;
-          case MirroredLElement:
-                    c=7;
-                    break;
+            Rectangle clip = g.getClipBounds();
+            if (clip != null)
+            {
+                event.clipX = clip.x;
+                event.clipY = clip.y;
+                event.clipWidth = clip.width;
+                event.clipHeight = clip.height;
+            }
+            event.full = clip == null || clip.contains(0, 0, getWidth(), getHeight());
+            event.commit();
         }
-      }
-      return c;
     }
 
     /**
-    * Metoda rysująca jeden kwadrat (element podstawowy kształtów Tetris'a)
-    * wypełniony kolorem w oknie programu i obramowany liniami.
-    * @param element potrzebny do metody ustawiającej komponenty graficzne
-    * @param x współrzędna x punktu, w którym ma się znajdywać lewy górny róg kwadratu
-    * @param y współrzędna y punktu, w którym ma się znajdywać lewy górny róg kwadratu
-    * @param shape kształt, który ma zostać narysowany - informacja potrzebna do doboru koloru
+    * Metoda rysująca planszę z migawki stanu gry (tło i wszystkie pola leżące w obszarze odmalowywania).
+    * @param g potrzebny do metody ustawiającej komponenty graficzne
+    * @param frame migawka stanu planszy
+    * @param width szerokość planszy
+    * @param height wysokość planszy
     */
-    public void drawElement(Graphics element, int x, int y, tetris.model.Model.TetrisShape shape)
+    public void drawBoard(Graphics g, BoardFrame frame, int width, int height)
     {
-          if(shape!=tetris.model.Model.TetrisShape.Blank)
-          {
-            int c=10;
-            c = setParamShape(shape);
-            int a = (c*30)%255;
-            int b = (c*20);
-            /*kwadracik*/
-            Color color = new Color(255,255-a,b);
-            element.setColor(color);
-            element.fillRect(x + 1, y + 1, elementWidth() - 1, elementHeight() - 1);
-            /*linie jaśniejsze*/
-            element.setColor(color.brighter().brighter());
-            element.drawLine(x, y + elementHeight() - 1, x, y);
-            element.drawLine(x, y, x + elementWidth() - 1, y);
-            /*linie ciemniejsze*/
-            element.setColor(color.darker().darker());
-            element.drawLine(x + 1, y + elementHeight() - 1, x + elementWidth() - 1, y + elementHeight() - 1);
-            element.drawLine(x + elementWidth() - 1, y + elementHeight() - 1, x + elementWidth() - 1, y + 1);
-          }
-          /*kształt jest pusty - narysowanie klocka tła */
-          else
-          {
-            Color color = new Color(25,25,112);
-            element.setColor(color);
-            element.fillRect(x + 1, y + 1, elementWidth() - 1, elementHeight() - 1);
-            color = new Color(25,25,125);
-            element.setColor(color);
-            element.drawLine(x, y + elementHeight() - 1, x, y);
-            element.drawLine(x, y, x + elementWidth() - 1, y);
-            element.drawLine(x + 1, y + elementHeight() - 1, x + elementWidth() - 1, y + elementHeight() - 1);
-            element.drawLine(x + elementWidth() - 1, y + elementHeight() - 1, x + elementWidth() - 1, y + 1);
-          }
+        renderer.render(g, frame, width, height, getGraphicsConfiguration());
     }
 
     /**
@@ -206,16 +203,14 @@ public class TetrisBoard extends JPanel implements ActionListener
     */
     public void drawMenu(Graphics g, int width, int height)
     {
-      Color color = new Color(25,25,125);
-      g.setColor(color);
+      g.setColor(BACKGROUND);
 
       g.fillRect(0,0, width, height);
-      color = new Color (225, 225,225);
-      g.setColor(color);
-      g.setFont(new Font("Verdana", Font.BOLD, 20));
+      g.setColor(MENU_TEXT);
+      g.setFont(MENU_TITLE_FONT);
 
       g.drawString("Menu:", width/3, 100);
-      g.setFont(new Font("Verdana", Font.PLAIN, 18));
+      g.setFont(MENU_FONT);
       g.drawString("p - pauza", width/5, 150);
       g.drawString("m - menu", width/5, 175);
       g.drawString("strzałka:", width/5, 200);
@@ -238,18 +233,47 @@ public class TetrisBoard extends JPanel implements ActionListener
     }
 
     /**
-    * Klasa obsługująca zdarzenia polegające na naciśnięciu przez urzytkownika klawisza klawiatury.
+    * Metoda zwracająca akcję gracza przypisaną do klawisza.
+    * @param key kod klawisza
+    * @return akcja gracza albo null, gdy klawisz nie steruje klockiem
+    */
+    private static GameEngine.Action inputAction(int key)
+    {
+        switch (key)
+        {
+            case KeyEvent.VK_LEFT:
+                return GameEngine.Action.LEFT;
+            case KeyEvent.VK_RIGHT:
+                return GameEngine.Action.RIGHT;
+            case KeyEvent.VK_DOWN:
+                return GameEngine.Action.SOFT_DROP;
+            case KeyEvent.VK_UP:
+                return GameEngine.Action.ROTATE;
+            case KeyEvent.VK_SPACE:
+                return GameEngine.Action.HARD_DROP;
+            default:
+                return null;
+        }
+    }
+
+    /**
+    * Klasa obsługująca zdarzenia polegające na naciśnięciu i puszczeniu przez urzytkownika klawisza klawiatury.
     */
     private class TetrisKeyAdapter extends KeyAdapter
     {
         /**
         * Metoda służąca do obsługi naciśnięcia przez urzytkownika obsługiwanych w programiw klawiszy klawiatury.
-        * Metoda ta odwołuje się do odpowiednich przy danym zdarzeniu metod kontrolera,
-        * w nim to są zapisane metody obsługi tych zdarzeń.
+        * Klawisze sterujące programem (s, e, p, m) wywołują od razu odpowiednie metody kontrolera,
+        * a klawisze ruchu klocka są przekazywane, razem z czasem naciśnięcia, do kolejki wejścia pętli gry.
         * @param keyClicked wartość naciśniętego przez urzytkownika klawisza
         */
         public void keyPressed(KeyEvent keyClicked)
         {
+            long now = System.nanoTime();
+            /*w trakcie odtwarzania powtórki klawisze nie sterują grą*/
+            if (control.replaying()) return;
+            if (Metrics.ENABLED && inputNanos == 0)
+                inputNanos = now;
             if ((control.started()==false || control.actualPieceBlank()==true) && control.waitingForNewGame()==false)
             {
                 return;
@@ -277,24 +301,21 @@ public class TetrisBoard extends JPanel implements ActionListener
             }
             if (control.paused()) return;
 
-            switch (key)
-            {
-                case KeyEvent.VK_LEFT:
-                    control.stepLeft();
-                    break;
-                case KeyEvent.VK_RIGHT:
-                    control.stepRight();
-                    break;
-                case KeyEvent.VK_DOWN:
-                    control.stepDown();
-                    break;
-                case KeyEvent.VK_UP:
-                    control.rotate();
-                    break;
-                case KeyEvent.VK_SPACE:
-                    control.goDown();
-                    break;
-            }
+            GameEngine.Action action = inputAction(key);
+            if (action != null)
+                control.input(action, true, now);
+        }
+
+        /**
+        * Metoda służąca do obsługi puszczenia klawisza - kończy powtarzanie przytrzymanego klawisza ruchu klocka.
+        * Puszczenia są przekazywane zawsze (także w czasie pauzy), aby klawisz nie pozostał przytrzymany.
+        * @param keyReleased wartość puszczonego przez urzytkownika klawisza
+        */
+        public void keyReleased(KeyEvent keyReleased)
+        {
+            GameEngine.Action action = inputAction(keyReleased.getKeyCode());
+            if (action != null)
+                control.input(action, false, System.nanoTime());
         }
     }
 }
@@ -0,0 +1,138 @@
+package tetris.view;
+
+import tetris.model.Model;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+* Klasa przechowująca wcześniej narysowane obrazki kwadracików (elementów podstawowych klocków)
+* dla każdego rodzaju klocka i jego ducha (zob. BoardFrame), w aktualnym rozmiarze pola planszy.
+* Obrazki są tworzone ponownie tylko przy zmianie rozmiaru pola lub konfiguracji ekranu,
+* więc narysowanie pola planszy to jedno skopiowanie obrazka (drawImage), bez żadnych alokacji.
+*/
+public class TileCache
+{
+    private static final Model.TetrisShape[] SHAPES = Model.TetrisShape.values();
+
+    /*kolory klocków: wypełnienie, linie jaśniejsze i ciemniejsze (dla kształtu pustego - kolory tła)*/
+    private static final Color[] FILL = new Color[SHAPES.length];
+    private static final Color[] LIGHT = new Color[SHAPES.length];
+    private static final Color[] DARK = new Color[SHAPES.length];
+
+    static
+    {
+        for (int c = 0; c < SHAPES.length; c++)
+        {
+            if (SHAPES[c] == Model.TetrisShape.Blank)
+            {
+                FILL[c] = new Color(25,25,112);
+                LIGHT[c] = new Color(25,25,125);
+                DARK[c] = LIGHT[c];
+            }
+            else
+            {
+                int a = (c*30)%255;
+                int b = (c*20);
+                FILL[c] = new Color(255,255-a,b);
+                LIGHT[c] = FILL[c].brighter().brighter();
+                DARK[c] = FILL[c].darker().darker();
+            }
+        }
+    }
+
+    /*obrazki kształtów, a za nimi obrazki duchów klocków (numery od BoardFrame.GHOST_TILE)*/
+    private final BufferedImage[] tiles = new BufferedImage[2 * SHAPES.length];
+    private int tileWidth = -1;
+    private int tileHeight = -1;
+    private GraphicsConfiguration configuration;
+
+    /**
+    * Metoda zwracająca obrazek kwadracika danego klocka w zadanym rozmiarze.
+    * Jeśli rozmiar lub konfiguracja ekranu się zmieniły, to wszystkie obrazki są rysowane od nowa.
+    * @param shape rodzaj klocka
+    * @param width szerokość pola planszy
+    * @param height wysokość pola planszy
+    * @param configuration konfiguracja ekranu, dla której tworzone są obrazki (może być null, np. bez ekranu)
+    * @return obrazek kwadracika
+    */
+    public BufferedImage tile(Model.TetrisShape shape, int width, int height, GraphicsConfiguration configuration)
+    {
+        return tile(shape.ordinal(), width, height, configuration);
+    }
+
+    /**
+    * Metoda zwracająca obrazek pola o danym numerze (zob. BoardFrame.tileAt) w zadanym rozmiarze.
+    * @param tile numer obrazka: numer kształtu albo BoardFrame.GHOST_TILE + numer kształtu
+    * @param width szerokość pola planszy
+    * @param height wysokość pola planszy
+    * @param configuration konfiguracja ekranu, dla której tworzone są obrazki (może być null, np. bez ekranu)
+    * @return obrazek pola
+    */
+    BufferedImage tile(int tile, int width, int height, GraphicsConfiguration configuration)
+    {
+        if (width != tileWidth || height != tileHeight || configuration != this.configuration)
+            rebuild(width, height, configuration);
+        return tiles[tile];
+    }
+
+    private void rebuild(int width, int height, GraphicsConfiguration configuration)
+    {
+        tileWidth = width;
+        tileHeight = height;
+        this.configuration = configuration;
+        for (int c = 0; c < tiles.length; c++)
+        {
+            BufferedImage image = configuration != null
+                    ? configuration.createCompatibleImage(Math.max(1, width), Math.max(1, height), Transparency.OPAQUE)
+                    : new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+            Graphics g = image.createGraphics();
+            if (c < SHAPES.length)
+                drawTile(g, 0, 0, width, height, SHAPES[c]);
+            else
+                drawGhostTile(g, width, height, SHAPES[c - SHAPES.length]);
+            g.dispose();
+            tiles[c] = image;
+        }
+    }
+
+    /**
+    * Metoda rysująca pole ducha klocka: pole tła z obwódką w kolorze klocka.
+    */
+    private static void drawGhostTile(Graphics element, int width, int height, Model.TetrisShape shape)
+    {
+        drawTile(element, 0, 0, width, height, Model.TetrisShape.Blank);
+        element.setColor(FILL[shape.ordinal()]);
+        element.drawRect(1, 1, width - 3, height - 3);
+    }
+
+    /**
+    * Metoda rysująca jeden kwadrat (element podstawowy kształtów Tetris'a)
+    * wypełniony kolorem i obramowany liniami - jaśniejszymi z lewej i u góry, ciemniejszymi z prawej i u dołu.
+    * Dla kształtu pustego rysowany jest klocek tła.
+    * @param element potrzebny do metody ustawiającej komponenty graficzne
+    * @param x współrzędna x lewego górnego rogu kwadratu
+    * @param y współrzędna y lewego górnego rogu kwadratu
+    * @param width szerokość kwadratu
+    * @param height wysokość kwadratu
+    * @param shape kształt, który ma zostać narysowany - informacja potrzebna do doboru koloru
+    */
+    static void drawTile(Graphics element, int x, int y, int width, int height, Model.TetrisShape shape)
+    {
+        int c = shape.ordinal();
+        /*kwadracik*/
+        element.setColor(FILL[c]);
+        element.fillRect(x + 1, y + 1, width - 1, height - 1);
+        /*linie jaśniejsze*/
+        element.setColor(LIGHT[c]);
+        element.drawLine(x, y + height - 1, x, y);
+        element.drawLine(x, y, x + width - 1, y);
+        /*linie ciemniejsze*/
+        element.setColor(DARK[c]);
+        element.drawLine(x + 1, y + height - 1, x + width - 1, y + height - 1);
+        element.drawLine(x + width - 1, y + height - 1, x + width - 1, y + 1);
+    }
+}
@@ -0,0 +1,84 @@
+package tetris.view;
+
+/**
+* Klasa okna widoku planszy: zakres wierszy planszy widocznych na ekranie.
+* Plansza nie wyższa niż liczba widocznych wierszy jest widoczna cała; na wyższej planszy (np. tysiące wierszy
+* w trybach testów obciążeniowych) okno przewija się za spadającym klockiem, a rysowane i kopiowane są
+* tylko widoczne wiersze - koszt rysowania zależy od liczby widocznych wierszy, a nie od wysokości planszy.
+* Domyślną liczbę widocznych wierszy można zmienić właściwością systemową tetris.viewRows.
+*/
+public class Viewport
+{
+    /*domyślna największa liczba widocznych wierszy*/
+    public static final int DEFAULT_ROWS = Integer.getInteger("tetris.viewRows", 40);
+
+    private final int boardHeight;
+    private final int rows;
+    /*odstęp klocka od krawędzi okna, przy którym okno się przewija*/
+    private final int margin;
+    /*najniższy widoczny wiersz*/
+    private int bottom;
+
+    /**
+    * Konstruktor okna z domyślną liczbą widocznych wierszy.
+    * @param boardHeight wysokość planszy
+    */
+    public Viewport(int boardHeight)
+    {
+        this(boardHeight, DEFAULT_ROWS);
+    }
+
+    /**
+    * Konstruktor okna widoku - okno zaczyna od szczytu planszy, gdzie pojawiają się klocki.
+    * @param boardHeight wysokość planszy
+    * @param rows największa liczba widocznych wierszy
+    */
+    public Viewport(int boardHeight, int rows)
+    {
+        this.boardHeight = boardHeight;
+        this.rows = Math.max(1, Math.min(boardHeight, rows));
+        margin = this.rows / 4;
+        bottom = boardHeight - this.rows;
+    }
+
+    /**
+    * @return liczba widocznych wierszy
+    */
+    public int getRows()
+    {
+        return rows;
+    }
+
+    /**
+    * @return najniższy widoczny wiersz planszy
+    */
+    public int getBottom()
+    {
+        return bottom;
+    }
+
+    /**
+    * @return najwyższy widoczny wiersz planszy
+    */
+    public int getTop()
+    {
+        return bottom + rows - 1;
+    }
+
+    /**
+    * Metoda przewijająca okno tak, aby wiersze klocka były widoczne z zapasem margin wierszy.
+    * @param pieceBottom najniższy wiersz klocka
+    * @param pieceTop najwyższy wiersz klocka
+    * @return true, jeśli okno zostało przewinięte
+    */
+    public boolean follow(int pieceBottom, int pieceTop)
+    {
+        int old = bottom;
+        if (pieceTop > getTop() - margin)
+            bottom = pieceTop + margin - rows + 1;
+        if (pieceBottom < bottom + margin)
+            bottom = pieceBottom - margin;
+        bottom = Math.max(0, Math.min(boardHeight - rows, bottom));
+        return bottom != old;
+    }
+}